@@ -27,13 +27,31 @@ public interface AdminCatalogService {
     /**
      * Clear out any Skus that are already attached to the Product
      * if there were any there and generate a new set of Skus based
-     * on the permutations of ProductOptions attached to this Product
+     * on the permutations of ProductOptions attached to this Product.
+     * If Skus are already being generated for the Product, for instance by
+     * {@link #submitSkuGeneration(Long)}, this waits for that generation to finish first.
      * 
      * @param productId - the Product to generate Skus from
      * @return the number of generated Skus from the ProductOption permutations
      */
     public Integer generateSkusFromProduct(Long productId);
 
+    /**
+     * Runs {@link #generateSkusFromProduct(Long)} in the background. If a generation for the Product is already
+     * queued or running, that job is returned instead of starting another.
+     *
+     * @param productId - the Product to generate Skus from
+     * @return the job, which can be polled for progress with {@link #findSkuGenerationJob(String)}
+     * @throws IllegalStateException if too many generations are already queued
+     */
+    public SkuGenerationJob submitSkuGeneration(Long productId);
+
+    /**
+     * @param jobId
+     * @return the Sku generation job, or null if there is no such job or it has expired
+     */
+    public SkuGenerationJob findSkuGenerationJob(String jobId);
+
     /**
      * This will create a new product along with a new Sku for the defaultSku, along with new
      * Skus for all of the additional Skus. This is achieved by simply detaching the entities
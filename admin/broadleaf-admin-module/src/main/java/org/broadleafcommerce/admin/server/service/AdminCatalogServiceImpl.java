@@ -24,6 +24,8 @@ import org.broadleafcommerce.admin.server.service.extension.AdminCatalogServiceE
 import org.broadleafcommerce.common.extension.ExtensionResultHolder;
 import org.broadleafcommerce.common.extension.ExtensionResultStatusType;
 import org.broadleafcommerce.common.util.BLCCollectionUtils;
+import org.broadleafcommerce.common.util.BackgroundJobRegistry;
+import org.broadleafcommerce.common.util.TransactionUtils;
 import org.broadleafcommerce.common.util.TypedTransformer;
 import org.broadleafcommerce.core.catalog.dao.SkuDao;
 import org.broadleafcommerce.core.catalog.domain.Product;
@@ -31,12 +33,28 @@ import org.broadleafcommerce.core.catalog.domain.ProductOption;
 import org.broadleafcommerce.core.catalog.domain.ProductOptionValue;
 import org.broadleafcommerce.core.catalog.domain.Sku;
 import org.broadleafcommerce.core.catalog.service.CatalogService;
+import org.hibernate.SessionFactory;
+import org.hibernate.ejb.HibernateEntityManager;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -62,61 +80,259 @@ public class AdminCatalogServiceImpl implements AdminCatalogService {
 
     @Resource(name = "blAdminCatalogServiceExtensionManager")
     protected AdminCatalogServiceExtensionManager extensionManager;
+
+    @Resource(name = "blTransactionManager")
+    protected PlatformTransactionManager transactionManager;
+
+    @Value("${admin.sku.generation.batchSize:500}")
+    protected int skuGenerationBatchSize = 500;
+
+    @Value("${admin.sku.generation.queueSize:10}")
+    protected int skuGenerationQueueSize = 10;
+
+    @Value("${admin.sku.generation.retentionMinutes:60}")
+    protected int skuGenerationJobRetentionMinutes = 60;
+
+    protected BackgroundJobRegistry<SkuGenerationJob> skuGenerationJobs;
+
+    protected final ConcurrentMap<Long, ReentrantLock> skuGenerationLocks = new ConcurrentHashMap<>();
     
     @Override
     public Integer generateSkusFromProduct(Long productId) {
-        Product product = catalogService.findProductById(productId);
-        
-        if (CollectionUtils.isEmpty(product.getProductOptions())) {
-            return -1;
+        return generateSkusFromProduct(productId, new SkuGenerationJob(null, productId));
+    }
+
+    /**
+     * Generates the Skus for the permutations of the Product's options that do not have a Sku yet. Only one generation
+     * runs for a Product at a time on this node, whether it was started from a request or as a
+     * {@link SkuGenerationJob}. Another generation for the same Product waits for it, and then only generates the Skus
+     * it did not.
+     *
+     * @param productId
+     * @param job receives the progress of the generation
+     * @return the number of generated Skus, -1 if the Product has no options or -2 if an option used in Sku
+     * generation has no allowed values
+     */
+    protected Integer generateSkusFromProduct(Long productId, SkuGenerationJob job) {
+        ReentrantLock lock = lockSkuGeneration(productId);
+        try {
+            return generateMissingSkus(productId, job);
+        } finally {
+            unlockSkuGeneration(productId, lock);
         }
-        
-        List<List<ProductOptionValue>> allPermutations = generatePermutations(0, new ArrayList<ProductOptionValue>(), product.getProductOptions());
+    }
 
-        // return -2 to indicate that one of the Product Options used in Sku generation has no Allowed Values
-        if (allPermutations == null) {
-            return -2;
+    /**
+     * Acquires the Sku generation lock of the Product. Locks are only kept while a generation holds or waits for them,
+     * so after acquiring one it is checked to still be the Product's lock.
+     *
+     * @param productId
+     * @return the held lock
+     */
+    protected ReentrantLock lockSkuGeneration(Long productId) {
+        while (true) {
+            ReentrantLock lock = new ReentrantLock();
+            ReentrantLock existing = skuGenerationLocks.putIfAbsent(productId, lock);
+            if (existing != null) {
+                lock = existing;
+            }
+            lock.lock();
+            if (skuGenerationLocks.get(productId) == lock) {
+                return lock;
+            }
+            lock.unlock();
         }
+    }
 
-        LOG.info("Total number of permutations: " + allPermutations.size());
-        LOG.info(allPermutations);
-        
-        //determine the permutations that I already have Skus for
-        List<List<ProductOptionValue>> previouslyGeneratedPermutations = new ArrayList<List<ProductOptionValue>>();
-        if (CollectionUtils.isNotEmpty(product.getAdditionalSkus())) {
-            for (Sku additionalSku : product.getAdditionalSkus()) {
-                if (CollectionUtils.isNotEmpty(additionalSku.getProductOptionValues())) {
-                    previouslyGeneratedPermutations.add(additionalSku.getProductOptionValues());
+    protected void unlockSkuGeneration(Long productId, ReentrantLock lock) {
+        if (!lock.hasQueuedThreads()) {
+            skuGenerationLocks.remove(productId, lock);
+        }
+        lock.unlock();
+    }
+
+    /**
+     * Generates the Skus for the permutations of the Product's options that do not have a Sku yet. Permutations are
+     * produced lazily and checked against a hashed set of the signatures of the existing Skus, and new permutations
+     * are handed to the {@link AdminCatalogServiceExtensionManager} in batches of {@link #skuGenerationBatchSize},
+     * each in its own transaction, with the persistence context flushed and cleared after every batch.
+     *
+     * @param productId
+     * @param job receives the progress of the generation
+     * @return the number of generated Skus, -1 if the Product has no options or -2 if an option used in Sku
+     * generation has no allowed values
+     */
+    protected Integer generateMissingSkus(Long productId, SkuGenerationJob job) {
+        List<List<ProductOptionValue>> optionValues = new ArrayList<List<ProductOptionValue>>();
+        Set<String> existingSignatures = new HashSet<String>();
+        TransactionStatus status = TransactionUtils.createTransaction("readSkuPermutations",
+                TransactionDefinition.PROPAGATION_REQUIRED, transactionManager, true);
+        try {
+            Product product = catalogService.findProductById(productId);
+
+            if (CollectionUtils.isEmpty(product.getProductOptions())) {
+                return -1;
+            }
+
+            for (ProductOption option : product.getProductOptions()) {
+                if (!option.getUseInSkuGeneration()) {
+                    continue;
                 }
+                // Check to make sure there is at least 1 Allowed Value, else prevent generation
+                if (option.getAllowedValues().isEmpty()) {
+                    // return -2 to indicate that one of the Product Options used in Sku generation has no Allowed Values
+                    return -2;
+                }
+                optionValues.add(new ArrayList<ProductOptionValue>(option.getAllowedValues()));
             }
-        }
-        
-        List<List<ProductOptionValue>> permutationsToGenerate = new ArrayList<List<ProductOptionValue>>();
-        for (List<ProductOptionValue> permutation : allPermutations) {
-            boolean previouslyGenerated = false;
-            for (List<ProductOptionValue> generatedPermutation : previouslyGeneratedPermutations) {
-                if (isSamePermutation(permutation, generatedPermutation)) {
-                    previouslyGenerated = true;
-                    break;
+
+            //determine the permutations that I already have Skus for
+            if (CollectionUtils.isNotEmpty(product.getAdditionalSkus())) {
+                for (Sku additionalSku : product.getAdditionalSkus()) {
+                    if (CollectionUtils.isNotEmpty(additionalSku.getProductOptionValues())) {
+                        existingSignatures.add(buildPermutationSignature(additionalSku.getProductOptionValues()));
+                    }
                 }
             }
-            
-            if (!previouslyGenerated) {
-                permutationsToGenerate.add(permutation);
+        } finally {
+            TransactionUtils.finalizeTransaction(status, transactionManager, false);
+        }
+
+        SkuPermutationIterator permutations = new SkuPermutationIterator(optionValues);
+        job.setTotalPermutations(permutations.getTotalPermutations());
+        LOG.info("Total number of permutations: " + permutations.getTotalPermutations() + ", existing Skus: "
+                + existingSignatures.size());
+
+        int batchSize = Math.max(1, skuGenerationBatchSize);
+        List<List<ProductOptionValue>> batch = new ArrayList<List<ProductOptionValue>>(batchSize);
+        int numPermutationsCreated = 0;
+        long processed = 0;
+        while (permutations.hasNext()) {
+            List<ProductOptionValue> permutation = permutations.next();
+            processed++;
+            if (!permutation.isEmpty() && !existingSignatures.contains(buildPermutationSignature(permutation))) {
+                batch.add(permutation);
+            }
+            if (batch.size() >= batchSize || !permutations.hasNext()) {
+                int created = persistSkuPermutations(productId, batch);
+                numPermutationsCreated += created;
+                job.addSkusGenerated(created);
+                job.addPermutationsProcessed(processed);
+                processed = 0;
+                batch.clear();
             }
         }
+        if (numPermutationsCreated > 0) {
+            evictAdditionalSkusCache(productId);
+        }
+        return numPermutationsCreated;
+    }
 
+    /**
+     * Hands a batch of permutations to the extension handlers in its own transaction, then flushes and clears the
+     * persistence context so that memory use does not grow with the number of generated Skus.
+     *
+     * @param productId
+     * @param permutationsToGenerate
+     * @return the number of Skus created
+     */
+    protected int persistSkuPermutations(Long productId, List<List<ProductOptionValue>> permutationsToGenerate) {
+        if (permutationsToGenerate.isEmpty() || extensionManager == null) {
+            return 0;
+        }
         int numPermutationsCreated = 0;
-        if (extensionManager != null) {
+        TransactionStatus status = TransactionUtils.createTransaction("persistSkuPermutations",
+                TransactionDefinition.PROPAGATION_REQUIRED, transactionManager, false);
+        boolean isError = true;
+        try {
+            Product product = catalogService.findProductById(productId);
             ExtensionResultHolder<Integer> result = new ExtensionResultHolder<Integer>();
             ExtensionResultStatusType resultStatusType = extensionManager.getProxy().persistSkuPermutation(product, permutationsToGenerate, result);
             if (ExtensionResultStatusType.HANDLED == resultStatusType) {
                 numPermutationsCreated = result.getResult();
             }
+            em.flush();
+            em.clear();
+            isError = false;
+        } finally {
+            TransactionUtils.finalizeTransaction(status, transactionManager, isError);
         }
         return numPermutationsCreated;
     }
 
+    /**
+     * The Skus are persisted through their owning side, so the cached additionalSkus collection of the Product has to
+     * be evicted for the new Skus to show up.
+     *
+     * @param productId
+     */
+    protected void evictAdditionalSkusCache(Long productId) {
+        SessionFactory sessionFactory = ((HibernateEntityManager) em).getSession().getSessionFactory();
+        for (Object role : sessionFactory.getAllCollectionMetadata().keySet()) {
+            if (((String) role).endsWith(".additionalSkus")) {
+                sessionFactory.getCache().evictCollection((String) role, productId);
+            }
+        }
+    }
+
+    /**
+     * Builds a key that is equal for any two permutations made of the same ProductOptionValues, regardless of order
+     *
+     * @param permutation
+     * @return
+     */
+    protected String buildPermutationSignature(Collection<ProductOptionValue> permutation) {
+        long[] ids = new long[permutation.size()];
+        int i = 0;
+        for (ProductOptionValue value : permutation) {
+            ids[i++] = value.getId();
+        }
+        Arrays.sort(ids);
+        return Arrays.toString(ids);
+    }
+
+    @Override
+    public SkuGenerationJob submitSkuGeneration(Long productId) {
+        synchronized (skuGenerationJobs) {
+            for (SkuGenerationJob job : skuGenerationJobs.getJobs()) {
+                if (productId.equals(job.getProductId()) && !job.isDone()) {
+                    return job;
+                }
+            }
+            try {
+                return skuGenerationJobs.submit(new SkuGenerationJob(UUID.randomUUID().toString(), productId),
+                        new BackgroundJobRegistry.JobWork<SkuGenerationJob>() {
+                            @Override
+                            public void run(SkuGenerationJob job) {
+                                job.setResult(generateSkusFromProduct(job.getProductId(), job));
+                            }
+                        });
+            } catch (RejectedExecutionException e) {
+                throw new IllegalStateException("Too many Sku generations are already queued, try again once they finish", e);
+            }
+        }
+    }
+
+    @Override
+    public SkuGenerationJob findSkuGenerationJob(String jobId) {
+        return skuGenerationJobs.find(jobId);
+    }
+
+    @PostConstruct
+    public void init() {
+        skuGenerationJobs = new BackgroundJobRegistry<>("blSkuGeneration", 1, skuGenerationQueueSize,
+                skuGenerationJobRetentionMinutes);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        skuGenerationJobs.shutdown();
+    }
+
+    /**
+     * @deprecated permutations are compared by {@link #buildPermutationSignature(Collection)} instead
+     */
+    @Deprecated
     protected boolean isSamePermutation(List<ProductOptionValue> perm1, List<ProductOptionValue> perm2) {
         if (perm1.size() == perm2.size()) {
             
@@ -145,7 +361,9 @@ public class AdminCatalogServiceImpl implements AdminCatalogService {
      * @param currentPermutation
      * @param options
      * @return a list containing all of the possible combinations of ProductOptionValues based on grouping by the ProductOptionValue
+     * @deprecated materializes every permutation, Sku generation now uses {@link SkuPermutationIterator}
      */
+    @Deprecated
     public List<List<ProductOptionValue>> generatePermutations(int currentTypeIndex, List<ProductOptionValue> currentPermutation, List<ProductOption> options) {
         List<List<ProductOptionValue>> result = new ArrayList<List<ProductOptionValue>>();
         if (currentTypeIndex == options.size()) {
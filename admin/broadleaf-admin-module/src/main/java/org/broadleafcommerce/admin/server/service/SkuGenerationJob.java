@@ -0,0 +1,88 @@
+/*
+ * #%L
+ * BroadleafCommerce Admin Module
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.admin.server.service;
+
+import org.broadleafcommerce.common.time.SystemTime;
+import org.broadleafcommerce.common.util.BackgroundJob;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of a Sku generation started with {@link AdminCatalogService#submitSkuGeneration(Long)}
+ */
+public class SkuGenerationJob extends BackgroundJob {
+
+    protected final Long productId;
+    protected final AtomicLong permutationsProcessed = new AtomicLong();
+    protected final AtomicInteger skusGenerated = new AtomicInteger();
+    protected volatile long totalPermutations;
+    protected volatile Integer result;
+
+    public SkuGenerationJob(String id, Long productId) {
+        super(id, SystemTime.wallClockMillis());
+        this.productId = productId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    /**
+     * The number of permutations of the product's options, including those that already have a Sku
+     *
+     * @return
+     */
+    public long getTotalPermutations() {
+        return totalPermutations;
+    }
+
+    public void setTotalPermutations(long totalPermutations) {
+        this.totalPermutations = totalPermutations;
+    }
+
+    public long getPermutationsProcessed() {
+        return permutationsProcessed.get();
+    }
+
+    public void addPermutationsProcessed(long count) {
+        permutationsProcessed.addAndGet(count);
+    }
+
+    public int getSkusGenerated() {
+        return skusGenerated.get();
+    }
+
+    public void addSkusGenerated(int count) {
+        skusGenerated.addAndGet(count);
+    }
+
+    /**
+     * The value {@link AdminCatalogService#generateSkusFromProduct(Long)} would have returned, once the job is done
+     *
+     * @return
+     */
+    public Integer getResult() {
+        return result;
+    }
+
+    public void setResult(Integer result) {
+        this.result = result;
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * #%L
+ * BroadleafCommerce Admin Module
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.admin.server.service;
+
+import org.broadleafcommerce.core.catalog.domain.ProductOptionValue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazily walks every permutation of a set of ProductOptionValue lists, one value from each list, in the same order
+ * {@link AdminCatalogServiceImpl#generatePermutations(int, List, List)} produces them. Only the current position is
+ * kept, so the number of permutations does not affect memory use.
+ */
+public class SkuPermutationIterator implements Iterator<List<ProductOptionValue>> {
+
+    protected final List<List<ProductOptionValue>> optionValues;
+    protected final int[] positions;
+    protected boolean hasNext;
+
+    /**
+     * @param optionValues the allowed values of each option used in Sku generation. None of the lists may be empty.
+     */
+    public SkuPermutationIterator(List<List<ProductOptionValue>> optionValues) {
+        this.optionValues = optionValues;
+        positions = new int[optionValues.size()];
+        hasNext = true;
+        for (List<ProductOptionValue> values : optionValues) {
+            if (values.isEmpty()) {
+                hasNext = false;
+            }
+        }
+    }
+
+    /**
+     * @return the total number of permutations this iterator walks
+     */
+    public long getTotalPermutations() {
+        long total = 1;
+        for (List<ProductOptionValue> values : optionValues) {
+            total *= values.size();
+        }
+        return total;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    @Override
+    public List<ProductOptionValue> next() {
+        if (!hasNext) {
+            throw new NoSuchElementException();
+        }
+        List<ProductOptionValue> permutation = new ArrayList<ProductOptionValue>(positions.length);
+        for (int i = 0; i < positions.length; i++) {
+            permutation.add(optionValues.get(i).get(positions[i]));
+        }
+        // advance like an odometer, the last option changing fastest
+        int i = positions.length - 1;
+        while (i >= 0 && ++positions[i] == optionValues.get(i).size()) {
+            positions[i] = 0;
+            i--;
+        }
+        hasNext = i >= 0;
+        return permutation;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+}
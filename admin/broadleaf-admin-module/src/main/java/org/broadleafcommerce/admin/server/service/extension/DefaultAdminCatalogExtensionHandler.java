@@ -24,6 +24,7 @@ import org.broadleafcommerce.core.catalog.domain.Product;
 import org.broadleafcommerce.core.catalog.domain.ProductOptionValue;
 import org.broadleafcommerce.core.catalog.domain.Sku;
 import org.broadleafcommerce.core.catalog.service.CatalogService;
+import org.hibernate.Hibernate;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -56,6 +57,10 @@ public class DefaultAdminCatalogExtensionHandler extends AbstractExtensionHandle
     /**
      * Simply iterates through the permutations based on the product options and persists them
      * as new {@link org.broadleafcommerce.core.catalog.domain.Sku} instances in the {@link org.broadleafcommerce.core.catalog.domain.Product}
+     * </p>
+     * This is called once per batch of permutations. The Sku owns the association to the Product, so the Product's
+     * additional Skus are only updated when they are already loaded, rather than loading every existing Sku for each
+     * batch.
      *
      * @param product
      * @param permutationsToGenerate
@@ -73,12 +78,11 @@ public class DefaultAdminCatalogExtensionHandler extends AbstractExtensionHandle
             permutatedSku.setProduct(product);
             permutatedSku.setProductOptionValues(permutation);
             permutatedSku = catalogService.saveSku(permutatedSku);
-            product.getAdditionalSkus().add(permutatedSku);
+            if (Hibernate.isInitialized(product.getAdditionalSkus())) {
+                product.getAdditionalSkus().add(permutatedSku);
+            }
             numPermutationsCreated++;
         }
-        if (numPermutationsCreated != 0) {
-            catalogService.saveProduct(product);
-        }
         erh.setResult(numPermutationsCreated);
         return ExtensionResultStatusType.HANDLED;
     }
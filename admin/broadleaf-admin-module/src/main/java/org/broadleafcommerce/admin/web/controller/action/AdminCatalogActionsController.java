@@ -18,6 +18,7 @@
 package org.broadleafcommerce.admin.web.controller.action;
 
 import org.broadleafcommerce.admin.server.service.AdminCatalogService;
+import org.broadleafcommerce.admin.server.service.SkuGenerationJob;
 import org.broadleafcommerce.admin.web.controller.entity.AdminProductController;
 import org.broadleafcommerce.common.util.BLCMessageUtils;
 import org.broadleafcommerce.core.catalog.domain.Product;
@@ -72,7 +73,68 @@ public class AdminCatalogActionsController extends AdminAbstractController {
             @PathVariable(value = "skusFieldName") String skusFieldName) {
         HashMap<String, Object> result = new HashMap<>();
         Integer skusGenerated = adminCatalogService.generateSkusFromProduct(productId);
+        populateGenerateSkusResult(result, skusGenerated);
         
+        String url = request.getRequestURL().toString();
+        url = url.substring(0, url.indexOf("/generate-skus"));
+        
+        result.put("listGridUrl", url);
+        return result;
+    }
+
+    /**
+     * Starts generating the Skus for a {@link Product} in the background, for products whose options have too many
+     * permutations to generate within a request. Progress can be polled with
+     * {@link #generateSkusStatus(HttpServletRequest, HttpServletResponse, Model, Long, String, String)}.
+     */
+    @RequestMapping(value = "product/{productId}/{skusFieldName}/generate-skus-job",
+                    method = RequestMethod.POST,
+                    produces = "application/json")
+    public @ResponseBody Map<String, Object> startGenerateSkus(HttpServletRequest request, HttpServletResponse response, Model model,
+            @PathVariable(value = "productId") Long productId,
+            @PathVariable(value = "skusFieldName") String skusFieldName) {
+        SkuGenerationJob job = adminCatalogService.submitSkuGeneration(productId);
+        return buildSkuGenerationJobResult(request, job);
+    }
+
+    @RequestMapping(value = "product/{productId}/{skusFieldName}/generate-skus-job/{jobId}",
+                    method = RequestMethod.GET,
+                    produces = "application/json")
+    public @ResponseBody Map<String, Object> generateSkusStatus(HttpServletRequest request, HttpServletResponse response, Model model,
+            @PathVariable(value = "productId") Long productId,
+            @PathVariable(value = "skusFieldName") String skusFieldName,
+            @PathVariable(value = "jobId") String jobId) {
+        SkuGenerationJob job = adminCatalogService.findSkuGenerationJob(jobId);
+        if (job == null || !productId.equals(job.getProductId())) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return new HashMap<>();
+        }
+        return buildSkuGenerationJobResult(request, job);
+    }
+
+    protected Map<String, Object> buildSkuGenerationJobResult(HttpServletRequest request, SkuGenerationJob job) {
+        HashMap<String, Object> result = new HashMap<>();
+        result.put("jobId", job.getId());
+        result.put("status", job.getStatus().name());
+        result.put("totalPermutations", job.getTotalPermutations());
+        result.put("permutationsProcessed", job.getPermutationsProcessed());
+        if (job.getStatus() == SkuGenerationJob.Status.COMPLETE) {
+            populateGenerateSkusResult(result, job.getResult());
+        } else if (job.getStatus() == SkuGenerationJob.Status.FAILED) {
+            result.put("error", "sku-generation-failed");
+            result.put("message", job.getErrorMessage());
+            result.put("skusGenerated", job.getSkusGenerated());
+        } else {
+            result.put("skusGenerated", job.getSkusGenerated());
+        }
+
+        String url = request.getRequestURL().toString();
+        url = url.substring(0, url.indexOf("/generate-skus-job"));
+        result.put("listGridUrl", url);
+        return result;
+    }
+
+    protected void populateGenerateSkusResult(Map<String, Object> result, Integer skusGenerated) {
         //TODO: Modify the message "Failed to generate Skus...." to include which Product Option is the offender
         if (skusGenerated == 0) {
             result.put("message", BLCMessageUtils.getMessage(NO_SKUS_GENERATED_KEY));
@@ -84,12 +146,6 @@ public class AdminCatalogActionsController extends AdminAbstractController {
         } else {
             result.put("message", skusGenerated + " " + BLCMessageUtils.getMessage(NUMBER_SKUS_GENERATED_KEY));
         }
-        
-        String url = request.getRequestURL().toString();
-        url = url.substring(0, url.indexOf("/generate-skus"));
-        
         result.put("skusGenerated", skusGenerated);
-        result.put("listGridUrl", url);
-        return result;
     }
 }
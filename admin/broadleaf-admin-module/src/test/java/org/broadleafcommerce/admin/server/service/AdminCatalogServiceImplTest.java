@@ -0,0 +1,162 @@
+/*
+ * #%L
+ * BroadleafCommerce Admin Module
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.admin.server.service;
+
+import org.broadleafcommerce.core.catalog.domain.ProductOptionValue;
+import org.broadleafcommerce.core.catalog.domain.ProductOptionValueImpl;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class AdminCatalogServiceImplTest extends TestCase {
+
+    protected BlockingCatalogService service;
+
+    @Override
+    protected void setUp() throws Exception {
+        service = new BlockingCatalogService();
+        service.init();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        service.release.countDown();
+        service.shutdown();
+    }
+
+    public void testSignatureIgnoresOrder() {
+        assertEquals(service.buildPermutationSignature(Arrays.asList(value(3), value(1), value(2))),
+                service.buildPermutationSignature(Arrays.asList(value(1), value(2), value(3))));
+    }
+
+    public void testSignatureDiffersForDifferentValues() {
+        String signature = service.buildPermutationSignature(Arrays.asList(value(1), value(2)));
+
+        assertFalse(signature.equals(service.buildPermutationSignature(Arrays.asList(value(1), value(3)))));
+        assertFalse(signature.equals(service.buildPermutationSignature(Arrays.asList(value(12)))));
+        assertFalse(signature.equals(service.buildPermutationSignature(Arrays.asList(value(1), value(2), value(2)))));
+    }
+
+    public void testGenerationWaitsForAJobForTheSameProduct() throws Exception {
+        SkuGenerationJob job = service.submitSkuGeneration(1L);
+        assertTrue(service.started.await(10, TimeUnit.SECONDS));
+
+        Thread sync = generateInBackground(1L);
+        sync.join(200);
+        assertTrue(sync.isAlive());
+        assertEquals(1, service.generations.get());
+
+        service.release.countDown();
+        sync.join(10000);
+        assertFalse(sync.isAlive());
+        waitUntilDone(job);
+
+        assertEquals(2, service.generations.get());
+        assertEquals(1, service.maxConcurrent.get());
+        assertTrue(service.skuGenerationLocks.isEmpty());
+    }
+
+    public void testGenerationsForDifferentProductsDoNotWait() throws Exception {
+        SkuGenerationJob job = service.submitSkuGeneration(1L);
+        assertTrue(service.started.await(10, TimeUnit.SECONDS));
+
+        Thread sync = generateInBackground(2L);
+        sync.join(10000);
+
+        assertFalse(sync.isAlive());
+        assertFalse(job.isDone());
+        assertFalse(service.skuGenerationLocks.containsKey(2L));
+    }
+
+    public void testSubmitReturnsTheUnfinishedJobForTheProduct() throws Exception {
+        SkuGenerationJob job = service.submitSkuGeneration(1L);
+
+        assertSame(job, service.submitSkuGeneration(1L));
+        assertNotSame(job, service.submitSkuGeneration(2L));
+
+        service.release.countDown();
+        waitUntilDone(job);
+        assertEquals(Integer.valueOf(0), job.getResult());
+        assertNotSame(job, service.submitSkuGeneration(1L));
+    }
+
+    protected Thread generateInBackground(final Long productId) {
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                service.generateSkusFromProduct(productId);
+            }
+        };
+        thread.start();
+        return thread;
+    }
+
+    protected void waitUntilDone(SkuGenerationJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!job.isDone() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(job.isDone());
+    }
+
+    protected static ProductOptionValue value(long id) {
+        ProductOptionValue value = new ProductOptionValueImpl();
+        value.setId(id);
+        return value;
+    }
+
+    /**
+     * Records overlapping generations instead of generating. The generation of product 1 blocks until released.
+     */
+    protected static class BlockingCatalogService extends AdminCatalogServiceImpl {
+
+        protected final CountDownLatch started = new CountDownLatch(1);
+        protected final CountDownLatch release = new CountDownLatch(1);
+        protected final AtomicInteger generations = new AtomicInteger();
+        protected final AtomicInteger maxConcurrent = new AtomicInteger();
+        protected final ConcurrentMap<Long, AtomicInteger> running = new ConcurrentHashMap<>();
+
+        @Override
+        protected Integer generateMissingSkus(Long productId, SkuGenerationJob job) {
+            running.putIfAbsent(productId, new AtomicInteger());
+            int concurrent = running.get(productId).incrementAndGet();
+            if (concurrent > maxConcurrent.get()) {
+                maxConcurrent.set(concurrent);
+            }
+            generations.incrementAndGet();
+            try {
+                if (productId == 1L) {
+                    started.countDown();
+                    release.await(10, TimeUnit.SECONDS);
+                }
+                return 0;
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                running.get(productId).decrementAndGet();
+            }
+        }
+    }
+
+}
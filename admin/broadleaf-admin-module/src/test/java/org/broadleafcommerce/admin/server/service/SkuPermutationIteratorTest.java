@@ -0,0 +1,128 @@
+/*
+ * #%L
+ * BroadleafCommerce Admin Module
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.admin.server.service;
+
+import org.broadleafcommerce.core.catalog.domain.ProductOption;
+import org.broadleafcommerce.core.catalog.domain.ProductOptionImpl;
+import org.broadleafcommerce.core.catalog.domain.ProductOptionValue;
+import org.broadleafcommerce.core.catalog.domain.ProductOptionValueImpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import junit.framework.TestCase;
+
+public class SkuPermutationIteratorTest extends TestCase {
+
+    public void testWalksEveryPermutationWithTheLastOptionChangingFastest() {
+        SkuPermutationIterator iterator = new SkuPermutationIterator(Arrays.asList(values(1, 2), values(3, 4, 5)));
+
+        assertEquals(6, iterator.getTotalPermutations());
+        assertEquals(Arrays.asList("[1, 3]", "[1, 4]", "[1, 5]", "[2, 3]", "[2, 4]", "[2, 5]"), walk(iterator));
+    }
+
+    public void testMatchesTheRecursivePermutations() {
+        List<List<ProductOptionValue>> optionValues = Arrays.asList(values(1, 2, 3), values(4), values(5, 6));
+        List<ProductOption> options = new ArrayList<>();
+        for (List<ProductOptionValue> values : optionValues) {
+            ProductOptionImpl option = new ProductOptionImpl();
+            option.setAllowedValues(values);
+            option.setUseInSkuGeneration(true);
+            options.add(option);
+        }
+
+        List<String> expected = new ArrayList<>();
+        for (List<ProductOptionValue> permutation : new AdminCatalogServiceImpl().generatePermutations(0,
+                new ArrayList<ProductOptionValue>(), options)) {
+            expected.add(ids(permutation));
+        }
+
+        SkuPermutationIterator iterator = new SkuPermutationIterator(optionValues);
+        assertEquals(expected.size(), iterator.getTotalPermutations());
+        assertEquals(expected, walk(iterator));
+    }
+
+    public void testOptionWithoutValuesHasNoPermutations() {
+        List<ProductOptionValue> none = Collections.emptyList();
+        SkuPermutationIterator iterator = new SkuPermutationIterator(Arrays.asList(values(1, 2), none));
+
+        assertEquals(0, iterator.getTotalPermutations());
+        assertFalse(iterator.hasNext());
+    }
+
+    public void testNoOptionsIsASingleEmptyPermutation() {
+        SkuPermutationIterator iterator = new SkuPermutationIterator(new ArrayList<List<ProductOptionValue>>());
+
+        assertEquals(1, iterator.getTotalPermutations());
+        assertEquals(Arrays.asList("[]"), walk(iterator));
+    }
+
+    public void testNextPastTheEndThrows() {
+        SkuPermutationIterator iterator = new SkuPermutationIterator(Arrays.asList(values(1)));
+        iterator.next();
+
+        try {
+            iterator.next();
+            fail();
+        } catch (NoSuchElementException e) {
+            //expected
+        }
+    }
+
+    public void testPermutationsAreIndependentCopies() {
+        SkuPermutationIterator iterator = new SkuPermutationIterator(Arrays.asList(values(1, 2)));
+        List<ProductOptionValue> first = iterator.next();
+        iterator.next();
+
+        assertEquals("[1]", ids(first));
+    }
+
+    protected List<String> walk(SkuPermutationIterator iterator) {
+        List<String> permutations = new ArrayList<>();
+        while (iterator.hasNext()) {
+            permutations.add(ids(iterator.next()));
+        }
+        return permutations;
+    }
+
+    protected String ids(List<ProductOptionValue> permutation) {
+        long[] ids = new long[permutation.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = permutation.get(i).getId();
+        }
+        return Arrays.toString(ids);
+    }
+
+    protected List<ProductOptionValue> values(long... ids) {
+        List<ProductOptionValue> values = new ArrayList<>();
+        for (long id : ids) {
+            values.add(value(id));
+        }
+        return values;
+    }
+
+    protected static ProductOptionValue value(long id) {
+        ProductOptionValue value = new ProductOptionValueImpl();
+        value.setId(id);
+        return value;
+    }
+
+}
@@ -132,4 +132,13 @@ public interface StaticAssetStorageService {
      */
     void createStaticAssetStorage(InputStream fileInputStream, StaticAsset staticAsset) throws IOException;
 
+    /**
+     * Generates, in the background, the variants of the given asset for the named operations listed in the
+     * asset.server.variant.pregenerate.operations property, so that the first requests for them do not have to wait.
+     * When called within a transaction, the generation starts once the transaction commits.
+     *
+     * @param staticAsset the {@link StaticAsset} whose storage has just been created
+     */
+    void pregenerateNamedOperationVariants(StaticAsset staticAsset);
+
 }
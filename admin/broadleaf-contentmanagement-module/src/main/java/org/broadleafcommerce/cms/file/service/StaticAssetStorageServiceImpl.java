@@ -19,6 +19,7 @@ package org.broadleafcommerce.cms.file.service;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.broadleafcommerce.cms.common.AssetNotFoundException;
@@ -26,7 +27,9 @@ import org.broadleafcommerce.cms.field.type.StorageType;
 import org.broadleafcommerce.cms.file.dao.StaticAssetStorageDao;
 import org.broadleafcommerce.cms.file.domain.StaticAsset;
 import org.broadleafcommerce.cms.file.domain.StaticAssetStorage;
+import org.broadleafcommerce.cms.file.service.operation.NamedOperationComponent;
 import org.broadleafcommerce.cms.file.service.operation.NamedOperationManager;
+import org.broadleafcommerce.cms.file.service.operation.StaticMapNamedOperationComponent;
 import org.broadleafcommerce.common.audit.Auditable;
 import org.broadleafcommerce.common.extension.ExtensionResultHolder;
 import org.broadleafcommerce.common.extension.ExtensionResultStatusType;
@@ -43,6 +46,8 @@ import org.springframework.boot.autoconfigure.web.MultipartProperties;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.BufferedInputStream;
@@ -58,10 +63,13 @@ import java.security.NoSuchAlgorithmException;
 import java.sql.Blob;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import javax.annotation.Resource;
 
@@ -112,6 +120,9 @@ public class StaticAssetStorageServiceImpl implements StaticAssetStorageService
     @Resource(name = "blConcurrentFileOutputStream")
     protected ConcurrentFileOutputStream concurrentFileOutputStream;
 
+    @Resource(name = "blStaticAssetVariantService")
+    protected StaticAssetVariantService variantService;
+
     protected StaticAsset findStaticAsset(String fullUrl) {
         StaticAsset staticAsset = staticAssetService.findStaticAssetByFullUrl(fullUrl);
 
@@ -204,6 +215,9 @@ public class StaticAssetStorageServiceImpl implements StaticAssetStorageService
         // Look for a shared file (this represents a file that was based on a file originally in the classpath.
         File cacheFile = getFileFromLocalRepository(cachedFileName);
         if (cacheFile.exists()) {
+            if (!convertedParameters.isEmpty()) {
+                variantService.recordVariantAccess(cacheFile);
+            }
             return buildModel(cacheFile.getAbsolutePath(), mimeType);
         }
 
@@ -224,14 +238,8 @@ public class StaticAssetStorageServiceImpl implements StaticAssetStorageService
         if (convertedParameters.isEmpty()) {
             return buildModel(baseLocalFile.getAbsolutePath(), mimeType);
         } else {
-            FileInputStream assetStream = new FileInputStream(baseLocalFile);
-            BufferedInputStream original = new BufferedInputStream(assetStream);
-            original.mark(0);
-
-            Operation[] operations = artifactService.buildOperations(convertedParameters, original, staticAsset.getMimeType());
-            InputStream converted = artifactService.convert(original, operations, staticAsset.getMimeType());
-
-            createLocalFileFromInputStream(converted, cacheFile);
+            variantService.generateVariant(cacheFile,
+                    createVariantGenerator(baseLocalFile, cacheFile, convertedParameters, staticAsset.getMimeType()));
             if ("image/gif".equals(mimeType)) {
                 mimeType = "image/png";
             }
@@ -239,6 +247,95 @@ public class StaticAssetStorageServiceImpl implements StaticAssetStorageService
         }
     }
 
+    /**
+     * Builds the task that converts the base file of an asset into one of its variants. The task is run by the
+     * {@link StaticAssetVariantService}, possibly on another thread, so everything that depends on the request has to be
+     * resolved before it is created.
+     */
+    protected Callable<File> createVariantGenerator(final File baseLocalFile, final File cacheFile,
+            final Map<String, String> convertedParameters, final String mimeType) {
+        return new Callable<File>() {
+            @Override
+            public File call() throws Exception {
+                if (cacheFile.exists()) {
+                    return cacheFile;
+                }
+                BufferedInputStream original = new BufferedInputStream(new FileInputStream(baseLocalFile));
+                try {
+                    original.mark(0);
+
+                    Operation[] operations = artifactService.buildOperations(convertedParameters, original, mimeType);
+                    InputStream converted = artifactService.convert(original, operations, mimeType);
+
+                    createLocalFileFromInputStream(converted, cacheFile);
+                } finally {
+                    IOUtils.closeQuietly(original);
+                }
+                return cacheFile;
+            }
+        };
+    }
+
+    @Override
+    public void pregenerateNamedOperationVariants(final StaticAsset staticAsset) {
+        final List<String> operationNames = getPregeneratedOperationNames();
+        if (operationNames.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // the asset storage has to be visible to the generation, which may run on another thread
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    submitNamedOperationVariants(staticAsset, operationNames);
+                }
+            });
+        } else {
+            submitNamedOperationVariants(staticAsset, operationNames);
+        }
+    }
+
+    protected void submitNamedOperationVariants(StaticAsset staticAsset, List<String> operationNames) {
+        try {
+            File baseLocalFile = getFileFromLocalRepository(constructCacheFileName(staticAsset, null));
+            if (!baseLocalFile.exists()) {
+                baseLocalFile = lookupAssetAndCreateLocalFile(staticAsset, baseLocalFile);
+            }
+            for (String operationName : operationNames) {
+                Map<String, String> parameterMap = new LinkedHashMap<>();
+                parameterMap.put(operationName, "");
+                Map<String, String> convertedParameters = namedOperationManager.manageNamedParameters(parameterMap);
+                File cacheFile = getFileFromLocalRepository(constructCacheFileName(staticAsset, convertedParameters));
+                if (!cacheFile.exists()) {
+                    variantService.generateVariantAsync(cacheFile,
+                            createVariantGenerator(baseLocalFile, cacheFile, convertedParameters, staticAsset.getMimeType()));
+                }
+            }
+        } catch (Exception e) {
+            LOG.error("Unable to pre-generate the variants of the static asset " + staticAsset.getFullUrl(), e);
+        }
+    }
+
+    /**
+     * @return the names of the named operations whose variants are generated as soon as an asset is stored, as long as
+     * they are known to a {@link StaticMapNamedOperationComponent}
+     */
+    protected List<String> getPregeneratedOperationNames() {
+        String operations = env.getProperty("asset.server.variant.pregenerate.operations", String.class, "");
+        List<String> operationNames = new ArrayList<>();
+        for (String operationName : StringUtils.split(operations, ',')) {
+            operationName = operationName.trim();
+            for (NamedOperationComponent component : namedOperationManager.getNamedOperationComponents()) {
+                if (component instanceof StaticMapNamedOperationComponent
+                        && ((StaticMapNamedOperationComponent) component).getNamedOperations().containsKey(operationName)) {
+                    operationNames.add(operationName);
+                    break;
+                }
+            }
+        }
+        return operationNames;
+    }
+
     protected Map<String, String> buildModel(String returnFilePath, String mimeType) {
         Map<String, String> model = new HashMap<String, String>(2);
         model.put("cacheFilePath", returnFilePath);
@@ -400,6 +497,7 @@ public class StaticAssetStorageServiceImpl implements StaticAssetStorageService
             Blob uploadBlob = createBlob(fileInputStream, staticAsset.getFileSize());
             storage.setFileData(uploadBlob);
             save(storage);
+            pregenerateNamedOperationVariants(staticAsset);
         } else if (StorageType.FILESYSTEM.equals(staticAsset.getStorageType())) {
             FileWorkArea tempWorkArea = broadleafFileService.initializeWorkArea();
             // Convert the given URL from the asset to a system-specific suitable file path
@@ -433,6 +531,7 @@ public class StaticAssetStorageServiceImpl implements StaticAssetStorageService
                 // close the output file stream prior to moving files around
                 output.close();
                 broadleafFileService.addOrUpdateResource(tempWorkArea, destFile, false);
+                pregenerateNamedOperationVariants(staticAsset);
             } finally {
                 IOUtils.closeQuietly(output);
                 broadleafFileService.closeWorkArea(tempWorkArea);
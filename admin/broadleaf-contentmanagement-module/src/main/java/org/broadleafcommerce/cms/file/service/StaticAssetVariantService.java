@@ -0,0 +1,61 @@
+/*
+ * #%L
+ * BroadleafCommerce CMS Module
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.cms.file.service;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+
+/**
+ * Generates the variants of static assets (resized or otherwise converted copies of an asset, such as those requested
+ * through named operations) on a bounded pool of worker threads. Concurrent requests for the same variant share a
+ * single generation, and the disk space used by generated variants can be capped.
+ */
+public interface StaticAssetVariantService {
+
+    /**
+     * Generates the given variant file unless a generation for it is already running, then waits for whichever
+     * generation is producing it.
+     *
+     * @param variantFile the file the generator writes, which identifies the variant
+     * @param generator writes the variant file and returns it
+     * @return the generated variant file
+     * @throws java.util.concurrent.TimeoutException if the variant was not ready within the configured timeout; the
+     * generation carries on and the variant is available to later requests
+     * @throws java.util.concurrent.RejectedExecutionException if too many generations are already waiting for a thread
+     * @throws Exception if the generation failed
+     */
+    File generateVariant(File variantFile, Callable<File> generator) throws Exception;
+
+    /**
+     * Same as {@link #generateVariant(File, Callable)} but returns immediately without waiting for the variant. If too
+     * many generations are already waiting the variant is not generated.
+     *
+     * @param variantFile
+     * @param generator
+     */
+    void generateVariantAsync(File variantFile, Callable<File> generator);
+
+    /**
+     * Records that an existing variant file was served, so that it is the last to be removed when the variant cache
+     * goes over its size limit
+     *
+     * @param variantFile
+     */
+    void recordVariantAccess(File variantFile);
+
+}
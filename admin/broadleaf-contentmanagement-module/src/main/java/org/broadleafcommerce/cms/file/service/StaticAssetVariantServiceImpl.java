@@ -0,0 +1,339 @@
+/*
+ * #%L
+ * BroadleafCommerce CMS Module
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.cms.file.service;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.time.SystemTime;
+import org.broadleafcommerce.common.util.BackgroundExecutor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+/**
+ * Keeps one {@link FutureTask} per variant file that is being generated, so that every request for a variant that is
+ * already in progress waits on that generation instead of starting its own. Generations run on a fixed size pool with
+ * a bounded queue; once the queue is full further generations are refused with a {@link RejectedExecutionException}
+ * rather than run on the request thread, so that a burst of new variants cannot tie up every request thread.
+ * <p/>
+ * Generated variants are tracked with their size and last access time. When the total goes over
+ * {@link #maxVariantCacheBytes}, the least recently used variants are deleted until the total is back under 90% of the
+ * limit. Cached files already on disk are found by a scan of the cache directory at startup and tracked from their
+ * modification time. A variant served or generated within the last {@link #pinSeconds} is never deleted, so that a
+ * request that has just found a variant can still open it.
+ * <p/>
+ * A request waits at most {@link #generationTimeoutSeconds} for its variant; after that it fails with a
+ * {@link TimeoutException} while the generation carries on, and the variant is served to a later request.
+ */
+@Service("blStaticAssetVariantService")
+@ManagedResource(objectName = "org.broadleafcommerce:name=StaticAssetVariantService", description = "Static Asset Variant Generation Statistics", currencyTimeLimit = 15)
+public class StaticAssetVariantServiceImpl implements StaticAssetVariantService {
+
+    private static final Log LOG = LogFactory.getLog(StaticAssetVariantServiceImpl.class);
+
+    /**
+     * The names StaticAssetStorageServiceImpl gives cached files: the asset path, "---", an MD5 of the asset version and
+     * operations, then the extension
+     */
+    protected static final Pattern CACHE_FILE_NAME = Pattern.compile(".*---[0-9a-f]{32}\\.[^.]+");
+
+    @Value("${asset.server.variant.generation.threads}")
+    protected int generationThreads;
+
+    @Value("${asset.server.variant.generation.queue.size}")
+    protected int generationQueueSize;
+
+    @Value("${asset.server.variant.generation.timeout.seconds}")
+    protected long generationTimeoutSeconds;
+
+    @Value("${asset.server.variant.cache.max.bytes}")
+    protected long maxVariantCacheBytes;
+
+    @Value("${asset.server.variant.cache.pin.seconds}")
+    protected long pinSeconds;
+
+    @Value("${file.service.temp.file.base.directory}")
+    protected String cacheDirectory;
+
+    protected BackgroundExecutor generationExecutor;
+
+    protected final ConcurrentMap<String, FutureTask<File>> inFlight = new ConcurrentHashMap<>();
+    protected final ConcurrentMap<String, VariantUsage> variantUsage = new ConcurrentHashMap<>();
+    protected final AtomicLong variantCacheBytes = new AtomicLong();
+    protected final Object evictionLock = new Object();
+
+    protected final AtomicLong generated = new AtomicLong();
+    protected final AtomicLong deduplicated = new AtomicLong();
+    protected final AtomicLong rejected = new AtomicLong();
+    protected final AtomicLong evicted = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        generationExecutor = new BackgroundExecutor("blStaticAssetVariant", generationThreads, generationQueueSize,
+                new ThreadPoolExecutor.AbortPolicy());
+        if (maxVariantCacheBytes > 0) {
+            generationExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    scanCacheDirectory();
+                }
+            });
+        }
+    }
+
+    /**
+     * Tracks the cached files already on disk so that the files generated before this node started count toward the
+     * limit and can be removed. Besides variants this picks up the cached copies of original assets, which are created
+     * again from the asset storage if they are removed.
+     */
+    protected void scanCacheDirectory() {
+        Path root = Paths.get(StringUtils.isBlank(cacheDirectory) ? System.getProperty("java.io.tmpdir") : cacheDirectory);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && CACHE_FILE_NAME.matcher(file.getFileName().toString()).matches()) {
+                        trackVariant(file.toFile(), attrs.size(), attrs.lastModifiedTime().toMillis());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            LOG.error("Unable to scan " + root + " for cached static asset files", e);
+        }
+    }
+
+    @Override
+    public File generateVariant(File variantFile, Callable<File> generator) throws Exception {
+        FutureTask<File> task = submit(variantFile, generator);
+        try {
+            return task.get(generationTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void generateVariantAsync(File variantFile, Callable<File> generator) {
+        try {
+            submit(variantFile, generator);
+        } catch (RejectedExecutionException e) {
+            // the variant is generated on its first request instead
+            LOG.debug("Skipped generating " + variantFile + " since the generation queue is full");
+        }
+    }
+
+    protected FutureTask<File> submit(File variantFile, final Callable<File> generator) {
+        final String key = variantFile.getAbsolutePath();
+        FutureTask<File> task = new FutureTask<File>(new Callable<File>() {
+            @Override
+            public File call() throws Exception {
+                File variant = generator.call();
+                generated.incrementAndGet();
+                trackVariant(variant);
+                return variant;
+            }
+        }) {
+            @Override
+            protected void done() {
+                inFlight.remove(key, this);
+            }
+        };
+
+        FutureTask<File> existing = inFlight.putIfAbsent(key, task);
+        if (existing != null) {
+            deduplicated.incrementAndGet();
+            return existing;
+        }
+        try {
+            generationExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, task);
+            rejected.incrementAndGet();
+            throw e;
+        }
+        return task;
+    }
+
+    @Override
+    public void recordVariantAccess(File variantFile) {
+        if (maxVariantCacheBytes <= 0) {
+            return;
+        }
+        VariantUsage usage = variantUsage.get(variantFile.getAbsolutePath());
+        if (usage != null) {
+            usage.lastAccess = currentTimeMillis();
+        } else {
+            trackVariant(variantFile);
+        }
+    }
+
+    protected void trackVariant(File variantFile) {
+        if (maxVariantCacheBytes <= 0 || variantFile == null || !variantFile.exists()) {
+            return;
+        }
+        trackVariant(variantFile, variantFile.length(), currentTimeMillis());
+    }
+
+    protected void trackVariant(File variantFile, long size, long lastAccess) {
+        VariantUsage usage = new VariantUsage(size, lastAccess);
+        if (variantUsage.putIfAbsent(variantFile.getAbsolutePath(), usage) == null
+                && variantCacheBytes.addAndGet(usage.size) > maxVariantCacheBytes) {
+            evictLeastRecentlyUsed();
+        }
+    }
+
+    protected void evictLeastRecentlyUsed() {
+        synchronized (evictionLock) {
+            if (variantCacheBytes.get() <= maxVariantCacheBytes) {
+                return;
+            }
+            // sort on a snapshot of the access times since they keep changing while we sort
+            final Map<String, Long> lastAccessByPath = new HashMap<>();
+            for (Map.Entry<String, VariantUsage> entry : variantUsage.entrySet()) {
+                lastAccessByPath.put(entry.getKey(), entry.getValue().lastAccess);
+            }
+            List<String> paths = new ArrayList<>(lastAccessByPath.keySet());
+            Collections.sort(paths, new Comparator<String>() {
+                @Override
+                public int compare(String o1, String o2) {
+                    return Long.compare(lastAccessByPath.get(o1), lastAccessByPath.get(o2));
+                }
+            });
+
+            long target = maxVariantCacheBytes / 10 * 9;
+            long pinnedSince = currentTimeMillis() - pinSeconds * 1000L;
+            for (String path : paths) {
+                if (variantCacheBytes.get() <= target || lastAccessByPath.get(path) >= pinnedSince) {
+                    // the rest were all served too recently to be removed
+                    break;
+                }
+                VariantUsage usage = variantUsage.get(path);
+                if (usage != null && usage.lastAccess < pinnedSince && variantUsage.remove(path, usage)) {
+                    variantCacheBytes.addAndGet(-usage.size);
+                    File file = new File(path);
+                    if (file.delete()) {
+                        evicted.incrementAndGet();
+                    } else if (file.exists()) {
+                        // e.g. still open on a platform that does not allow that; keep counting it
+                        LOG.warn("Unable to remove the static asset variant " + path + " from the variant cache");
+                        if (variantUsage.putIfAbsent(path, usage) == null) {
+                            variantCacheBytes.addAndGet(usage.size);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Access times are compared with the modification times of the files found at startup, so this reads the system
+     * clock rather than a time source that may be set to a sandbox preview date.
+     */
+    protected long currentTimeMillis() {
+        return SystemTime.wallClockMillis();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        generationExecutor.shutdown();
+    }
+
+    @ManagedAttribute(description = "The number of variants currently being generated")
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    @ManagedAttribute(description = "The number of variants generated")
+    public long getGeneratedCount() {
+        return generated.get();
+    }
+
+    @ManagedAttribute(description = "The number of requests that waited on a generation already in progress")
+    public long getDeduplicatedCount() {
+        return deduplicated.get();
+    }
+
+    @ManagedAttribute(description = "The number of generations refused because the generation queue was full")
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    @ManagedAttribute(description = "The number of variants removed to stay under the variant cache size limit")
+    public long getEvictedCount() {
+        return evicted.get();
+    }
+
+    @ManagedAttribute(description = "The bytes used by the variants being tracked")
+    public long getVariantCacheBytes() {
+        return variantCacheBytes.get();
+    }
+
+    protected static class VariantUsage {
+
+        protected final long size;
+        protected volatile long lastAccess;
+
+        protected VariantUsage(long size, long lastAccess) {
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
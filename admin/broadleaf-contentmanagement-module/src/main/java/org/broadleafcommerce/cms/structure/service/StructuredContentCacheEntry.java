@@ -0,0 +1,82 @@
+/*
+ * #%L
+ * BroadleafCommerce CMS Module
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.cms.structure.service;
+
+import org.broadleafcommerce.common.structure.dto.StructuredContentDTO;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * What {@link StructuredContentServiceImpl} stores in the structured content cache: either a list of content with its
+ * rule plan or a single content item, together with the version of each invalidation tag at the time it was read.
+ * An entry is only used while every one of its tags is still at the recorded version.
+ */
+public class StructuredContentCacheEntry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final List<StructuredContentDTO> contentList;
+    protected final StructuredContentDTO content;
+    protected final String[] tags;
+    protected final long[] tagVersions;
+    protected transient volatile StructuredContentRulePlan rulePlan;
+
+    public StructuredContentCacheEntry(List<StructuredContentDTO> contentList, String[] tags, long[] tagVersions) {
+        this.contentList = contentList;
+        this.content = null;
+        this.tags = tags;
+        this.tagVersions = tagVersions;
+        this.rulePlan = new StructuredContentRulePlan(contentList);
+    }
+
+    public StructuredContentCacheEntry(StructuredContentDTO content, String[] tags, long[] tagVersions) {
+        this.contentList = null;
+        this.content = content;
+        this.tags = tags;
+        this.tagVersions = tagVersions;
+    }
+
+    public List<StructuredContentDTO> getContentList() {
+        return contentList;
+    }
+
+    public StructuredContentDTO getContent() {
+        return content;
+    }
+
+    public String[] getTags() {
+        return tags;
+    }
+
+    public long[] getTagVersions() {
+        return tagVersions;
+    }
+
+    /**
+     * @return the rule plan for the content list, rebuilt if this entry was read back from disk
+     */
+    public StructuredContentRulePlan getRulePlan() {
+        StructuredContentRulePlan plan = rulePlan;
+        if (plan == null && contentList != null) {
+            plan = new StructuredContentRulePlan(contentList);
+            rulePlan = plan;
+        }
+        return plan;
+    }
+}
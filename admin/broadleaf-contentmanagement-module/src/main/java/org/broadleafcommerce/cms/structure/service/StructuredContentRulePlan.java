@@ -0,0 +1,59 @@
+/*
+ * #%L
+ * BroadleafCommerce CMS Module
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.cms.structure.service;
+
+import org.broadleafcommerce.common.structure.dto.StructuredContentDTO;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A list of structured content, already ordered by priority, split into its groups of equal priority. Built once
+ * when the list is cached so that each request only has to walk the groups, shuffle the one it is filling from and
+ * stop evaluating rules as soon as it has enough matches.
+ */
+public class StructuredContentRulePlan {
+
+    protected final List<StructuredContentDTO> content;
+    protected final List<List<StructuredContentDTO>> priorityGroups;
+
+    public StructuredContentRulePlan(List<StructuredContentDTO> content) {
+        this.content = content;
+        priorityGroups = new ArrayList<>();
+        List<StructuredContentDTO> group = null;
+        Integer lastPriority = null;
+        for (StructuredContentDTO sc : content) {
+            if (group == null || !Objects.equals(lastPriority, sc.getPriority())) {
+                group = new ArrayList<>();
+                priorityGroups.add(group);
+            }
+            group.add(sc);
+            lastPriority = sc.getPriority();
+        }
+    }
+
+    public List<StructuredContentDTO> getContent() {
+        return content;
+    }
+
+    public List<List<StructuredContentDTO>> getPriorityGroups() {
+        return Collections.unmodifiableList(priorityGroups);
+    }
+}
@@ -244,6 +244,35 @@ public interface StructuredContentService {
      */
     void removeStructuredContentFromCache(SandBox sandBox, StructuredContent sc);
 
+    /**
+     * Invalidates the given content item and every cached lookup of the type, name and language it currently has on
+     * the current site, in any sandbox or secure variant.
+     *
+     * @param contentId
+     */
+    public void invalidateCachedContentById(Long contentId);
+
+    /**
+     * Invalidates every cached lookup for the given {@link StructuredContentType} name.
+     *
+     * @param contentType
+     */
+    public void invalidateCachedContentByType(String contentType);
+
+    /**
+     * Invalidates every cached lookup made for the given site.
+     *
+     * @param siteId
+     */
+    public void invalidateCachedContentBySite(Long siteId);
+
+    /**
+     * Invalidates every cached lookup made for the language of the given locale code.
+     *
+     * @param localeCode
+     */
+    public void invalidateCachedContentByLocale(String localeCode);
+
     /**
      * Call to evict both secure and non-secure SC items matching
      * the passed in keys.
@@ -60,12 +60,14 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 import javax.annotation.Resource;
 
@@ -106,6 +108,15 @@ public class StructuredContentServiceImpl implements StructuredContentService {
 
     protected Cache structuredContentCache;
 
+    /**
+     * Current version of each invalidation tag, kept in the "cmsStructuredContentTagVersionCache" region so that it is
+     * bounded and shared the same way as the content it guards. Cached entries record the versions of their tags when
+     * they are read and are ignored once any of them moves on, so invalidating never has to find the keys an item was
+     * cached under. A list read by a lookup is tagged with its query and with the slot it fills rather than with each
+     * of its items, so that checking it costs the same however many items it holds.
+     */
+    protected Cache tagVersionCache;
+
     @Override
     public StructuredContent findStructuredContentById(Long contentId) {
         return structuredContentDao.findStructuredContentById(contentId);
@@ -173,59 +184,58 @@ public class StructuredContentServiceImpl implements StructuredContentService {
 
     @Override
     public List<StructuredContentDTO> evaluateAndPriortizeContent(List<StructuredContentDTO> structuredContentList, int count, Map<String, Object> ruleDTOs) {
+        return evaluateAndPrioritizeContent(new StructuredContentRulePlan(structuredContentList), count, ruleDTOs);
+    }
+
+    /**
+     * Evaluates the rules of the content in the given plan one priority group at a time. Each group is shuffled as it
+     * is reached and rule evaluation stops as soon as <b>count</b> items have matched, so lower priority content is
+     * only evaluated when the higher priority content did not fill the slot.
+     * <p/>
+     * The plan is reused as long as {@link StructuredContentServiceExtensionHandler#modifyStructuredContentDtoList}
+     * leaves the list alone; if an extension replaces the list, a plan is built for the replacement instead.
+     *
+     * @param plan
+     * @param count
+     * @param ruleDTOs
+     * @return the matching content, at most <b>count</b> items
+     */
+    protected List<StructuredContentDTO> evaluateAndPrioritizeContent(StructuredContentRulePlan plan, int count, Map<String, Object> ruleDTOs) {
+        List<StructuredContentDTO> structuredContentList = plan.getContent();
+
         // some optimization for single item lists which don't require prioritization
         if (structuredContentList.size() == 1) {
             return processUnprioritizedContent(structuredContentList, ruleDTOs);
         }
 
-        structuredContentList = modifyStructuredContentDtoList(structuredContentList);
+        List<StructuredContentDTO> modifiedList = modifyStructuredContentDtoList(structuredContentList);
+        boolean planReused = modifiedList == structuredContentList;
+        statisticsService.addCacheStat(CacheStatType.STRUCTURED_CONTENT_RULE_PLAN_HIT_RATE.toString(), planReused);
+        if (!planReused) {
+            plan = new StructuredContentRulePlan(modifiedList);
+        }
 
-        Iterator<StructuredContentDTO> structuredContentIterator = structuredContentList.iterator();
         List<StructuredContentDTO> returnList = new ArrayList<>();
-        List<StructuredContentDTO> tmpList = new ArrayList<>();
-        Integer lastPriority = Integer.MIN_VALUE;
 
-        while (structuredContentIterator.hasNext()) {
-            StructuredContentDTO sc = structuredContentIterator.next();
-
-            if (!lastPriority.equals(sc.getPriority())) {
-                // If we've moved to another priority, then shuffle all of the items
-                // with the previous priority and add them to the return list.
-                if (tmpList.size() > 1) {
-                    Collections.shuffle(tmpList);
-                }
-                returnList.addAll(tmpList);
+        for (List<StructuredContentDTO> priorityGroup : plan.getPriorityGroups()) {
+            if (returnList.size() >= count) {
+                break;
+            }
 
-                tmpList.clear();
+            List<StructuredContentDTO> candidates = priorityGroup;
+            if (candidates.size() > 1) {
+                candidates = new ArrayList<>(priorityGroup);
+                Collections.shuffle(candidates);
+            }
 
-                // If we've added enough items to satisfy the count, then return the
-                // list.
-                if (returnList.size() == count) {
-                    return returnList;
-                } else if (returnList.size() > count) {
-                    return returnList.subList(0, count);
-                } else {
-                    if (processContentRules(sc, ruleDTOs)) {
-                        tmpList.add(sc);
-                    }
-                }
-            } else {
+            for (StructuredContentDTO sc : candidates) {
                 if (processContentRules(sc, ruleDTOs)) {
-                    tmpList.add(sc);
+                    returnList.add(sc);
+                    if (returnList.size() == count) {
+                        break;
+                    }
                 }
             }
-            lastPriority = sc.getPriority();
-        }
-
-        if (tmpList.size() > 1) {
-            Collections.shuffle(tmpList);
-        }
-
-        returnList.addAll(tmpList);
-
-
-        if (returnList.size() > count) {
-            return returnList.subList(0, count);
         }
 
         return returnList;
@@ -267,54 +277,52 @@ public class StructuredContentServiceImpl implements StructuredContentService {
     @Override
     public List<StructuredContentDTO> lookupStructuredContentItemsByType(StructuredContentType contentType, Locale locale,
                                                                          Integer count, Map<String, Object> ruleDTOs, boolean secure) {
-        List<StructuredContentDTO> contentDTOList = null;
+        StructuredContentRulePlan plan = null;
         Locale languageOnlyLocale = findLanguageOnlyLocale(locale);
         BroadleafRequestContext context = BroadleafRequestContext.getBroadleafRequestContext();
         Long site = (context.getNonPersistentSite() != null) ? context.getNonPersistentSite().getId() : null;
         String cacheKey = buildTypeKeyWithSecure(context.getSandBox(), site, languageOnlyLocale, contentType.getName(), secure);
 
         if (context.isProductionSandBox()) {
-            contentDTOList = getStructuredContentListFromCache(cacheKey);
+            plan = getStructuredContentRulePlanFromCache(cacheKey);
         }
 
-        if (contentDTOList == null) {
+        if (plan == null) {
+            String[] tags = buildLookupTags(site, languageOnlyLocale, contentType.getName(), null);
+            long[] tagVersions = readTagVersions(tags);
             List<StructuredContent> contentList = structuredContentDao.findActiveStructuredContentByType(contentType,
                     locale, languageOnlyLocale);
-            contentDTOList = buildStructuredContentDTOList(contentList, secure);
-
-            if (context.isProductionSandBox()) {
-                addStructuredContentListToCache(cacheKey, contentDTOList);
-            }
+            List<StructuredContentDTO> contentDTOList = buildStructuredContentDTOList(contentList, secure);
+            plan = cacheStructuredContentList(context, cacheKey, contentDTOList, tags, tagVersions);
         }
 
-        return evaluateAndPriortizeContent(contentDTOList, count, ruleDTOs);
+        return evaluateAndPrioritizeContent(plan, count, ruleDTOs);
     }
 
     @Override
     public List<StructuredContentDTO> lookupStructuredContentItemsByName(StructuredContentType contentType, String contentName,
                                                                          Locale locale, Integer count, Map<String, Object> ruleDTOs,
                                                                          boolean secure) {
-        List<StructuredContentDTO> contentDTOList = null;
+        StructuredContentRulePlan plan = null;
         Locale languageOnlyLocale = findLanguageOnlyLocale(locale);
         BroadleafRequestContext context = BroadleafRequestContext.getBroadleafRequestContext();
         Long site = (context.getNonPersistentSite() != null) ? context.getNonPersistentSite().getId() : null;
         String cacheKey = buildNameKey(context.getSandBox(), site, languageOnlyLocale, contentType.getName(), contentName, secure);
 
         if (context.isProductionSandBox()) {
-            contentDTOList = getStructuredContentListFromCache(cacheKey);
+            plan = getStructuredContentRulePlanFromCache(cacheKey);
         }
 
-        if (contentDTOList == null) {
+        if (plan == null) {
+            String[] tags = buildLookupTags(site, languageOnlyLocale, contentType.getName(), contentName);
+            long[] tagVersions = readTagVersions(tags);
             List<StructuredContent> productionContentList = structuredContentDao.findActiveStructuredContentByNameAndType(
                     contentType, contentName, locale, languageOnlyLocale);
-            contentDTOList = buildStructuredContentDTOList(productionContentList, secure);
-
-            if (context.isProductionSandBox()) {
-                addStructuredContentListToCache(cacheKey, contentDTOList);
-            }
+            List<StructuredContentDTO> contentDTOList = buildStructuredContentDTOList(productionContentList, secure);
+            plan = cacheStructuredContentList(context, cacheKey, contentDTOList, tags, tagVersions);
         }
 
-        return evaluateAndPriortizeContent(contentDTOList, count, ruleDTOs);
+        return evaluateAndPrioritizeContent(plan, count, ruleDTOs);
     }
 
     @Override
@@ -334,9 +342,11 @@ public class StructuredContentServiceImpl implements StructuredContentService {
             }
 
             if (dto == null) {
+                String[] tags = buildContentTags(sc);
+                long[] tagVersions = readTagVersions(tags);
                 dto = buildStructuredContentDTO(sc, isSecure);
                 if (isProductionSandbox) {
-                    addSingleStructuredContentToCache(cacheKey, dto);
+                    getStructuredContentCache().put(new Element(cacheKey, new StructuredContentCacheEntry(dto, tags, tagVersions)));
                 }
             }
 
@@ -349,9 +359,9 @@ public class StructuredContentServiceImpl implements StructuredContentService {
     @Override
     public List<StructuredContentDTO> lookupStructuredContentItemsByName(String contentName, Locale locale, Integer count,
                                                                          Map<String, Object> ruleDTOs, boolean secure) {
-        List<StructuredContentDTO> contentDTOList = getStructuredContentItemsByContentName(contentName, locale, secure);
+        StructuredContentRulePlan plan = getStructuredContentRulePlanByContentName(contentName, locale, secure);
 
-        return evaluateAndPriortizeContent(contentDTOList, count, ruleDTOs);
+        return evaluateAndPrioritizeContent(plan, count, ruleDTOs);
     }
 
     public List<RuleProcessor<StructuredContentDTO>> getContentRuleProcessors() {
@@ -362,8 +372,16 @@ public class StructuredContentServiceImpl implements StructuredContentService {
         this.contentRuleProcessors = contentRuleProcessors;
     }
 
+    /**
+     * Invalidates the given content and every cached lookup whose slot it belongs to, regardless of the sandbox and
+     * secure variants it was cached under. Also removes the name and type keys directly, as before, so that the entries
+     * are released from the cache immediately when they can be found.
+     */
     @Override
     public void removeStructuredContentFromCache(SandBox sandBox, StructuredContent sc) {
+        invalidateTag(buildIdTag(sc.getId()));
+        invalidateSlots(sc);
+
         // Remove secure and non-secure instances of the page.
         // Typically the page will be in one or the other if at all.
         boolean successRemoveByName;
@@ -388,6 +406,48 @@ public class StructuredContentServiceImpl implements StructuredContentService {
         }
     }
 
+    /**
+     * Also invalidates the slots the content currently belongs to, which takes a read of the content
+     */
+    @Override
+    public void invalidateCachedContentById(Long contentId) {
+        invalidateTag(buildIdTag(contentId));
+        StructuredContent sc = findStructuredContentById(contentId);
+        if (sc != null) {
+            invalidateSlots(sc);
+        }
+    }
+
+    /**
+     * Gives every slot the content can be listed in a new version: its type, its type and name, and its name alone,
+     * each for the current site and the content's language
+     */
+    protected void invalidateSlots(StructuredContent sc) {
+        Long site = getCurrentSiteId();
+        Locale locale = findLanguageOnlyLocale(sc.getLocale());
+        String contentType = sc.getStructuredContentType() == null ? null : sc.getStructuredContentType().getName();
+        if (contentType != null) {
+            invalidateTag(buildSlotTag(site, locale, contentType, null));
+            invalidateTag(buildSlotTag(site, locale, contentType, sc.getContentName()));
+        }
+        invalidateTag(buildSlotTag(site, locale, null, sc.getContentName()));
+    }
+
+    @Override
+    public void invalidateCachedContentByType(String contentType) {
+        invalidateTag(buildTypeTag(contentType));
+    }
+
+    @Override
+    public void invalidateCachedContentBySite(Long siteId) {
+        invalidateTag(buildSiteTag(siteId));
+    }
+
+    @Override
+    public void invalidateCachedContentByLocale(String localeCode) {
+        invalidateTag(buildLocaleTag(localeCode));
+    }
+
     @Override
     public boolean removeItemFromCacheByKey(String key) {
         // Remove secure and non-secure instances of the structured content.
@@ -697,21 +757,53 @@ public class StructuredContentServiceImpl implements StructuredContentService {
         return key.toString();
     }
 
+    /**
+     * Caches a list that was not read through one of this service's lookups. Since the query and slot that produced it
+     * are not known, the entry is tagged with the ids of the content it contains instead.
+     */
     @Override
     public void addStructuredContentListToCache(String key, List<StructuredContentDTO> scDTOList) {
-        getStructuredContentCache().put(new Element(key, scDTOList));
+        String[] tags = new String[scDTOList.size()];
+        for (int i = 0; i < tags.length; i++) {
+            tags[i] = buildIdTag(scDTOList.get(i).getId());
+        }
+        getStructuredContentCache().put(new Element(key, new StructuredContentCacheEntry(scDTOList, tags, readTagVersions(tags))));
     }
 
     protected void addSingleStructuredContentToCache(String key, StructuredContentDTO scDTO) {
-        getStructuredContentCache().put(new Element(key, scDTO));
+        String[] tags = new String[] { buildIdTag(scDTO.getId()) };
+        getStructuredContentCache().put(new Element(key, new StructuredContentCacheEntry(scDTO, tags, readTagVersions(tags))));
     }
 
     protected StructuredContentDTO getSingleStructuredContentFromCache(String key) {
+        StructuredContentCacheEntry entry = getCacheEntry(key);
+        return entry == null ? null : entry.getContent();
+    }
+
+    @Override
+    public List<StructuredContentDTO> getStructuredContentListFromCache(String key) {
+        StructuredContentCacheEntry entry = getCacheEntry(key);
+        return entry == null ? null : entry.getContentList();
+    }
+
+    protected StructuredContentRulePlan getStructuredContentRulePlanFromCache(String key) {
+        StructuredContentCacheEntry entry = getCacheEntry(key);
+        return entry == null ? null : entry.getRulePlan();
+    }
+
+    /**
+     * Returns the entry cached under the given key, or null if there is none or if one of its tags has been invalidated
+     * since it was read. A stale entry is left in place; it is overwritten when the lookup repopulates the key.
+     */
+    protected StructuredContentCacheEntry getCacheEntry(String key) {
         Element scElement = getStructuredContentCache().get(key);
 
-        if (scElement != null) {
-            statisticsService.addCacheStat(CacheStatType.STRUCTURED_CONTENT_CACHE_HIT_RATE.toString(), true);
-            return (StructuredContentDTO) scElement.getValue();
+        if (scElement != null && scElement.getObjectValue() instanceof StructuredContentCacheEntry) {
+            StructuredContentCacheEntry entry = (StructuredContentCacheEntry) scElement.getObjectValue();
+            if (isCurrent(entry)) {
+                statisticsService.addCacheStat(CacheStatType.STRUCTURED_CONTENT_CACHE_HIT_RATE.toString(), true);
+                return entry;
+            }
         }
 
         statisticsService.addCacheStat(CacheStatType.STRUCTURED_CONTENT_CACHE_HIT_RATE.toString(), false);
@@ -719,24 +811,154 @@ public class StructuredContentServiceImpl implements StructuredContentService {
         return null;
     }
 
-    @Override
-    public List<StructuredContentDTO> getStructuredContentListFromCache(String key) {
-        Element scElement = getStructuredContentCache().get(key);
+    /**
+     * Builds the rule plan for a freshly read list and, when in the production sandbox, caches it under the given key
+     * tagged with the lookup tags. The versions of the lookup tags must be read before the content is, so that an
+     * invalidation that races with the read leaves the entry stale rather than caching outdated content as current.
+     */
+    protected StructuredContentRulePlan cacheStructuredContentList(BroadleafRequestContext context, String cacheKey,
+            List<StructuredContentDTO> contentDTOList, String[] lookupTags, long[] lookupTagVersions) {
+        if (!context.isProductionSandBox()) {
+            return new StructuredContentRulePlan(contentDTOList);
+        }
 
-        if (scElement != null) {
-            statisticsService.addCacheStat(CacheStatType.STRUCTURED_CONTENT_CACHE_HIT_RATE.toString(), true);
+        StructuredContentCacheEntry entry = new StructuredContentCacheEntry(contentDTOList, lookupTags, lookupTagVersions);
+        getStructuredContentCache().put(new Element(cacheKey, entry));
+        return entry.getRulePlan();
+    }
 
-            return (List<StructuredContentDTO>) scElement.getObjectValue();
+    protected boolean isCurrent(StructuredContentCacheEntry entry) {
+        String[] tags = entry.getTags();
+        long[] versions = entry.getTagVersions();
+        for (int i = 0; i < tags.length; i++) {
+            if (readTagVersion(tags[i]) != versions[i]) {
+                return false;
+            }
         }
+        return true;
+    }
 
-        statisticsService.addCacheStat(CacheStatType.STRUCTURED_CONTENT_CACHE_HIT_RATE.toString(), false);
+    protected String[] buildQueryTags(Long site, Locale locale, String contentType, String contentName) {
+        List<String> tags = new ArrayList<>(4);
+        tags.add(buildSiteTag(site));
+        tags.add(buildLocaleTag(locale == null ? null : locale.getLocaleCode()));
+        if (contentType != null) {
+            tags.add(buildTypeTag(contentType));
+        }
+        if (contentName != null) {
+            tags.add(buildNameTag(contentName));
+        }
+        return tags.toArray(new String[tags.size()]);
+    }
 
-        return null;
+    /**
+     * @return the query tags of a lookup followed by the tag of the slot it fills, which any change to one of the slot's
+     * items invalidates
+     */
+    protected String[] buildLookupTags(Long site, Locale locale, String contentType, String contentName) {
+        String[] tags = buildQueryTags(site, locale, contentType, contentName);
+        tags = Arrays.copyOf(tags, tags.length + 1);
+        tags[tags.length - 1] = buildSlotTag(site, locale, contentType, contentName);
+        return tags;
+    }
+
+    protected String[] buildContentTags(StructuredContent sc) {
+        String contentType = sc.getStructuredContentType() == null ? null : sc.getStructuredContentType().getName();
+        String[] tags = buildQueryTags(getCurrentSiteId(), findLanguageOnlyLocale(sc.getLocale()), contentType,
+                sc.getContentName());
+        tags = Arrays.copyOf(tags, tags.length + 1);
+        tags[tags.length - 1] = buildIdTag(sc.getId());
+        return tags;
+    }
+
+    protected Long getCurrentSiteId() {
+        BroadleafRequestContext context = BroadleafRequestContext.getBroadleafRequestContext();
+        Site site = (context != null) ? context.getNonPersistentSite() : null;
+        return (site != null) ? site.getId() : null;
+    }
+
+    protected String buildIdTag(Long contentId) {
+        return "id:" + contentId;
+    }
+
+    protected String buildTypeTag(String contentType) {
+        return "type:" + contentType;
+    }
+
+    protected String buildNameTag(String contentName) {
+        return "name:" + contentName;
+    }
+
+    /**
+     * Lookups are cached per language-only locale, so slots are by language as well
+     */
+    protected String buildSlotTag(Long siteId, Locale locale, String contentType, String contentName) {
+        String localeCode = locale == null ? null : StringUtils.substringBefore(locale.getLocaleCode(), "_");
+        return "slot:" + siteId + "|" + localeCode + "|" + contentType + "|" + contentName;
+    }
+
+    protected String buildSiteTag(Long siteId) {
+        return "site:" + siteId;
+    }
+
+    /**
+     * Lookups are cached per language-only locale, so locale tags are by language as well
+     */
+    protected String buildLocaleTag(String localeCode) {
+        return "locale:" + StringUtils.substringBefore(localeCode, "_");
+    }
+
+    protected long[] readTagVersions(String[] tags) {
+        long[] versions = new long[tags.length];
+        for (int i = 0; i < tags.length; i++) {
+            versions[i] = readTagVersion(tags[i]);
+        }
+        return versions;
+    }
+
+    /**
+     * Returns the current version of the tag, giving it a new random version if it has none. A tag whose version was
+     * evicted or expired therefore never returns to a version an entry may have recorded earlier; the entries tagged
+     * with it simply become stale.
+     */
+    protected long readTagVersion(String tag) {
+        Element element = getTagVersionCache().get(tag);
+        if (element == null) {
+            Element newElement = new Element(tag, newTagVersion());
+            element = getTagVersionCache().putIfAbsent(newElement);
+            if (element == null) {
+                element = newElement;
+            }
+        }
+        return (Long) element.getObjectValue();
+    }
+
+    protected void invalidateTag(String tag) {
+        getTagVersionCache().put(new Element(tag, newTagVersion()));
+    }
+
+    /**
+     * Versions are random rather than counted so that nodes sharing the region never hand out the same version for
+     * different states of a tag
+     */
+    protected Long newTagVersion() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    protected Cache getTagVersionCache() {
+        if (tagVersionCache == null) {
+            tagVersionCache = CacheManager.getInstance().getCache("cmsStructuredContentTagVersionCache");
+        }
+        return tagVersionCache;
     }
 
     @Override
     public List<StructuredContentDTO> getStructuredContentItemsByContentName(String contentName, Locale locale, boolean secure) {
-        List<StructuredContentDTO> contentDTOList = null;
+        return getStructuredContentRulePlanByContentName(contentName, locale, secure).getContent();
+    }
+
+    protected StructuredContentRulePlan getStructuredContentRulePlanByContentName(String contentName, Locale locale, boolean secure) {
+        StructuredContentRulePlan plan = null;
         Locale languageOnlyLocale = findLanguageOnlyLocale(locale);
         BroadleafRequestContext context = BroadleafRequestContext.getBroadleafRequestContext();
         Long site = (context.getNonPersistentSite() != null) ? context.getNonPersistentSite().getId() : null;
@@ -744,17 +966,17 @@ public class StructuredContentServiceImpl implements StructuredContentService {
         cacheKey = cacheKey + "-" + secure;
 
         if (context.isProductionSandBox()) {
-            contentDTOList = getStructuredContentListFromCache(cacheKey);
+            plan = getStructuredContentRulePlanFromCache(cacheKey);
         }
 
-        if (contentDTOList == null) {
+        if (plan == null) {
+            String[] tags = buildLookupTags(site, languageOnlyLocale, null, contentName);
+            long[] tagVersions = readTagVersions(tags);
             List<StructuredContent> productionContentList = structuredContentDao.findActiveStructuredContentByName(contentName, locale, languageOnlyLocale);
-            contentDTOList = buildStructuredContentDTOList(productionContentList, secure);
-            if (context.isProductionSandBox()) {
-                addStructuredContentListToCache(cacheKey, contentDTOList);
-            }
+            List<StructuredContentDTO> contentDTOList = buildStructuredContentDTOList(productionContentList, secure);
+            plan = cacheStructuredContentList(context, cacheKey, contentDTOList, tags, tagVersions);
         }
 
-        return contentDTOList;
+        return plan;
     }
 }
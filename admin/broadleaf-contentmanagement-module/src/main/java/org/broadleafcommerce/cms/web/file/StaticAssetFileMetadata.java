@@ -0,0 +1,58 @@
+/*
+ * #%L
+ * BroadleafCommerce CMS Module
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.cms.web.file;
+
+/**
+ * What {@link StaticAssetView} needs to know about a cached asset file in order to answer conditional and range
+ * requests without touching the file system. Cached asset files are named after the asset version and the operations
+ * applied to them, so a given path always holds the same content and its metadata can be kept for as long as the file
+ * exists.
+ */
+public class StaticAssetFileMetadata {
+
+    protected final String path;
+    protected final long length;
+    protected final long lastModified;
+    protected final String eTag;
+
+    public StaticAssetFileMetadata(String path, long length, long lastModified) {
+        this.path = path;
+        this.length = length;
+        this.lastModified = lastModified;
+        this.eTag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * @return a strong entity tag, already quoted, for the file
+     */
+    public String getETag() {
+        return eTag;
+    }
+}
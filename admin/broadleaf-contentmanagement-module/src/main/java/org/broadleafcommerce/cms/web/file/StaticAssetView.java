@@ -21,27 +21,52 @@ package org.broadleafcommerce.cms.web.file;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.util.ConcurrentLRUCache;
 import org.springframework.web.servlet.View;
 
+import javax.annotation.PostConstruct;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.net.SocketException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Calendar;
-import java.util.Date;
 import java.util.Map;
 
 /**
+ * Streams a cached asset file to the response. Conditional requests ({@code If-None-Match} and
+ * {@code If-Modified-Since}) are answered from an in-memory index of cached file metadata, single byte ranges are
+ * honored and the body is handed to the container with sendfile when it supports it, otherwise copied with
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)}.
+ *
  * Created by jfischer
  */
 public class StaticAssetView implements View {
 
     private static final Log LOG = LogFactory.getLog(StaticAssetView.class);
 
+    protected static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    protected static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    protected static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    protected static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
     protected boolean browserAssetCachingEnabled = true;
     protected long cacheSeconds = 60 * 60 * 24;
+    protected boolean sendfileEnabled = true;
+    protected int maxIndexedFiles = 10000;
+
+    protected ConcurrentLRUCache<String, StaticAssetFileMetadata> fileIndex;
+
+    @PostConstruct
+    public void init() {
+        fileIndex = new ConcurrentLRUCache<>(Math.max(1, maxIndexedFiles));
+    }
 
     @Override
     public String getContentType() {
@@ -51,48 +76,67 @@ public class StaticAssetView implements View {
     @Override
     public void render(Map<String, ?> model, HttpServletRequest request, HttpServletResponse response) throws Exception {
         String cacheFilePath = (String) model.get("cacheFilePath");
-        BufferedInputStream bis = new BufferedInputStream(new FileInputStream(cacheFilePath));
-        try {
-            String mimeType = (String) model.get("mimeType");
-            response.setContentType(mimeType);
-            if (!browserAssetCachingEnabled) {
-                response.setHeader("Cache-Control","no-cache");
-                response.setHeader("Pragma","no-cache");
-                response.setDateHeader ("Expires", 0);
-            } else {
-                response.setHeader("Cache-Control","public");
-                response.setHeader("Pragma","cache");
-                if (!StringUtils.isEmpty(request.getHeader("If-Modified-Since"))) {
-                    long lastModified = request.getDateHeader("If-Modified-Since");
-                    Calendar last = Calendar.getInstance();
-                    last.setTime(new Date(lastModified));
-                    Calendar check = Calendar.getInstance();
-                    check.add(Calendar.SECOND, -2 * new Long(cacheSeconds).intValue());
-                    if (check.compareTo(last) < 0) {
-                        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
-                        return;
-                    }
-                } else {
-                    Calendar check = Calendar.getInstance();
-                    check.add(Calendar.SECOND, -1 * new Long(cacheSeconds).intValue());
-                    response.setDateHeader ("Last-Modified", check.getTimeInMillis());
-                }
-                Calendar cal = Calendar.getInstance();
-                long year = cacheSeconds * 365;
-                cal.add(Calendar.SECOND, new Long(year).intValue());
-                response.setDateHeader ("Expires", cal.getTimeInMillis());
-            }
-            OutputStream os = response.getOutputStream();
-            boolean eof = false;
-            while (!eof) {
-                int temp = bis.read();
-                if (temp < 0) {
-                    eof = true;
-                } else {
-                    os.write(temp);
-                }
+        StaticAssetFileMetadata metadata = getFileMetadata(cacheFilePath);
+
+        String mimeType = (String) model.get("mimeType");
+        response.setContentType(mimeType);
+        response.setHeader("Accept-Ranges", "bytes");
+        response.setHeader("ETag", metadata.getETag());
+        response.setDateHeader("Last-Modified", metadata.getLastModified());
+        if (!browserAssetCachingEnabled) {
+            response.setHeader("Cache-Control","no-cache");
+            response.setHeader("Pragma","no-cache");
+            response.setDateHeader ("Expires", 0);
+        } else {
+            response.setHeader("Cache-Control","public");
+            response.setHeader("Pragma","cache");
+            Calendar cal = Calendar.getInstance();
+            long year = cacheSeconds * 365;
+            cal.add(Calendar.SECOND, new Long(year).intValue());
+            response.setDateHeader ("Expires", cal.getTimeInMillis());
+        }
+
+        if (isNotModified(request, metadata)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long length = metadata.getLength();
+        long[] range = getRequestedRange(request, metadata);
+        if (range != null) {
+            if (range[0] >= metadata.getLength()) {
+                response.setHeader("Content-Range", "bytes */" + metadata.getLength());
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
             }
-            os.flush();
+            start = range[0];
+            length = Math.min(range[1], metadata.getLength() - 1) - start + 1;
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader("Content-Range", "bytes " + start + "-" + (start + length - 1) + "/" + metadata.getLength());
+        }
+        setContentLength(response, length);
+
+        if ("HEAD".equals(request.getMethod()) || length == 0) {
+            return;
+        }
+
+        if (sendfileEnabled && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, metadata.getPath());
+            request.setAttribute(SENDFILE_START_ATTRIBUTE, start);
+            request.setAttribute(SENDFILE_END_ATTRIBUTE, start + length);
+            return;
+        }
+
+        FileInputStream fis;
+        try {
+            fis = new FileInputStream(metadata.getPath());
+        } catch (FileNotFoundException e) {
+            getFileIndex().remove(cacheFilePath);
+            throw e;
+        }
+        try {
+            transferFile(fis.getChannel(), start, length, response.getOutputStream());
         } catch (Exception e) {
             if (e.getCause() instanceof SocketException) {
                 if (LOG.isDebugEnabled()) {
@@ -104,13 +148,154 @@ public class StaticAssetView implements View {
             }
         } finally {
             try {
-                bis.close();
+                fis.close();
             } catch (Throwable e) {
                 //do nothing
             }
         }
     }
 
+    /**
+     * Returns the metadata for the given cached file. The index keeps the {@link #maxIndexedFiles} most recently
+     * served files.
+     * <p>
+     * The modification time is still read from the file system on every request, on purpose. The variant cache can
+     * delete a cached file at any time and generate it again later; the stat makes sure a deleted file is answered as
+     * not found rather than handed to sendfile, and that a regenerated file is served with its own Last-Modified and
+     * ETag. That single stat call is answered from the operating system's inode cache; what the index saves is the
+     * absolute path, length and ETag that would otherwise be computed for every request.
+     */
+    protected StaticAssetFileMetadata getFileMetadata(String cacheFilePath) throws FileNotFoundException {
+        File file = new File(cacheFilePath);
+        long lastModified = file.lastModified();
+        ConcurrentLRUCache<String, StaticAssetFileMetadata> index = getFileIndex();
+        StaticAssetFileMetadata metadata = index.get(cacheFilePath);
+        if (metadata == null || metadata.getLastModified() != lastModified) {
+            if (lastModified == 0L || !file.isFile()) {
+                index.remove(cacheFilePath);
+                throw new FileNotFoundException(cacheFilePath);
+            }
+            metadata = new StaticAssetFileMetadata(file.getAbsolutePath(), file.length(), lastModified);
+            index.put(cacheFilePath, metadata);
+        }
+        return metadata;
+    }
+
+    protected ConcurrentLRUCache<String, StaticAssetFileMetadata> getFileIndex() {
+        return fileIndex;
+    }
+
+    /**
+     * {@code If-None-Match} takes precedence over {@code If-Modified-Since}, which is only compared to the second
+     * since that is all an HTTP date carries.
+     */
+    protected boolean isNotModified(HttpServletRequest request, StaticAssetFileMetadata metadata) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (!StringUtils.isEmpty(ifNoneMatch)) {
+            return matchesETag(ifNoneMatch, metadata.getETag());
+        }
+        long ifModifiedSince = getDateHeader(request, "If-Modified-Since");
+        return ifModifiedSince >= 0 && metadata.getLastModified() / 1000 <= ifModifiedSince / 1000;
+    }
+
+    protected boolean matchesETag(String headerValue, String eTag) {
+        for (String candidate : headerValue.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if ("*".equals(candidate) || eTag.equals(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses a single byte range from the {@code Range} header into an inclusive start and end. Returns null, meaning
+     * the whole file should be sent, when there is no range, the header is not understood, it asks for several ranges or
+     * an {@code If-Range} precondition does not match. A start past the end of the file is returned as is so that the
+     * caller can reject it.
+     */
+    protected long[] getRequestedRange(HttpServletRequest request, StaticAssetFileMetadata metadata) {
+        String rangeHeader = request.getHeader("Range");
+        if (StringUtils.isEmpty(rangeHeader) || !rangeHeader.startsWith("bytes=") || rangeHeader.indexOf(',') >= 0) {
+            return null;
+        }
+
+        String ifRange = request.getHeader("If-Range");
+        if (!StringUtils.isEmpty(ifRange)) {
+            if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+                if (!ifRange.equals(metadata.getETag())) {
+                    return null;
+                }
+            } else if (getDateHeader(request, "If-Range") / 1000 != metadata.getLastModified() / 1000) {
+                return null;
+            }
+        }
+
+        String spec = rangeHeader.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                long suffixLength = Long.parseLong(last);
+                if (suffixLength <= 0) {
+                    return null;
+                }
+                return new long[] { Math.max(0, metadata.getLength() - suffixLength), metadata.getLength() - 1 };
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? metadata.getLength() - 1 : Long.parseLong(last);
+            if (start < 0 || end < start) {
+                return null;
+            }
+            return new long[] { start, end };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    protected long getDateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    protected void setContentLength(HttpServletResponse response, long length) {
+        if (length <= Integer.MAX_VALUE) {
+            response.setContentLength((int) length);
+        } else {
+            response.setHeader("Content-Length", String.valueOf(length));
+        }
+    }
+
+    /**
+     * Copies the requested part of the file to the response. The response is only reachable as an
+     * {@link OutputStream}, so {@link FileChannel#transferTo} still copies the data through a buffer in the JDK; the
+     * file is only sent without copying on the sendfile path in {@link #render}.
+     */
+    protected void transferFile(FileChannel channel, long start, long length, OutputStream os) throws IOException {
+        WritableByteChannel target = Channels.newChannel(os);
+        long position = start;
+        long remaining = length;
+        while (remaining > 0) {
+            long transferred = channel.transferTo(position, remaining, target);
+            if (transferred <= 0) {
+                break;
+            }
+            position += transferred;
+            remaining -= transferred;
+        }
+        os.flush();
+    }
+
     public boolean isBrowserAssetCachingEnabled() {
         return browserAssetCachingEnabled;
     }
@@ -126,4 +311,20 @@ public class StaticAssetView implements View {
     public void setCacheSeconds(long cacheSeconds) {
         this.cacheSeconds = cacheSeconds;
     }
+
+    public boolean isSendfileEnabled() {
+        return sendfileEnabled;
+    }
+
+    public void setSendfileEnabled(boolean sendfileEnabled) {
+        this.sendfileEnabled = sendfileEnabled;
+    }
+
+    public int getMaxIndexedFiles() {
+        return maxIndexedFiles;
+    }
+
+    public void setMaxIndexedFiles(int maxIndexedFiles) {
+        this.maxIndexedFiles = maxIndexedFiles;
+    }
 }
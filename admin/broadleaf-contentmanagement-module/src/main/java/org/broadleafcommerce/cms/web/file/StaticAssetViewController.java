@@ -39,6 +39,8 @@ import org.springframework.web.servlet.mvc.AbstractController;
 import java.io.FileNotFoundException;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
@@ -151,6 +153,16 @@ public class StaticAssetViewController extends AbstractController {
             response.setStatus(HttpServletResponse.SC_NOT_FOUND);
             LOG.error("Could not retrieve asset request " + fullUrl + " from the StaticAssetStorage. The underlying file path checked was " + e.getMessage());
             return null;
+        } catch (TimeoutException e) {
+            // the variant is still being generated and will be ready for a later request
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", "1");
+            return null;
+        } catch (RejectedExecutionException e) {
+            // too many variants are waiting to be generated
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", "1");
+            return null;
         } catch (Exception e) {
             LOG.error("Unable to retrieve static asset", e);
             throw new RuntimeException(e);
@@ -0,0 +1,237 @@
+/*
+ * #%L
+ * BroadleafCommerce CMS Module
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.cms.file.service;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class StaticAssetVariantServiceImplTest extends TestCase {
+
+    protected static final long NOW = 1000000000000L;
+    protected static final String HASH = "0123456789abcdef0123456789abcdef";
+
+    protected StaticAssetVariantServiceImpl service;
+    protected File directory;
+    protected long now;
+
+    @Override
+    protected void setUp() throws Exception {
+        now = NOW;
+        directory = Files.createTempDirectory("variantCache").toFile();
+        service = new StaticAssetVariantServiceImpl() {
+            @Override
+            protected long currentTimeMillis() {
+                return now;
+            }
+        };
+        service.generationThreads = 2;
+        service.generationQueueSize = 10;
+        service.generationTimeoutSeconds = 5;
+        service.maxVariantCacheBytes = 0;
+        service.pinSeconds = 60;
+        service.cacheDirectory = directory.getAbsolutePath();
+        service.init();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        service.shutdown();
+        delete(directory);
+    }
+
+    public void testConcurrentRequestsForTheSameVariantGenerateItOnce() throws Exception {
+        final File variant = new File(directory, "image---" + HASH + ".png");
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger generations = new AtomicInteger();
+        Callable<File> generator = new Callable<File>() {
+            @Override
+            public File call() throws Exception {
+                generations.incrementAndGet();
+                release.await(5, TimeUnit.SECONDS);
+                write(variant, 10);
+                return variant;
+            }
+        };
+
+        service.generateVariantAsync(variant, generator);
+        service.generateVariantAsync(variant, generator);
+        final File[] result = new File[1];
+        Thread waiting = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    result[0] = service.generateVariant(variant, generator);
+                } catch (Exception e) {
+                    // leaves the result empty
+                }
+            }
+        });
+        waiting.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (service.getDeduplicatedCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+        waiting.join(5000);
+
+        assertEquals(variant, result[0]);
+        assertEquals(1, generations.get());
+        assertEquals(1, service.getGeneratedCount());
+        assertEquals(2, service.getDeduplicatedCount());
+    }
+
+    public void testRequestTimesOutWhileTheGenerationCarriesOn() throws Exception {
+        final File variant = new File(directory, "image---" + HASH + ".png");
+        final CountDownLatch release = new CountDownLatch(1);
+        Callable<File> generator = new Callable<File>() {
+            @Override
+            public File call() throws Exception {
+                release.await(5, TimeUnit.SECONDS);
+                write(variant, 10);
+                return variant;
+            }
+        };
+
+        service.generationTimeoutSeconds = 0;
+        try {
+            service.generateVariant(variant, generator);
+            fail("Expected the request to time out");
+        } catch (TimeoutException e) {
+            // expected
+        }
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (service.getInFlightCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, service.getInFlightCount());
+        assertTrue(variant.exists());
+        assertEquals(1, service.getGeneratedCount());
+    }
+
+    public void testGenerationsAreRefusedOnceTheQueueIsFull() throws Exception {
+        service.shutdown();
+        service.generationThreads = 1;
+        service.generationQueueSize = 1;
+        service.init();
+        final CountDownLatch release = new CountDownLatch(1);
+        Callable<File> generator = new Callable<File>() {
+            @Override
+            public File call() throws Exception {
+                release.await(5, TimeUnit.SECONDS);
+                return null;
+            }
+        };
+
+        service.generateVariantAsync(new File(directory, "a---" + HASH + ".png"), generator);
+        service.generateVariantAsync(new File(directory, "b---" + HASH + ".png"), generator);
+        service.generateVariantAsync(new File(directory, "c---" + HASH + ".png"), generator);
+        try {
+            service.generateVariant(new File(directory, "d---" + HASH + ".png"), generator);
+            fail("Expected the generation to be refused");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+
+        assertEquals(2, service.getRejectedCount());
+        assertEquals(2, service.getInFlightCount());
+        release.countDown();
+    }
+
+    public void testLeastRecentlyUsedVariantsAreRemovedOverTheLimit() throws Exception {
+        service.maxVariantCacheBytes = 100;
+        File oldest = write(new File(directory, "a---" + HASH + ".png"), 40);
+        File older = write(new File(directory, "b---" + HASH + ".png"), 40);
+        service.recordVariantAccess(oldest);
+        now = NOW + 1000L;
+        service.recordVariantAccess(older);
+
+        now = NOW + 120000L;
+        File newest = write(new File(directory, "c---" + HASH + ".png"), 40);
+        service.recordVariantAccess(newest);
+
+        assertFalse(oldest.exists());
+        assertTrue(older.exists());
+        assertTrue(newest.exists());
+        assertEquals(80, service.getVariantCacheBytes());
+        assertEquals(1, service.getEvictedCount());
+    }
+
+    public void testRecentlyServedVariantsAreNotRemoved() throws Exception {
+        service.maxVariantCacheBytes = 100;
+        File first = write(new File(directory, "a---" + HASH + ".png"), 40);
+        File second = write(new File(directory, "b---" + HASH + ".png"), 40);
+        service.recordVariantAccess(first);
+        service.recordVariantAccess(second);
+
+        now = NOW + 30000L;
+        File third = write(new File(directory, "c---" + HASH + ".png"), 40);
+        service.recordVariantAccess(third);
+
+        assertTrue(first.exists());
+        assertTrue(second.exists());
+        assertTrue(third.exists());
+        assertEquals(120, service.getVariantCacheBytes());
+        assertEquals(0, service.getEvictedCount());
+    }
+
+    public void testStartupScanTracksCachedFiles() throws Exception {
+        service.maxVariantCacheBytes = 1000;
+        File variant = write(new File(directory, "a---" + HASH + ".png"), 40);
+        File nested = new File(directory, "sub");
+        assertTrue(nested.mkdir());
+        File nestedVariant = write(new File(nested, "b---" + HASH + ".jpg"), 20);
+        write(new File(directory, "unrelated.txt"), 30);
+        write(new File(directory, "c---notahash.png"), 30);
+
+        service.scanCacheDirectory();
+
+        assertEquals(2, service.variantUsage.size());
+        assertTrue(service.variantUsage.containsKey(variant.getAbsolutePath()));
+        assertTrue(service.variantUsage.containsKey(nestedVariant.getAbsolutePath()));
+        assertEquals(60, service.getVariantCacheBytes());
+    }
+
+    protected File write(File file, int size) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[size]);
+        }
+        return file;
+    }
+
+    protected void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * #%L
+ * BroadleafCommerce CMS Module
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.cms.structure.service;
+
+import org.broadleafcommerce.cms.structure.dao.StructuredContentDao;
+import org.broadleafcommerce.cms.structure.domain.StructuredContent;
+import org.broadleafcommerce.cms.structure.domain.StructuredContentImpl;
+import org.broadleafcommerce.cms.structure.domain.StructuredContentType;
+import org.broadleafcommerce.cms.structure.domain.StructuredContentTypeImpl;
+import org.broadleafcommerce.common.cache.StatisticsService;
+import org.broadleafcommerce.common.structure.dto.StructuredContentDTO;
+import org.easymock.EasyMock;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+
+public class StructuredContentServiceImplTest extends TestCase {
+
+    protected CacheManager cacheManager;
+    protected StructuredContentServiceImpl contentService;
+
+    @Override
+    protected void setUp() throws Exception {
+        cacheManager = new CacheManager(new Configuration().name("StructuredContentServiceImplTest"));
+        Cache contentCache = new Cache(new CacheConfiguration("content", 100));
+        Cache tagVersionCache = new Cache(new CacheConfiguration("tagVersions", 100));
+        cacheManager.addCache(contentCache);
+        cacheManager.addCache(tagVersionCache);
+
+        contentService = new StructuredContentServiceImpl();
+        contentService.structuredContentCache = contentCache;
+        contentService.tagVersionCache = tagVersionCache;
+        contentService.statisticsService = EasyMock.createNiceMock(StatisticsService.class);
+        contentService.structuredContentDao = EasyMock.createNiceMock(StructuredContentDao.class);
+        EasyMock.replay(contentService.statisticsService, contentService.structuredContentDao);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        cacheManager.shutdown();
+    }
+
+    public void testCachedContentIsCurrentUntilItsTagIsInvalidated() {
+        StructuredContentDTO dto = dto(1L);
+        contentService.addSingleStructuredContentToCache("key", dto);
+
+        assertSame(dto, contentService.getSingleStructuredContentFromCache("key"));
+
+        contentService.invalidateCachedContentById(2L);
+        assertSame(dto, contentService.getSingleStructuredContentFromCache("key"));
+
+        contentService.invalidateCachedContentById(1L);
+        assertNull(contentService.getSingleStructuredContentFromCache("key"));
+    }
+
+    public void testEvictedTagVersionsLeaveEntriesStale() {
+        contentService.addSingleStructuredContentToCache("key", dto(1L));
+
+        contentService.tagVersionCache.removeAll();
+
+        assertNull(contentService.getSingleStructuredContentFromCache("key"));
+    }
+
+    public void testQueryTagsInvalidateCachedLists() {
+        List<StructuredContentDTO> contents = Arrays.asList(dto(1L), dto(2L));
+        contentService.addStructuredContentListToCache("list", contents);
+        cacheLookup("typed", contents, null, "banner", null);
+
+        contentService.invalidateCachedContentByType("banner");
+
+        assertEquals(contents, contentService.getStructuredContentListFromCache("list"));
+        assertNull(contentService.getStructuredContentListFromCache("typed"));
+
+        contentService.invalidateCachedContentById(2L);
+        assertNull(contentService.getStructuredContentListFromCache("list"));
+    }
+
+    public void testChangedItemInvalidatesTheSlotsItIsListedIn() {
+        List<StructuredContentDTO> banners = Arrays.asList(dto(1L), dto(2L));
+        cacheLookup("banners", banners, null, "banner", null);
+        cacheLookup("homeBanners", banners, null, "banner", "home");
+        cacheLookup("home", banners, null, null, "home");
+        cacheLookup("promos", Arrays.asList(dto(3L)), null, "promo", null);
+
+        contentService.removeStructuredContentFromCache(null, content(2L, "banner", "home"));
+
+        assertNull(contentService.getStructuredContentListFromCache("banners"));
+        assertNull(contentService.getStructuredContentListFromCache("homeBanners"));
+        assertNull(contentService.getStructuredContentListFromCache("home"));
+        assertNotNull(contentService.getStructuredContentListFromCache("promos"));
+    }
+
+    public void testLookupTagsDoNotGrowWithTheList() {
+        String[] tags = contentService.buildLookupTags(1L, null, "banner", "home");
+
+        assertEquals(5, tags.length);
+        assertEquals(contentService.buildSlotTag(1L, null, "banner", "home"), tags[4]);
+    }
+
+    public void testTagsOfContentWithoutAType() {
+        StructuredContent sc = new StructuredContentImpl();
+        sc.setId(1L);
+        sc.setContentName("promo");
+
+        List<String> tags = Arrays.asList(contentService.buildContentTags(sc));
+
+        assertTrue(tags.contains(contentService.buildIdTag(1L)));
+        assertTrue(tags.contains(contentService.buildNameTag("promo")));
+        for (String tag : tags) {
+            assertFalse(tag.startsWith("type:"));
+        }
+    }
+
+    protected void cacheLookup(String key, List<StructuredContentDTO> contents, Long site, String contentType, String contentName) {
+        String[] tags = contentService.buildLookupTags(site, null, contentType, contentName);
+        contentService.getStructuredContentCache().put(new Element(key,
+                new StructuredContentCacheEntry(contents, tags, contentService.readTagVersions(tags))));
+    }
+
+    protected StructuredContent content(Long id, String contentType, String contentName) {
+        StructuredContentType type = new StructuredContentTypeImpl();
+        type.setName(contentType);
+        StructuredContent sc = new StructuredContentImpl();
+        sc.setId(id);
+        sc.setContentName(contentName);
+        sc.setStructuredContentType(type);
+        return sc;
+    }
+
+    protected StructuredContentDTO dto(Long id) {
+        StructuredContentDTO dto = new StructuredContentDTO();
+        dto.setId(id);
+        return dto;
+    }
+}
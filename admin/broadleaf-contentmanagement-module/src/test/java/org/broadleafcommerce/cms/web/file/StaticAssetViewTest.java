@@ -0,0 +1,146 @@
+/*
+ * #%L
+ * BroadleafCommerce CMS Module
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.cms.web.file;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletResponse;
+
+import junit.framework.TestCase;
+
+public class StaticAssetViewTest extends TestCase {
+
+    protected StaticAssetView view;
+    protected File file;
+
+    @Override
+    protected void setUp() throws Exception {
+        view = new StaticAssetView();
+        view.init();
+        file = write(File.createTempFile("StaticAssetViewTest", ".txt"), "0123456789");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        file.delete();
+    }
+
+    public void testTheWholeFileIsStreamed() throws Exception {
+        MockHttpServletResponse response = render(new MockHttpServletRequest("GET", "/asset.txt"));
+
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+        assertEquals(10, response.getContentLength());
+        assertEquals(view.getFileMetadata(file.getAbsolutePath()).getETag(), response.getHeader("ETag"));
+    }
+
+    public void testMatchingETagIsNotModified() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/asset.txt");
+        request.addHeader("If-None-Match", view.getFileMetadata(file.getAbsolutePath()).getETag());
+
+        MockHttpServletResponse response = render(request);
+
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    public void testSingleRangeIsHonored() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/asset.txt");
+        request.addHeader("Range", "bytes=2-4");
+
+        MockHttpServletResponse response = render(request);
+
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+        assertEquals("bytes 2-4/10", response.getHeader("Content-Range"));
+        assertEquals("234", response.getContentAsString());
+    }
+
+    public void testTheIndexIsBoundedInsteadOfCleared() throws Exception {
+        view.setMaxIndexedFiles(2);
+        view.init();
+        File[] files = new File[5];
+        try {
+            for (int i = 0; i < files.length; i++) {
+                files[i] = write(File.createTempFile("StaticAssetViewTest", ".txt"), "file " + i);
+                view.getFileMetadata(files[i].getAbsolutePath());
+                assertTrue(view.getFileIndex().size() <= 2);
+            }
+            assertTrue(view.getFileIndex().size() > 0);
+            assertTrue(view.getFileIndex().getEvictionCount() >= 3);
+        } finally {
+            for (File indexed : files) {
+                if (indexed != null) {
+                    indexed.delete();
+                }
+            }
+        }
+    }
+
+    public void testDeletedFilesAreNotServedFromTheIndex() throws Exception {
+        String path = file.getAbsolutePath();
+        view.getFileMetadata(path);
+        assertTrue(file.delete());
+
+        try {
+            view.getFileMetadata(path);
+            fail("A deleted file must not be served from the index");
+        } catch (FileNotFoundException e) {
+            // expected
+        }
+        assertFalse(view.getFileIndex().containsKey(path));
+    }
+
+    public void testRegeneratedFilesGetNewMetadata() throws Exception {
+        String path = file.getAbsolutePath();
+        StaticAssetFileMetadata original = view.getFileMetadata(path);
+
+        write(file, "regenerated content");
+        assertTrue(file.setLastModified(original.getLastModified() + 2000));
+
+        StaticAssetFileMetadata regenerated = view.getFileMetadata(path);
+        assertEquals(19, regenerated.getLength());
+        assertFalse(original.getETag().equals(regenerated.getETag()));
+    }
+
+    protected MockHttpServletResponse render(MockHttpServletRequest request) throws Exception {
+        Map<String, Object> model = new HashMap<>();
+        model.put("cacheFilePath", file.getAbsolutePath());
+        model.put("mimeType", "text/plain");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        view.render(model, request, response);
+        return response;
+    }
+
+    protected File write(File target, String content) throws IOException {
+        FileOutputStream os = new FileOutputStream(target);
+        try {
+            os.write(content.getBytes("UTF-8"));
+        } finally {
+            os.close();
+        }
+        return target;
+    }
+}
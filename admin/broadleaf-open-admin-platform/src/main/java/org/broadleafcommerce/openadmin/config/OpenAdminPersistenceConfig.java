@@ -0,0 +1,42 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2017 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.config;
+
+import org.broadleafcommerce.openadmin.server.service.persistence.DefaultFetchTypeDetection;
+import org.broadleafcommerce.openadmin.server.service.persistence.FetchTypeDetection;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Defaults for the admin persistence layer that give way to any implementation defined by the application
+ */
+@Configuration
+public class OpenAdminPersistenceConfig {
+
+    /**
+     * {@link FetchTypeDetection} is autowired by type and is optional, so the default only stands in when no other
+     * implementation is defined
+     */
+    @Bean
+    @ConditionalOnMissingBean(FetchTypeDetection.class)
+    public FetchTypeDetection blFetchTypeDetection() {
+        return new DefaultFetchTypeDetection();
+    }
+
+}
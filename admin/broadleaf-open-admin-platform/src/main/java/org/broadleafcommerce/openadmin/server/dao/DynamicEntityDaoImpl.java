@@ -18,7 +18,6 @@
 package org.broadleafcommerce.openadmin.server.dao;
 
 
-import org.apache.commons.collections4.map.LRUMap;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.logging.Log;
@@ -73,6 +72,7 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -84,6 +84,11 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Resource;
@@ -105,14 +110,29 @@ public class DynamicEntityDaoImpl implements DynamicEntityDao, ApplicationContex
     
     private static final Log LOG = LogFactory.getLog(DynamicEntityDaoImpl.class);
     
-    protected static final Map<String,Map<String, FieldMetadata>> METADATA_CACHE = new LRUMap<>(1000);
+    /**
+     * Metadata per cache key, see {@link #getCacheKey}. Entries are loaded at most once at a time per key and the cached
+     * maps are never modified after they are published, so reads do not need to lock.
+     */
+    protected static final ConcurrentMap<String, MetadataCacheEntry> METADATA_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * The number of nested metadata loads running on the current thread. A nested load never waits for another thread's
+     * load of the same key, since that thread may itself be waiting for one of ours.
+     */
+    protected static final ThreadLocal<Integer> METADATA_LOAD_DEPTH = new ThreadLocal<Integer>() {
+        @Override
+        protected Integer initialValue() {
+            return 0;
+        }
+    };
     
     /**
      * Lifetime cache for the existence of DynamicEntityDaoImpl that just stores how many properties we have cached in METADATA_CACHE over the lifetime
      * of the application. This should survive evictions from METADATA_CACHE because it is for the purpose of diagnosing when we store different property
      * counts in METADATA_CACHE as a result of cache eviction
      */
-    protected static final Map<String, Integer> METADATA_CACHE_SIZES = new HashMap<>();
+    protected static final ConcurrentMap<String, Integer> METADATA_CACHE_SIZES = new ConcurrentHashMap<>();
     
     /*
      * This is the same as POLYMORPHIC_ENTITY_CACHE, except that it does not contain classes that are abstract or have been marked for exclusion 
@@ -142,6 +162,12 @@ public class DynamicEntityDaoImpl implements DynamicEntityDao, ApplicationContex
 
     @Value("${cache.entity.dao.metadata.ttl}")
     protected int cacheEntityMetaDataTtl;
+
+    /**
+     * The number of metadata cache entries kept before the least recently used ones are evicted
+     */
+    @Value("${cache.entity.dao.metadata.maxEntries:1000}")
+    protected int cacheEntityMetaDataMaxEntries = 1000;
     
     /**
      * Whether or not we should use {@link #METADATA_CACHE_SIZES} in the normal runtime of the application
@@ -228,7 +254,7 @@ public class DynamicEntityDaoImpl implements DynamicEntityDao, ApplicationContex
         } else {
             if ((System.currentTimeMillis() - lastCacheFlushTime) > cacheEntityMetaDataTtl) {
                 lastCacheFlushTime = System.currentTimeMillis();
-                METADATA_CACHE.clear();
+                // METADATA_CACHE entries expire individually, see getCachedPropertiesForEntityClass
                 DynamicDaoHelperImpl.POLYMORPHIC_ENTITY_CACHE.clear();
                 DynamicDaoHelperImpl.POLYMORPHIC_ENTITY_CACHE_WO_EXCLUSIONS.clear();
                 LOG.trace("Metadata cache evicted");
@@ -728,31 +754,27 @@ public class DynamicEntityDaoImpl implements DynamicEntityDao, ApplicationContex
     }
 
     protected void buildPropertiesFromPolymorphicEntities(
-            Class<?>[] entities,
-            ForeignKey foreignField,
-            String[] additionalNonPersistentProperties,
-            ForeignKey[] additionalForeignFields,
-            MergedPropertyType mergedPropertyType,
-            Boolean populateManyToOneFields,
-            String[] includeFields,
-            String[] excludeFields,
-            String configurationKey,
-            String ceilingEntityFullyQualifiedClassname,
+            final Class<?>[] entities,
+            final ForeignKey foreignField,
+            final String[] additionalNonPersistentProperties,
+            final ForeignKey[] additionalForeignFields,
+            final MergedPropertyType mergedPropertyType,
+            final Boolean populateManyToOneFields,
+            final String[] includeFields,
+            final String[] excludeFields,
+            final String configurationKey,
+            final String ceilingEntityFullyQualifiedClassname,
             Map<String, FieldMetadata> mergedProperties,
-            List<Class<?>> parentClasses,
-            String prefix,
-            Boolean isParentExcluded,
-            String parentPrefix) {
-        for (Class<?> clazz : entities) {
-            String cacheKey = getCacheKey(ceilingEntityFullyQualifiedClassname, foreignField, additionalNonPersistentProperties, additionalForeignFields, mergedPropertyType, populateManyToOneFields, clazz, configurationKey, isParentExcluded);
-
-            Map<String, FieldMetadata> cacheData = null;
-            synchronized(DynamicDaoHelperImpl.LOCK_OBJECT) {
-                if (useCache()) {
-                    cacheData = METADATA_CACHE.get(cacheKey);
-                }
+            final List<Class<?>> parentClasses,
+            final String prefix,
+            final Boolean isParentExcluded,
+            final String parentPrefix) {
+        for (final Class<?> clazz : entities) {
+            final String cacheKey = getCacheKey(ceilingEntityFullyQualifiedClassname, foreignField, additionalNonPersistentProperties, additionalForeignFields, mergedPropertyType, populateManyToOneFields, clazz, configurationKey, isParentExcluded);
 
-                if (cacheData == null) {
+            Map<String, FieldMetadata> cacheData = getCachedPropertiesForEntityClass(cacheKey, new Callable<Map<String, FieldMetadata>>() {
+                @Override
+                public Map<String, FieldMetadata> call() throws Exception {
                     Map<String, FieldMetadata> props = getPropertiesForEntityClass(
                         clazz,
                         foreignField,
@@ -784,32 +806,26 @@ public class DynamicEntityDaoImpl implements DynamicEntityDao, ApplicationContex
                             }
                         }
                     }
-                    METADATA_CACHE.put(cacheKey, props);
-                    
+
                     if (LOG.isTraceEnabled()) {
-                        LOG.trace("Added " + props.size() + " to the metadata cache with key " + cacheKey + " for the class " + ceilingEntityFullyQualifiedClassname);
+                        LOG.trace("Built " + props.size() + " properties with key " + cacheKey + " for the class " + ceilingEntityFullyQualifiedClassname);
                     }
-                    
+
                     if (validateMetadataCacheSizes) {
-                        Integer previousSize = METADATA_CACHE_SIZES.get(cacheKey);
                         Integer currentSize = props.size();
-                        if (previousSize == null) {
-                            METADATA_CACHE_SIZES.put(cacheKey, currentSize);
-                        } else if (!currentSize.equals(previousSize)) {
+                        Integer previousSize = METADATA_CACHE_SIZES.putIfAbsent(cacheKey, currentSize);
+                        if (previousSize != null && !currentSize.equals(previousSize)) {
                             String msg = "Attempted to store " + currentSize + " properties in the cache for the key " + cacheKey + " but we had previously stored " + previousSize + " properties";
                             LOG.error(msg);
                             throw new RuntimeException(msg);
                         }
                     }
-                    
-                    cacheData = props;
-                } else {
-                    if (LOG.isTraceEnabled()) {
-                        LOG.trace("Read " + cacheData.size() + " from the metada cache with key " + cacheKey + " for the class " + ceilingEntityFullyQualifiedClassname);
-                    }
+
+                    return Collections.unmodifiableMap(props);
                 }
-            }
-            //clone the metadata before passing to the system
+            });
+
+            //clone the metadata before passing to the system, overrides and includes/excludes modify the instances
             Map<String, FieldMetadata> clonedCache = new HashMap<>(cacheData.size());
             for (Map.Entry<String, FieldMetadata> entry : cacheData.entrySet()) {
                 clonedCache.put(entry.getKey(), entry.getValue().cloneFieldMetadata());
@@ -818,6 +834,142 @@ public class DynamicEntityDaoImpl implements DynamicEntityDao, ApplicationContex
         }
     }
 
+    /**
+     * Returns the metadata cached for the key, running the loader if there is none or it has expired. Concurrent
+     * requests for a key that is being loaded wait for that load rather than repeating it, and other keys are never
+     * blocked. The returned map is shared and must not be modified.
+     */
+    protected Map<String, FieldMetadata> getCachedPropertiesForEntityClass(String cacheKey, Callable<Map<String, FieldMetadata>> loader) {
+        if (!useCache()) {
+            return loadProperties(loader);
+        }
+
+        MetadataCacheEntry entry = METADATA_CACHE.get(cacheKey);
+        if (entry != null && entry.isExpired(cacheEntityMetaDataTtl)) {
+            METADATA_CACHE.remove(cacheKey, entry);
+            LOG.trace("Metadata cache entry expired for key " + cacheKey);
+            entry = null;
+        }
+        if (entry == null) {
+            MetadataCacheEntry newEntry = new MetadataCacheEntry(loader);
+            entry = METADATA_CACHE.putIfAbsent(cacheKey, newEntry);
+            if (entry == null) {
+                entry = newEntry;
+                evictMetadataCacheEntries();
+                METADATA_LOAD_DEPTH.set(METADATA_LOAD_DEPTH.get() + 1);
+                try {
+                    entry.load();
+                } finally {
+                    METADATA_LOAD_DEPTH.set(METADATA_LOAD_DEPTH.get() - 1);
+                }
+            }
+        }
+
+        if (!entry.isDone() && METADATA_LOAD_DEPTH.get() > 0) {
+            return loadProperties(loader);
+        }
+        try {
+            return entry.get();
+        } catch (RuntimeException e) {
+            METADATA_CACHE.remove(cacheKey, entry);
+            throw e;
+        }
+    }
+
+    protected Map<String, FieldMetadata> loadProperties(Callable<Map<String, FieldMetadata>> loader) {
+        METADATA_LOAD_DEPTH.set(METADATA_LOAD_DEPTH.get() + 1);
+        try {
+            return loader.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            METADATA_LOAD_DEPTH.set(METADATA_LOAD_DEPTH.get() - 1);
+        }
+    }
+
+    /**
+     * Evicts the least recently used entries once the cache holds more than {@link #cacheEntityMetaDataMaxEntries}
+     */
+    protected void evictMetadataCacheEntries() {
+        int excess = METADATA_CACHE.size() - cacheEntityMetaDataMaxEntries;
+        if (excess <= 0) {
+            return;
+        }
+        // sort a snapshot, the access times keep changing while we look at them
+        List<Map.Entry<String, Long>> accessTimes = new ArrayList<>(METADATA_CACHE.size());
+        for (Map.Entry<String, MetadataCacheEntry> entry : METADATA_CACHE.entrySet()) {
+            if (entry.getValue().isDone()) {
+                accessTimes.add(new AbstractMap.SimpleEntry<>(entry.getKey(), entry.getValue().getLastAccess()));
+            }
+        }
+        Collections.sort(accessTimes, new Comparator<Map.Entry<String, Long>>() {
+            @Override
+            public int compare(Map.Entry<String, Long> o1, Map.Entry<String, Long> o2) {
+                return o1.getValue().compareTo(o2.getValue());
+            }
+        });
+        for (int i = 0; i < excess && i < accessTimes.size(); i++) {
+            METADATA_CACHE.remove(accessTimes.get(i).getKey());
+        }
+    }
+
+    /**
+     * A single flight load of the metadata for one cache key
+     */
+    protected static class MetadataCacheEntry {
+
+        protected final FutureTask<Map<String, FieldMetadata>> future;
+        protected volatile long loadedAt;
+        protected volatile long lastAccess;
+
+        public MetadataCacheEntry(Callable<Map<String, FieldMetadata>> loader) {
+            future = new FutureTask<>(loader);
+            lastAccess = System.currentTimeMillis();
+        }
+
+        public void load() {
+            future.run();
+            loadedAt = System.currentTimeMillis();
+        }
+
+        public boolean isDone() {
+            return future.isDone();
+        }
+
+        public boolean isExpired(int ttl) {
+            return ttl > 0 && isDone() && loadedAt > 0 && System.currentTimeMillis() - loadedAt > ttl;
+        }
+
+        public long getLastAccess() {
+            return lastAccess;
+        }
+
+        public Map<String, FieldMetadata> get() {
+            lastAccess = System.currentTimeMillis();
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        return future.get();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RuntimeException(e.getCause());
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
     @Override
     public Field[] getAllFields(Class<?> targetClass) {
         Field[] allFields = new Field[]{};
@@ -0,0 +1,206 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2017 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.server.service.export;
+
+import org.hibernate.CacheMode;
+import org.hibernate.FlushMode;
+import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.servlet.ServletOutputStream;
+
+/**
+ * Base class for exporters whose rows come from a single HQL query. Rather than loading the results, the query is read
+ * through a forward only cursor with a tuned fetch size, each row is converted and written as soon as it is read, and
+ * the persistence context is cleared every {@link #getClearInterval()} rows. Memory use is therefore bounded by the
+ * fetch size and the write buffer, no matter how many rows are exported. The query runs in its own read only session,
+ * see {@link #openExportSession()}.
+ * </p>
+ * The output format is chosen with the <b>format</b> param, either <b>csv</b> (the default) or <b>json</b>.
+ * </p>
+ * Note that MySQL Connector/J only streams results when the fetch size is Integer.MIN_VALUE, so set
+ * <b>admin.export.fetchSize=-2147483648</b> on MySQL.
+ */
+public abstract class AbstractStreamingAdminExporter implements StreamingAdminExporter {
+
+    public static final String FORMAT_PARAM = "format";
+    public static final String JSON_FORMAT = "json";
+
+    @PersistenceContext(unitName = "blPU")
+    protected EntityManager em;
+
+    @Value("${admin.export.fetchSize:500}")
+    protected int fetchSize = 500;
+
+    @Value("${admin.export.clearInterval:1000}")
+    protected int clearInterval = 1000;
+
+    @Value("${admin.export.bufferSize:65536}")
+    protected int bufferSize = 65536;
+
+    /**
+     * The HQL query whose rows are exported. Each result row is passed to {@link #extractRow(Object, Map)}.
+     *
+     * @param params the export criteria params
+     * @return
+     */
+    protected abstract String getExportQuery(Map<String, String> params);
+
+    /**
+     * The column names written as the CSV header, or used as the JSON field names
+     *
+     * @param params the export criteria params
+     * @return
+     */
+    protected abstract List<String> getColumnNames(Map<String, String> params);
+
+    /**
+     * Converts a single query result into the column values for the export. The row is either the single selected
+     * value, or an Object[] when the query selects more than one value.
+     *
+     * @param row
+     * @param params the export criteria params
+     * @return
+     */
+    protected abstract List<?> extractRow(Object row, Map<String, String> params);
+
+    /**
+     * Binds the named parameters of {@link #getExportQuery(Map)}. Does nothing by default.
+     *
+     * @param query
+     * @param params the export criteria params
+     */
+    protected void bindExportParameters(Query query, Map<String, String> params) {
+        //do nothing
+    }
+
+    @Override
+    public void writeExport(ServletOutputStream out, Map<String, String> params) throws IOException {
+        writeExport((OutputStream) out, params);
+    }
+
+    @Override
+    public void writeExport(OutputStream out, Map<String, String> params) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"), bufferSize);
+        ExportRowWriter rowWriter = createRowWriter(writer, params);
+        Session session = openExportSession();
+        try {
+            Transaction transaction = session.beginTransaction();
+            try {
+                Query query = session.createQuery(getExportQuery(params));
+                bindExportParameters(query, params);
+                query.setReadOnly(true);
+                query.setCacheMode(CacheMode.IGNORE);
+                query.setFetchSize(fetchSize);
+
+                rowWriter.writeHeader(getColumnNames(params));
+                ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+                try {
+                    int count = 0;
+                    while (results.next()) {
+                        Object[] row = results.get();
+                        rowWriter.writeRow(extractRow(row.length == 1 ? row[0] : row, params));
+                        if (++count % Math.max(1, clearInterval) == 0) {
+                            rowWriter.flush();
+                            session.clear();
+                        }
+                    }
+                } finally {
+                    results.close();
+                }
+                rowWriter.finish();
+            } finally {
+                transaction.rollback();
+            }
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Opens the session the export is read through. This is a new, read only session rather than the one bound to the
+     * current transaction, so that clearing it every {@link #getClearInterval()} rows can never discard unflushed
+     * changes made by the caller.
+     *
+     * @return
+     */
+    protected Session openExportSession() {
+        SessionFactory sessionFactory = ((HibernateEntityManagerFactory) em.getEntityManagerFactory()).getSessionFactory();
+        Session session = sessionFactory.openSession();
+        session.setDefaultReadOnly(true);
+        session.setFlushMode(FlushMode.MANUAL);
+        session.setCacheMode(CacheMode.IGNORE);
+        return session;
+    }
+
+    /**
+     * Creates the {@link ExportRowWriter} for the format requested in the params
+     *
+     * @param writer
+     * @param params
+     * @return
+     * @throws IOException
+     */
+    protected ExportRowWriter createRowWriter(Writer writer, Map<String, String> params) throws IOException {
+        if (params != null && JSON_FORMAT.equalsIgnoreCase(params.get(FORMAT_PARAM))) {
+            return new JsonExportRowWriter(writer);
+        }
+        return new CsvExportRowWriter(writer);
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public int getClearInterval() {
+        return clearInterval;
+    }
+
+    public void setClearInterval(int clearInterval) {
+        this.clearInterval = clearInterval;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+}
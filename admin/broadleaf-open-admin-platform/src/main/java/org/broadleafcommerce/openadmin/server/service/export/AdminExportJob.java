@@ -0,0 +1,74 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2017 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.server.service.export;
+
+import org.broadleafcommerce.common.util.BackgroundJob;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The state of an export started through {@link AdminExportJobService}
+ */
+public class AdminExportJob extends BackgroundJob {
+
+    protected final String exporterName;
+    protected final String fileName;
+    protected final Long adminUserId;
+    protected final File file;
+    protected final AtomicLong bytesWritten = new AtomicLong();
+
+    public AdminExportJob(String id, String exporterName, String fileName, Long adminUserId, File file, long createdAt) {
+        super(id, createdAt);
+        this.exporterName = exporterName;
+        this.fileName = fileName;
+        this.adminUserId = adminUserId;
+        this.file = file;
+    }
+
+    public String getExporterName() {
+        return exporterName;
+    }
+
+    /**
+     * The file name to use in the Content-Disposition header when the export is downloaded
+     *
+     * @return
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * The admin user that started the export. Only this user may download it.
+     *
+     * @return
+     */
+    public Long getAdminUserId() {
+        return adminUserId;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2017 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.server.service.export;
+
+import java.util.Map;
+
+/**
+ * Runs {@link StreamingAdminExporter} exports in the background, writing them to a file on the admin node that can be
+ * downloaded once the export completes. This keeps long exports from tying up a request thread or timing out.
+ */
+public interface AdminExportJobService {
+
+    /**
+     * Queues an export. The params are copied, so the caller may reuse the map.
+     *
+     * @param exporter the exporter to run
+     * @param params the export criteria params
+     * @param adminUserId the admin user starting the export
+     * @return the queued job
+     * @throws IllegalStateException if too many exports are already queued
+     */
+    public AdminExportJob submitExport(StreamingAdminExporter exporter, Map<String, String> params, Long adminUserId);
+
+    /**
+     * @param jobId
+     * @return the job, or null if there is no such job or it has expired
+     */
+    public AdminExportJob findJob(String jobId);
+
+    /**
+     * Removes the job and deletes its file. The file of a running export is deleted once the export finishes.
+     *
+     * @param jobId
+     */
+    public void removeJob(String jobId);
+
+}
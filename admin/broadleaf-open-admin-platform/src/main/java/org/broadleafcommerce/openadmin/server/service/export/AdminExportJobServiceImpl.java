@@ -0,0 +1,161 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2017 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.server.service.export;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.time.SystemTime;
+import org.broadleafcommerce.common.util.BackgroundJobRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+/**
+ * Default {@link AdminExportJobService}. Exports run on a small dedicated thread pool with a bounded queue and are
+ * written to <b>admin.export.job.directory</b>. Finished jobs and their files are removed after
+ * <b>admin.export.job.retentionMinutes</b>, whether or not the export is downloaded.
+ */
+@Service("blAdminExportJobService")
+public class AdminExportJobServiceImpl implements AdminExportJobService {
+
+    private static final Log LOG = LogFactory.getLog(AdminExportJobServiceImpl.class);
+
+    @Value("${admin.export.job.directory:}")
+    protected String exportDirectory;
+
+    @Value("${admin.export.job.threads:1}")
+    protected int exportThreads = 1;
+
+    @Value("${admin.export.job.queueSize:10}")
+    protected int exportQueueSize = 10;
+
+    @Value("${admin.export.job.retentionMinutes:60}")
+    protected int retentionMinutes = 60;
+
+    protected BackgroundJobRegistry<AdminExportJob> jobs;
+
+    @PostConstruct
+    public void init() {
+        jobs = new BackgroundJobRegistry<AdminExportJob>("blAdminExport", exportThreads, exportQueueSize, retentionMinutes) {
+            @Override
+            protected void onFailed(AdminExportJob job) {
+                deleteFile(job);
+            }
+
+            @Override
+            protected void onRemoved(AdminExportJob job) {
+                deleteFile(job);
+            }
+        };
+    }
+
+    @Override
+    public AdminExportJob submitExport(final StreamingAdminExporter exporter, Map<String, String> params, Long adminUserId) {
+        String jobId = UUID.randomUUID().toString();
+        File file = new File(getExportDirectory(), jobId + ".export");
+        AdminExportJob job = new AdminExportJob(jobId, exporter.getName(), exporter.getFileName(), adminUserId, file,
+                SystemTime.wallClockMillis());
+        final Map<String, String> exportParams = params == null ? new HashMap<String, String>() : new HashMap<>(params);
+        try {
+            return jobs.submit(job, new BackgroundJobRegistry.JobWork<AdminExportJob>() {
+                @Override
+                public void run(AdminExportJob job) throws Exception {
+                    runExport(exporter, exportParams, job);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException("Too many exports are already queued, try again once they finish", e);
+        }
+    }
+
+    protected void runExport(StreamingAdminExporter exporter, Map<String, String> params, AdminExportJob job)
+            throws IOException {
+        try (OutputStream out = new CountingOutputStream(new FileOutputStream(job.getFile()), job)) {
+            exporter.writeExport(out, params);
+        }
+    }
+
+    @Override
+    public AdminExportJob findJob(String jobId) {
+        return jobs.find(jobId);
+    }
+
+    @Override
+    public void removeJob(String jobId) {
+        jobs.remove(jobId);
+    }
+
+    protected void deleteFile(AdminExportJob job) {
+        if (job.getFile().exists() && !job.getFile().delete()) {
+            LOG.warn("Unable to remove the export file " + job.getFile().getAbsolutePath());
+        }
+    }
+
+    protected File getExportDirectory() {
+        File directory = StringUtils.isBlank(exportDirectory) ? new File(System.getProperty("java.io.tmpdir"), "broadleaf-exports")
+                : new File(exportDirectory);
+        if (!directory.exists() && !directory.mkdirs() && !directory.exists()) {
+            throw new IllegalStateException("Unable to create the export directory " + directory.getAbsolutePath());
+        }
+        return directory;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.shutdown();
+    }
+
+    /**
+     * Keeps {@link AdminExportJob#getBytesWritten()} current as the export is written
+     */
+    protected static class CountingOutputStream extends FilterOutputStream {
+
+        protected final AdminExportJob job;
+
+        public CountingOutputStream(OutputStream out, AdminExportJob job) {
+            super(out);
+            this.job = job;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            job.bytesWritten.incrementAndGet();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            job.bytesWritten.addAndGet(len);
+        }
+    }
+
+}
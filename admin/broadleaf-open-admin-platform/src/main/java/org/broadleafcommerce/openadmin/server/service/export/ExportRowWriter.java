@@ -0,0 +1,57 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2017 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.server.service.export;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes export rows in a particular format as they are read, so that an export never holds more than the current
+ * row and the writer's buffer in memory.
+ */
+public interface ExportRowWriter {
+
+    /**
+     * The content type of the export, used when the export is downloaded
+     *
+     * @return
+     */
+    public String getContentType();
+
+    /**
+     * The file extension of the export, without the leading dot
+     *
+     * @return
+     */
+    public String getFileExtension();
+
+    public void writeHeader(List<String> columnNames) throws IOException;
+
+    public void writeRow(List<?> values) throws IOException;
+
+    /**
+     * Writes anything the format needs after the last row and flushes the underlying writer. The underlying stream
+     * is not closed.
+     *
+     * @throws IOException
+     */
+    public void finish() throws IOException;
+
+    public void flush() throws IOException;
+
+}
@@ -0,0 +1,93 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2017 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.server.service.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ExportRowWriter} that writes a JSON array with one object per row, keyed by column name. Rows are written
+ * through a streaming {@link JsonGenerator}, so the array is never built in memory.
+ */
+public class JsonExportRowWriter implements ExportRowWriter {
+
+    protected static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    protected final JsonGenerator generator;
+    protected List<String> columnNames = new ArrayList<>();
+
+    public JsonExportRowWriter(Writer writer) throws IOException {
+        generator = JSON_FACTORY.createGenerator(writer);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    @Override
+    public String getContentType() {
+        return "application/json";
+    }
+
+    @Override
+    public String getFileExtension() {
+        return "json";
+    }
+
+    @Override
+    public void writeHeader(List<String> columnNames) throws IOException {
+        this.columnNames = new ArrayList<>(columnNames);
+        generator.writeStartArray();
+    }
+
+    @Override
+    public void writeRow(List<?> values) throws IOException {
+        generator.writeStartObject();
+        for (int i = 0; i < values.size(); i++) {
+            String name = i < columnNames.size() ? columnNames.get(i) : "column" + i;
+            Object value = values.get(i);
+            if (value == null) {
+                generator.writeNullField(name);
+            } else if (value instanceof Boolean) {
+                generator.writeBooleanField(name, (Boolean) value);
+            } else if (value instanceof BigDecimal) {
+                generator.writeNumberField(name, (BigDecimal) value);
+            } else if (value instanceof Long || value instanceof Integer || value instanceof Short) {
+                generator.writeNumberField(name, ((Number) value).longValue());
+            } else {
+                generator.writeStringField(name, String.valueOf(value));
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        generator.writeEndArray();
+        generator.close();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        generator.flush();
+    }
+
+}
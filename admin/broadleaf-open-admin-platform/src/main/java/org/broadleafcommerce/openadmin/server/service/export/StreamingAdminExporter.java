@@ -0,0 +1,42 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2017 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.server.service.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * An {@link AdminExporter} that can write its export to any {@link OutputStream}, rather than only to the servlet
+ * response. This is what allows an export to run as a background job writing to a file, see {@link AdminExportJobService}.
+ * </p>
+ * Implementations are expected to stream their rows rather than build the whole export in memory.
+ * {@link AbstractStreamingAdminExporter} provides this for exports backed by a JPA query.
+ */
+public interface StreamingAdminExporter extends AdminExporter {
+
+    /**
+     * Writes the export for the given criteria params to the stream. The stream is not closed.
+     *
+     * @param out
+     * @param params
+     * @throws IOException
+     */
+    public void writeExport(OutputStream out, Map<String, String> params) throws IOException;
+
+}
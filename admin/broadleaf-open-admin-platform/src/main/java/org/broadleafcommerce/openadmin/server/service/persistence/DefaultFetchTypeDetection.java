@@ -0,0 +1,93 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2017 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.server.service.persistence;
+
+import org.apache.commons.lang3.StringUtils;
+import org.broadleafcommerce.common.presentation.client.PersistencePerspectiveItemType;
+import org.broadleafcommerce.openadmin.dto.CriteriaTransferObject;
+import org.broadleafcommerce.openadmin.dto.FilterAndSortCriteria;
+import org.broadleafcommerce.openadmin.dto.PersistencePackage;
+import org.broadleafcommerce.openadmin.dto.PersistencePerspective;
+import org.broadleafcommerce.openadmin.server.service.type.FetchType;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Default {@link FetchTypeDetection} that uses {@link FetchType#LARGERESULTSET} for the main list grid of any entity
+ * listed in the <b>admin.list.grid.large.result.set.entities</b> property, as long as the grid is not filtered or
+ * sorted. Those grids page with next and previous links that seek by id rather than skipping an offset, and they skip
+ * the total count query, so paging stays cheap no matter how deep the user goes or how large the table is.
+ * </p>
+ * Everything else, including collection list grids and filtered or sorted grids, uses {@link FetchType#DEFAULT}.
+ * </p>
+ * Registered as <b>blFetchTypeDetection</b> by {@link org.broadleafcommerce.openadmin.config.OpenAdminPersistenceConfig}
+ * only when no other {@link FetchTypeDetection} is defined, since it is autowired by type.
+ */
+public class DefaultFetchTypeDetection implements FetchTypeDetection {
+
+    @Value("${admin.list.grid.large.result.set.entities:}")
+    protected String largeResultSetEntityNames;
+
+    protected Set<String> largeResultSetEntities = Collections.emptySet();
+
+    @PostConstruct
+    public void init() {
+        Set<String> entities = new HashSet<>();
+        for (String entity : StringUtils.split(StringUtils.defaultString(largeResultSetEntityNames), ',')) {
+            if (StringUtils.isNotBlank(entity)) {
+                entities.add(entity.trim());
+            }
+        }
+        largeResultSetEntities = entities;
+    }
+
+    @Override
+    public FetchType getFetchType(PersistencePackage persistencePackage, CriteriaTransferObject cto) {
+        if (largeResultSetEntities.isEmpty()
+                || !largeResultSetEntities.contains(persistencePackage.getCeilingEntityFullyQualifiedClassname())
+                || !Boolean.TRUE.equals(cto.getPresentationFetch())) {
+            return FetchType.DEFAULT;
+        }
+        PersistencePerspective persistencePerspective = persistencePackage.getPersistencePerspective();
+        if (persistencePerspective != null
+                && persistencePerspective.getPersistencePerspectiveItems().get(PersistencePerspectiveItemType.FOREIGNKEY) != null) {
+            return FetchType.DEFAULT;
+        }
+        for (FilterAndSortCriteria criteria : cto.getCriteriaMap().values()) {
+            if (!criteria.getFilterValues().isEmpty() || criteria.hasSpecialFilterValue() || criteria.getSortDirection() != null) {
+                return FetchType.DEFAULT;
+            }
+        }
+        return FetchType.LARGERESULTSET;
+    }
+
+    @Override
+    public boolean shouldPromptForSearch(PersistencePackage persistencePackage, CriteriaTransferObject cto) {
+        return false;
+    }
+
+    public Set<String> getLargeResultSetEntities() {
+        return Collections.unmodifiableSet(largeResultSetEntities);
+    }
+
+}
@@ -60,6 +60,7 @@ import org.broadleafcommerce.openadmin.dto.Property;
 import org.broadleafcommerce.openadmin.dto.SortDirection;
 import org.broadleafcommerce.openadmin.server.dao.provider.metadata.AdvancedCollectionFieldMetadataProvider;
 import org.broadleafcommerce.openadmin.server.service.ValidationException;
+import org.broadleafcommerce.openadmin.server.service.persistence.FetchTypeDetection;
 import org.broadleafcommerce.openadmin.server.service.persistence.ParentEntityPersistenceException;
 import org.broadleafcommerce.openadmin.server.service.persistence.PersistenceException;
 import org.broadleafcommerce.openadmin.server.service.persistence.PersistenceManager;
@@ -81,10 +82,12 @@ import org.broadleafcommerce.openadmin.server.service.persistence.module.provide
 import org.broadleafcommerce.openadmin.server.service.persistence.validation.EntityValidatorService;
 import org.broadleafcommerce.openadmin.server.service.persistence.validation.PopulateValueRequestValidator;
 import org.broadleafcommerce.openadmin.server.service.persistence.validation.PropertyValidationResult;
+import org.broadleafcommerce.openadmin.server.service.type.FetchType;
 import org.broadleafcommerce.openadmin.server.service.type.MetadataProviderResponse;
 import org.hibernate.FlushMode;
 import org.hibernate.Session;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.annotation.Primary;
@@ -159,6 +162,9 @@ public class BasicPersistenceModule implements PersistenceModule, RecordHelper,
     @Resource(name = "blFetchWrapper")
     protected FetchWrapper fetchWrapper;
 
+    @Autowired(required = false)
+    protected FetchTypeDetection fetchDetection = null;
+
     @PostConstruct
     public void init() {
         Collections.sort(fieldPersistenceProviders, new Comparator<FieldPersistenceProvider>() {
@@ -1183,17 +1189,25 @@ public class BasicPersistenceModule implements PersistenceModule, RecordHelper,
                 standardFilterMappings.addAll(cto.getNonCountAdditionalFilterMappings());
             }
 
+            FetchType fetchType = fetchDetection == null ? FetchType.DEFAULT : fetchDetection.getFetchType(persistencePackage, cto);
             FetchRequest fetchRequest = new FetchRequest(persistencePackage, cto,
                     persistencePackage.getFetchTypeFullyQualifiedClassname(), standardFilterMappings);
+            fetchRequest.setFetchType(fetchType);
             List<Serializable> records = getPersistentRecords(fetchRequest);
 
-            List<FilterMapping> countFilterMappings = new ArrayList<FilterMapping>(filterMappings);
-            if (CollectionUtils.isNotEmpty(cto.getAdditionalFilterMappings())) {
-                countFilterMappings.addAll(cto.getAdditionalFilterMappings());
+            if (FetchType.LARGERESULTSET == fetchType) {
+                //next and previous page links only need to know the size of the current page
+                totalRecords = records.size();
+            } else {
+                List<FilterMapping> countFilterMappings = new ArrayList<FilterMapping>(filterMappings);
+                if (CollectionUtils.isNotEmpty(cto.getAdditionalFilterMappings())) {
+                    countFilterMappings.addAll(cto.getAdditionalFilterMappings());
+                }
+                FetchRequest countFetchRequest = new FetchRequest(persistencePackage, cto,
+                        persistencePackage.getFetchTypeFullyQualifiedClassname(), countFilterMappings);
+                countFetchRequest.setFetchType(fetchType);
+                totalRecords = getTotalRecords(countFetchRequest);
             }
-            FetchRequest countFetchRequest = new FetchRequest(persistencePackage, cto,
-                    persistencePackage.getFetchTypeFullyQualifiedClassname(), countFilterMappings);
-            totalRecords = getTotalRecords(countFetchRequest);
 
             FetchExtractionRequest fetchExtractionRequest = new FetchExtractionRequest(persistencePackage, cto,
                     persistencePackage.getFetchTypeFullyQualifiedClassname(), mergedProperties, records);
@@ -1242,6 +1256,28 @@ public class BasicPersistenceModule implements PersistenceModule, RecordHelper,
         }
     }
 
+    /**
+     * Retrieve a page of records by seeking past an id rather than skipping an offset. Records after <b>lastId</b> are
+     * returned when it is provided, otherwise the records before <b>firstId</b>. Either way the records are returned in
+     * ascending id order.
+     *
+     * @param ceilingEntity
+     * @param filterMappings
+     * @param lastId the last id of the current page, when paging forward
+     * @param firstId the first id of the current page, when paging backward
+     * @param maxResults
+     * @return
+     */
+    public List<Serializable> getPersistentRecords(String ceilingEntity, List<FilterMapping> filterMappings, Long lastId, Long firstId, Integer maxResults) {
+        List<Serializable> records = criteriaTranslator.translateKeysetQuery(persistenceManager.getDynamicEntityDao(),
+                ceilingEntity, filterMappings, lastId, firstId, maxResults).getResultList();
+        if (lastId == null && firstId != null) {
+            records = new ArrayList<Serializable>(records);
+            Collections.reverse(records);
+        }
+        return records;
+    }
+
     @Override
     public boolean validate(Entity entity, Serializable populatedInstance, Map<String, FieldMetadata> mergedProperties) {
         return validate(entity, populatedInstance, mergedProperties, true);
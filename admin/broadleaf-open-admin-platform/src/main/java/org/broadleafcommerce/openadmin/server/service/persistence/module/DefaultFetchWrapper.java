@@ -17,32 +17,145 @@
  */
 package org.broadleafcommerce.openadmin.server.service.persistence.module;
 
+import org.apache.commons.collections.CollectionUtils;
 import org.broadleafcommerce.common.presentation.client.OperationType;
+import org.broadleafcommerce.common.presentation.client.PersistencePerspectiveItemType;
+import org.broadleafcommerce.common.time.SystemTime;
+import org.broadleafcommerce.common.util.ConcurrentLRUCache;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.broadleafcommerce.openadmin.dto.CriteriaTransferObject;
 import org.broadleafcommerce.openadmin.dto.Entity;
+import org.broadleafcommerce.openadmin.dto.FilterAndSortCriteria;
+import org.broadleafcommerce.openadmin.dto.PersistencePackage;
+import org.broadleafcommerce.openadmin.server.security.domain.AdminUser;
+import org.broadleafcommerce.openadmin.server.security.remote.SecurityVerifier;
 import org.broadleafcommerce.openadmin.server.service.persistence.PersistenceManager;
 import org.broadleafcommerce.openadmin.server.service.persistence.PersistenceManagerFactory;
+import org.broadleafcommerce.openadmin.server.service.persistence.module.criteria.RestrictionType;
+import org.broadleafcommerce.openadmin.server.service.type.FetchType;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
 /**
  * Default pass-through implementation of {@link FetchWrapper}
+ * </p>
+ * {@link FetchType#LARGERESULTSET} requests that carry a first or last id are served with a keyset query, so paging
+ * deep into a large table costs the same as reading the first page. Total counts for unfiltered and filtered main
+ * list grids may optionally be cached for <b>admin.list.grid.count.cache.ttlSeconds</b>, since the count query is
+ * usually the most expensive part of showing a grid over a large table.
  *
  * @author Jeff Fischer
  */
 @Component("blFetchWrapper")
 public class DefaultFetchWrapper implements FetchWrapper {
 
+    @Resource(name = "blAdminSecurityRemoteService")
+    protected SecurityVerifier adminSecurityService;
+
+    @Value("${admin.list.grid.count.cache.ttlSeconds:0}")
+    protected int countCacheTtlSeconds = 0;
+
+    @Value("${admin.list.grid.count.cache.maxEntries:1000}")
+    protected int countCacheMaxEntries = 1000;
+
+    protected ConcurrentLRUCache<String, CachedCount> countCache;
+
+    @PostConstruct
+    public void init() {
+        countCache = new ConcurrentLRUCache<>(Math.max(1, countCacheMaxEntries));
+    }
+
     @Override
     public List<Serializable> getPersistentRecords(FetchRequest fetchRequest) {
+        CriteriaTransferObject cto = fetchRequest.getCto();
+        if (FetchType.LARGERESULTSET == fetchRequest.getFetchType() && (cto.getLastId() != null || cto.getFirstId() != null)) {
+            return getBasicPersistenceModule().getPersistentRecords(fetchRequest.getCeilingEntity(),
+                    fetchRequest.getFilterMappings(), cto.getLastId(), cto.getFirstId(), cto.getMaxResults());
+        }
         return getBasicPersistenceModule().getPersistentRecords(fetchRequest.getCeilingEntity(),
-                            fetchRequest.getFilterMappings(), fetchRequest.getCto().getFirstResult(), fetchRequest.getCto().getMaxResults());
+                            fetchRequest.getFilterMappings(), cto.getFirstResult(), cto.getMaxResults());
     }
 
     @Override
     public Integer getTotalRecords(FetchRequest fetchRequest) {
-        return getBasicPersistenceModule().getTotalRecords(fetchRequest.getCeilingEntity(), fetchRequest.getFilterMappings());
+        String cacheKey = countCacheTtlSeconds > 0 ? buildCountCacheKey(fetchRequest) : null;
+        if (cacheKey == null) {
+            return getBasicPersistenceModule().getTotalRecords(fetchRequest.getCeilingEntity(), fetchRequest.getFilterMappings());
+        }
+        ConcurrentLRUCache<String, CachedCount> countCache = getCountCache();
+        long now = SystemTime.wallClockMillis();
+        CachedCount cached = countCache.get(cacheKey);
+        if (cached != null && now - cached.createdAt < countCacheTtlSeconds * 1000L) {
+            return cached.count;
+        }
+        Integer count = getBasicPersistenceModule().getTotalRecords(fetchRequest.getCeilingEntity(), fetchRequest.getFilterMappings());
+        countCache.put(cacheKey, new CachedCount(count, now));
+        return count;
+    }
+
+    /**
+     * Removes every cached total count.
+     */
+    public void clearCountCache() {
+        getCountCache().clear();
+    }
+
+    /**
+     * @return the cached total counts, keeping at most <b>admin.list.grid.count.cache.maxEntries</b> of the most
+     * recently used ones
+     */
+    protected ConcurrentLRUCache<String, CachedCount> getCountCache() {
+        return countCache;
+    }
+
+    /**
+     * Builds the key a total count is cached under, or returns null when the request should not be cached. Only main
+     * list grids whose restrictions are fully described by the criteria map and custom criteria are cached, since
+     * additional filter mappings and collection grids are not safe to key by value. The admin user, site and sandbox
+     * are part of the key, as row level security and sandbox changes affect the count.
+     *
+     * @param fetchRequest
+     * @return
+     */
+    protected String buildCountCacheKey(FetchRequest fetchRequest) {
+        PersistencePackage persistencePackage = fetchRequest.getPersistencePackage();
+        CriteriaTransferObject cto = fetchRequest.getCto();
+        if (persistencePackage == null || cto == null || CollectionUtils.isNotEmpty(cto.getAdditionalFilterMappings())
+                || persistencePackage.getPersistencePerspective() == null
+                || persistencePackage.getPersistencePerspective().getPersistencePerspectiveItems().get(PersistencePerspectiveItemType.FOREIGNKEY) != null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(fetchRequest.getCeilingEntity());
+        sb.append('|').append(persistencePackage.getCeilingEntityFullyQualifiedClassname());
+        AdminUser adminUser = adminSecurityService.getPersistentAdminUser();
+        sb.append('|').append(adminUser == null ? null : adminUser.getId());
+        BroadleafRequestContext context = BroadleafRequestContext.getBroadleafRequestContext();
+        if (context != null) {
+            sb.append('|').append(context.getNonPersistentSite() == null ? null : context.getNonPersistentSite().getId());
+            sb.append('|').append(context.getSandBoxId());
+        }
+        sb.append('|').append(Arrays.toString(persistencePackage.getCustomCriteria()));
+        List<String> criteriaKeys = new ArrayList<>();
+        for (FilterAndSortCriteria criteria : cto.getCriteriaMap().values()) {
+            List<String> values = new ArrayList<>(criteria.getFilterValues());
+            values.addAll(criteria.getSpecialFilterValues());
+            if (!values.isEmpty()) {
+                RestrictionType restrictionType = criteria.getRestrictionType();
+                criteriaKeys.add(criteria.getPropertyId() + "=" + (restrictionType == null ? null : restrictionType.getType()) + values);
+            }
+        }
+        Collections.sort(criteriaKeys);
+        sb.append('|').append(criteriaKeys);
+        return sb.toString();
     }
 
     protected BasicPersistenceModule getBasicPersistenceModule() {
@@ -57,4 +170,15 @@ public class DefaultFetchWrapper implements FetchWrapper {
                 fetchExtractionRequest.getRecords(), fetchExtractionRequest.getAlternateUnfilteredMergedProperties(),
                 fetchExtractionRequest.getPathToTargetObject(), fetchExtractionRequest.getPersistencePackage().getCustomCriteria());
     }
+
+    protected static class CachedCount {
+
+        protected final Integer count;
+        protected final long createdAt;
+
+        public CachedCount(Integer count, long createdAt) {
+            this.count = count;
+            this.createdAt = createdAt;
+        }
+    }
 }
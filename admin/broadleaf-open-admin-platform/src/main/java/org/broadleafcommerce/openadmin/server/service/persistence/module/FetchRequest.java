@@ -21,6 +21,7 @@ import org.broadleafcommerce.openadmin.dto.CriteriaTransferObject;
 import org.broadleafcommerce.openadmin.dto.FieldMetadata;
 import org.broadleafcommerce.openadmin.dto.PersistencePackage;
 import org.broadleafcommerce.openadmin.server.service.persistence.module.criteria.FilterMapping;
+import org.broadleafcommerce.openadmin.server.service.type.FetchType;
 
 import java.util.List;
 import java.util.Map;
@@ -36,6 +37,7 @@ public class FetchRequest {
     protected CriteriaTransferObject cto;
     protected String ceilingEntity;
     protected List<FilterMapping> filterMappings;
+    protected FetchType fetchType = FetchType.DEFAULT;
 
     public FetchRequest(PersistencePackage persistencePackage,
                         CriteriaTransferObject cto,
@@ -99,4 +101,18 @@ public class FetchRequest {
         this.filterMappings = filterMappings;
     }
 
+    /**
+     * The paging style of the list grid making the request. {@link FetchType#LARGERESULTSET} requests page by seeking
+     * past the first or last id of the current page and do not require a total count.
+     *
+     * @return
+     */
+    public FetchType getFetchType() {
+        return fetchType;
+    }
+
+    public void setFetchType(FetchType fetchType) {
+        this.fetchType = fetchType;
+    }
+
 }
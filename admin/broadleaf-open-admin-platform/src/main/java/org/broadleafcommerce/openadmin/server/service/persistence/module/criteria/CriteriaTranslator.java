@@ -30,6 +30,14 @@ public interface CriteriaTranslator {
 
     TypedQuery<Serializable> translateQuery(DynamicEntityDao dynamicEntityDao, String ceilingEntity, List<FilterMapping> filterMappings, Integer firstResult, Integer maxResults);
 
+    /**
+     * Translate a keyset (seek) query. Rather than skipping an offset, the query returns up to <b>maxResults</b> records
+     * whose id is greater than <b>lastId</b>, in ascending id order. When <b>lastId</b> is null, the records whose id
+     * is less than <b>firstId</b> are returned instead, in descending id order, so callers paging backwards should
+     * reverse the result.
+     */
+    TypedQuery<Serializable> translateKeysetQuery(DynamicEntityDao dynamicEntityDao, String ceilingEntity, List<FilterMapping> filterMappings, Long lastId, Long firstId, Integer maxResults);
+
     TypedQuery<Serializable> translateCountQuery(DynamicEntityDao dynamicEntityDao, String ceilingEntity, List<FilterMapping> filterMappings);
 
     TypedQuery<Serializable> translateMaxQuery(DynamicEntityDao dynamicEntityDao, String ceilingEntity, List<FilterMapping> filterMappings, String maxField);
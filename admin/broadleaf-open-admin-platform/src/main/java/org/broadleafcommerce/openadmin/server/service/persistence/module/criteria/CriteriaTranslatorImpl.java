@@ -80,6 +80,11 @@ public class CriteriaTranslatorImpl implements CriteriaTranslator {
         return constructQuery(dynamicEntityDao, ceilingEntity, filterMappings, false, false, firstResult, maxResults, null);
     }
 
+    @Override
+    public TypedQuery<Serializable> translateKeysetQuery(DynamicEntityDao dynamicEntityDao, String ceilingEntity, List<FilterMapping> filterMappings, Long lastId, Long firstId, Integer maxResults) {
+        return constructQuery(dynamicEntityDao, ceilingEntity, filterMappings, false, false, null, maxResults, null, lastId, firstId);
+    }
+
     /**
      * Determines the appropriate entity in this current class tree to use as the ceiling entity for the query. Because
      * we filter with AND instead of OR, we throw an exception if an attempt to utilize properties from mutually exclusive
@@ -163,8 +168,18 @@ public class CriteriaTranslatorImpl implements CriteriaTranslator {
         return null;
     }
 
-    @SuppressWarnings("unchecked")
     protected TypedQuery<Serializable> constructQuery(DynamicEntityDao dynamicEntityDao, String ceilingEntity, List<FilterMapping> filterMappings, boolean isCount, boolean isMax, Integer firstResult, Integer maxResults, String maxField) {
+        return constructQuery(dynamicEntityDao, ceilingEntity, filterMappings, isCount, isMax, firstResult, maxResults, maxField, null, null);
+    }
+
+    /**
+     * Builds the query. When either <b>lastId</b> or <b>firstId</b> is provided, the query seeks past that id instead
+     * of using an offset: records with an id greater than <b>lastId</b> in ascending id order, or records with an id
+     * less than <b>firstId</b> in descending id order. Any sorts requested by the filter mappings are ignored in that case,
+     * since the id is the only stable key the seek can use.
+     */
+    @SuppressWarnings("unchecked")
+    protected TypedQuery<Serializable> constructQuery(DynamicEntityDao dynamicEntityDao, String ceilingEntity, List<FilterMapping> filterMappings, boolean isCount, boolean isMax, Integer firstResult, Integer maxResults, String maxField, Long lastId, Long firstId) {
 
         CriteriaBuilder criteriaBuilder = dynamicEntityDao.getStandardEntityManager().getCriteriaBuilder();
 
@@ -196,20 +211,32 @@ public class CriteriaTranslatorImpl implements CriteriaTranslator {
         List<Order> sorts = new ArrayList<Order>();
         addRestrictions(ceilingEntity, filterMappings, criteriaBuilder, original, restrictions, sorts, criteria);
 
+        boolean isKeyset = !isCount && !isMax && (lastId != null || firstId != null);
+        Path<Long> idPath = null;
+        if (isKeyset) {
+            idPath = getSingleColumnIdPath(dynamicEntityDao, ceilingClass, original);
+            if (idPath == null) {
+                throw new IllegalArgumentException("Keyset paging requires a single column id on " + ceilingClass.getName());
+            }
+            if (lastId != null) {
+                restrictions.add(criteriaBuilder.greaterThan(idPath, lastId));
+            } else {
+                restrictions.add(criteriaBuilder.lessThan(idPath, firstId));
+            }
+        }
+
         criteria.where(restrictions.toArray(new Predicate[restrictions.size()]));
-        if (!isCount && !isMax) {
+        if (isKeyset) {
+            criteria.orderBy(lastId != null ? criteriaBuilder.asc(idPath) : criteriaBuilder.desc(idPath));
+        } else if (!isCount && !isMax) {
             criteria.orderBy(sorts.toArray(new Order[sorts.size()]));
             //If someone provides a firstResult value, then there is generally pagination going on.
             //In order to produce consistent results, especially with certain databases such as PostgreSQL, 
             //there has to be an "order by" clause.  We'll add one here if we can.
             if (firstResult != null && sorts.isEmpty()) {
-                Map<String, Object> idMetaData = dynamicEntityDao.getIdMetadata(ceilingClass);
-                if (idMetaData != null) {
-                    Object idFldName = idMetaData.get("name");
-                    Object type = idMetaData.get("type");
-                    if ((idFldName instanceof String) && (type instanceof SingleColumnType)) {
-                        criteria.orderBy(criteriaBuilder.asc(original.get((String) idFldName)));
-                    }
+                Path<Long> path = getSingleColumnIdPath(dynamicEntityDao, ceilingClass, original);
+                if (path != null) {
+                    criteria.orderBy(criteriaBuilder.asc(path));
                 }
             }
         }
@@ -222,6 +249,18 @@ public class CriteriaTranslatorImpl implements CriteriaTranslator {
         return response;
     }
 
+    protected Path<Long> getSingleColumnIdPath(DynamicEntityDao dynamicEntityDao, Class<Serializable> ceilingClass, Root<Serializable> original) {
+        Map<String, Object> idMetaData = dynamicEntityDao.getIdMetadata(ceilingClass);
+        if (idMetaData != null) {
+            Object idFldName = idMetaData.get("name");
+            Object type = idMetaData.get("type");
+            if ((idFldName instanceof String) && (type instanceof SingleColumnType)) {
+                return original.get((String) idFldName);
+            }
+        }
+        return null;
+    }
+
     protected void addPaging(Query response, Integer firstResult, Integer maxResults) {
         if (firstResult != null) {
             response.setFirstResult(firstResult);
@@ -17,14 +17,21 @@
  */
 package org.broadleafcommerce.openadmin.web.controller;
 
+import org.broadleafcommerce.common.web.JsonResponse;
+import org.broadleafcommerce.openadmin.server.security.domain.AdminUser;
+import org.broadleafcommerce.openadmin.server.service.export.AdminExportJob;
+import org.broadleafcommerce.openadmin.server.service.export.AdminExportJobService;
 import org.broadleafcommerce.openadmin.server.service.export.AdminExporter;
+import org.broadleafcommerce.openadmin.server.service.export.StreamingAdminExporter;
 import org.springframework.web.servlet.ModelAndView;
 
 import javax.annotation.Resource;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -37,17 +44,11 @@ public class AdminExportController extends AdminAbstractController {
     @Resource(name = "blAdminExporters")
     protected List<AdminExporter> exporters;
 
+    @Resource(name = "blAdminExportJobService")
+    protected AdminExportJobService exportJobService;
+
     public ModelAndView export(HttpServletRequest request, HttpServletResponse response, Map<String, String> params) throws IOException {
-        String exporterName = params.get("exporter");
-        AdminExporter exporter = null;
-        for (AdminExporter test : exporters) {
-            if (test.getName().equals(exporterName)) {
-                exporter = test;
-            }
-        }
-        if (exporter == null) {
-            throw new RuntimeException("Could not find exporter with name: " + exporterName);
-        }
+        AdminExporter exporter = findExporter(params.get("exporter"));
         
         response.setContentType("application/download");
         String fileName = exporter.getFileName();
@@ -60,6 +61,90 @@ public class AdminExportController extends AdminAbstractController {
         return null;
     }
 
+    /**
+     * Starts the export in the background rather than writing it to the response. The response contains the id of
+     * the job, which can be polled with {@link #exportStatus(HttpServletRequest, HttpServletResponse, String)} and
+     * downloaded with {@link #downloadExport(HttpServletRequest, HttpServletResponse, String)} once complete.
+     */
+    public String startExport(HttpServletRequest request, HttpServletResponse response, Map<String, String> params) throws IOException {
+        AdminExporter exporter = findExporter(params.get("exporter"));
+        if (!(exporter instanceof StreamingAdminExporter)) {
+            throw new RuntimeException("The exporter " + exporter.getName() + " does not support background exports");
+        }
+        AdminExportJob job = exportJobService.submitExport((StreamingAdminExporter) exporter, params, getAdminUserId());
+        return new JsonResponse(response)
+                .with("jobId", job.getId())
+                .with("status", job.getStatus().name())
+                .done();
+    }
+
+    public String exportStatus(HttpServletRequest request, HttpServletResponse response, String jobId) throws IOException {
+        AdminExportJob job = findJob(jobId);
+        if (job == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return null;
+        }
+        return new JsonResponse(response)
+                .with("jobId", job.getId())
+                .with("status", job.getStatus().name())
+                .with("bytesWritten", job.getBytesWritten())
+                .with("errorMessage", job.getErrorMessage())
+                .done();
+    }
+
+    public ModelAndView downloadExport(HttpServletRequest request, HttpServletResponse response, String jobId) throws IOException {
+        AdminExportJob job = findJob(jobId);
+        if (job == null || job.getStatus() != AdminExportJob.Status.COMPLETE) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return null;
+        }
+
+        response.setContentType("application/download");
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + job.getFileName() + "\"");
+        response.setHeader("Content-Length", String.valueOf(job.getFile().length()));
+
+        ServletOutputStream stream = response.getOutputStream();
+        try (InputStream in = new FileInputStream(job.getFile())) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                stream.write(buffer, 0, read);
+            }
+        }
+        stream.flush();
+
+        return null;
+    }
+
+    protected AdminExporter findExporter(String exporterName) {
+        AdminExporter exporter = null;
+        for (AdminExporter test : exporters) {
+            if (test.getName().equals(exporterName)) {
+                exporter = test;
+            }
+        }
+        if (exporter == null) {
+            throw new RuntimeException("Could not find exporter with name: " + exporterName);
+        }
+        return exporter;
+    }
+
+    /**
+     * Finds the export job, as long as it was started by the current admin user
+     */
+    protected AdminExportJob findJob(String jobId) {
+        AdminExportJob job = exportJobService.findJob(jobId);
+        if (job == null || job.getAdminUserId() == null || !job.getAdminUserId().equals(getAdminUserId())) {
+            return null;
+        }
+        return job;
+    }
+
+    protected Long getAdminUserId() {
+        AdminUser adminUser = adminRemoteSecurityService.getPersistentAdminUser();
+        return adminUser == null ? null : adminUser.getId();
+    }
+
     public List<AdminExporter> getExporters() {
         return exporters;
     }
@@ -0,0 +1,249 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.spec
+
+import org.broadleafcommerce.common.util.BackgroundJob
+import org.broadleafcommerce.openadmin.server.service.export.AdminExportJob
+import org.broadleafcommerce.openadmin.server.service.export.AdminExportJobServiceImpl
+import org.broadleafcommerce.openadmin.server.service.export.CsvExportRowWriter
+import org.broadleafcommerce.openadmin.server.service.export.JsonExportRowWriter
+import org.broadleafcommerce.openadmin.server.service.export.StreamingAdminExporter
+
+import java.nio.file.Files
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+import spock.lang.Specification
+
+class AdminExportSpec extends Specification {
+
+    File directory
+    AdminExportJobServiceImpl service
+
+    def setup() {
+        directory = Files.createTempDirectory("adminExports").toFile()
+        service = new AdminExportJobServiceImpl()
+        service.exportDirectory = directory.absolutePath
+        service.exportThreads = 1
+        service.exportQueueSize = 1
+        service.retentionMinutes = 60
+        service.init()
+    }
+
+    def cleanup() {
+        service.shutdown()
+        directory.deleteDir()
+    }
+
+    def "csv values are quoted only when needed and quotes are doubled"() {
+        setup:
+        StringWriter out = new StringWriter()
+        CsvExportRowWriter writer = new CsvExportRowWriter(out)
+
+        when:
+        writer.writeHeader(["id", "name"])
+        writer.writeRow([1L, "plain"])
+        writer.writeRow([2L, "a,b"])
+        writer.writeRow([3L, 'say "hi"'])
+        writer.writeRow([4L, "two\nlines"])
+        writer.writeRow([5L, "carriage\rreturn"])
+        writer.writeRow([6L, null])
+        writer.finish()
+
+        then:
+        out.toString() == 'id,name\r\n' +
+                '1,plain\r\n' +
+                '2,"a,b"\r\n' +
+                '3,"say ""hi"""\r\n' +
+                '4,"two\nlines"\r\n' +
+                '5,"carriage\rreturn"\r\n' +
+                '6,\r\n'
+    }
+
+    def "json rows are objects keyed by column name with typed values"() {
+        setup:
+        StringWriter out = new StringWriter()
+        JsonExportRowWriter writer = new JsonExportRowWriter(out)
+
+        when:
+        writer.writeHeader(["id", "name", "price", "active", "note"])
+        writer.writeRow([1L, 'say "hi"', new BigDecimal("9.99"), true, null])
+        writer.writeRow([2, "second", BigDecimal.ONE, false, "extra", "unnamed"])
+        writer.finish()
+
+        then:
+        out.toString() == '[{"id":1,"name":"say \\"hi\\"","price":9.99,"active":true,"note":null},' +
+                '{"id":2,"name":"second","price":1,"active":false,"note":"extra","column5":"unnamed"}]'
+    }
+
+    def "an export with no rows is an empty json array"() {
+        setup:
+        StringWriter out = new StringWriter()
+        JsonExportRowWriter writer = new JsonExportRowWriter(out)
+
+        when:
+        writer.writeHeader(["id"])
+        writer.finish()
+
+        then:
+        out.toString() == "[]"
+    }
+
+    def "a completed export can be found and its file holds the export"() {
+        setup:
+        StreamingAdminExporter exporter = exporter()
+        exporter.writeExport(_ as OutputStream, _) >> { OutputStream out, Map params -> out.write(("rows for " + params.name).bytes) }
+
+        when:
+        AdminExportJob job = service.submitExport(exporter, [name: "shirts"], 7L)
+        waitUntilDone(job)
+
+        then:
+        job.status == BackgroundJob.Status.COMPLETE
+        job.completedAt > 0
+        job.bytesWritten == 15
+        job.file.text == "rows for shirts"
+        service.findJob(job.id).is(job)
+        job.adminUserId == 7L
+        job.fileName == "test.csv"
+    }
+
+    def "a failed export keeps its error and removes its file"() {
+        setup:
+        StreamingAdminExporter exporter = exporter()
+        exporter.writeExport(_ as OutputStream, _) >> { OutputStream out, Map params ->
+            out.write("partial".bytes)
+            throw new IOException("connection reset")
+        }
+
+        when:
+        AdminExportJob job = service.submitExport(exporter, [:], 7L)
+        waitUntilDone(job)
+
+        then:
+        job.status == BackgroundJob.Status.FAILED
+        job.errorMessage == "connection reset"
+        !job.file.exists()
+        service.findJob(job.id).is(job)
+    }
+
+    def "removing a job deletes its file"() {
+        setup:
+        StreamingAdminExporter exporter = exporter()
+        exporter.writeExport(_ as OutputStream, _) >> { OutputStream out, Map params -> out.write("rows".bytes) }
+        AdminExportJob job = service.submitExport(exporter, [:], 7L)
+        waitUntilDone(job)
+
+        when:
+        service.removeJob(job.id)
+
+        then:
+        service.findJob(job.id) == null
+        !job.file.exists()
+    }
+
+    def "a job removed while it runs has its file deleted once it finishes"() {
+        setup:
+        CountDownLatch started = new CountDownLatch(1)
+        CountDownLatch release = new CountDownLatch(1)
+        StreamingAdminExporter exporter = exporter()
+        exporter.writeExport(_ as OutputStream, _) >> { OutputStream out, Map params ->
+            started.countDown()
+            release.await(10, TimeUnit.SECONDS)
+            out.write("rows".bytes)
+        }
+        AdminExportJob job = service.submitExport(exporter, [:], 7L)
+        started.await(10, TimeUnit.SECONDS)
+
+        when:
+        service.removeJob(job.id)
+        release.countDown()
+        waitUntilDone(job)
+        waitUntil { !job.file.exists() }
+
+        then:
+        service.findJob(job.id) == null
+        !job.file.exists()
+    }
+
+    def "expired jobs and their files are removed without anyone looking them up"() {
+        setup:
+        service.shutdown()
+        service.retentionMinutes = 0
+        service.init()
+        StreamingAdminExporter exporter = exporter()
+        exporter.writeExport(_ as OutputStream, _) >> { OutputStream out, Map params -> out.write("rows".bytes) }
+        AdminExportJob job = service.submitExport(exporter, [:], 7L)
+        waitUntilDone(job)
+        Thread.sleep(5)
+
+        when: "the periodic expiration runs"
+        service.jobs.removeExpiredJobs()
+
+        then:
+        service.jobs.jobs.isEmpty()
+        !job.file.exists()
+    }
+
+    def "exports beyond the queue are rejected"() {
+        setup:
+        CountDownLatch started = new CountDownLatch(1)
+        CountDownLatch release = new CountDownLatch(1)
+        StreamingAdminExporter exporter = exporter()
+        exporter.writeExport(_ as OutputStream, _) >> { OutputStream out, Map params ->
+            started.countDown()
+            release.await(10, TimeUnit.SECONDS)
+        }
+        AdminExportJob running = service.submitExport(exporter, [:], 7L)
+        started.await(10, TimeUnit.SECONDS)
+        AdminExportJob queued = service.submitExport(exporter, [:], 7L)
+
+        when:
+        service.submitExport(exporter, [:], 7L)
+
+        then:
+        thrown(IllegalStateException)
+        queued.status == BackgroundJob.Status.QUEUED
+        service.jobs.jobs.size() == 2
+
+        cleanup:
+        release.countDown()
+        waitUntilDone(running)
+        waitUntilDone(queued)
+    }
+
+    StreamingAdminExporter exporter() {
+        StreamingAdminExporter exporter = Mock(StreamingAdminExporter)
+        exporter.getName() >> "test"
+        exporter.getFileName() >> "test.csv"
+        return exporter
+    }
+
+    void waitUntilDone(AdminExportJob job) {
+        waitUntil { job.done }
+    }
+
+    void waitUntil(Closure<Boolean> condition) {
+        long deadline = System.currentTimeMillis() + 10000
+        while (!condition() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10)
+        }
+        assert condition()
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.spec
+
+import org.broadleafcommerce.openadmin.dto.BasicFieldMetadata
+import org.broadleafcommerce.openadmin.dto.FieldMetadata
+import org.broadleafcommerce.openadmin.server.dao.DynamicEntityDaoImpl
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+import spock.lang.Specification
+
+class DynamicEntityDaoMetadataCacheSpec extends Specification {
+
+    DynamicEntityDaoImpl dao
+    ExecutorService executor
+
+    def setup() {
+        dao = new DynamicEntityDaoImpl()
+        dao.cacheEntityMetaDataTtl = -1
+        DynamicEntityDaoImpl.METADATA_CACHE.clear()
+        executor = Executors.newFixedThreadPool(8)
+    }
+
+    def cleanup() {
+        executor.shutdownNow()
+        DynamicEntityDaoImpl.METADATA_CACHE.clear()
+    }
+
+    def "concurrent requests for the same key load it once"() {
+        setup:
+        AtomicInteger loads = new AtomicInteger()
+        CountDownLatch release = new CountDownLatch(1)
+        Callable<Map<String, FieldMetadata>> loader = {
+            loads.incrementAndGet()
+            release.await(5, TimeUnit.SECONDS)
+            metadata("name")
+        } as Callable<Map<String, FieldMetadata>>
+
+        when:
+        List<Future<Map<String, FieldMetadata>>> futures = (1..8).collect {
+            executor.submit({ dao.getCachedPropertiesForEntityClass("product", loader) } as Callable<Map<String, FieldMetadata>>)
+        }
+        Thread.sleep(100)
+        release.countDown()
+        List<Map<String, FieldMetadata>> results = futures.collect { it.get(5, TimeUnit.SECONDS) }
+
+        then:
+        loads.get() == 1
+        results.every { it.is(results[0]) }
+        results[0].containsKey("name")
+    }
+
+    def "a nested load of a key that is being loaded does not wait for it"() {
+        setup:
+        AtomicInteger innerLoads = new AtomicInteger()
+        Callable<Map<String, FieldMetadata>> inner = {
+            innerLoads.incrementAndGet()
+            metadata("inner")
+        } as Callable<Map<String, FieldMetadata>>
+        Callable<Map<String, FieldMetadata>> outer = {
+            Map<String, FieldMetadata> result = metadata("outer")
+            result.putAll(dao.getCachedPropertiesForEntityClass("product", inner))
+            result
+        } as Callable<Map<String, FieldMetadata>>
+
+        when:
+        Map<String, FieldMetadata> result = dao.getCachedPropertiesForEntityClass("product", outer)
+
+        then:
+        innerLoads.get() == 1
+        result.keySet() == ["outer", "inner"] as Set
+        DynamicEntityDaoImpl.METADATA_LOAD_DEPTH.get() == 0
+    }
+
+    def "two threads loading keys that need each other do not deadlock"() {
+        setup:
+        CountDownLatch bothStarted = new CountDownLatch(2)
+        Callable<Map<String, FieldMetadata>> leafA = { metadata("a") } as Callable<Map<String, FieldMetadata>>
+        Callable<Map<String, FieldMetadata>> leafB = { metadata("b") } as Callable<Map<String, FieldMetadata>>
+        // each load needs the key the other thread is loading at the same time
+        Callable<Map<String, FieldMetadata>> loadA = {
+            bothStarted.countDown()
+            bothStarted.await(5, TimeUnit.SECONDS)
+            Map<String, FieldMetadata> result = metadata("a")
+            result.putAll(dao.getCachedPropertiesForEntityClass("b", leafB))
+            result
+        } as Callable<Map<String, FieldMetadata>>
+        Callable<Map<String, FieldMetadata>> loadB = {
+            bothStarted.countDown()
+            bothStarted.await(5, TimeUnit.SECONDS)
+            Map<String, FieldMetadata> result = metadata("b")
+            result.putAll(dao.getCachedPropertiesForEntityClass("a", leafA))
+            result
+        } as Callable<Map<String, FieldMetadata>>
+
+        when:
+        Future<Map<String, FieldMetadata>> a = executor.submit({
+            dao.getCachedPropertiesForEntityClass("a", loadA)
+        } as Callable<Map<String, FieldMetadata>>)
+        Future<Map<String, FieldMetadata>> b = executor.submit({
+            dao.getCachedPropertiesForEntityClass("b", loadB)
+        } as Callable<Map<String, FieldMetadata>>)
+
+        then:
+        a.get(5, TimeUnit.SECONDS).containsKey("b")
+        b.get(5, TimeUnit.SECONDS).containsKey("a")
+    }
+
+    def "a failed load is retried by the next request"() {
+        setup:
+        AtomicInteger loads = new AtomicInteger()
+        Callable<Map<String, FieldMetadata>> loader = {
+            if (loads.incrementAndGet() == 1) {
+                throw new IllegalStateException("first load fails")
+            }
+            metadata("name")
+        } as Callable<Map<String, FieldMetadata>>
+
+        when:
+        dao.getCachedPropertiesForEntityClass("product", loader)
+
+        then:
+        thrown(IllegalStateException)
+        !DynamicEntityDaoImpl.METADATA_CACHE.containsKey("product")
+        DynamicEntityDaoImpl.METADATA_LOAD_DEPTH.get() == 0
+
+        when:
+        Map<String, FieldMetadata> result = dao.getCachedPropertiesForEntityClass("product", loader)
+
+        then:
+        result.containsKey("name")
+        loads.get() == 2
+        dao.getCachedPropertiesForEntityClass("product", loader).is(result)
+        loads.get() == 2
+    }
+
+    protected Map<String, FieldMetadata> metadata(String name) {
+        Map<String, FieldMetadata> metadata = new HashMap<>()
+        metadata.put(name, new BasicFieldMetadata())
+        metadata
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.spec
+
+import org.broadleafcommerce.common.presentation.client.PersistencePerspectiveItemType
+import org.broadleafcommerce.openadmin.dto.CriteriaTransferObject
+import org.broadleafcommerce.openadmin.dto.FilterAndSortCriteria
+import org.broadleafcommerce.openadmin.dto.ForeignKey
+import org.broadleafcommerce.openadmin.dto.PersistencePackage
+import org.broadleafcommerce.openadmin.dto.PersistencePerspective
+import org.broadleafcommerce.openadmin.dto.SortDirection
+import org.broadleafcommerce.openadmin.server.security.remote.SecurityVerifier
+import org.broadleafcommerce.openadmin.server.service.persistence.DefaultFetchTypeDetection
+import org.broadleafcommerce.openadmin.server.service.persistence.PersistenceManager
+import org.broadleafcommerce.openadmin.server.service.persistence.module.BasicPersistenceModule
+import org.broadleafcommerce.openadmin.server.service.persistence.module.DefaultFetchWrapper
+import org.broadleafcommerce.openadmin.server.service.persistence.module.FetchRequest
+import org.broadleafcommerce.openadmin.server.service.persistence.module.criteria.CriteriaTranslator
+import org.broadleafcommerce.openadmin.server.service.persistence.module.criteria.FilterMapping
+import org.broadleafcommerce.openadmin.server.service.type.FetchType
+
+import javax.persistence.TypedQuery
+
+import spock.lang.Specification
+
+class KeysetPagingSpec extends Specification {
+
+    static final String PRODUCT = "org.broadleafcommerce.core.catalog.domain.Product"
+
+    DefaultFetchTypeDetection detection
+    RecordingPersistenceModule module
+    TestFetchWrapper wrapper
+
+    def setup() {
+        detection = new DefaultFetchTypeDetection()
+        detection.largeResultSetEntityNames = PRODUCT + ", org.broadleafcommerce.core.catalog.domain.Sku"
+        detection.init()
+
+        module = new RecordingPersistenceModule()
+        wrapper = new TestFetchWrapper(module: module)
+        wrapper.adminSecurityService = Mock(SecurityVerifier)
+        wrapper.init()
+    }
+
+    def "unfiltered main grids of listed entities use keyset paging"() {
+        expect:
+        detection.getFetchType(persistencePackage(PRODUCT), cto()) == FetchType.LARGERESULTSET
+        detection.getFetchType(persistencePackage("org.broadleafcommerce.core.catalog.domain.Sku"), cto()) == FetchType.LARGERESULTSET
+    }
+
+    def "everything else uses offset paging"() {
+        setup:
+        PersistencePackage collection = persistencePackage(PRODUCT)
+        collection.persistencePerspective.addPersistencePerspectiveItem(PersistencePerspectiveItemType.FOREIGNKEY, new ForeignKey())
+        CriteriaTransferObject nonPresentation = cto()
+        nonPresentation.presentationFetch = false
+        CriteriaTransferObject filtered = cto()
+        filtered.add(new FilterAndSortCriteria("name", "shirt"))
+        CriteriaTransferObject sorted = cto()
+        sorted.add(new FilterAndSortCriteria("name", [], SortDirection.ASCENDING))
+
+        expect:
+        detection.getFetchType(persistencePackage("org.broadleafcommerce.core.catalog.domain.Category"), cto()) == FetchType.DEFAULT
+        detection.getFetchType(collection, cto()) == FetchType.DEFAULT
+        detection.getFetchType(persistencePackage(PRODUCT), nonPresentation) == FetchType.DEFAULT
+        detection.getFetchType(persistencePackage(PRODUCT), filtered) == FetchType.DEFAULT
+        detection.getFetchType(persistencePackage(PRODUCT), sorted) == FetchType.DEFAULT
+    }
+
+    def "requests with an id seek past it and the rest use an offset"() {
+        setup:
+        CriteriaTransferObject next = cto()
+        next.lastId = 100L
+        CriteriaTransferObject previous = cto()
+        previous.firstId = 50L
+        CriteriaTransferObject first = cto()
+        first.firstResult = 0
+
+        when:
+        wrapper.getPersistentRecords(fetchRequest(next, FetchType.LARGERESULTSET))
+        wrapper.getPersistentRecords(fetchRequest(previous, FetchType.LARGERESULTSET))
+        wrapper.getPersistentRecords(fetchRequest(first, FetchType.LARGERESULTSET))
+        wrapper.getPersistentRecords(fetchRequest(next, FetchType.DEFAULT))
+
+        then:
+        module.calls == ["keyset 100 null 25", "keyset null 50 25", "offset 0 25", "offset null 25"]
+    }
+
+    def "pages before the first id are returned in ascending order"() {
+        setup:
+        TypedQuery<Serializable> query = Mock(TypedQuery)
+        query.getResultList() >> [49L, 48L, 47L]
+        CriteriaTranslator criteriaTranslator = Mock(CriteriaTranslator)
+        criteriaTranslator.translateKeysetQuery(_, PRODUCT, _, null, 50L, 3) >> query
+        BasicPersistenceModule persistenceModule = new BasicPersistenceModule()
+        persistenceModule.criteriaTranslator = criteriaTranslator
+        persistenceModule.persistenceManager = Mock(PersistenceManager)
+
+        expect:
+        persistenceModule.getPersistentRecords(PRODUCT, [], null, 50L, 3) == [47L, 48L, 49L]
+    }
+
+    def "total counts are cached and bounded"() {
+        setup:
+        wrapper.countCacheTtlSeconds = 60
+        wrapper.countCacheMaxEntries = 5
+        wrapper.init()
+
+        when:
+        wrapper.getTotalRecords(fetchRequest(cto(), FetchType.DEFAULT))
+        wrapper.getTotalRecords(fetchRequest(cto(), FetchType.DEFAULT))
+
+        then:
+        module.calls == ["count " + PRODUCT]
+
+        when:
+        (1..20).each {
+            FetchRequest request = fetchRequest(cto(), FetchType.DEFAULT)
+            request.ceilingEntity = PRODUCT + it
+            wrapper.getTotalRecords(request)
+        }
+
+        then:
+        module.calls.size() == 21
+        wrapper.countCache.size() <= 5
+        wrapper.countCache.size() > 1
+    }
+
+    protected CriteriaTransferObject cto() {
+        CriteriaTransferObject cto = new CriteriaTransferObject()
+        cto.presentationFetch = true
+        cto.maxResults = 25
+        cto
+    }
+
+    protected PersistencePackage persistencePackage(String ceilingEntity) {
+        PersistencePackage persistencePackage = new PersistencePackage()
+        persistencePackage.ceilingEntityFullyQualifiedClassname = ceilingEntity
+        persistencePackage.persistencePerspective = new PersistencePerspective()
+        persistencePackage
+    }
+
+    protected FetchRequest fetchRequest(CriteriaTransferObject cto, FetchType fetchType) {
+        FetchRequest fetchRequest = new FetchRequest(persistencePackage(PRODUCT), cto, PRODUCT, new ArrayList<FilterMapping>())
+        fetchRequest.fetchType = fetchType
+        fetchRequest
+    }
+
+    static class RecordingPersistenceModule extends BasicPersistenceModule {
+
+        List<String> calls = []
+
+        @Override
+        List<Serializable> getPersistentRecords(String ceilingEntity, List<FilterMapping> filterMappings, Integer firstResult, Integer maxResults) {
+            calls << "offset " + firstResult + " " + maxResults
+            []
+        }
+
+        @Override
+        List<Serializable> getPersistentRecords(String ceilingEntity, List<FilterMapping> filterMappings, Long lastId, Long firstId, Integer maxResults) {
+            calls << "keyset " + lastId + " " + firstId + " " + maxResults
+            []
+        }
+
+        @Override
+        Integer getTotalRecords(String ceilingEntity, List<FilterMapping> filterMappings) {
+            calls << "count " + ceilingEntity
+            10
+        }
+    }
+
+    static class TestFetchWrapper extends DefaultFetchWrapper {
+
+        BasicPersistenceModule module
+
+        @Override
+        protected BasicPersistenceModule getBasicPersistenceModule() {
+            module
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * #%L
+ * BroadleafCommerce Benchmarks
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.benchmark;
+
+import org.broadleafcommerce.common.extension.AbstractExtensionHandler;
+import org.broadleafcommerce.common.extension.ExtensionHandler;
+import org.broadleafcommerce.common.extension.ExtensionManager;
+import org.broadleafcommerce.common.extension.ExtensionManagerOperation;
+import org.broadleafcommerce.common.extension.ExtensionResultStatusType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the three ways a service reaches its extension handlers: reflective dispatch through
+ * {@link ExtensionManager#getProxy()}, the reflection-free {@link ExtensionManagerOperation} path, and a plain loop
+ * over the handlers as the lower bound. With zero handlers this is the overhead every touchpoint pays even when no
+ * module is listening.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtensionManagerBenchmark {
+
+    public interface BenchmarkExtensionHandler extends ExtensionHandler {
+
+        ExtensionResultStatusType touch(Object target, int value);
+    }
+
+    public static class CountingExtensionHandler extends AbstractExtensionHandler implements BenchmarkExtensionHandler {
+
+        protected long count;
+
+        @Override
+        public ExtensionResultStatusType touch(Object target, int value) {
+            count += value;
+            return ExtensionResultStatusType.HANDLED_CONTINUE;
+        }
+    }
+
+    public static class BenchmarkExtensionManager extends ExtensionManager<BenchmarkExtensionHandler> {
+
+        protected static final ExtensionManagerOperation TOUCH = new ExtensionManagerOperation() {
+            @Override
+            public ExtensionResultStatusType execute(ExtensionHandler handler, Object... params) {
+                return ((BenchmarkExtensionHandler) handler).touch(params[0], (Integer) params[1]);
+            }
+        };
+
+        public BenchmarkExtensionManager() {
+            super(BenchmarkExtensionHandler.class);
+        }
+
+        public ExtensionResultStatusType touch(Object target, int value) {
+            return execute(TOUCH, target, value);
+        }
+    }
+
+    @Param({ "0", "1", "4" })
+    public int handlerCount;
+
+    protected BenchmarkExtensionManager extensionManager;
+    protected Object target;
+
+    @Setup
+    public void setUp() {
+        List<BenchmarkExtensionHandler> handlers = new ArrayList<>();
+        for (int i = 0; i < handlerCount; i++) {
+            CountingExtensionHandler handler = new CountingExtensionHandler();
+            handler.setPriority(i);
+            handlers.add(handler);
+        }
+        extensionManager = new BenchmarkExtensionManager();
+        extensionManager.setHandlers(handlers);
+        target = new Object();
+    }
+
+    @Benchmark
+    public ExtensionResultStatusType proxyDispatch() {
+        return extensionManager.getProxy().touch(target, 1);
+    }
+
+    @Benchmark
+    public ExtensionResultStatusType operationDispatch() {
+        return extensionManager.touch(target, 1);
+    }
+
+    @Benchmark
+    public ExtensionResultStatusType directLoop() {
+        ExtensionResultStatusType result = ExtensionResultStatusType.NOT_HANDLED;
+        for (BenchmarkExtensionHandler handler : extensionManager.getHandlers()) {
+            if (handler.isEnabled()) {
+                result = handler.touch(target, 1);
+            }
+        }
+        return result;
+    }
+}
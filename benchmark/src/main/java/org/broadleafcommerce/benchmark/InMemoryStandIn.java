@@ -0,0 +1,125 @@
+/*
+ * #%L
+ * BroadleafCommerce Benchmarks
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Dynamic proxy that lets a DAO or service interface stand in for its persistent implementation while benchmarking.
+ * <ul>
+ *     <li>{@code create*()} methods instantiate the interface's {@code Impl} class from the same package</li>
+ *     <li>{@code save*}, {@code update*} and {@code merge*} methods hand back their first argument</li>
+ *     <li>everything else returns {@code null}, {@code false} or zero</li>
+ * </ul>
+ * Subclasses can override {@link #answer(Method, Object[])} for the handful of calls that need real data.
+ * Unlike a mock, a stand-in records nothing, so it adds no bookkeeping to the measured path.
+ */
+public class InMemoryStandIn implements InvocationHandler {
+
+    protected static final Object UNHANDLED = new Object();
+
+    protected final ConcurrentMap<Method, Class<?>> implementations = new ConcurrentHashMap<>();
+
+    public static <T> T create(Class<T> type) {
+        return create(type, new InMemoryStandIn());
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T create(Class<T> type, InMemoryStandIn handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class[] { type }, handler);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+            }
+        }
+
+        Object answer = answer(method, args);
+        if (answer != UNHANDLED) {
+            return answer;
+        }
+
+        String name = method.getName();
+        Class<?> returnType = method.getReturnType();
+        if (name.startsWith("create") && (args == null || args.length == 0) && returnType.isInterface()) {
+            return instantiate(method);
+        }
+        if ((name.startsWith("save") || name.startsWith("update") || name.startsWith("merge"))
+                && args != null && args.length > 0 && args[0] != null && returnType.isInstance(args[0])) {
+            return args[0];
+        }
+        return defaultValue(returnType);
+    }
+
+    /**
+     * Hook for calls that need a specific answer. Return {@link #UNHANDLED} to fall back to the default behavior.
+     */
+    protected Object answer(Method method, Object[] args) throws Throwable {
+        return UNHANDLED;
+    }
+
+    protected Object instantiate(Method method) throws ReflectiveOperationException {
+        Class<?> implementation = implementations.get(method);
+        if (implementation == null) {
+            implementation = Class.forName(method.getReturnType().getName() + "Impl", true,
+                    method.getReturnType().getClassLoader());
+            implementations.putIfAbsent(method, implementation);
+        }
+        return implementation.newInstance();
+    }
+
+    protected Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return Boolean.FALSE;
+        }
+        if (type == char.class) {
+            return Character.valueOf((char) 0);
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == double.class) {
+            return 0D;
+        }
+        if (type == float.class) {
+            return 0F;
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        return 0;
+    }
+}
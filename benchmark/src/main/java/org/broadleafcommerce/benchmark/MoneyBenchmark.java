@@ -0,0 +1,99 @@
+/*
+ * #%L
+ * BroadleafCommerce Benchmarks
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.benchmark;
+
+import org.broadleafcommerce.common.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link Money} arithmetic that pricing runs for every item, price detail and adjustment: summing a
+ * cart, applying a percentage discount and prorating an order-level discount across line items.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    @Param({ "5", "50", "200" })
+    public int itemCount;
+
+    protected Money[] prices;
+    protected int[] quantities;
+    protected BigDecimal percentOff;
+
+    @Setup
+    public void setUp() {
+        prices = new Money[itemCount];
+        quantities = new int[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            prices[i] = new Money(BigDecimal.valueOf(995 + (i % 50) * 100, 2));
+            quantities[i] = 1 + (i % 3);
+        }
+        percentOff = new BigDecimal("0.15");
+    }
+
+    @Benchmark
+    public Money subtotal() {
+        Money total = Money.ZERO;
+        for (int i = 0; i < prices.length; i++) {
+            total = total.add(prices[i].multiply(quantities[i]));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Money percentOffEachItem() {
+        Money total = Money.ZERO;
+        for (int i = 0; i < prices.length; i++) {
+            Money discount = prices[i].multiply(percentOff);
+            total = total.add(prices[i].subtract(discount).multiply(quantities[i]));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Money prorateOrderDiscount() {
+        Money subtotal = subtotal();
+        Money discount = new Money(10D);
+        Money distributed = Money.ZERO;
+        for (int i = 0; i < prices.length; i++) {
+            Money lineTotal = prices[i].multiply(quantities[i]);
+            Money share = discount.multiply(lineTotal.getAmount())
+                    .divide(subtotal.getAmount(), RoundingMode.HALF_EVEN);
+            distributed = distributed.add(share);
+        }
+        return discount.subtract(distributed);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * #%L
+ * BroadleafCommerce Benchmarks
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.benchmark;
+
+import org.broadleafcommerce.common.rule.MvelHelper;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.order.domain.OrderItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link MvelHelper#evaluateRule(String, Map)} with the kind of expressions offers carry: an order-level
+ * subtotal check and an item-level category match evaluated once per cart item. The expressions are compiled on the
+ * first call, so this reports the steady state cost of a cache hit plus execution.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MvelRuleBenchmark {
+
+    protected static final String ORDER_RULE = "order.subTotal.getAmount()>20";
+    protected static final String ITEM_RULE = "discreteOrderItem.category.name == \"" + SyntheticCart.categoryName(0)
+            + "\" && discreteOrderItem.quantity >= 1";
+
+    @Param({ "5", "50", "200" })
+    public int itemCount;
+
+    protected Order order;
+
+    @Setup
+    public void setUp() {
+        order = new SyntheticCart(4).createOrder(itemCount);
+    }
+
+    @Benchmark
+    public boolean orderRule() {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("order", order);
+        return MvelHelper.evaluateRule(ORDER_RULE, vars);
+    }
+
+    @Benchmark
+    public int itemRulePerItem() {
+        int matches = 0;
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("order", order);
+        for (OrderItem item : order.getOrderItems()) {
+            vars.put("discreteOrderItem", item);
+            if (MvelHelper.evaluateRule(ITEM_RULE, vars)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * #%L
+ * BroadleafCommerce Benchmarks
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.benchmark;
+
+import org.broadleafcommerce.core.offer.dao.CustomerOfferDao;
+import org.broadleafcommerce.core.offer.dao.OfferCodeDao;
+import org.broadleafcommerce.core.offer.dao.OfferDao;
+import org.broadleafcommerce.core.offer.domain.Offer;
+import org.broadleafcommerce.core.offer.service.OfferServiceImpl;
+import org.broadleafcommerce.core.offer.service.OfferServiceUtilitiesImpl;
+import org.broadleafcommerce.core.offer.service.discount.domain.PromotableCandidateItemOffer;
+import org.broadleafcommerce.core.offer.service.discount.domain.PromotableCandidateOrderOffer;
+import org.broadleafcommerce.core.offer.service.discount.domain.PromotableItemFactoryImpl;
+import org.broadleafcommerce.core.offer.service.discount.domain.PromotableOrder;
+import org.broadleafcommerce.core.offer.service.processor.ItemOfferProcessorImpl;
+import org.broadleafcommerce.core.offer.service.processor.OfferTimeZoneProcessor;
+import org.broadleafcommerce.core.offer.service.processor.OrderOfferProcessorImpl;
+import org.broadleafcommerce.core.order.dao.OrderItemDao;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.order.service.OrderService;
+import org.broadleafcommerce.core.pricing.service.exception.PricingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the promotion engine on synthetic carts: the full {@link OfferServiceImpl#applyAndSaveOffersToOrder(List, Order)}
+ * call and the {@link ItemOfferProcessorImpl#applyAndCompareOrderAndItemOffers(PromotableOrder, List, List)} step
+ * that dominates it once several item offers compete for the same items.
+ * <p>
+ * The DAOs and {@link OrderService} are {@link InMemoryStandIn}s, so the numbers cover rule evaluation, adjustment
+ * bookkeeping and price synchronization, but not persistence. Pricing mutates the order, which is why each
+ * invocation gets a freshly built cart.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OfferBenchmark {
+
+    @Param({ "5", "50", "200" })
+    public int itemCount;
+
+    @Param({ "1", "10" })
+    public int itemOfferCount;
+
+    protected SyntheticCart cart;
+    protected OfferServiceImpl offerService;
+    protected OrderOfferProcessorImpl orderOfferProcessor;
+    protected ItemOfferProcessorImpl itemOfferProcessor;
+    protected PromotableItemFactoryImpl promotableItemFactory;
+
+    protected List<Offer> offers;
+    protected Order order;
+    protected PromotableOrder promotableOrder;
+    protected List<PromotableCandidateOrderOffer> qualifiedOrderOffers;
+    protected List<PromotableCandidateItemOffer> qualifiedItemOffers;
+
+    @Setup(Level.Trial)
+    public void setUpServices() {
+        cart = new SyntheticCart(Math.max(1, itemOfferCount));
+        promotableItemFactory = new PromotableItemFactoryImpl();
+
+        OfferDao offerDao = InMemoryStandIn.create(OfferDao.class);
+        OrderItemDao orderItemDao = InMemoryStandIn.create(OrderItemDao.class);
+        OfferTimeZoneProcessor timeZoneProcessor = new OfferTimeZoneProcessor() {
+            @Override
+            public TimeZone getTimeZone(Offer offer) {
+                return TimeZone.getDefault();
+            }
+        };
+
+        OfferServiceUtilitiesImpl offerServiceUtilities = new OfferServiceUtilitiesImpl();
+        offerServiceUtilities.setOfferDao(offerDao);
+        offerServiceUtilities.setPromotableItemFactory(promotableItemFactory);
+
+        orderOfferProcessor = new OrderOfferProcessorImpl();
+        orderOfferProcessor.setOfferDao(offerDao);
+        orderOfferProcessor.setOrderItemDao(orderItemDao);
+        orderOfferProcessor.setPromotableItemFactory(promotableItemFactory);
+        orderOfferProcessor.setOfferTimeZoneProcessor(timeZoneProcessor);
+        orderOfferProcessor.setOfferServiceUtilities(offerServiceUtilities);
+
+        itemOfferProcessor = new ItemOfferProcessorImpl();
+        itemOfferProcessor.setOfferDao(offerDao);
+        itemOfferProcessor.setOrderItemDao(orderItemDao);
+        itemOfferProcessor.setPromotableItemFactory(promotableItemFactory);
+        itemOfferProcessor.setOfferTimeZoneProcessor(timeZoneProcessor);
+        itemOfferProcessor.setOfferServiceUtilities(offerServiceUtilities);
+
+        offerService = new OfferServiceImpl();
+        offerService.setOfferDao(offerDao);
+        offerService.setCustomerOfferDao(InMemoryStandIn.create(CustomerOfferDao.class));
+        offerService.setOfferCodeDao(InMemoryStandIn.create(OfferCodeDao.class));
+        offerService.setOrderService(InMemoryStandIn.create(OrderService.class));
+        offerService.setOrderOfferProcessor(orderOfferProcessor);
+        offerService.setItemOfferProcessor(itemOfferProcessor);
+        offerService.setPromotableItemFactory(promotableItemFactory);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpCart() {
+        offers = cart.createOffers(itemOfferCount);
+        order = cart.createOrder(itemCount);
+
+        promotableOrder = promotableItemFactory.createPromotableOrder(order, false);
+        qualifiedOrderOffers = new ArrayList<>();
+        qualifiedItemOffers = new ArrayList<>();
+        List<Offer> filteredOffers = orderOfferProcessor.filterOffers(offers, order.getCustomer());
+        itemOfferProcessor.filterOffers(promotableOrder, filteredOffers, qualifiedOrderOffers, qualifiedItemOffers);
+    }
+
+    @Benchmark
+    public Order applyAndSaveOffersToOrder() throws PricingException {
+        return offerService.applyAndSaveOffersToOrder(offers, order);
+    }
+
+    @Benchmark
+    public PromotableOrder applyAndCompareOrderAndItemOffers() {
+        itemOfferProcessor.applyAndCompareOrderAndItemOffers(promotableOrder, qualifiedOrderOffers, qualifiedItemOffers);
+        return promotableOrder;
+    }
+}
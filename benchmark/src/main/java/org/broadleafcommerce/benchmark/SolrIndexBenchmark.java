@@ -0,0 +1,189 @@
+/*
+ * #%L
+ * BroadleafCommerce Benchmarks
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.benchmark;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.broadleafcommerce.common.dao.GenericEntityDao;
+import org.broadleafcommerce.common.locale.domain.Locale;
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.common.sandbox.SandBoxHelper;
+import org.broadleafcommerce.core.catalog.domain.Category;
+import org.broadleafcommerce.core.catalog.domain.CategoryImpl;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.search.dao.CatalogStructure;
+import org.broadleafcommerce.core.search.domain.Field;
+import org.broadleafcommerce.core.search.domain.FieldEntity;
+import org.broadleafcommerce.core.search.domain.FieldImpl;
+import org.broadleafcommerce.core.search.domain.IndexField;
+import org.broadleafcommerce.core.search.domain.IndexFieldImpl;
+import org.broadleafcommerce.core.search.domain.IndexFieldType;
+import org.broadleafcommerce.core.search.domain.IndexFieldTypeImpl;
+import org.broadleafcommerce.core.search.domain.solr.FieldType;
+import org.broadleafcommerce.core.search.service.solr.SolrConfiguration;
+import org.broadleafcommerce.core.search.service.solr.SolrHelperServiceImpl;
+import org.broadleafcommerce.core.search.service.solr.SolrSearchServiceExtensionManager;
+import org.broadleafcommerce.core.search.service.solr.index.SolrIndexCachedOperation;
+import org.broadleafcommerce.core.search.service.solr.index.SolrIndexServiceExtensionManager;
+import org.broadleafcommerce.core.search.service.solr.index.SolrIndexServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link SolrIndexServiceImpl#buildDocument(org.broadleafcommerce.core.search.domain.Indexable, List, List)}
+ * for products whose categories sit at a configurable depth in the catalog tree. Document building is pure CPU work
+ * once the {@link CatalogStructure} has been populated, so the catalog is built up front and the DAOs are
+ * {@link InMemoryStandIn}s; no Solr server is involved.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolrIndexBenchmark {
+
+    protected static final int PRODUCT_COUNT = 100;
+
+    /**
+     * Wires the helper without a Spring context; the fields are protected and normally injected.
+     */
+    public static class BenchmarkSolrHelperService extends SolrHelperServiceImpl {
+
+        public BenchmarkSolrHelperService() {
+            searchExtensionManager = new SolrSearchServiceExtensionManager();
+            indexExtensionManager = new SolrIndexServiceExtensionManager();
+            genericEntityDao = InMemoryStandIn.create(GenericEntityDao.class);
+            useSku = false;
+        }
+    }
+
+    public static class BenchmarkSolrIndexService extends SolrIndexServiceImpl {
+
+        public BenchmarkSolrIndexService() {
+            shs = new BenchmarkSolrHelperService();
+            extensionManager = new SolrIndexServiceExtensionManager();
+            sandBoxHelper = InMemoryStandIn.create(SandBoxHelper.class);
+            solrConfiguration = new SolrConfiguration(null, null, null, "primary", "reindex", "benchmark");
+        }
+    }
+
+    @Param({ "1", "5" })
+    public int categoryDepth;
+
+    protected BenchmarkSolrIndexService indexService;
+    protected CatalogStructure catalogStructure;
+    protected List<Product> products;
+    protected List<IndexField> fields;
+    protected List<Locale> locales;
+    protected int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        indexService = new BenchmarkSolrIndexService();
+        locales = Collections.emptyList();
+
+        fields = new ArrayList<>();
+        fields.add(createIndexField("name", FieldType.TEXT, FieldType.STRING));
+        fields.add(createIndexField("description", FieldType.TEXT));
+        fields.add(createIndexField("manufacturer", FieldType.STRING));
+        fields.add(createIndexField("model", FieldType.STRING));
+        fields.add(createIndexField("url", FieldType.STRING));
+
+        // a chain of categories where each one is the parent of the next
+        List<Category> chain = new ArrayList<>();
+        catalogStructure = new CatalogStructure();
+        for (int i = 0; i < categoryDepth; i++) {
+            Category category = new CategoryImpl();
+            category.setId((long) i + 1);
+            category.setName(SyntheticCart.categoryName(i));
+            Set<Long> parents = new HashSet<>();
+            if (i > 0) {
+                parents.add(chain.get(i - 1).getId());
+            }
+            catalogStructure.getParentCategoriesByCategory().put(category.getId(), parents);
+            chain.add(category);
+        }
+        Category leaf = chain.get(chain.size() - 1);
+
+        SyntheticCart cart = new SyntheticCart(1);
+        products = new ArrayList<>();
+        for (int i = 0; i < PRODUCT_COUNT; i++) {
+            Product product = cart.createProduct(leaf, new Money(BigDecimal.valueOf(995 + i, 2)));
+            products.add(product);
+            catalogStructure.getParentCategoriesByProduct().put(product.getId(), Collections.singleton(leaf.getId()));
+            catalogStructure.getDisplayOrdersByCategoryProduct().put(leaf.getId() + "-" + product.getId(),
+                    BigDecimal.valueOf(i));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void bindCache() {
+        SolrIndexCachedOperation.setCache(catalogStructure);
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearCache() {
+        SolrIndexCachedOperation.clearCache();
+    }
+
+    @Benchmark
+    public SolrInputDocument buildDocument() {
+        Product product = products.get(next++ % PRODUCT_COUNT);
+        return indexService.buildDocument(product, fields, locales);
+    }
+
+    protected IndexField createIndexField(String propertyName, FieldType... fieldTypes) {
+        Field field = new FieldImpl();
+        field.setEntityType(FieldEntity.PRODUCT);
+        field.setPropertyName(propertyName);
+        field.setAbbreviation(propertyName);
+
+        IndexField indexField = new IndexFieldImpl();
+        indexField.setField(field);
+        indexField.setSearchable(true);
+        List<IndexFieldType> indexFieldTypes = new ArrayList<>();
+        for (FieldType fieldType : fieldTypes) {
+            IndexFieldType indexFieldType = new IndexFieldTypeImpl();
+            indexFieldType.setFieldType(fieldType);
+            indexFieldType.setIndexField(indexField);
+            indexFieldTypes.add(indexFieldType);
+        }
+        indexField.setFieldTypes(indexFieldTypes);
+        return indexField;
+    }
+}
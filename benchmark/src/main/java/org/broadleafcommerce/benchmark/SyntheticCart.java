@@ -0,0 +1,216 @@
+/*
+ * #%L
+ * BroadleafCommerce Benchmarks
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.benchmark;
+
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.core.catalog.domain.Category;
+import org.broadleafcommerce.core.catalog.domain.CategoryImpl;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.ProductImpl;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.catalog.domain.SkuImpl;
+import org.broadleafcommerce.core.offer.domain.Offer;
+import org.broadleafcommerce.core.offer.domain.OfferImpl;
+import org.broadleafcommerce.core.offer.domain.OfferItemCriteria;
+import org.broadleafcommerce.core.offer.domain.OfferItemCriteriaImpl;
+import org.broadleafcommerce.core.offer.domain.OfferOfferRuleXrefImpl;
+import org.broadleafcommerce.core.offer.domain.OfferRule;
+import org.broadleafcommerce.core.offer.domain.OfferRuleImpl;
+import org.broadleafcommerce.core.offer.domain.OfferTargetCriteriaXref;
+import org.broadleafcommerce.core.offer.domain.OfferTargetCriteriaXrefImpl;
+import org.broadleafcommerce.core.offer.service.type.OfferDiscountType;
+import org.broadleafcommerce.core.offer.service.type.OfferItemRestrictionRuleType;
+import org.broadleafcommerce.core.offer.service.type.OfferRuleType;
+import org.broadleafcommerce.core.offer.service.type.OfferType;
+import org.broadleafcommerce.core.order.domain.DiscreteOrderItem;
+import org.broadleafcommerce.core.order.domain.DiscreteOrderItemImpl;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroup;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroupImpl;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroupItem;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroupItemImpl;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.order.domain.OrderImpl;
+import org.broadleafcommerce.core.order.domain.OrderItemPriceDetail;
+import org.broadleafcommerce.core.order.domain.OrderItemPriceDetailImpl;
+import org.broadleafcommerce.core.order.service.type.FulfillmentType;
+import org.broadleafcommerce.core.order.service.type.OrderItemType;
+import org.broadleafcommerce.profile.core.domain.Customer;
+import org.broadleafcommerce.profile.core.domain.CustomerImpl;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds detached, fully wired carts and offers of a requested size for the benchmarks. Every call returns new
+ * instances, so a benchmark that mutates the order (as pricing does) can ask for a fresh one per invocation.
+ */
+public class SyntheticCart {
+
+    protected static final long DAY = 1000L * 60 * 60 * 24;
+
+    protected final AtomicLong ids = new AtomicLong(1L);
+    protected final List<Category> categories = new ArrayList<>();
+
+    /**
+     * @param categoryCount the number of categories cart items are spread across; item offers target the first one
+     */
+    public SyntheticCart(int categoryCount) {
+        for (int i = 0; i < categoryCount; i++) {
+            Category category = new CategoryImpl();
+            category.setId((long) i + 1);
+            category.setName(categoryName(i));
+            categories.add(category);
+        }
+    }
+
+    public static String categoryName(int index) {
+        return "category" + index;
+    }
+
+    public Order createOrder(int itemCount) {
+        Order order = new OrderImpl();
+        order.setId(ids.getAndIncrement());
+
+        Customer customer = new CustomerImpl();
+        customer.setId(ids.getAndIncrement());
+        customer.setEmailAddress("benchmark@broadleafcommerce.org");
+        customer.setRegistered(true);
+        order.setCustomer(customer);
+        order.setEmailAddress(customer.getEmailAddress());
+
+        FulfillmentGroup fg = new FulfillmentGroupImpl();
+        fg.setId(ids.getAndIncrement());
+        fg.setOrder(order);
+        fg.setPrimary(true);
+        fg.setType(FulfillmentType.PHYSICAL_SHIP);
+        fg.setRetailShippingPrice(new Money(10D));
+        fg.setShippingPrice(new Money(10D));
+        order.getFulfillmentGroups().add(fg);
+
+        Money subTotal = Money.ZERO;
+        for (int i = 0; i < itemCount; i++) {
+            int quantity = 1 + (i % 3);
+            Money price = new Money(BigDecimal.valueOf(995 + (i % 50) * 100, 2));
+            DiscreteOrderItem item = createItem(order, categories.get(i % categories.size()), price, quantity);
+            order.getOrderItems().add(item);
+
+            FulfillmentGroupItem fgItem = new FulfillmentGroupItemImpl();
+            fgItem.setFulfillmentGroup(fg);
+            fgItem.setOrderItem(item);
+            fgItem.setQuantity(quantity);
+            fg.getFulfillmentGroupItems().add(fgItem);
+
+            subTotal = subTotal.add(price.multiply(quantity));
+        }
+        order.setSubTotal(subTotal);
+        return order;
+    }
+
+    public Product createProduct(Category category, Money price) {
+        Sku sku = new SkuImpl();
+        sku.setId(ids.getAndIncrement());
+        sku.setName("sku" + sku.getId());
+        sku.setDescription("Synthetic sku " + sku.getId() + " in " + category.getName());
+        sku.setDiscountable(true);
+        sku.setRetailPrice(price);
+
+        Product product = new ProductImpl();
+        product.setId(ids.getAndIncrement());
+        product.setDefaultSku(sku);
+        product.setManufacturer("Broadleaf");
+        product.setModel("M" + product.getId());
+        product.setUrl("/product/" + product.getId());
+
+        product.setCategory(category);
+        return product;
+    }
+
+    protected DiscreteOrderItem createItem(Order order, Category category, Money price, int quantity) {
+        Product product = createProduct(category, price);
+
+        DiscreteOrderItem item = new DiscreteOrderItemImpl();
+        item.setId(ids.getAndIncrement());
+        item.setOrder(order);
+        item.setOrderItemType(OrderItemType.DISCRETE);
+        item.setCategory(category);
+        item.setProduct(product);
+        item.setSku(product.getDefaultSku());
+        item.setName(product.getDefaultSku().getName());
+        item.setQuantity(quantity);
+
+        OrderItemPriceDetail priceDetail = new OrderItemPriceDetailImpl();
+        priceDetail.setOrderItem(item);
+        priceDetail.setQuantity(quantity);
+        item.getOrderItemPriceDetails().add(priceDetail);
+        return item;
+    }
+
+    /**
+     * A 10% order offer plus {@code itemOfferCount} item offers alternating between percent and amount off, each
+     * targeting one of the first categories by name.
+     */
+    public List<Offer> createOffers(int itemOfferCount) {
+        List<Offer> offers = new ArrayList<>();
+        offers.add(createOffer(OfferType.ORDER, OfferDiscountType.PERCENT_OFF, "order.subTotal.getAmount()>20", null, 1));
+        for (int i = 0; i < itemOfferCount; i++) {
+            String targetRule = "discreteOrderItem.category.name == \"" + categoryName(i % categories.size()) + "\"";
+            OfferDiscountType type = i % 2 == 0 ? OfferDiscountType.PERCENT_OFF : OfferDiscountType.AMOUNT_OFF;
+            offers.add(createOffer(OfferType.ORDER_ITEM, type, "order.subTotal.getAmount()>10", targetRule, i + 2));
+        }
+        return offers;
+    }
+
+    protected Offer createOffer(OfferType offerType, OfferDiscountType discountType, String orderRule, String targetRule,
+            int priority) {
+        Offer offer = new OfferImpl();
+        offer.setId(ids.getAndIncrement());
+        offer.setName("offer" + offer.getId());
+        offer.setType(offerType);
+        offer.setDiscountType(discountType);
+        offer.setValue(BigDecimal.valueOf(OfferDiscountType.PERCENT_OFF.equals(discountType) ? 10 : 1));
+        offer.setPriority(priority);
+        offer.setStartDate(new Date(System.currentTimeMillis() - DAY));
+        offer.setEndDate(new Date(System.currentTimeMillis() + DAY));
+        offer.setApplyDiscountToSalePrice(true);
+        offer.setCombinableWithOtherOffers(true);
+        offer.setAutomaticallyAdded(true);
+        offer.setOfferItemQualifierRuleType(OfferItemRestrictionRuleType.NONE);
+        offer.setOfferItemTargetRuleType(OfferItemRestrictionRuleType.NONE);
+
+        OfferRule rule = new OfferRuleImpl();
+        rule.setMatchRule(orderRule);
+        offer.getOfferMatchRulesXref().put(OfferRuleType.ORDER.getType(),
+                new OfferOfferRuleXrefImpl(offer, rule, OfferRuleType.ORDER.getType()));
+
+        if (targetRule != null) {
+            OfferItemCriteria criteria = new OfferItemCriteriaImpl();
+            criteria.setQuantity(1);
+            criteria.setMatchRule(targetRule);
+
+            OfferTargetCriteriaXref xref = new OfferTargetCriteriaXrefImpl();
+            xref.setOffer(offer);
+            xref.setOfferItemCriteria(criteria);
+            offer.setTargetItemCriteriaXref(Collections.singleton(xref));
+        }
+        return offer;
+    }
+}
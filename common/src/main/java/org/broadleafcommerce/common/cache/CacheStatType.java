@@ -23,11 +23,14 @@ package org.broadleafcommerce.common.cache;
 public enum CacheStatType {
     PAGE_CACHE_HIT_RATE,
     STRUCTURED_CONTENT_CACHE_HIT_RATE,
+    STRUCTURED_CONTENT_RULE_PLAN_HIT_RATE,
     URL_HANDLER_CACHE_HIT_RATE,
     PRODUCT_URL_MISSING_CACHE_HIT_RATE,
     CATEGORY_URL_MISSING_CACHE_HIT_RATE,
     SKU_URL_MISSING_CACHE_HIT_RATE,
     TRANSLATION_CACHE_HIT_RATE,
+    TRANSLATION_INDEX_HIT_RATE,
+    REQUEST_CONTEXT_RESOLUTION_CACHE_HIT_RATE,
     RESOURCE_BUNDLING_CACHE_HIT_RATE,
     GENERATED_RESOURCE_CACHE_HIT_RATE
 }
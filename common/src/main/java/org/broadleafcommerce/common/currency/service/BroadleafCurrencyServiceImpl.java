@@ -19,7 +19,10 @@ package org.broadleafcommerce.common.currency.service;
 
 import org.broadleafcommerce.common.currency.dao.BroadleafCurrencyDao;
 import org.broadleafcommerce.common.currency.domain.BroadleafCurrency;
+import org.broadleafcommerce.common.event.RequestContextResolutionChangedEvent;
 import org.broadleafcommerce.common.util.TransactionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -38,6 +41,9 @@ public class BroadleafCurrencyServiceImpl implements BroadleafCurrencyService {
     @Resource(name="blCurrencyDao")
     protected BroadleafCurrencyDao currencyDao;
 
+    @Autowired
+    protected ApplicationEventPublisher eventPublisher;
+
     /**
      * Returns the default Broadleaf currency
      * @return The default currency
@@ -67,7 +73,9 @@ public class BroadleafCurrencyServiceImpl implements BroadleafCurrencyService {
     @Override
     @Transactional(TransactionUtils.DEFAULT_TRANSACTION_MANAGER)
     public BroadleafCurrency save(BroadleafCurrency currency) {
-        return currencyDao.save(currency);
+        BroadleafCurrency savedCurrency = currencyDao.save(currency);
+        eventPublisher.publishEvent(new RequestContextResolutionChangedEvent(savedCurrency));
+        return savedCurrency;
     }
     
     @Override
@@ -138,6 +138,19 @@ public interface TranslationDao {
      */
     List<Translation> readAllTranslationEntries(TranslatedEntity entityType, ResultType stage, List<String> entityIds);
 
+    /**
+     * Read the translations of the given entities for every locale of a single language. This is the bulk equivalent of
+     * {@link #readTranslation(TranslatedEntity, String, String, String, String, ResultType)} and returns both the general
+     * (e.g. "en") and any country specific (e.g. "en_GB") entries for every field.
+     *
+     * @param entityType
+     * @param stage param drives whether to look for entries at a template level or standard site level (multitenant concepts). Can be IGNORE. Any multitenant behavior is ignored in the absence of the multitenant module.
+     * @param entityIds the {@link Translation#getEntityId()} to restrict the results by
+     * @param localeCode the language code the {@link Translation#getLocaleCode()} must start with, or null for all locales
+     * @return
+     */
+    List<Translation> readTranslationEntries(TranslatedEntity entityType, ResultType stage, List<String> entityIds, String localeCode);
+
     /**
      * Read all translation entries (see {@link #readAllTranslationEntries(org.broadleafcommerce.common.i18n.domain.TranslatedEntity, org.broadleafcommerce.common.extension.ResultType)}),
      * and convert those results into a list of {@link org.broadleafcommerce.common.extension.StandardCacheItem} instances.
@@ -205,6 +205,11 @@ public class TranslationDaoImpl implements TranslationDao {
     }
     
     public List<Translation> readAllTranslationEntries(TranslatedEntity entityType, ResultType stage, List<String> entityIds) {
+        return readTranslationEntries(entityType, stage, entityIds, null);
+    }
+
+    @Override
+    public List<Translation> readTranslationEntries(TranslatedEntity entityType, ResultType stage, List<String> entityIds, String localeCode) {
         CriteriaBuilder builder = em.getCriteriaBuilder();
         CriteriaQuery<Translation> criteria = builder.createQuery(Translation.class);
         Root<TranslationImpl> root = criteria.from(TranslationImpl.class);
@@ -214,6 +219,9 @@ public class TranslationDaoImpl implements TranslationDao {
         if (CollectionUtils.isNotEmpty(entityIds)) {
             restrictions.add(root.get("entityId").in(entityIds));
         }
+        if (localeCode != null) {
+            restrictions.add(builder.like(root.get("localeCode").as(String.class), localeCode + "%"));
+        }
         try {
             if (extensionManager != null) {
                 extensionManager.getProxy().setup(TranslationImpl.class, stage);
@@ -0,0 +1,75 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.common.i18n.service;
+
+import org.broadleafcommerce.common.i18n.domain.TranslatedEntity;
+
+import java.util.Collection;
+
+/**
+ * Production-only index of resolved translations, used by {@link TranslationServiceImpl} in place of a query per
+ * translated field. Each entity is loaded with all of its fields for a locale at once, either on first use or ahead of
+ * time via {@link #preload(TranslatedEntity, Collection, String, String)}, and entities without translations are
+ * remembered as such. Each locale holds a bounded number of entities, so large translation tables are supported without
+ * having to cache them completely.
+ */
+public interface TranslationIndexService {
+
+    /**
+     * @return whether the index should be used at all
+     */
+    boolean isEnabled();
+
+    /**
+     * Returns the translated value for the given field, loading the entity into the index if it was not there yet. The
+     * country specific translation (localeCountryCode) is preferred over the general one (localeCode).
+     *
+     * @param entityType
+     * @param entityId
+     * @param property
+     * @param localeCode the language, such as "en"
+     * @param localeCountryCode the language and country, such as "en_GB", or the language if there is no country
+     * @return the translated value or null if there is no translation
+     */
+    String getTranslatedValue(TranslatedEntity entityType, String entityId, String property, String localeCode, String localeCountryCode);
+
+    /**
+     * Loads the translations of every given entity that is not indexed yet for the locale, in as few queries as the batch
+     * size allows. Meant to be called with the entities about to be rendered, such as the products of a category page.
+     *
+     * @param entityType
+     * @param entityIds
+     * @param localeCode
+     * @param localeCountryCode
+     */
+    void preload(TranslatedEntity entityType, Collection<String> entityIds, String localeCode, String localeCountryCode);
+
+    /**
+     * Removes the given entity from the index in every locale. When called within a transaction, the entity is removed
+     * again once the transaction commits.
+     *
+     * @param entityType
+     * @param entityId
+     */
+    void evict(TranslatedEntity entityType, String entityId);
+
+    /**
+     * Removes every entity from the index.
+     */
+    void clear();
+}
@@ -0,0 +1,402 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.common.i18n.service;
+
+import org.broadleafcommerce.common.cache.CacheStatType;
+import org.broadleafcommerce.common.cache.StatisticsService;
+import org.broadleafcommerce.common.extension.ResultType;
+import org.broadleafcommerce.common.i18n.dao.TranslationDao;
+import org.broadleafcommerce.common.i18n.domain.TranslatedEntity;
+import org.broadleafcommerce.common.i18n.domain.Translation;
+import org.broadleafcommerce.common.time.SystemTime;
+import org.broadleafcommerce.common.util.ConcurrentLRUCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Resource;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+
+/**
+ * Keeps one {@link ConcurrentLRUCache} per locale from (entity type, entity id) to the resolved values of all of that
+ * entity's translated fields. Entity types and field names are interned into small integer symbols, and each entity's
+ * values are stored as a sorted symbol array with a parallel value array, so a lookup is a map probe and a binary search
+ * without building a string key.
+ * <p/>
+ * Each locale keeps at most {@link #maxEntitiesPerLocale} entities, evicting the least recently used ones. Every entity
+ * is indexed with the version its entity type had in the "blTranslationIndexVersionCache" region when it was loaded, and
+ * a change made through the {@link TranslationService} gives the entity type a new version, both when it is made and
+ * when its transaction commits, which makes all of its indexed entities stale. When that region is shared across the cluster, as the other translation caches are, changes
+ * made on one node are picked up by all of them right away. Entities are also reloaded after {@link #ttlSeconds}.
+ */
+@Service("blTranslationIndexService")
+@ManagedResource(objectName = "org.broadleafcommerce:name=TranslationIndex", description = "Translation Index", currencyTimeLimit = 15)
+public class TranslationIndexServiceImpl implements TranslationIndexService {
+
+    @Value("${translation.index.enabled:true}")
+    protected boolean enabled = true;
+
+    @Value("${translation.index.maxEntitiesPerLocale:50000}")
+    protected int maxEntitiesPerLocale = 50000;
+
+    @Value("${translation.index.ttlSeconds:3600}")
+    protected long ttlSeconds = 3600;
+
+    @Value("${translation.index.preload.batchSize:500}")
+    protected int batchSize = 500;
+
+    @Resource(name = "blTranslationDao")
+    protected TranslationDao dao;
+
+    @Resource(name = "blStatisticsService")
+    protected StatisticsService statisticsService;
+
+    protected final ConcurrentMap<String, Integer> symbols = new ConcurrentHashMap<>();
+
+    protected final AtomicInteger nextSymbol = new AtomicInteger();
+
+    protected final ConcurrentMap<String, ConcurrentLRUCache<EntityKey, IndexedTranslations>> partitions = new ConcurrentHashMap<>();
+
+    protected Cache versionCache;
+
+    @Override
+    @ManagedAttribute(description = "Whether the translation index is used")
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public String getTranslatedValue(TranslatedEntity entityType, String entityId, String property, String localeCode, String localeCountryCode) {
+        Map<EntityKey, IndexedTranslations> partition = getPartition(localeCountryCode);
+        long version = readVersion(entityType);
+        IndexedTranslations translations = getCurrent(partition, new EntityKey(intern(entityType.getFriendlyType()), entityId), version);
+        statisticsService.addCacheStat(CacheStatType.TRANSLATION_INDEX_HIT_RATE.toString(), translations != null);
+        if (translations == null) {
+            translations = load(entityType, Collections.singletonList(entityId), localeCode, localeCountryCode).get(entityId);
+        }
+
+        // a field that was never interned has no translation in any indexed entity
+        Integer field = symbols.get(property);
+        return field == null ? null : translations.getValue(field);
+    }
+
+    @Override
+    public void preload(TranslatedEntity entityType, Collection<String> entityIds, String localeCode, String localeCountryCode) {
+        Map<EntityKey, IndexedTranslations> partition = getPartition(localeCountryCode);
+        int entityTypeSymbol = intern(entityType.getFriendlyType());
+        long version = readVersion(entityType);
+        Set<String> missing = new LinkedHashSet<>();
+        for (String entityId : entityIds) {
+            if (entityId != null && getCurrent(partition, new EntityKey(entityTypeSymbol, entityId), version) == null) {
+                missing.add(entityId);
+            }
+        }
+
+        List<String> batch = new ArrayList<>(Math.min(missing.size(), batchSize));
+        for (String entityId : missing) {
+            batch.add(entityId);
+            if (batch.size() == batchSize) {
+                load(entityType, batch, localeCode, localeCountryCode);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            load(entityType, batch, localeCode, localeCountryCode);
+        }
+    }
+
+    /**
+     * Reads the translations of the given entities in the language of the locale, resolves the best one for every field
+     * and indexes the result. Entities without any translation are indexed as well so that they are not read again.
+     *
+     * @return the indexed translations keyed by entity id
+     */
+    protected Map<String, IndexedTranslations> load(TranslatedEntity entityType, List<String> entityIds, String localeCode, String localeCountryCode) {
+        // read before the translations, so that a change made while they are read leaves them stale
+        long version = readVersion(entityType);
+        //Translation is dual discriminated by site and catalog, see ThresholdCacheTranslationOverrideStrategy
+        List<Translation> translations = dao.readTranslationEntries(entityType, ResultType.CATALOG_ONLY, entityIds, localeCode);
+
+        Map<String, Map<Integer, Translation>> bestByEntity = new HashMap<>();
+        for (Translation translation : translations) {
+            int rank = getLocaleRank(translation.getLocaleCode(), localeCode, localeCountryCode);
+            if (rank < 0) {
+                continue;
+            }
+            Map<Integer, Translation> bestByField = bestByEntity.get(translation.getEntityId());
+            if (bestByField == null) {
+                bestByField = new HashMap<>();
+                bestByEntity.put(translation.getEntityId(), bestByField);
+            }
+            Integer field = intern(translation.getFieldName());
+            Translation best = bestByField.get(field);
+            if (best == null || rank < getLocaleRank(best.getLocaleCode(), localeCode, localeCountryCode)) {
+                bestByField.put(field, translation);
+            }
+        }
+
+        Map<EntityKey, IndexedTranslations> partition = getPartition(localeCountryCode);
+        int entityTypeSymbol = intern(entityType.getFriendlyType());
+        long loadedAt = SystemTime.wallClockMillis();
+        Map<String, IndexedTranslations> loaded = new HashMap<>();
+        for (String entityId : entityIds) {
+            IndexedTranslations indexed = new IndexedTranslations(bestByEntity.get(entityId), version, loadedAt);
+            partition.put(new EntityKey(entityTypeSymbol, entityId), indexed);
+            loaded.put(entityId, indexed);
+        }
+        return loaded;
+    }
+
+    /**
+     * Mirrors {@link TranslationDao#readTranslation(TranslatedEntity, String, String, String, String, ResultType)}: an
+     * exact match on the requested locale is best, then the general language and then any other country of the same
+     * language. A request for a language without a country only accepts an exact match.
+     *
+     * @return the rank of the translation's locale, lower is better, or -1 if it may not be used at all
+     */
+    protected int getLocaleRank(String translationLocaleCode, String localeCode, String localeCountryCode) {
+        if (localeCountryCode.equals(translationLocaleCode)) {
+            return 0;
+        }
+        if (localeCode.equals(localeCountryCode)) {
+            return -1;
+        }
+        return localeCode.equals(translationLocaleCode) ? 1 : 2;
+    }
+
+    protected IndexedTranslations getCurrent(Map<EntityKey, IndexedTranslations> partition, EntityKey key, long version) {
+        IndexedTranslations translations = partition.get(key);
+        if (translations != null && (translations.getVersion() != version
+                || ttlSeconds > 0 && SystemTime.wallClockMillis() - translations.getLoadedAt() > ttlSeconds * 1000)) {
+            partition.remove(key);
+            translations = null;
+        }
+        return translations;
+    }
+
+    protected Map<EntityKey, IndexedTranslations> getPartition(String localeCountryCode) {
+        ConcurrentLRUCache<EntityKey, IndexedTranslations> partition = partitions.get(localeCountryCode);
+        if (partition == null) {
+            partition = new ConcurrentLRUCache<>(Math.max(1, maxEntitiesPerLocale));
+            ConcurrentLRUCache<EntityKey, IndexedTranslations> existing = partitions.putIfAbsent(localeCountryCode, partition);
+            if (existing != null) {
+                partition = existing;
+            }
+        }
+        return partition;
+    }
+
+    /**
+     * @return the current version of the given entity type, which changes whenever one of its translations changes
+     */
+    protected long readVersion(TranslatedEntity entityType) {
+        String key = entityType.getFriendlyType();
+        Element element = getVersionCache().get(key);
+        if (element == null) {
+            Element newElement = new Element(key, newVersion());
+            element = getVersionCache().putIfAbsent(newElement);
+            if (element == null) {
+                element = newElement;
+            }
+        }
+        return (Long) element.getObjectValue();
+    }
+
+    /**
+     * Versions are random rather than counted so that nodes sharing the region never hand out the same version for
+     * different states of an entity type
+     */
+    protected Long newVersion() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    protected Cache getVersionCache() {
+        if (versionCache == null) {
+            versionCache = CacheManager.getInstance().getCache("blTranslationIndexVersionCache");
+        }
+        return versionCache;
+    }
+
+    protected int intern(String name) {
+        Integer symbol = symbols.get(name);
+        if (symbol == null) {
+            Integer newSymbol = nextSymbol.getAndIncrement();
+            symbol = symbols.putIfAbsent(name, newSymbol);
+            if (symbol == null) {
+                symbol = newSymbol;
+            }
+        }
+        return symbol;
+    }
+
+    /**
+     * Gives the entity type a new version right away and, when called within a transaction, once more after it commits.
+     * Otherwise a read between the first bump and the commit would index the uncommitted change's old rows under the
+     * new version, where they would stay until {@link #ttlSeconds} passed.
+     */
+    @Override
+    public void evict(final TranslatedEntity entityType, final String entityId) {
+        evictNow(entityType, entityId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+                @Override
+                public void afterCommit() {
+                    evictNow(entityType, entityId);
+                }
+            });
+        }
+    }
+
+    protected void evictNow(TranslatedEntity entityType, String entityId) {
+        getVersionCache().put(new Element(entityType.getFriendlyType(), newVersion()));
+        Integer entityTypeSymbol = symbols.get(entityType.getFriendlyType());
+        if (entityTypeSymbol != null) {
+            EntityKey key = new EntityKey(entityTypeSymbol, entityId);
+            for (ConcurrentLRUCache<EntityKey, IndexedTranslations> partition : partitions.values()) {
+                partition.remove(key);
+            }
+        }
+    }
+
+    @Override
+    @ManagedOperation(description = "Removes every entity from the translation index")
+    public void clear() {
+        partitions.clear();
+    }
+
+    @ManagedAttribute(description = "The number of indexed entities across all locales")
+    public int getSize() {
+        int size = 0;
+        for (ConcurrentLRUCache<EntityKey, IndexedTranslations> partition : partitions.values()) {
+            size += partition.size();
+        }
+        return size;
+    }
+
+    @ManagedAttribute(description = "The number of locales with indexed entities")
+    public int getLocaleCount() {
+        return partitions.size();
+    }
+
+    @ManagedAttribute(description = "The maximum number of indexed entities per locale")
+    public int getMaxEntitiesPerLocale() {
+        return maxEntitiesPerLocale;
+    }
+
+    public void setMaxEntitiesPerLocale(int maxEntitiesPerLocale) {
+        this.maxEntitiesPerLocale = maxEntitiesPerLocale;
+        // the partitions are sized when they are created
+        partitions.clear();
+    }
+
+    protected static class EntityKey {
+
+        protected final int entityType;
+        protected final String entityId;
+        protected final int hash;
+
+        public EntityKey(int entityType, String entityId) {
+            this.entityType = entityType;
+            this.entityId = entityId;
+            this.hash = 31 * entityType + entityId.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof EntityKey)) {
+                return false;
+            }
+            EntityKey other = (EntityKey) obj;
+            return entityType == other.entityType && entityId.equals(other.entityId);
+        }
+    }
+
+    /**
+     * The resolved translations of one entity in one locale, as field symbols in ascending order and their values.
+     */
+    protected static class IndexedTranslations {
+
+        protected final int[] fields;
+        protected final String[] values;
+        protected final long version;
+        protected final long loadedAt;
+
+        public IndexedTranslations(Map<Integer, Translation> bestByField, long version, long loadedAt) {
+            this.version = version;
+            this.loadedAt = loadedAt;
+            if (bestByField == null) {
+                fields = new int[0];
+                values = new String[0];
+                return;
+            }
+            fields = new int[bestByField.size()];
+            int i = 0;
+            for (Integer field : bestByField.keySet()) {
+                fields[i++] = field;
+            }
+            Arrays.sort(fields);
+            values = new String[fields.length];
+            for (i = 0; i < fields.length; i++) {
+                values[i] = bestByField.get(fields[i]).getTranslatedValue();
+            }
+        }
+
+        public String getValue(int field) {
+            int index = Arrays.binarySearch(fields, field);
+            return index < 0 ? null : values[index];
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public long getLoadedAt() {
+            return loadedAt;
+        }
+    }
+}
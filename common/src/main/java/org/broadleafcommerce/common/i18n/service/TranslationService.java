@@ -24,6 +24,7 @@ import org.broadleafcommerce.common.extension.ResultType;
 import org.broadleafcommerce.common.i18n.domain.TranslatedEntity;
 import org.broadleafcommerce.common.i18n.domain.Translation;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
 
@@ -106,6 +107,16 @@ public interface TranslationService {
      * @return the translated value of the property for the given entity
      */
     public String getTranslatedValue(Object entity, String property, Locale locale);
+
+    /**
+     * Loads the translations of all the given entities for the locale in bulk, so that rendering them does not read
+     * each translated field separately. Entities that are not translatable are ignored. This has no effect when
+     * translations are disabled or are not being read through the {@link TranslationIndexService}, such as in a sandbox.
+     * 
+     * @param entities the entities about to be rendered, such as the products of a category page
+     * @param locale
+     */
+    public void preloadTranslations(Collection<?> entities, Locale locale);
     
     /**
      * Remove a translation instance from the translation specific cache (different than level-2 hibernate cache)
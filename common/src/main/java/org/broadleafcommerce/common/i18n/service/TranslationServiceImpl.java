@@ -38,10 +38,14 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.Resource;
 
@@ -93,11 +97,18 @@ public class TranslationServiceImpl implements TranslationService, TranslationSu
 
     @Resource
     protected List<TranslationOverrideStrategy> strategies;
+
+    @Resource(name = "blTranslationIndexService")
+    protected TranslationIndexService translationIndexService;
+
+    protected final ConcurrentMap<Class<?>, TranslatedEntity> entityTypesByClass = new ConcurrentHashMap<>();
     
     @Override
     @Transactional("blTransactionManager")
     public Translation save(Translation translation) {
-        return dao.save(translation);
+        Translation saved = dao.save(translation);
+        translationIndexService.evict(saved.getEntityType(), saved.getEntityId());
+        return saved;
     }
     
     @Override
@@ -146,6 +157,7 @@ public class TranslationServiceImpl implements TranslationService, TranslationSu
     public void deleteTranslationById(Long translationId) {
         Translation t = dao.readTranslationById(translationId);
         dao.delete(t);
+        translationIndexService.evict(t.getEntityType(), t.getEntityId());
     }
     
     @Override
@@ -173,10 +185,7 @@ public class TranslationServiceImpl implements TranslationService, TranslationSu
         String entityId = dao.getEntityId(entityType, entity);
 
         String localeCode = locale.getLanguage();
-        String localeCountryCode = localeCode;
-        if (StringUtils.isNotBlank(locale.getCountry())) {
-            localeCountryCode += "_" + locale.getCountry();
-        }
+        String localeCountryCode = getLocaleCountryCode(locale);
         
         if (TranslationBatchReadCache.hasCache()) {
             Translation translation = TranslationBatchReadCache.getFromCache(entityType, entityId, property, localeCountryCode);
@@ -188,12 +197,9 @@ public class TranslationServiceImpl implements TranslationService, TranslationSu
             }
         }
         
-        boolean isValidForCache = false;
-        if (extensionManager != null) {
-            ExtensionResultHolder<Boolean> response = new ExtensionResultHolder<Boolean>();
-            response.setResult(false);
-            extensionManager.getProxy().isValidState(response);
-            isValidForCache = response.getResult();
+        boolean isValidForCache = isValidForOverrideCache();
+        if (isValidForTranslationIndex(isValidForCache)) {
+            return translationIndexService.getTranslatedValue(entityType, entityId, property, localeCode, localeCountryCode);
         }
         if (!BroadleafRequestContext.getBroadleafRequestContext().isProductionSandBox() || !isValidForCache) {
             Translation translation = dao.readTranslation(entityType, entityId, property, localeCode, localeCountryCode,
@@ -208,8 +214,67 @@ public class TranslationServiceImpl implements TranslationService, TranslationSu
         return getOverrideTranslatedValue(property, entityType, entityId, localeCode, localeCountryCode);
     }
 
+    @Override
+    public void preloadTranslations(Collection<?> entities, Locale locale) {
+        if (entities == null || entities.isEmpty() || locale == null || !TranslationConsiderationContext.hasTranslation()
+                || TranslationBatchReadCache.hasCache()
+                || !isValidForTranslationIndex(isValidForOverrideCache())) {
+            return;
+        }
+
+        Map<TranslatedEntity, List<String>> entityIdsByType = new LinkedHashMap<TranslatedEntity, List<String>>();
+        for (Object entity : entities) {
+            TranslatedEntity entityType = entity == null ? null : findEntityType(entity.getClass());
+            if (entityType != null) {
+                List<String> entityIds = entityIdsByType.get(entityType);
+                if (entityIds == null) {
+                    entityIds = new ArrayList<String>();
+                    entityIdsByType.put(entityType, entityIds);
+                }
+                entityIds.add(dao.getEntityId(entityType, entity));
+            }
+        }
+
+        for (Entry<TranslatedEntity, List<String>> entry : entityIdsByType.entrySet()) {
+            translationIndexService.preload(entry.getKey(), entry.getValue(), locale.getLanguage(), getLocaleCountryCode(locale));
+        }
+    }
+
+    protected String getLocaleCountryCode(Locale locale) {
+        String localeCountryCode = locale.getLanguage();
+        if (StringUtils.isNotBlank(locale.getCountry())) {
+            localeCountryCode += "_" + locale.getCountry();
+        }
+        return localeCountryCode;
+    }
+
+    /**
+     * Whether an extension (such as multitenancy) supports resolving translations through the
+     * {@link TranslationOverrideStrategy} instances.
+     */
+    protected boolean isValidForOverrideCache() {
+        boolean isValidForCache = false;
+        if (extensionManager != null) {
+            ExtensionResultHolder<Boolean> response = new ExtensionResultHolder<Boolean>();
+            response.setResult(false);
+            extensionManager.getProxy().isValidState(response);
+            isValidForCache = response.getResult();
+        }
+        return isValidForCache;
+    }
+
+    /**
+     * The {@link TranslationIndexService} only replaces the direct catalog reads made in production. Sandbox values
+     * are never indexed, and the override strategies handle their own caching.
+     */
+    protected boolean isValidForTranslationIndex(boolean isValidForOverrideCache) {
+        return translationIndexService != null && translationIndexService.isEnabled() && !isValidForOverrideCache
+                && BroadleafRequestContext.getBroadleafRequestContext().isProductionSandBox();
+    }
+
     @Override
     public void removeTranslationFromCache(Translation translation) {
+        translationIndexService.evict(translation.getEntityType(), translation.getEntityId());
         if (BroadleafRequestContext.getBroadleafRequestContext().isProductionSandBox()) {
             ResultType resultType = ResultType.STANDARD;
             if (extensionManager != null) {
@@ -364,17 +429,34 @@ public class TranslationServiceImpl implements TranslationService, TranslationSu
     }
     
     protected TranslatedEntity getEntityType(Class<?> entityClass) {
+        TranslatedEntity entityType = findEntityType(entityClass);
+        if (entityType == null) {
+            throw new IllegalArgumentException(entityClass.getName() + " is not a known translatable class");
+        }
+        return entityType;
+    }
+
+    /**
+     * @return the {@link TranslatedEntity} the given class is assignable to, or null if it is not translatable. Matches
+     * are remembered per class since this is called for every translated field that is rendered.
+     */
+    protected TranslatedEntity findEntityType(Class<?> entityClass) {
+        TranslatedEntity cached = entityTypesByClass.get(entityClass);
+        if (cached != null) {
+            return cached;
+        }
         for (Entry<String, TranslatedEntity> entry : TranslatedEntity.getTypes().entrySet()) {
             try {
                 Class<?> clazz = Class.forName(entry.getKey());
                 if (clazz.isAssignableFrom(entityClass)) {
+                    entityTypesByClass.put(entityClass, entry.getValue());
                     return entry.getValue();
                 }
             } catch (ClassNotFoundException e) {
                 throw new IllegalArgumentException("TranslatedEntity type was not set to a known class", e);
             }
         }
-        throw new IllegalArgumentException(entityClass.getName() + " is not a known translatable class");
+        return null;
     }
     
     protected TranslatedEntity getEntityType(Object entity) {
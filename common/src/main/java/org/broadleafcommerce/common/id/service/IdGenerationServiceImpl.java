@@ -17,9 +17,21 @@
  */
 package org.broadleafcommerce.common.id.service;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import javax.persistence.OptimisticLockException;
 
@@ -27,9 +39,26 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.broadleafcommerce.common.id.dao.IdGenerationDao;
 import org.broadleafcommerce.common.id.domain.IdGeneration;
+import org.broadleafcommerce.common.jmx.LatencyHistogram;
+import org.broadleafcommerce.common.util.DaemonThreadFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.stereotype.Service;
 
+/**
+ * Hands out ids from batches ("segments") reserved in BLC_ID_GENERATION. Each id type has its own allocator, and
+ * threads claim ids from the current segment with a single atomic increment, so no lock is taken on the common path.
+ * <p>
+ * Once a configurable fraction of a segment has been used, the next segment is reserved on a background thread
+ * (double buffering). When the current segment runs out, the thread that notices swaps in the prefetched one, and
+ * only waits for the database if the prefetch has not finished yet. Uniqueness across nodes still comes from the
+ * optimistic locking in {@link IdGenerationDao}; a node merely holds up to two reserved batches per type instead of
+ * one, so ids left in a batch on shutdown become a gap, as before.
+ */
 @Service("blIdGenerationService")
+@ManagedResource(objectName = "org.broadleafcommerce:name=IdGenerationService", description = "Id Generation Statistics", currencyTimeLimit = 15)
 public class IdGenerationServiceImpl implements IdGenerationService {
 
     private static final Log LOG = LogFactory.getLog(IdGenerationServiceImpl.class);
@@ -37,7 +66,26 @@ public class IdGenerationServiceImpl implements IdGenerationService {
     @Resource(name="blIdGenerationDao")
     protected IdGenerationDao idGenerationDao;
 
-    protected Map<String, Id> idTypeIdMap = new HashMap<String, Id>();
+    @Value("${id.generation.prefetch.enabled:true}")
+    protected boolean prefetchEnabled = true;
+
+    /**
+     * The fraction of a segment that may remain when the next segment is requested
+     */
+    @Value("${id.generation.prefetch.threshold:0.25}")
+    protected double prefetchThreshold = 0.25D;
+
+    @Value("${id.generation.prefetch.threads:2}")
+    protected int prefetchThreads = 2;
+
+    protected final ConcurrentMap<String, IdAllocator> allocators = new ConcurrentHashMap<String, IdAllocator>();
+
+    protected final LatencyHistogram refillLatency = new LatencyHistogram();
+    protected final AtomicLong prefetchedRefills = new AtomicLong();
+    protected final AtomicLong blockingRefills = new AtomicLong();
+    protected final AtomicLong failedPrefetches = new AtomicLong();
+
+    protected volatile ExecutorService prefetchExecutor;
 
     @Override
     public Long findNextId(String idType) {
@@ -46,39 +94,138 @@ public class IdGenerationServiceImpl implements IdGenerationService {
 
     @Override
     public Long findNextId(String idType, Long batchSize) {
-        Id id;
-        synchronized (idTypeIdMap) {
-            id = idTypeIdMap.get(idType);
-            if (id == null) {
-                // recheck, another thread may have added this.
-                id = idTypeIdMap.get(idType);
-                if (id == null) {
-                    if (LOG.isDebugEnabled()) {
-                        LOG.debug("Getting the initial id from the database.");
-                    }
-                    IdGeneration idGeneration = getCurrentIdRange(idType, batchSize);
-                    id = new Id(idGeneration.getBatchStart(), idGeneration.getBatchSize());
+        IdAllocator allocator = getAllocator(idType);
+        if (!Objects.equals(allocator.batchSize, batchSize)) {
+            // only used for the next reservation; avoid writing the shared field on every call
+            allocator.batchSize = batchSize;
+        }
+        while (true) {
+            IdSegment segment = allocator.current;
+            long id = segment.claim();
+            if (id != IdSegment.EXHAUSTED) {
+                if (id == segment.prefetchAt && prefetchEnabled) {
+                    schedulePrefetch(allocator);
                 }
-                idTypeIdMap.put(idType, id);
+                return id;
             }
+            refill(allocator, segment);
         }
+    }
 
-        synchronized(id) {
-            if (id.batchSize == 0L) {
+    protected IdAllocator getAllocator(String idType) {
+        IdAllocator allocator = allocators.get(idType);
+        if (allocator == null) {
+            IdAllocator created = new IdAllocator(idType);
+            allocator = allocators.putIfAbsent(idType, created);
+            if (allocator == null) {
+                allocator = created;
+            }
+        }
+        return allocator;
+    }
+
+    /**
+     * Replaces the exhausted segment, preferring the prefetched one. Only threads that hit the end of the same segment
+     * contend for the lock; whoever gets it first installs the new segment and the others simply retry their claim.
+     */
+    protected void refill(IdAllocator allocator, IdSegment exhausted) {
+        allocator.refillLock.lock();
+        try {
+            if (allocator.current != exhausted) {
+                return;
+            }
+            IdSegment next = null;
+            Future<IdSegment> prefetch = allocator.prefetch.getAndSet(null);
+            if (prefetch != null) {
+                next = awaitPrefetch(allocator, prefetch);
+            }
+            if (next == null) {
                 if (LOG.isDebugEnabled()) {
-                    LOG.debug("Updating batch size for idType " + idType);
+                    LOG.debug("Getting the next id batch for idType " + allocator.idType + " from the database.");
+                }
+                next = fetchSegment(allocator);
+                blockingRefills.incrementAndGet();
+            } else {
+                prefetchedRefills.incrementAndGet();
+            }
+            allocator.current = next;
+        } finally {
+            allocator.refillLock.unlock();
+        }
+    }
+
+    protected IdSegment awaitPrefetch(IdAllocator allocator, Future<IdSegment> prefetch) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return prefetch.get();
+                } catch (InterruptedException e) {
+                    // the reserved batch is still needed, so keep waiting and restore the flag afterwards
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            failedPrefetches.incrementAndGet();
+            if (LOG.isWarnEnabled()) {
+                LOG.warn("Unable to prefetch the next id batch for idType " + allocator.idType + ". Fetching it now.",
+                        e.getCause());
+            }
+            return null;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    protected void schedulePrefetch(final IdAllocator allocator) {
+        FutureTask<IdSegment> task = new FutureTask<IdSegment>(new Callable<IdSegment>() {
+            @Override
+            public IdSegment call() throws Exception {
+                return fetchSegment(allocator);
+            }
+        });
+        if (allocator.prefetch.compareAndSet(null, task)) {
+            try {
+                getPrefetchExecutor().execute(task);
+            } catch (RejectedExecutionException e) {
+                // shutting down; the next refill will fetch synchronously
+                allocator.prefetch.compareAndSet(task, null);
+            }
+        }
+    }
+
+    protected IdSegment fetchSegment(IdAllocator allocator) {
+        long start = System.nanoTime();
+        try {
+            IdGeneration idGeneration = getCurrentIdRange(allocator.idType, allocator.batchSize);
+            return new IdSegment(idGeneration.getBatchStart(), idGeneration.getBatchSize(), prefetchThreshold);
+        } finally {
+            refillLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    protected ExecutorService getPrefetchExecutor() {
+        if (prefetchExecutor == null) {
+            synchronized (this) {
+                if (prefetchExecutor == null) {
+                    prefetchExecutor = Executors.newFixedThreadPool(Math.max(1, prefetchThreads),
+                            new DaemonThreadFactory("blIdGenerationPrefetch"));
                 }
-                IdGeneration idGeneration = getCurrentIdRange(idType, batchSize);
-                id.nextId = idGeneration.getBatchStart();
-                id.batchSize = idGeneration.getBatchSize();
             }
-            Long retId = id.nextId++;
-            id.batchSize--;
+        }
+        return prefetchExecutor;
+    }
 
-            return retId;
+    @PreDestroy
+    public void shutdown() {
+        ExecutorService executor = prefetchExecutor;
+        if (executor != null) {
+            executor.shutdownNow();
         }
     }
-    
+
     private IdGeneration getCurrentIdRange(String idType, Long batchSize) {
         IdGeneration idGeneration = null;
         int retryCount = 0;
@@ -103,13 +250,92 @@ public class IdGenerationServiceImpl implements IdGenerationService {
         return idGeneration;
     }
 
-    private class Id {
-        public Long nextId;
-        public Long batchSize;
+    @ManagedAttribute(description = "Number of id batches read from the database")
+    public long getRefillCount() {
+        return refillLatency.getCount();
+    }
+
+    @ManagedAttribute(description = "Mean time to reserve an id batch in milliseconds")
+    public double getRefillMeanMillis() {
+        return refillLatency.getMeanMillis();
+    }
+
+    @ManagedAttribute(description = "99th percentile time to reserve an id batch in milliseconds")
+    public double getRefill99thPercentileMillis() {
+        return refillLatency.getPercentileMillis(99D);
+    }
+
+    @ManagedAttribute(description = "Longest time to reserve an id batch in milliseconds")
+    public double getRefillMaxMillis() {
+        return refillLatency.getMaxMillis();
+    }
+
+    @ManagedAttribute(description = "Number of exhausted batches replaced by an already prefetched batch")
+    public long getPrefetchedRefillCount() {
+        return prefetchedRefills.get();
+    }
+
+    @ManagedAttribute(description = "Number of exhausted batches that made the caller wait on the database")
+    public long getBlockingRefillCount() {
+        return blockingRefills.get();
+    }
+
+    @ManagedAttribute(description = "Number of background batch reservations that failed")
+    public long getFailedPrefetchCount() {
+        return failedPrefetches.get();
+    }
+
+    @ManagedOperation(description = "Reset the id generation statistics")
+    public void resetStatistics() {
+        refillLatency.reset();
+        prefetchedRefills.set(0L);
+        blockingRefills.set(0L);
+        failedPrefetches.set(0L);
+    }
+
+    /**
+     * A reserved range of ids. {@link #claim()} is the only mutation, so a segment can be shared freely between threads.
+     */
+    protected static class IdSegment {
+
+        public static final long EXHAUSTED = Long.MIN_VALUE;
+
+        protected static final IdSegment EMPTY = new IdSegment(0L, 0L, 0D);
+
+        protected final AtomicLong nextId;
+        protected final long end;
+
+        /**
+         * The id whose claim triggers the prefetch of the next segment. Ids are unique, so exactly one thread sees it.
+         */
+        protected final long prefetchAt;
+
+        public IdSegment(long start, long size, double prefetchThreshold) {
+            this.nextId = new AtomicLong(start);
+            this.end = start + size;
+            long remaining = Math.max(1L, (long) (size * prefetchThreshold));
+            this.prefetchAt = size <= 0 ? EXHAUSTED : Math.max(start, end - remaining);
+        }
+
+        public long claim() {
+            if (nextId.get() >= end) {
+                return EXHAUSTED;
+            }
+            long id = nextId.getAndIncrement();
+            return id < end ? id : EXHAUSTED;
+        }
+    }
+
+    protected static class IdAllocator {
+
+        protected final String idType;
+        protected final ReentrantLock refillLock = new ReentrantLock();
+        protected final AtomicReference<Future<IdSegment>> prefetch = new AtomicReference<Future<IdSegment>>();
+        protected volatile IdSegment current = IdSegment.EMPTY;
+        protected volatile Long batchSize;
 
-        public Id(Long nextId, Long batchSize) {
-            this.nextId = nextId;
-            this.batchSize = batchSize;
+        public IdAllocator(String idType) {
+            this.idType = idType;
         }
     }
 }
@@ -21,9 +21,11 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.util.Map;
@@ -64,6 +66,10 @@ public class ConcurrentFileOutputStreamImpl implements ConcurrentFileOutputStrea
     }
 
     protected int writeToTempFile(InputStream src, File tempFile, int bufferSize) throws IOException {
+        if (src instanceof FileInputStream) {
+            return transferToTempFile(((FileInputStream) src).getChannel(), tempFile);
+        }
+
         FileOutputStream fos = new FileOutputStream(tempFile);
 
         int totalWrote = 0;
@@ -80,6 +86,29 @@ public class ConcurrentFileOutputStreamImpl implements ConcurrentFileOutputStrea
         return totalWrote;
     }
 
+    /**
+     * File to file copies are left to {@link FileChannel#transferTo}, which lets the platform copy the data without
+     * bringing it into the JVM
+     */
+    protected int transferToTempFile(FileChannel src, File tempFile) throws IOException {
+        FileOutputStream fos = new FileOutputStream(tempFile);
+        try {
+            FileChannel dest = fos.getChannel();
+            long position = src.position();
+            long size = src.size();
+            while (position < size) {
+                long transferred = src.transferTo(position, size - position, dest);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+            return (int) (position - src.position());
+        } finally {
+            fos.close();
+        }
+    }
+
     protected void replaceExisting(File src, File dest) throws IOException {
         synchronized (getFileMoveLock(dest)) {
             if (src.exists()) {
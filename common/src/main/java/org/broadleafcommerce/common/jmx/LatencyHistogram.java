@@ -0,0 +1,117 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.common.jmx;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free latency histogram with power-of-two microsecond buckets, meant to be cheap enough to record on every
+ * call of a hot code path and be read from a JMX bean.
+ * <p>
+ * Bucket <code>i</code> counts samples that took less than <code>2^i</code> microseconds, so percentiles are reported
+ * as the upper bound of the bucket they fall into. That is accurate to within a factor of two, which is enough to
+ * tell a 5 ms call from a 500 ms call without keeping every sample around.
+ */
+public class LatencyHistogram {
+
+    protected static final int BUCKET_COUNT = 40;
+
+    protected final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    protected final AtomicLong count = new AtomicLong();
+    protected final AtomicLong totalNanos = new AtomicLong();
+    protected final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records a single sample
+     * 
+     * @param nanos the elapsed time, in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(getBucket(nanos));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public double getMeanMillis() {
+        long samples = count.get();
+        return samples == 0 ? 0D : totalNanos.get() / (double) samples / 1000000D;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1000000D;
+    }
+
+    public double getTotalMillis() {
+        return totalNanos.get() / 1000000D;
+    }
+
+    /**
+     * Returns the upper bound, in milliseconds, of the bucket that holds the given percentile
+     * 
+     * @param percentile a value between 0 and 100
+     */
+    public double getPercentileMillis(double percentile) {
+        long samples = 0;
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = buckets.get(i);
+            samples += snapshot[i];
+        }
+        if (samples == 0) {
+            return 0D;
+        }
+        long rank = (long) Math.ceil(samples * Math.min(100D, Math.max(0D, percentile)) / 100D);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank && snapshot[i] > 0) {
+                // Never report more than the slowest sample actually seen
+                return Math.min((1L << i) / 1000D, getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0L);
+        }
+        count.set(0L);
+        totalNanos.set(0L);
+        maxNanos.set(0L);
+    }
+
+    protected int getBucket(long nanos) {
+        long micros = nanos / 1000L;
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+}
@@ -19,8 +19,11 @@ package org.broadleafcommerce.common.locale.service;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.event.RequestContextResolutionChangedEvent;
 import org.broadleafcommerce.common.locale.dao.LocaleDao;
 import org.broadleafcommerce.common.locale.domain.Locale;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -37,6 +40,9 @@ public class LocaleServiceImpl implements LocaleService {
     @Resource(name="blLocaleDao")
     protected LocaleDao localeDao;
 
+    @Autowired
+    protected ApplicationEventPublisher eventPublisher;
+
     @Override
     public Locale findLocaleByCode(String localeCode) {
         return localeDao.findLocaleByCode(localeCode);
@@ -55,7 +61,9 @@ public class LocaleServiceImpl implements LocaleService {
     @Override
     @Transactional("blTransactionManager")
     public Locale save(Locale locale) {
-        return localeDao.save(locale);
+        Locale savedLocale = localeDao.save(locale);
+        eventPublisher.publishEvent(new RequestContextResolutionChangedEvent(savedLocale));
+        return savedLocale;
     }
     
 }
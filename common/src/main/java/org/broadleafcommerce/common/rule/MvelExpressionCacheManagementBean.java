@@ -0,0 +1,76 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.common.rule;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * Exposes the statistics of the shared MVEL expression cache (see {@link MvelHelper#getSharedExpressionCache()})
+ * through JMX.
+ */
+@ManagedResource(objectName="org.broadleafcommerce:name=MvelExpressionCache", description="MVEL Expression Cache", currencyTimeLimit=15)
+public class MvelExpressionCacheManagementBean {
+
+    @ManagedAttribute(description="The number of compiled expressions in the cache", currencyTimeLimit=15)
+    public int getSize() {
+        return MvelHelper.getSharedExpressionCache().size();
+    }
+
+    @ManagedAttribute(description="The maximum number of compiled expressions kept in the cache", currencyTimeLimit=15)
+    public int getMaxSize() {
+        return MvelHelper.getSharedExpressionCache().getMaxEntries();
+    }
+
+    @ManagedAttribute(description="The number of lookups served from the cache", currencyTimeLimit=15)
+    public long getHitCount() {
+        return MvelHelper.getSharedExpressionCache().getHitCount();
+    }
+
+    @ManagedAttribute(description="The number of lookups that required a compilation", currencyTimeLimit=15)
+    public long getMissCount() {
+        return MvelHelper.getSharedExpressionCache().getMissCount();
+    }
+
+    @ManagedAttribute(description="The number of expressions compiled", currencyTimeLimit=15)
+    public long getCompileCount() {
+        return MvelHelper.getSharedExpressionCache().getLoadCount();
+    }
+
+    @ManagedAttribute(description="The number of compiled expressions evicted to stay within the maximum size", currencyTimeLimit=15)
+    public long getEvictionCount() {
+        return MvelHelper.getSharedExpressionCache().getEvictionCount();
+    }
+
+    @ManagedAttribute(description="The percentage of lookups served from the cache", currencyTimeLimit=15)
+    public double getHitRate() {
+        return MvelHelper.getSharedExpressionCache().getHitRate();
+    }
+
+    @ManagedOperation(description="Reset the cache statistics")
+    public void resetStatistics() {
+        MvelHelper.getSharedExpressionCache().resetStatistics();
+    }
+
+    @ManagedOperation(description="Remove every compiled expression from the cache")
+    public void clear() {
+        MvelHelper.getSharedExpressionCache().clear();
+    }
+
+}
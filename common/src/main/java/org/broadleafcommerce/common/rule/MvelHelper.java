@@ -24,7 +24,7 @@ import org.broadleafcommerce.common.RequestDTO;
 import org.broadleafcommerce.common.TimeDTO;
 import org.broadleafcommerce.common.presentation.client.SupportedFieldType;
 import org.broadleafcommerce.common.time.SystemTime;
-import org.broadleafcommerce.common.util.EfficientLRUMap;
+import org.broadleafcommerce.common.util.ConcurrentLRUCache;
 import org.broadleafcommerce.common.util.FormatUtil;
 import org.broadleafcommerce.common.util.StringUtil;
 import org.broadleafcommerce.common.web.BroadleafRequestContext;
@@ -36,6 +36,8 @@ import java.text.ParseException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
 import javax.servlet.http.HttpServletRequest;
 
 /**
@@ -52,7 +54,8 @@ import javax.servlet.http.HttpServletRequest;
  */
 public class MvelHelper {
 
-    private static final Map<String, Serializable> DEFAULT_EXPRESSION_CACHE = new EfficientLRUMap<String, Serializable>(5000);
+    private static final ConcurrentLRUCache<String, Serializable> DEFAULT_EXPRESSION_CACHE = new ConcurrentLRUCache<String, Serializable>(5000);
+    private static final ConcurrentLRUCache<Map<String, Class<?>>, String> IMPORT_SIGNATURES = new ConcurrentLRUCache<Map<String, Class<?>>, String>(100);
     private static final Log LOG = LogFactory.getLog(MvelHelper.class);
 
     private static boolean TEST_MODE = false;
@@ -104,9 +107,10 @@ public class MvelHelper {
      * 
      * Also returns true if the rule is blank or null.
      * 
-     * Calls the {@link #evaluateRule(String, Map, Map)} method passing in the DEFAULT_EXPRESSION_CACHE.
-     * For systems that need to cache a large number of rule expressions, an alternate cache can be passed in.   The
-     * default cache is able to cache up to 1,000 rule expressions which should suffice for most systems.
+     * Calls the {@link #evaluateRule(String, Map, Map)} method passing in the shared expression cache
+     * (see {@link #getSharedExpressionCache()}). For systems that need to cache a large number of rule expressions, an
+     * alternate cache can be passed in. The shared cache is able to cache up to 5,000 rule expressions which should
+     * suffice for most systems.
      * 
      * @param rule
      * @param ruleParameters
@@ -144,35 +148,13 @@ public class MvelHelper {
             return true;
         } else {
             // MVEL expression compiling can be expensive so let's cache the expression
-            Serializable exp = null;
-            if (expressionCache != null) {
-                exp = expressionCache.get(rule);
-            }
-            if (exp == null) {
-                ParserContext context = new ParserContext();
-                context.addImport("MVEL", MVEL.class);
-                context.addImport("MvelHelper", MvelHelper.class);
-                context.addImport("CollectionUtils", SelectizeCollectionUtils.class);
-                if (MapUtils.isNotEmpty(additionalContextImports)) {
-                    for (Entry<String, Class<?>> entry : additionalContextImports.entrySet()) {
-                        context.addImport(entry.getKey(), entry.getValue());
-                    }
-                }
-                
-                String modifiedRule = modifyExpression(rule, ruleParameters, context);
-
-                synchronized (expressionCache) {
-                    exp = MVEL.compileExpression(modifiedRule, context);
-                    expressionCache.put(rule, exp);
-                }
-            }
-
-            Map<String, Object> mvelParameters = new HashMap<String, Object>();
+            Serializable exp = getCompiledExpression(rule, ruleParameters, expressionCache, additionalContextImports);
 
+            Map<String, Object> mvelParameters;
             if (ruleParameters != null) {
-                for (String parameter : ruleParameters.keySet()) {
-                    mvelParameters.put(parameter, ruleParameters.get(parameter));
-                }
+                mvelParameters = new HashMap<String, Object>(ruleParameters);
+            } else {
+                mvelParameters = new HashMap<String, Object>();
             }
 
             try {
@@ -194,6 +176,89 @@ public class MvelHelper {
         }
     }
     
+    /**
+     * Returns the cache that {@link #evaluateRule(String, Map)} uses. Rules evaluated through this cache are compiled
+     * once no matter how many components (offers, content targeting, customer segments, ...) evaluate the same rule
+     * text, and concurrent evaluations never wait on each other except to share a compilation that is in progress.
+     */
+    public static ConcurrentLRUCache<String, Serializable> getSharedExpressionCache() {
+        return DEFAULT_EXPRESSION_CACHE;
+    }
+
+    /**
+     * Looks up the compiled form of the rule in the given cache, compiling it if needed. A {@link ConcurrentLRUCache}
+     * compiles each rule at most once at a time, and keeps rules compiled with different imports apart. Any other map
+     * is keyed by the rule text alone and is only locked while the compiled rule is added to it.
+     */
+    @SuppressWarnings("unchecked")
+    protected static Serializable getCompiledExpression(final String rule, final Map<String, Object> ruleParameters,
+            Map<String, Serializable> expressionCache, final Map<String, Class<?>> additionalContextImports) {
+        if (expressionCache instanceof ConcurrentLRUCache) {
+            ConcurrentLRUCache<String, Serializable> cache = (ConcurrentLRUCache<String, Serializable>) expressionCache;
+            try {
+                return cache.get(getExpressionCacheKey(rule, additionalContextImports), new ConcurrentLRUCache.Loader<String, Serializable>() {
+                    @Override
+                    public Serializable load(String key) {
+                        return compileExpression(rule, ruleParameters, additionalContextImports);
+                    }
+                });
+            } catch (ExecutionException e) {
+                // compileExpression only throws unchecked exceptions, which the cache rethrows as they are
+                throw new RuntimeException(e.getCause());
+            }
+        }
+
+        Serializable exp = null;
+        if (expressionCache != null) {
+            exp = expressionCache.get(rule);
+        }
+        if (exp == null) {
+            exp = compileExpression(rule, ruleParameters, additionalContextImports);
+            if (expressionCache != null) {
+                synchronized (expressionCache) {
+                    expressionCache.put(rule, exp);
+                }
+            }
+        }
+        return exp;
+    }
+
+    protected static Serializable compileExpression(String rule, Map<String, Object> ruleParameters, Map<String, Class<?>> additionalContextImports) {
+        ParserContext context = new ParserContext();
+        context.addImport("MVEL", MVEL.class);
+        context.addImport("MvelHelper", MvelHelper.class);
+        context.addImport("CollectionUtils", SelectizeCollectionUtils.class);
+        if (MapUtils.isNotEmpty(additionalContextImports)) {
+            for (Entry<String, Class<?>> entry : additionalContextImports.entrySet()) {
+                context.addImport(entry.getKey(), entry.getValue());
+            }
+        }
+        
+        String modifiedRule = modifyExpression(rule, ruleParameters, context);
+        return MVEL.compileExpression(modifiedRule, context);
+    }
+
+    /**
+     * The same rule text compiles differently depending on the imports it is given, so the imports are part of the
+     * key in the shared cache
+     */
+    protected static String getExpressionCacheKey(String rule, Map<String, Class<?>> additionalContextImports) {
+        if (MapUtils.isEmpty(additionalContextImports)) {
+            return rule;
+        }
+        String signature = IMPORT_SIGNATURES.get(additionalContextImports);
+        if (signature == null) {
+            StringBuilder sb = new StringBuilder();
+            for (Entry<String, Class<?>> entry : new TreeMap<String, Class<?>>(additionalContextImports).entrySet()) {
+                sb.append(entry.getKey()).append('=').append(entry.getValue().getName()).append(';');
+            }
+            sb.append('\n');
+            signature = sb.toString();
+            IMPORT_SIGNATURES.put(new HashMap<String, Class<?>>(additionalContextImports), signature);
+        }
+        return signature + rule;
+    }
+
     /**
      * <p>
      * Provides a hook point to modify the final expression before it's built. By default, this looks for attribute
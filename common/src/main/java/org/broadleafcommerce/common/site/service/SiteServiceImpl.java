@@ -17,6 +17,7 @@
  */
 package org.broadleafcommerce.common.site.service;
 
+import org.broadleafcommerce.common.event.RequestContextResolutionChangedEvent;
 import org.broadleafcommerce.common.site.dao.SiteDao;
 import org.broadleafcommerce.common.site.domain.Catalog;
 import org.broadleafcommerce.common.site.domain.Site;
@@ -25,6 +26,8 @@ import org.broadleafcommerce.common.util.BLCSystemProperty;
 import org.broadleafcommerce.common.util.StreamCapableTransactionalOperationAdapter;
 import org.broadleafcommerce.common.util.StreamingTransactionCapableUtil;
 import org.broadleafcommerce.common.util.TransactionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -46,6 +49,9 @@ public class SiteServiceImpl implements SiteService {
 
     @Resource(name = "blSiteServiceExtensionManager")
     protected SiteServiceExtensionManager extensionManager;
+
+    @Autowired
+    protected ApplicationEventPublisher eventPublisher;
     
     @Override
     public Site createSite() {
@@ -206,7 +212,9 @@ public class SiteServiceImpl implements SiteService {
     @Override
     @Transactional("blTransactionManager")
     public Site saveAndReturnPersisted(Site site) {
-        return siteDao.save(site);
+        Site savedSite = siteDao.save(site);
+        eventPublisher.publishEvent(new RequestContextResolutionChangedEvent(savedSite));
+        return savedSite;
     }
 
     @Override
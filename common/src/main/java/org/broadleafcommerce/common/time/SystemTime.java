@@ -68,6 +68,14 @@ public class SystemTime {
         return asMillis(true);
     }
 
+    /**
+     * Reads the system clock, ignoring any time source that has been set. Ages and timeouts of caches and background
+     * work should be measured with this, since the time source may be set to a sandbox preview date.
+     */
+    public static long wallClockMillis() {
+        return System.currentTimeMillis();
+    }
+
     public static long asMillis(boolean includeTime) {
         if (includeTime) {
             return getTimeSource().timeInMillis();
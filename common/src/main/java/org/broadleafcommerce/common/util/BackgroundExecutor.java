@@ -0,0 +1,95 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.common.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed size pool of {@link DaemonThreadFactory daemon} threads with a bounded queue. The pool is only started on
+ * the first {@link #execute(Runnable)}, and idle threads time out, so a service that rarely runs background work does
+ * not hold any threads. Owners should call {@link #shutdown()} from their own {@code @PreDestroy} method.
+ */
+public class BackgroundExecutor implements Executor {
+
+    protected final String threadNamePrefix;
+    protected final int threads;
+    protected final int queueSize;
+    protected final RejectedExecutionHandler rejectedExecutionHandler;
+
+    protected volatile ThreadPoolExecutor executor;
+    protected volatile boolean shutdown;
+
+    /**
+     * @param threadNamePrefix
+     * @param threads the number of threads, at least 1
+     * @param queueSize the number of tasks that may wait for a thread, at least 1
+     * @param rejectedExecutionHandler what to do with a task once the queue is full
+     */
+    public BackgroundExecutor(String threadNamePrefix, int threads, int queueSize,
+            RejectedExecutionHandler rejectedExecutionHandler) {
+        this.threadNamePrefix = threadNamePrefix;
+        this.threads = Math.max(1, threads);
+        this.queueSize = Math.max(1, queueSize);
+        this.rejectedExecutionHandler = rejectedExecutionHandler;
+    }
+
+    /**
+     * @throws RejectedExecutionException if the executor was shut down, or the queue is full and the
+     * {@link RejectedExecutionHandler} rejects the task
+     */
+    @Override
+    public void execute(Runnable task) {
+        getExecutor().execute(task);
+    }
+
+    protected ThreadPoolExecutor getExecutor() {
+        ThreadPoolExecutor executor = this.executor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = this.executor;
+                if (executor == null) {
+                    if (shutdown) {
+                        throw new RejectedExecutionException("The " + threadNamePrefix + " executor has been shut down");
+                    }
+                    executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                            new ArrayBlockingQueue<Runnable>(queueSize), new DaemonThreadFactory(threadNamePrefix),
+                            rejectedExecutionHandler);
+                    executor.allowCoreThreadTimeOut(true);
+                    this.executor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Interrupts running tasks and drops queued ones. Later tasks are rejected.
+     */
+    public synchronized void shutdown() {
+        shutdown = true;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,221 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.common.util;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.time.SystemTime;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link BackgroundJob}s on a {@link BackgroundExecutor} and keeps them around for polling until
+ * <b>retentionMinutes</b> after they finish. Each job runs with a light weight clone of the
+ * {@link BroadleafRequestContext} of the thread that submitted it.
+ * </p>
+ * Finished jobs are expired by a daemon thread once a minute, as well as whenever a job is submitted or looked up,
+ * so that anything held by an expired job, see {@link #onRemoved(BackgroundJob)}, is released even when nobody
+ * polls for it. Owners should call {@link #shutdown()} from their own {@code @PreDestroy} method.
+ *
+ * @param <J> the type of job
+ */
+public class BackgroundJobRegistry<J extends BackgroundJob> {
+
+    private static final Log LOG = LogFactory.getLog(BackgroundJobRegistry.class);
+
+    protected static final long EXPIRATION_INTERVAL_SECONDS = 60;
+
+    /**
+     * The work done by a job
+     */
+    public interface JobWork<J extends BackgroundJob> {
+
+        public void run(J job) throws Exception;
+
+    }
+
+    protected final String name;
+    protected final long retentionMillis;
+    protected final BackgroundExecutor executor;
+    protected final ConcurrentMap<String, J> jobs = new ConcurrentHashMap<>();
+
+    protected volatile ScheduledExecutorService expirationExecutor;
+
+    /**
+     * @param name used to name the threads of the registry
+     * @param threads the number of jobs that may run at once
+     * @param queueSize the number of jobs that may wait to run
+     * @param retentionMinutes how long a finished job may still be found
+     */
+    public BackgroundJobRegistry(String name, int threads, int queueSize, int retentionMinutes) {
+        this.name = name;
+        this.retentionMillis = TimeUnit.MINUTES.toMillis(retentionMinutes);
+        this.executor = new BackgroundExecutor(name, threads, queueSize, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queues the job
+     *
+     * @param job
+     * @param work
+     * @return the job
+     * @throws RejectedExecutionException if the queue is full, in which case the job is not registered
+     */
+    public J submit(final J job, final JobWork<? super J> work) {
+        removeExpiredJobs();
+        BroadleafRequestContext requestContext = BroadleafRequestContext.getBroadleafRequestContext();
+        final BroadleafRequestContext context = requestContext == null ? null : requestContext.createLightWeightClone();
+
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    runJob(job, work, context);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        startExpiration();
+        return job;
+    }
+
+    protected void runJob(J job, JobWork<? super J> work, BroadleafRequestContext context) {
+        job.setStatus(BackgroundJob.Status.RUNNING);
+        BroadleafRequestContext.setBroadleafRequestContext(context);
+        BackgroundJob.Status status = BackgroundJob.Status.FAILED;
+        try {
+            work.run(job);
+            status = BackgroundJob.Status.COMPLETE;
+        } catch (Exception e) {
+            LOG.error("Unable to complete the " + name + " job " + job.getId(), e);
+            job.setErrorMessage(e.getMessage());
+            onFailed(job);
+        } finally {
+            // completedAt has to be set before the job is done, or it could be expired right away
+            job.setCompletedAt(SystemTime.wallClockMillis());
+            job.setStatus(status);
+            BroadleafRequestContext.setBroadleafRequestContext(null);
+        }
+        if (!jobs.containsKey(job.getId())) {
+            // removed while it was running
+            onRemoved(job);
+        }
+    }
+
+    /**
+     * @param jobId
+     * @return the job, or null if there is no such job or it has expired
+     */
+    public J find(String jobId) {
+        removeExpiredJobs();
+        return jobId == null ? null : jobs.get(jobId);
+    }
+
+    /**
+     * Removes the job. A job that is still running is removed once it finishes.
+     *
+     * @param jobId
+     * @return the removed job, or null if there was no such job
+     */
+    public J remove(String jobId) {
+        J job = jobId == null ? null : jobs.remove(jobId);
+        if (job != null && job.isDone()) {
+            onRemoved(job);
+        }
+        return job;
+    }
+
+    /**
+     * @return the jobs that have not expired yet
+     */
+    public Collection<J> getJobs() {
+        return Collections.unmodifiableCollection(jobs.values());
+    }
+
+    public void removeExpiredJobs() {
+        long expiredBefore = SystemTime.wallClockMillis() - retentionMillis;
+        for (J job : jobs.values()) {
+            if (job.isDone() && job.getCompletedAt() < expiredBefore && jobs.remove(job.getId(), job)) {
+                onRemoved(job);
+            }
+        }
+    }
+
+    /**
+     * Called on the job's thread when its work throws
+     *
+     * @param job
+     */
+    protected void onFailed(J job) {
+    }
+
+    /**
+     * Called once a finished job has been removed or has expired
+     *
+     * @param job
+     */
+    protected void onRemoved(J job) {
+    }
+
+    protected void startExpiration() {
+        if (expirationExecutor == null) {
+            synchronized (this) {
+                if (expirationExecutor == null) {
+                    ScheduledExecutorService expirationExecutor = Executors.newSingleThreadScheduledExecutor(
+                            new DaemonThreadFactory(name + "Expiration"));
+                    expirationExecutor.scheduleWithFixedDelay(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                removeExpiredJobs();
+                            } catch (RuntimeException e) {
+                                LOG.warn("Unable to remove the expired " + name + " jobs", e);
+                            }
+                        }
+                    }, EXPIRATION_INTERVAL_SECONDS, EXPIRATION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+                    this.expirationExecutor = expirationExecutor;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the running jobs and the expiration thread
+     */
+    public void shutdown() {
+        executor.shutdown();
+        synchronized (this) {
+            if (expirationExecutor != null) {
+                expirationExecutor.shutdownNow();
+            }
+        }
+    }
+
+}
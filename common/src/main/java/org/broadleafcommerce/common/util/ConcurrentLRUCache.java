@@ -0,0 +1,414 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.common.util;
+
+import java.util.AbstractMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A size-bounded cache that, unlike {@link EfficientLRUMap}, stays concurrent once it is full.
+ * <p>
+ * Entries are spread over a fixed number of segments, each backed by a {@link ConcurrentHashMap}. Reads never lock:
+ * a hit only sets a "recently used" flag on the entry. When a segment grows past its share of the maximum size, the
+ * thread that added the entry evicts entries with a clock (second chance) sweep, which approximates LRU without
+ * reordering anything on reads. Only one thread sweeps a given segment at a time, and threads that can't get the
+ * sweep lock simply move on.
+ * <p>
+ * {@link #get(Object, Loader)} loads a missing value at most once per key: concurrent callers for the same key wait
+ * for the first one, while hits and loads for other keys carry on undisturbed. Hit, miss, load and eviction counts are
+ * kept for monitoring.
+ * <p>
+ * Null keys and values are not supported.
+ */
+public class ConcurrentLRUCache<K, V> extends AbstractMap<K, V> {
+
+    /**
+     * Computes the value for a key that is not in the cache
+     */
+    public interface Loader<K, V> {
+
+        V load(K key) throws Exception;
+
+    }
+
+    protected static final int DEFAULT_SEGMENTS = 16;
+
+    protected final Segment<K, V>[] segments;
+    protected final int segmentMask;
+    protected final int maxEntries;
+
+    public ConcurrentLRUCache(int maxEntries) {
+        this(maxEntries, DEFAULT_SEGMENTS);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ConcurrentLRUCache(int maxEntries, int segmentCount) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        int size = 1;
+        while (size < segmentCount && size < maxEntries) {
+            size <<= 1;
+        }
+        this.maxEntries = maxEntries;
+        this.segmentMask = size - 1;
+        this.segments = new Segment[size];
+        for (int i = 0; i < size; i++) {
+            // Spread the remainder so the segment limits add up to maxEntries
+            int limit = maxEntries / size + (i < maxEntries % size ? 1 : 0);
+            segments[i] = new Segment<>(limit);
+        }
+    }
+
+    @Override
+    public V get(Object key) {
+        Segment<K, V> segment = segmentFor(key);
+        Node<V> node = segment.map.get(key);
+        V value = node == null ? null : node.value;
+        if (value == null) {
+            segment.misses.incrementAndGet();
+            return null;
+        }
+        node.markReferenced();
+        segment.hits.incrementAndGet();
+        return value;
+    }
+
+    /**
+     * Returns the cached value for the key, loading and caching it with the given loader if it is not present.
+     * If another thread is already loading the same key, this waits for that load instead of starting another one.
+     * If the loader fails, nothing is cached and the loader's exception is rethrown to every waiting caller,
+     * wrapped in an {@link ExecutionException} if it was a checked exception.
+     */
+    public V get(K key, Loader<K, V> loader) throws ExecutionException {
+        Segment<K, V> segment = segmentFor(key);
+        Node<V> node = segment.map.get(key);
+        if (node != null) {
+            V value = node.value;
+            if (value != null) {
+                node.markReferenced();
+                segment.hits.incrementAndGet();
+                return value;
+            }
+            segment.hits.incrementAndGet();
+            return node.await();
+        }
+
+        segment.misses.incrementAndGet();
+        Node<V> loading = new Node<>(null);
+        node = segment.map.putIfAbsent(key, loading);
+        if (node != null) {
+            // Lost the race, so use whatever the other thread is putting in place
+            V value = node.value;
+            return value != null ? value : node.await();
+        }
+        segment.count.incrementAndGet();
+
+        V value;
+        try {
+            value = loader.load(key);
+        } catch (Throwable e) {
+            removeNode(segment, key, loading);
+            loading.fail(e);
+            return loading.await();
+        }
+        segment.loads.incrementAndGet();
+        if (value == null) {
+            removeNode(segment, key, loading);
+        }
+        loading.complete(value);
+        segment.evictIfNecessary();
+        return value;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException("ConcurrentLRUCache does not support null values");
+        }
+        Segment<K, V> segment = segmentFor(key);
+        Node<V> node = new Node<>(value);
+        Node<V> previous = segment.map.put(key, node);
+        if (previous == null) {
+            segment.count.incrementAndGet();
+            segment.evictIfNecessary();
+            return null;
+        }
+        return previous.value;
+    }
+
+    @Override
+    public V remove(Object key) {
+        Segment<K, V> segment = segmentFor(key);
+        Node<V> node = segment.map.remove(key);
+        if (node == null) {
+            return null;
+        }
+        segment.count.decrementAndGet();
+        return node.value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        Node<V> node = segmentFor(key).map.get(key);
+        return node != null && node.value != null;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.count.get();
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            for (Iterator<Map.Entry<K, Node<V>>> it = segment.map.entrySet().iterator(); it.hasNext();) {
+                Map.Entry<K, Node<V>> entry = it.next();
+                removeNode(segment, entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Returns a snapshot of the loaded entries. Changes to the returned set are not reflected in the cache.
+     */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        Set<Map.Entry<K, V>> entries = new HashSet<>();
+        for (Segment<K, V> segment : segments) {
+            for (Map.Entry<K, Node<V>> entry : segment.map.entrySet()) {
+                V value = entry.getValue().value;
+                if (value != null) {
+                    entries.add(new SimpleImmutableEntry<>(entry.getKey(), value));
+                }
+            }
+        }
+        return entries;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getHitCount() {
+        long total = 0;
+        for (Segment<K, V> segment : segments) {
+            total += segment.hits.get();
+        }
+        return total;
+    }
+
+    public long getMissCount() {
+        long total = 0;
+        for (Segment<K, V> segment : segments) {
+            total += segment.misses.get();
+        }
+        return total;
+    }
+
+    public long getLoadCount() {
+        long total = 0;
+        for (Segment<K, V> segment : segments) {
+            total += segment.loads.get();
+        }
+        return total;
+    }
+
+    public long getEvictionCount() {
+        long total = 0;
+        for (Segment<K, V> segment : segments) {
+            total += segment.evictions.get();
+        }
+        return total;
+    }
+
+    /**
+     * @return the percentage of lookups that were served from the cache
+     */
+    public double getHitRate() {
+        long hits = getHitCount();
+        long requests = hits + getMissCount();
+        return requests == 0 ? 0D : hits * 100D / requests;
+    }
+
+    public void resetStatistics() {
+        for (Segment<K, V> segment : segments) {
+            segment.hits.set(0L);
+            segment.misses.set(0L);
+            segment.loads.set(0L);
+            segment.evictions.set(0L);
+        }
+    }
+
+    protected Segment<K, V> segmentFor(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & segmentMask];
+    }
+
+    protected void removeNode(Segment<K, V> segment, Object key, Node<V> node) {
+        if (segment.map.remove(key, node)) {
+            segment.count.decrementAndGet();
+        }
+    }
+
+    protected static class Segment<K, V> {
+
+        protected final ConcurrentHashMap<K, Node<V>> map = new ConcurrentHashMap<>();
+        protected final AtomicInteger count = new AtomicInteger();
+        protected final ReentrantLock evictionLock = new ReentrantLock();
+        protected final int maxEntries;
+
+        protected final AtomicLong hits = new AtomicLong();
+        protected final AtomicLong misses = new AtomicLong();
+        protected final AtomicLong loads = new AtomicLong();
+        protected final AtomicLong evictions = new AtomicLong();
+
+        /**
+         * The clock hand. Only touched while holding the eviction lock.
+         */
+        protected Iterator<Map.Entry<K, Node<V>>> hand;
+
+        protected Segment(int maxEntries) {
+            this.maxEntries = Math.max(1, maxEntries);
+        }
+
+        protected void evictIfNecessary() {
+            // Threads that fail to get the lock leave the work to the holder, so the holder checks again after
+            // releasing it in case one of them pushed the segment over its limit in the meantime
+            while (count.get() > maxEntries && evictionLock.tryLock()) {
+                long evicted = evictions.get();
+                try {
+                    sweep();
+                } finally {
+                    evictionLock.unlock();
+                }
+                if (evictions.get() == evicted) {
+                    // Nothing could be evicted, e.g. everything is still loading
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Runs the clock hand until the segment is back within its limit. Must hold the eviction lock.
+         */
+        protected void sweep() {
+            // After a full turn of the clock without freeing enough room (every entry is in constant use),
+            // stop giving second chances so the size bound still holds
+            int secondChances = count.get() + 1;
+            int budget = 4 * secondChances;
+            while (count.get() > maxEntries && budget-- > 0) {
+                if (hand == null || !hand.hasNext()) {
+                    hand = map.entrySet().iterator();
+                    if (!hand.hasNext()) {
+                        return;
+                    }
+                }
+                Map.Entry<K, Node<V>> entry = hand.next();
+                Node<V> node = entry.getValue();
+                if (node.value == null) {
+                    // Still loading
+                    continue;
+                }
+                if (node.referenced && secondChances-- > 0) {
+                    node.referenced = false;
+                } else if (map.remove(entry.getKey(), node)) {
+                    count.decrementAndGet();
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    protected static class Node<V> {
+
+        protected volatile V value;
+        protected volatile boolean referenced = false;
+        protected volatile boolean done;
+        protected Throwable failure;
+
+        protected Node(V value) {
+            this.value = value;
+            this.done = value != null;
+        }
+
+        protected void markReferenced() {
+            // Avoid a volatile write on every hit once the flag is already set
+            if (!referenced) {
+                referenced = true;
+            }
+        }
+
+        protected synchronized void complete(V value) {
+            this.value = value;
+            this.done = true;
+            notifyAll();
+        }
+
+        protected synchronized void fail(Throwable failure) {
+            this.failure = failure;
+            this.done = true;
+            notifyAll();
+        }
+
+        protected V await() throws ExecutionException {
+            if (!done) {
+                boolean interrupted = false;
+                synchronized (this) {
+                    while (!done) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            interrupted = true;
+                        }
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            Throwable failure;
+            synchronized (this) {
+                failure = this.failure;
+            }
+            if (failure == null) {
+                return value;
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw new ExecutionException(failure);
+        }
+    }
+}
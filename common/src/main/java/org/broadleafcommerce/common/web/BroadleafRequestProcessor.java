@@ -30,6 +30,7 @@ import org.broadleafcommerce.common.sandbox.domain.SandBox;
 import org.broadleafcommerce.common.sandbox.service.SandBoxService;
 import org.broadleafcommerce.common.site.domain.Site;
 import org.broadleafcommerce.common.site.domain.Theme;
+import org.broadleafcommerce.common.time.SystemTime;
 import org.broadleafcommerce.common.util.BLCRequestUtils;
 import org.broadleafcommerce.common.util.DeployBehaviorUtil;
 import org.broadleafcommerce.common.util.StringUtil;
@@ -94,6 +95,9 @@ public class BroadleafRequestProcessor extends AbstractBroadleafWebRequestProces
 
     @Resource(name = "blSandBoxService")
     protected SandBoxService sandBoxService;
+
+    @Resource(name = "blRequestContextResolutionCache")
+    protected RequestContextResolutionCache resolutionCache;
     
     @Value("${thymeleaf.threadLocalCleanup.enabled}")
     protected boolean thymeleafThreadLocalCleanupEnabled = true;
@@ -115,7 +119,11 @@ public class BroadleafRequestProcessor extends AbstractBroadleafWebRequestProces
         BroadleafRequestContext brc = new BroadleafRequestContext();
         brc.getAdditionalProperties().putAll(entityExtensionManagers);
         
-        Site site = siteResolver.resolveSite(request);
+        // a cached resolution stands in for the site, locale, time zone and currency resolvers
+        String resolutionKey = resolutionCache.buildResolutionKey(request);
+        ResolvedRequestContext resolved = resolutionKey == null ? null : resolutionCache.get(resolutionKey);
+
+        Site site = resolved == null ? siteResolver.resolveSite(request) : resolved.getSite();
         
         brc.setNonPersistentSite(site);
         brc.setWebRequest(request);
@@ -132,10 +140,27 @@ public class BroadleafRequestProcessor extends AbstractBroadleafWebRequestProces
 
         BroadleafRequestContext.setBroadleafRequestContext(brc);
 
-        Locale locale = localeResolver.resolveLocale(request);
-        brc.setLocale(locale);
-        TimeZone timeZone = broadleafTimeZoneResolver.resolveTimeZone(request);
-        BroadleafRequestedCurrencyDto currencyDto = currencyResolver.resolveCurrency(request);
+        Locale locale;
+        TimeZone timeZone;
+        BroadleafRequestedCurrencyDto currencyDto;
+        if (resolved != null) {
+            resolutionCache.applyResolution(request, resolved);
+            locale = resolved.getLocale();
+            brc.setLocale(locale);
+            timeZone = resolved.getTimeZone();
+            currencyDto = resolved.getCurrency();
+        } else {
+            locale = localeResolver.resolveLocale(request);
+            brc.setLocale(locale);
+            timeZone = broadleafTimeZoneResolver.resolveTimeZone(request);
+            currencyDto = currencyResolver.resolveCurrency(request);
+            if (resolutionKey != null) {
+                boolean localePulledFromSession = Boolean.TRUE.equals(request.getAttribute(
+                        BroadleafLocaleResolverImpl.LOCALE_PULLED_FROM_SESSION, WebRequest.SCOPE_REQUEST));
+                resolutionCache.put(resolutionKey, new ResolvedRequestContext(site, locale, localePulledFromSession,
+                        timeZone, currencyDto, SystemTime.wallClockMillis()));
+            }
+        }
         // Assumes BroadleafProcess
         RequestDTO requestDTO = (RequestDTO) request.getAttribute(REQUEST_DTO_PARAM_NAME, WebRequest.SCOPE_REQUEST);
         if (requestDTO == null) {
@@ -0,0 +1,60 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.common.web;
+
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Remembers how {@link BroadleafRequestProcessor} resolved the site, locale, time zone and currency for a given
+ * combination of host, request parameters, cookies and session state, so that later requests with the same inputs
+ * skip the resolvers and the service calls behind them.
+ *
+ * @see org.broadleafcommerce.common.event.RequestContextResolutionChangedEvent
+ */
+public interface RequestContextResolutionCache {
+
+    /**
+     * Builds the key that identifies everything the resolvers read from the given request
+     *
+     * @param request
+     * @return the key, or null if the resolution of this request should not be cached
+     */
+    String buildResolutionKey(WebRequest request);
+
+    /**
+     * @param resolutionKey
+     * @return a copy of the cached resolution that the caller may change, or null if there is none or it has expired
+     */
+    ResolvedRequestContext get(String resolutionKey);
+
+    void put(String resolutionKey, ResolvedRequestContext resolved);
+
+    /**
+     * Applies the request and session attributes that the resolvers would have set while resolving the given context
+     *
+     * @param request
+     * @param resolved
+     */
+    void applyResolution(WebRequest request, ResolvedRequestContext resolved);
+
+    /**
+     * Discards every cached resolution
+     */
+    void clear();
+
+}
@@ -0,0 +1,240 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.common.web;
+
+import org.apache.commons.lang3.StringUtils;
+import org.broadleafcommerce.common.cache.CacheStatType;
+import org.broadleafcommerce.common.cache.StatisticsService;
+import org.broadleafcommerce.common.currency.domain.BroadleafCurrency;
+import org.broadleafcommerce.common.event.RequestContextResolutionChangedEvent;
+import org.broadleafcommerce.common.locale.domain.Locale;
+import org.broadleafcommerce.common.site.domain.Site;
+import org.broadleafcommerce.common.site.service.SiteServiceExtensionManager;
+import org.broadleafcommerce.common.time.SystemTime;
+import org.broadleafcommerce.common.util.BLCRequestUtils;
+import org.broadleafcommerce.common.util.ConcurrentLRUCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.i18n.CookieLocaleResolver;
+
+import java.util.TimeZone;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+/**
+ * Keys resolutions by the host and port, the locale, currency and time zone parameters, the configured cookies and,
+ * when the session may be used, the locale, currency and time zone already stored in the session. Those are the only
+ * inputs of the default resolvers, so two requests with the same key always resolve to the same context.
+ * <p/>
+ * Site resolvers that look at more than the host, and locale, currency or time zone resolvers that read other inputs
+ * or have other side effects, need this class to be extended accordingly or the cache to stay disabled. Sandboxes are
+ * never cached since they depend on the admin user and the preview time.
+ * <p/>
+ * Entries expire after {@link #ttlSeconds} so that changes made by another node (such as the admin) are picked up, and
+ * are all discarded when a {@link RequestContextResolutionChangedEvent} is published in this one. At most
+ * {@link #maxEntries} are kept, the least recently used going first.
+ * <p/>
+ * The cached {@link Site} is a copy made when the resolution is stored, and every hit hands out another copy of it, so
+ * a request that changes its site changes neither the cache nor the other requests. Locales and currencies are the
+ * shared instances the locale and currency services return and are read only.
+ */
+@Component("blRequestContextResolutionCache")
+@ManagedResource(objectName = "org.broadleafcommerce:name=RequestContextResolutionCache", description = "Request Context Resolution Cache", currencyTimeLimit = 15)
+public class RequestContextResolutionCacheImpl implements RequestContextResolutionCache, ApplicationListener<RequestContextResolutionChangedEvent> {
+
+    @Value("${request.context.resolution.cache.enabled}")
+    protected boolean enabled;
+
+    @Value("${request.context.resolution.cache.ttlSeconds}")
+    protected long ttlSeconds;
+
+    @Value("${request.context.resolution.cache.maxEntries}")
+    protected int maxEntries;
+
+    @Value("${request.context.resolution.cache.cookieNames}")
+    protected String cookieNames;
+
+    @Resource(name = "blStatisticsService")
+    protected StatisticsService statisticsService;
+
+    @Resource(name = "blSiteServiceExtensionManager")
+    protected SiteServiceExtensionManager siteExtensionManager;
+
+    protected ConcurrentLRUCache<String, ResolvedRequestContext> resolutions;
+
+    @PostConstruct
+    public void init() {
+        resolutions = new ConcurrentLRUCache<>(Math.max(1, maxEntries));
+    }
+
+    @Override
+    public String buildResolutionKey(WebRequest request) {
+        if (!enabled || !(request instanceof ServletWebRequest)) {
+            return null;
+        }
+        // another filter already decided part of the context for this request
+        if (request.getAttribute(BroadleafLocaleResolverImpl.LOCALE_VAR, WebRequest.SCOPE_REQUEST) != null
+                || request.getAttribute(BroadleafCurrencyResolverImpl.CURRENCY_VAR, WebRequest.SCOPE_REQUEST) != null
+                || request.getAttribute(BroadleafTimeZoneResolverImpl.TIMEZONE_VAR, WebRequest.SCOPE_REQUEST) != null) {
+            return null;
+        }
+
+        HttpServletRequest servletRequest = ((ServletWebRequest) request).getRequest();
+        StringBuilder key = new StringBuilder(128);
+        key.append(servletRequest.getServerName()).append(':').append(servletRequest.getServerPort());
+        appendKeyPart(key, BLCRequestUtils.getURLorHeaderParameter(request, BroadleafLocaleResolverImpl.LOCALE_CODE_PARAM));
+        appendKeyPart(key, BLCRequestUtils.getURLorHeaderParameter(request, BroadleafCurrencyResolverImpl.CURRENCY_CODE_PARAM));
+        appendKeyPart(key, BLCRequestUtils.getURLorHeaderParameter(request, BroadleafTimeZoneResolverImpl.TIMEZONE_CODE_PARAM));
+
+        for (String cookieName : StringUtils.split(StringUtils.defaultString(cookieNames), ',')) {
+            appendKeyPart(key, getCookieValue(servletRequest, cookieName.trim()));
+        }
+
+        if (BLCRequestUtils.isOKtoUseSession(request)) {
+            key.append("|session");
+            HttpSession session = servletRequest.getSession(false);
+            if (session != null) {
+                Locale locale = (Locale) session.getAttribute(BroadleafLocaleResolverImpl.LOCALE_VAR);
+                BroadleafCurrency currency = (BroadleafCurrency) session.getAttribute(BroadleafCurrencyResolverImpl.CURRENCY_VAR);
+                TimeZone timeZone = (TimeZone) session.getAttribute(BroadleafTimeZoneResolverImpl.TIMEZONE_VAR);
+                appendKeyPart(key, locale == null ? null : locale.getLocaleCode());
+                appendKeyPart(key, currency == null ? null : currency.getCurrencyCode());
+                appendKeyPart(key, timeZone == null ? null : timeZone.getID());
+            }
+        }
+
+        return key.toString();
+    }
+
+    protected void appendKeyPart(StringBuilder key, String value) {
+        key.append('|');
+        if (value != null) {
+            key.append(value.length()).append(':').append(value);
+        }
+    }
+
+    protected String getCookieValue(HttpServletRequest request, String cookieName) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (cookie.getName().equals(cookieName)) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public ResolvedRequestContext get(String resolutionKey) {
+        ConcurrentLRUCache<String, ResolvedRequestContext> resolutions = getResolutions();
+        ResolvedRequestContext resolved = resolutions.get(resolutionKey);
+        if (resolved != null && ttlSeconds > 0 && SystemTime.wallClockMillis() - resolved.getResolvedAt() > ttlSeconds * 1000) {
+            resolutions.remove(resolutionKey);
+            resolved = null;
+        }
+        statisticsService.addCacheStat(CacheStatType.REQUEST_CONTEXT_RESOLUTION_CACHE_HIT_RATE.toString(), resolved != null);
+        return resolved == null ? null : copy(resolved);
+    }
+
+    @Override
+    public void put(String resolutionKey, ResolvedRequestContext resolved) {
+        getResolutions().put(resolutionKey, copy(resolved));
+    }
+
+    /**
+     * @return a resolution with its own copy of the site, so that the copy held by the cache is never handed out
+     */
+    protected ResolvedRequestContext copy(ResolvedRequestContext resolved) {
+        return new ResolvedRequestContext(copySite(resolved.getSite()), resolved.getLocale(),
+                resolved.isLocalePulledFromSession(), resolved.getTimeZone(), resolved.getCurrency(), resolved.getResolvedAt());
+    }
+
+    /**
+     * Copies the site the same way {@link org.broadleafcommerce.common.site.service.SiteServiceImpl} creates its
+     * non-persistent sites
+     */
+    protected Site copySite(Site site) {
+        if (site == null) {
+            return null;
+        }
+        Site copy = site.clone();
+        siteExtensionManager.getProxy().contributeNonPersitentSiteProperties(site, copy);
+        return copy;
+    }
+
+    protected ConcurrentLRUCache<String, ResolvedRequestContext> getResolutions() {
+        return resolutions;
+    }
+
+    @Override
+    public void applyResolution(WebRequest request, ResolvedRequestContext resolved) {
+        Locale locale = resolved.getLocale();
+        request.setAttribute(BroadleafLocaleResolverImpl.LOCALE_VAR, locale, WebRequest.SCOPE_REQUEST);
+        request.setAttribute(CookieLocaleResolver.LOCALE_REQUEST_ATTRIBUTE_NAME,
+                BroadleafRequestContext.convertLocaleToJavaLocale(locale), WebRequest.SCOPE_REQUEST);
+        if (resolved.isLocalePulledFromSession()) {
+            request.setAttribute(BroadleafLocaleResolverImpl.LOCALE_PULLED_FROM_SESSION, Boolean.TRUE, WebRequest.SCOPE_REQUEST);
+        }
+
+        if (BLCRequestUtils.isOKtoUseSession(request)) {
+            request.setAttribute(BroadleafLocaleResolverImpl.LOCALE_VAR, locale, WebRequest.SCOPE_GLOBAL_SESSION);
+            request.setAttribute(BroadleafTimeZoneResolverImpl.TIMEZONE_VAR, resolved.getTimeZone(), WebRequest.SCOPE_GLOBAL_SESSION);
+            if (resolved.getCurrency() != null) {
+                request.setAttribute(BroadleafCurrencyResolverImpl.CURRENCY_VAR, resolved.getCurrency().getCurrencyToUse(),
+                        WebRequest.SCOPE_GLOBAL_SESSION);
+            }
+        }
+    }
+
+    @Override
+    @ManagedOperation(description = "Discards every cached request context resolution")
+    public void clear() {
+        getResolutions().clear();
+    }
+
+    @Override
+    public void onApplicationEvent(RequestContextResolutionChangedEvent event) {
+        clear();
+    }
+
+    @ManagedAttribute(description = "Whether request context resolutions are cached")
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @ManagedAttribute(description = "The number of cached request context resolutions")
+    public int getSize() {
+        return getResolutions().size();
+    }
+
+    @ManagedAttribute(description = "The number of request context resolutions dropped to stay under the size limit")
+    public long getEvictionCount() {
+        return getResolutions().getEvictionCount();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.common.web;
+
+import org.broadleafcommerce.common.currency.domain.BroadleafRequestedCurrencyDto;
+import org.broadleafcommerce.common.locale.domain.Locale;
+import org.broadleafcommerce.common.site.domain.Site;
+
+import java.util.TimeZone;
+
+/**
+ * The site, locale, time zone and currency that {@link BroadleafRequestProcessor} resolved for a request, shared by
+ * every later request with the same resolution key. The cache gives each request its own copy of the site; the other
+ * instances held here are shared across threads and must be treated as read only.
+ *
+ * @see RequestContextResolutionCache
+ */
+public class ResolvedRequestContext {
+
+    protected final Site site;
+    protected final Locale locale;
+    protected final boolean localePulledFromSession;
+    protected final TimeZone timeZone;
+    protected final BroadleafRequestedCurrencyDto currency;
+    protected final long resolvedAt;
+
+    public ResolvedRequestContext(Site site, Locale locale, boolean localePulledFromSession, TimeZone timeZone,
+            BroadleafRequestedCurrencyDto currency, long resolvedAt) {
+        this.site = site;
+        this.locale = locale;
+        this.localePulledFromSession = localePulledFromSession;
+        this.timeZone = timeZone;
+        this.currency = currency;
+        this.resolvedAt = resolvedAt;
+    }
+
+    public Site getSite() {
+        return site;
+    }
+
+    public Locale getLocale() {
+        return locale;
+    }
+
+    public boolean isLocalePulledFromSession() {
+        return localePulledFromSession;
+    }
+
+    public TimeZone getTimeZone() {
+        return timeZone;
+    }
+
+    public BroadleafRequestedCurrencyDto getCurrency() {
+        return currency;
+    }
+
+    public long getResolvedAt() {
+        return resolvedAt;
+    }
+}
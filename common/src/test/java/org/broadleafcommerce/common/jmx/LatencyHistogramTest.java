@@ -0,0 +1,111 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.common.jmx;
+
+import junit.framework.TestCase;
+
+public class LatencyHistogramTest extends TestCase {
+
+    protected static final double DELTA = 0.0000001D;
+
+    public void testBucketBoundaries() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // bucket i holds samples of less than 2^i microseconds
+        assertEquals(0, histogram.getBucket(0L));
+        assertEquals(0, histogram.getBucket(999L));
+        assertEquals(1, histogram.getBucket(1000L));
+        assertEquals(1, histogram.getBucket(1999L));
+        assertEquals(2, histogram.getBucket(2000L));
+        assertEquals(10, histogram.getBucket(1023999L));
+        assertEquals(11, histogram.getBucket(1024000L));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, histogram.getBucket(Long.MAX_VALUE));
+    }
+
+    public void testEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0D, histogram.getMeanMillis(), DELTA);
+        assertEquals(0D, histogram.getPercentileMillis(99D), DELTA);
+        assertEquals(0D, histogram.getMaxMillis(), DELTA);
+    }
+
+    public void testPercentilesReportBucketUpperBound() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(10000L);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(5000000L);
+        }
+
+        assertEquals(100L, histogram.getCount());
+        // 10 microseconds lands in the bucket below 16 microseconds
+        assertEquals(0.016D, histogram.getPercentileMillis(0D), DELTA);
+        assertEquals(0.016D, histogram.getPercentileMillis(50D), DELTA);
+        assertEquals(0.016D, histogram.getPercentileMillis(90D), DELTA);
+        // 5 ms lands in the bucket below 8.192 ms, but never more than the slowest sample is reported
+        assertEquals(5D, histogram.getPercentileMillis(95D), DELTA);
+        assertEquals(5D, histogram.getPercentileMillis(100D), DELTA);
+        assertEquals(5D, histogram.getPercentileMillis(150D), DELTA);
+
+        assertEquals(5D, histogram.getMaxMillis(), DELTA);
+        assertEquals((90 * 0.01D + 10 * 5D) / 100D, histogram.getMeanMillis(), DELTA);
+        assertEquals(90 * 0.01D + 10 * 5D, histogram.getTotalMillis(), DELTA);
+    }
+
+    public void testNegativeSamplesCountAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5L);
+        assertEquals(1L, histogram.getCount());
+        assertEquals(0D, histogram.getMaxMillis(), DELTA);
+        assertEquals(0D, histogram.getPercentileMillis(50D), DELTA);
+    }
+
+    public void testReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3000000L);
+        histogram.reset();
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0D, histogram.getTotalMillis(), DELTA);
+        assertEquals(0D, histogram.getPercentileMillis(50D), DELTA);
+    }
+
+    public void testConcurrentRecording() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final long nanos = (t + 1) * 1000000L;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        histogram.record(nanos);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40000L, histogram.getCount());
+        assertEquals(4D, histogram.getMaxMillis(), DELTA);
+        assertEquals(100000D, histogram.getTotalMillis(), DELTA);
+    }
+
+}
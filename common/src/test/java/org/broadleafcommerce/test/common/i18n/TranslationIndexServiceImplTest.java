@@ -0,0 +1,205 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.test.common.i18n;
+
+import org.broadleafcommerce.common.cache.StatisticsService;
+import org.broadleafcommerce.common.extension.ResultType;
+import org.broadleafcommerce.common.i18n.dao.TranslationDao;
+import org.broadleafcommerce.common.i18n.domain.TranslatedEntity;
+import org.broadleafcommerce.common.i18n.domain.Translation;
+import org.broadleafcommerce.common.i18n.domain.TranslationImpl;
+import org.broadleafcommerce.common.i18n.service.TranslationIndexServiceImpl;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+
+import junit.framework.TestCase;
+
+public class TranslationIndexServiceImplTest extends TestCase {
+
+    protected CacheManager cacheManager;
+    protected Cache versionCache;
+    protected AtomicInteger reads;
+
+    @Override
+    protected void setUp() throws Exception {
+        cacheManager = new CacheManager(new Configuration().name("TranslationIndexServiceImplTest"));
+        versionCache = new Cache(new CacheConfiguration("blTranslationIndexVersionCache", 100));
+        cacheManager.addCache(versionCache);
+        reads = new AtomicInteger();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        cacheManager.shutdown();
+    }
+
+    public void testEntityIsReadOnceWithTheBestLocale() {
+        TranslationIndexServiceImpl service = createService();
+
+        assertEquals("Shirt (GB)", service.getTranslatedValue(TranslatedEntity.PRODUCT, "1", "name", "en", "en_GB"));
+        assertEquals("A shirt", service.getTranslatedValue(TranslatedEntity.PRODUCT, "1", "description", "en", "en_GB"));
+        assertNull(service.getTranslatedValue(TranslatedEntity.PRODUCT, "1", "longDescription", "en", "en_GB"));
+        assertEquals(1, reads.get());
+    }
+
+    public void testChangeOnAnotherNodeIsPickedUp() {
+        TranslationIndexServiceImpl node = createService();
+        TranslationIndexServiceImpl otherNode = createService();
+
+        node.getTranslatedValue(TranslatedEntity.PRODUCT, "1", "name", "en", "en_GB");
+        node.getTranslatedValue(TranslatedEntity.PRODUCT, "1", "name", "en", "en_GB");
+        assertEquals(1, reads.get());
+
+        // both nodes share the version region, as they would with a replicated cache
+        otherNode.evict(TranslatedEntity.PRODUCT, "1");
+        node.getTranslatedValue(TranslatedEntity.PRODUCT, "1", "name", "en", "en_GB");
+        assertEquals(2, reads.get());
+
+        // other entity types keep their version
+        node.getTranslatedValue(TranslatedEntity.CATEGORY, "1", "name", "en", "en_GB");
+        node.getTranslatedValue(TranslatedEntity.CATEGORY, "1", "name", "en", "en_GB");
+        assertEquals(3, reads.get());
+    }
+
+    public void testEntityReadBeforeTheChangeCommitsIsReadAgainAfterwards() {
+        TranslationIndexServiceImpl service = createService();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.evict(TranslatedEntity.PRODUCT, "1");
+            // another request reads the rows that the change has not committed yet
+            service.getTranslatedValue(TranslatedEntity.PRODUCT, "1", "name", "en", "en_GB");
+            service.getTranslatedValue(TranslatedEntity.PRODUCT, "1", "name", "en", "en_GB");
+            assertEquals(1, reads.get());
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        service.getTranslatedValue(TranslatedEntity.PRODUCT, "1", "name", "en", "en_GB");
+        assertEquals(2, reads.get());
+    }
+
+    public void testEachLocaleIsBounded() {
+        TranslationIndexServiceImpl service = createService();
+        service.setMaxEntitiesPerLocale(10);
+        List<String> entityIds = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            entityIds.add(String.valueOf(i));
+        }
+
+        service.preload(TranslatedEntity.PRODUCT, entityIds, "en", "en_GB");
+        service.preload(TranslatedEntity.PRODUCT, entityIds, "fr", "fr");
+
+        assertEquals(2, service.getLocaleCount());
+        assertTrue(service.getSize() <= 20);
+        assertTrue(service.getSize() > 2);
+    }
+
+    public void testConcurrentLookups() throws Exception {
+        final TranslationIndexServiceImpl service = createService();
+        service.setMaxEntitiesPerLocale(20);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int thread = t;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int i = 0; i < 2000; i++) {
+                            String entityId = String.valueOf((i + thread) % 40);
+                            assertEquals("Shirt (GB)", service.getTranslatedValue(TranslatedEntity.PRODUCT, entityId,
+                                    "name", "en", "en_GB"));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(service.getSize() <= 20);
+    }
+
+    protected TranslationIndexServiceImpl createService() {
+        TranslationDao dao = EasyMock.createMock(TranslationDao.class);
+        EasyMock.expect(dao.readTranslationEntries((TranslatedEntity) EasyMock.anyObject(), EasyMock.eq(ResultType.CATALOG_ONLY),
+                readEntityIds(), EasyMock.eq("en"))).andAnswer(new IAnswer<List<Translation>>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public List<Translation> answer() throws Throwable {
+                        reads.incrementAndGet();
+                        List<Translation> translations = new ArrayList<>();
+                        for (String entityId : (List<String>) EasyMock.getCurrentArguments()[2]) {
+                            translations.addAll(Arrays.asList(
+                                    createTranslation(entityId, "name", "en", "Shirt"),
+                                    createTranslation(entityId, "name", "en_GB", "Shirt (GB)"),
+                                    createTranslation(entityId, "name", "en_US", "Shirt (US)"),
+                                    createTranslation(entityId, "description", "en", "A shirt")));
+                        }
+                        return translations;
+                    }
+                }).anyTimes();
+        EasyMock.expect(dao.readTranslationEntries((TranslatedEntity) EasyMock.anyObject(), EasyMock.eq(ResultType.CATALOG_ONLY),
+                readEntityIds(), EasyMock.eq("fr"))).andReturn(new ArrayList<Translation>()).anyTimes();
+        EasyMock.replay(dao);
+
+        TranslationIndexServiceImpl service = new TranslationIndexServiceImpl();
+        ReflectionTestUtils.setField(service, "dao", dao);
+        ReflectionTestUtils.setField(service, "statisticsService", EasyMock.createNiceMock(StatisticsService.class));
+        ReflectionTestUtils.setField(service, "versionCache", versionCache);
+        return service;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected List<String> readEntityIds() {
+        return (List<String>) EasyMock.anyObject();
+    }
+
+    protected Translation createTranslation(String entityId, String fieldName, String localeCode, String value) {
+        Translation translation = new TranslationImpl();
+        translation.setEntityType(TranslatedEntity.PRODUCT);
+        translation.setEntityId(entityId);
+        translation.setFieldName(fieldName);
+        translation.setLocaleCode(localeCode);
+        translation.setTranslatedValue(value);
+        return translation;
+    }
+}
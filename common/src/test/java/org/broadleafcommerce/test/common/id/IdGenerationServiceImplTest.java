@@ -0,0 +1,209 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.test.common.id;
+
+import org.broadleafcommerce.common.id.dao.IdGenerationDao;
+import org.broadleafcommerce.common.id.domain.IdGeneration;
+import org.broadleafcommerce.common.id.service.IdGenerationServiceImpl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.persistence.OptimisticLockException;
+
+import junit.framework.TestCase;
+
+public class IdGenerationServiceImplTest extends TestCase {
+
+    public void testIdsAreUniqueAcrossThreadsAndNodes() throws Exception {
+        InMemoryIdGenerationDao dao = new InMemoryIdGenerationDao(50L);
+        // two services sharing one table stand in for two nodes in a cluster
+        final IdGenerationServiceImpl node1 = createService(dao);
+        final IdGenerationServiceImpl node2 = createService(dao);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final IdGenerationServiceImpl service = t % 2 == 0 ? node1 : node2;
+            futures.add(executor.submit(new Callable<List<Long>>() {
+                @Override
+                public List<Long> call() throws Exception {
+                    List<Long> ids = new ArrayList<>();
+                    for (int i = 0; i < 5000; i++) {
+                        ids.add(service.findNextId("ORDER_NUMBER"));
+                    }
+                    return ids;
+                }
+            }));
+        }
+        Set<Long> ids = new HashSet<>();
+        for (Future<List<Long>> future : futures) {
+            for (Long id : future.get()) {
+                assertTrue("duplicate id " + id, ids.add(id));
+            }
+        }
+        executor.shutdown();
+        node1.shutdown();
+        node2.shutdown();
+
+        assertEquals(40000, ids.size());
+        assertTrue(node1.getPrefetchedRefillCount() + node2.getPrefetchedRefillCount() > 0);
+        assertEquals(dao.calls.get(), node1.getRefillCount() + node2.getRefillCount());
+    }
+
+    public void testIdsAreSequentialWithinABatch() throws Exception {
+        IdGenerationServiceImpl service = createService(new InMemoryIdGenerationDao(10L));
+        for (long expected = 1; expected <= 35; expected++) {
+            assertEquals(Long.valueOf(expected), service.findNextId("SEQUENTIAL"));
+        }
+        service.shutdown();
+    }
+
+    public void testFailedPrefetchFallsBackToDatabase() throws Exception {
+        InMemoryIdGenerationDao dao = new InMemoryIdGenerationDao(10L);
+        IdGenerationServiceImpl service = createService(dao);
+        assertEquals(Long.valueOf(1L), service.findNextId("FAILING"));
+
+        // fail every reservation from the prefetch thread, but still serve the caller's own fetch
+        dao.failOnThreadPrefix = "blIdGenerationPrefetch";
+        for (long expected = 2; expected <= 25; expected++) {
+            assertEquals(Long.valueOf(expected), service.findNextId("FAILING"));
+        }
+        assertTrue(service.getFailedPrefetchCount() > 0);
+        assertTrue(service.getBlockingRefillCount() > 1);
+        service.shutdown();
+    }
+
+    protected IdGenerationServiceImpl createService(final IdGenerationDao dao) {
+        return new IdGenerationServiceImpl() {
+            {
+                idGenerationDao = dao;
+            }
+        };
+    }
+
+    /**
+     * Mimics IdGenerationDaoImpl against a single row, including the occasional optimistic lock failure
+     */
+    protected static class InMemoryIdGenerationDao implements IdGenerationDao {
+
+        protected final long batchSize;
+        protected final AtomicLong batchStart = new AtomicLong(1L);
+        protected final AtomicLong calls = new AtomicLong();
+        protected final AtomicInteger attempts = new AtomicInteger();
+        protected volatile String failOnThreadPrefix;
+
+        public InMemoryIdGenerationDao(long batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public IdGeneration findNextId(String idType) throws Exception {
+            return findNextId(idType, null);
+        }
+
+        @Override
+        public IdGeneration findNextId(String idType, Long batchSize) throws Exception {
+            if (failOnThreadPrefix != null && Thread.currentThread().getName().startsWith(failOnThreadPrefix)) {
+                throw new IllegalStateException("database unavailable");
+            }
+            if (attempts.incrementAndGet() % 7 == 0) {
+                throw new OptimisticLockException();
+            }
+            calls.incrementAndGet();
+            long start = this.batchStart.getAndAdd(this.batchSize);
+            return new Range(idType, start, this.batchSize);
+        }
+    }
+
+    protected static class Range implements IdGeneration {
+
+        private static final long serialVersionUID = 1L;
+
+        protected String type;
+        protected Long batchStart;
+        protected Long batchSize;
+
+        public Range(String type, Long batchStart, Long batchSize) {
+            this.type = type;
+            this.batchStart = batchStart;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public String getType() {
+            return type;
+        }
+
+        @Override
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        @Override
+        public Long getBegin() {
+            return null;
+        }
+
+        @Override
+        public void setBegin(Long begin) {
+        }
+
+        @Override
+        public Long getEnd() {
+            return null;
+        }
+
+        @Override
+        public void setEnd(Long end) {
+        }
+
+        @Override
+        public Long getBatchStart() {
+            return batchStart;
+        }
+
+        @Override
+        public void setBatchStart(Long batchStart) {
+            this.batchStart = batchStart;
+        }
+
+        @Override
+        public Long getBatchSize() {
+            return batchSize;
+        }
+
+        @Override
+        public void setBatchSize(Long batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public Integer getVersion() {
+            return 0;
+        }
+    }
+}
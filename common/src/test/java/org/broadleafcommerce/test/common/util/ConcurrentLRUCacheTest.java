@@ -0,0 +1,133 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.test.common.util;
+
+import org.broadleafcommerce.common.util.ConcurrentLRUCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class ConcurrentLRUCacheTest extends TestCase {
+
+    public void testSizeStaysBoundedUnderConcurrentLoad() throws Exception {
+        final ConcurrentLRUCache<Integer, String> cache = new ConcurrentLRUCache<>(100);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final Random random = new Random(t);
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (int i = 0; i < 20000; i++) {
+                        int key = random.nextInt(300);
+                        assertEquals("v" + key, cache.get(key, new ValueLoader()));
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertTrue(cache.size() <= 100);
+        assertEquals(cache.size(), cache.entrySet().size());
+        assertEquals(160000L, cache.getHitCount() + cache.getMissCount());
+        assertTrue(cache.getEvictionCount() > 0);
+    }
+
+    public void testRecentlyUsedEntriesSurviveEviction() throws Exception {
+        ConcurrentLRUCache<Integer, String> cache = new ConcurrentLRUCache<>(10, 1);
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, "v" + i);
+        }
+        cache.get(3);
+        cache.put(10, "v10");
+
+        assertEquals(10, cache.size());
+        assertEquals("v3", cache.get(3));
+        assertEquals(1L, cache.getEvictionCount());
+    }
+
+    public void testConcurrentLoadsOfTheSameKeyLoadOnce() throws Exception {
+        final ConcurrentLRUCache<String, String> cache = new ConcurrentLRUCache<>(10);
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    start.await();
+                    return cache.get("key", new ConcurrentLRUCache.Loader<String, String>() {
+                        @Override
+                        public String load(String key) throws Exception {
+                            loads.incrementAndGet();
+                            Thread.sleep(100);
+                            return "value";
+                        }
+                    });
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<String> future : futures) {
+            assertEquals("value", future.get());
+        }
+        executor.shutdown();
+
+        assertEquals(1, loads.get());
+    }
+
+    public void testFailedLoadIsNotCached() throws Exception {
+        ConcurrentLRUCache<String, String> cache = new ConcurrentLRUCache<>(10);
+        try {
+            cache.get("key", new ConcurrentLRUCache.Loader<String, String>() {
+                @Override
+                public String load(String key) {
+                    throw new IllegalArgumentException("bad key");
+                }
+            });
+            fail("Expected the loader's exception to be rethrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("bad key", e.getMessage());
+        }
+
+        assertFalse(cache.containsKey("key"));
+        assertEquals(0, cache.size());
+    }
+
+    protected static class ValueLoader implements ConcurrentLRUCache.Loader<Integer, String> {
+
+        @Override
+        public String load(Integer key) {
+            return "v" + key;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.test.common.web;
+
+import org.broadleafcommerce.common.cache.StatisticsService;
+import org.broadleafcommerce.common.event.RequestContextResolutionChangedEvent;
+import org.broadleafcommerce.common.site.dao.SiteDao;
+import org.broadleafcommerce.common.site.domain.Site;
+import org.broadleafcommerce.common.site.domain.SiteImpl;
+import org.broadleafcommerce.common.site.service.SiteServiceExtensionManager;
+import org.broadleafcommerce.common.site.service.SiteServiceImpl;
+import org.broadleafcommerce.common.web.RequestContextResolutionCacheImpl;
+import org.broadleafcommerce.common.web.ResolvedRequestContext;
+import org.easymock.EasyMock;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.TimeZone;
+
+import junit.framework.TestCase;
+
+public class RequestContextResolutionCacheImplTest extends TestCase {
+
+    protected RequestContextResolutionCacheImpl cache;
+
+    @Override
+    protected void setUp() throws Exception {
+        cache = new RequestContextResolutionCacheImpl();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 300L);
+        ReflectionTestUtils.setField(cache, "maxEntries", 10);
+        ReflectionTestUtils.setField(cache, "statisticsService", EasyMock.createNiceMock(StatisticsService.class));
+        ReflectionTestUtils.setField(cache, "siteExtensionManager", new SiteServiceExtensionManager());
+        cache.init();
+    }
+
+    public void testEachHitGetsItsOwnCopyOfTheSite() {
+        Site site = createSite(1L, "Site");
+        cache.put("key", resolution(site, System.currentTimeMillis()));
+        site.setName("Changed after caching");
+
+        ResolvedRequestContext first = cache.get("key");
+        assertNotSame(site, first.getSite());
+        assertEquals("Site", first.getSite().getName());
+        assertEquals(Long.valueOf(1L), first.getSite().getId());
+
+        first.getSite().setName("Changed by a request");
+        ResolvedRequestContext second = cache.get("key");
+        assertNotSame(first.getSite(), second.getSite());
+        assertEquals("Site", second.getSite().getName());
+    }
+
+    public void testExpiredResolutionsAreNotReturned() {
+        cache.put("fresh", resolution(createSite(1L, "Site"), System.currentTimeMillis()));
+        cache.put("stale", resolution(createSite(1L, "Site"), System.currentTimeMillis() - 301000L));
+
+        assertNotNull(cache.get("fresh"));
+        assertNull(cache.get("stale"));
+        assertEquals(1, cache.getSize());
+    }
+
+    public void testSizeIsBoundedWithoutDroppingEverything() {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 50; i++) {
+            cache.put("key" + i, resolution(null, now));
+        }
+
+        assertTrue(cache.getSize() <= 10);
+        assertTrue(cache.getSize() > 1);
+        assertTrue(cache.getEvictionCount() >= 40);
+    }
+
+    public void testSavingASiteDiscardsCachedResolutions() {
+        Site site = createSite(1L, "Site");
+        SiteDao siteDao = EasyMock.createMock(SiteDao.class);
+        EasyMock.expect(siteDao.save(site)).andReturn(site);
+        EasyMock.replay(siteDao);
+
+        SiteServiceImpl siteService = new SiteServiceImpl();
+        ReflectionTestUtils.setField(siteService, "siteDao", siteDao);
+        ReflectionTestUtils.setField(siteService, "eventPublisher", new ApplicationEventPublisher() {
+            @Override
+            public void publishEvent(ApplicationEvent event) {
+                publishEvent((Object) event);
+            }
+
+            @Override
+            public void publishEvent(Object event) {
+                if (event instanceof RequestContextResolutionChangedEvent) {
+                    cache.onApplicationEvent((RequestContextResolutionChangedEvent) event);
+                }
+            }
+        });
+
+        cache.put("key", resolution(site, System.currentTimeMillis()));
+        assertNotNull(cache.get("key"));
+
+        siteService.saveAndReturnPersisted(site);
+
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.getSize());
+        EasyMock.verify(siteDao);
+    }
+
+    protected ResolvedRequestContext resolution(Site site, long resolvedAt) {
+        return new ResolvedRequestContext(site, null, false, TimeZone.getTimeZone("UTC"), null, resolvedAt);
+    }
+
+    protected Site createSite(Long id, String name) {
+        Site site = new SiteImpl();
+        site.setId(id);
+        site.setName(name);
+        return site;
+    }
+}
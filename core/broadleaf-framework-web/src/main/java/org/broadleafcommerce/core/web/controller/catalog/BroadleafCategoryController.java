@@ -20,6 +20,7 @@ package org.broadleafcommerce.core.web.controller.catalog;
 import org.apache.commons.lang.StringUtils;
 import org.broadleafcommerce.common.extension.ExtensionResultHolder;
 import org.broadleafcommerce.common.extension.ExtensionResultStatusType;
+import org.broadleafcommerce.common.i18n.service.TranslationService;
 import org.broadleafcommerce.common.template.TemplateOverrideExtensionManager;
 import org.broadleafcommerce.common.template.TemplateType;
 import org.broadleafcommerce.common.web.BroadleafRequestContext;
@@ -78,6 +79,9 @@ public class BroadleafCategoryController extends BroadleafAbstractController imp
     @Resource(name = "blTemplateOverrideExtensionManager")
     protected TemplateOverrideExtensionManager templateOverrideManager;
 
+    @Resource(name = "blTranslationService")
+    protected TranslationService translationService;
+
     @Override
     @SuppressWarnings("unchecked")
     public ModelAndView handleRequest(HttpServletRequest request, HttpServletResponse response) throws Exception {
@@ -116,6 +120,7 @@ public class BroadleafCategoryController extends BroadleafAbstractController imp
 
             SearchCriteria searchCriteria = facetService.buildSearchCriteria(request);
             SearchResult result = getSearchService().findSearchResults(searchCriteria);
+            preloadTranslations(result);
 
             facetService.setActiveFacetResults(result.getFacets(), request);
             
@@ -164,6 +169,26 @@ public class BroadleafCategoryController extends BroadleafAbstractController imp
         return defaultCategoryView;
     }
 
+    /**
+     * Reads the translations of everything the result will render in bulk, rather than one field at a time while the
+     * page is being rendered.
+     */
+    protected void preloadTranslations(SearchResult result) {
+        List<Object> entities = new ArrayList<Object>();
+        if (result.getProducts() != null) {
+            for (Product product : result.getProducts()) {
+                entities.add(product);
+                if (product.getDefaultSku() != null) {
+                    entities.add(product.getDefaultSku());
+                }
+            }
+        }
+        if (result.getSkus() != null) {
+            entities.addAll(result.getSkus());
+        }
+        translationService.preloadTranslations(entities, BroadleafRequestContext.getBroadleafRequestContext().getJavaLocale());
+    }
+
     protected SearchService getSearchService() {
         return searchService;
     }
@@ -19,6 +19,7 @@ package org.broadleafcommerce.core.web.controller.catalog;
 
 import org.apache.commons.lang.StringUtils;
 import org.broadleafcommerce.common.exception.ServiceException;
+import org.broadleafcommerce.common.i18n.service.TranslationService;
 import org.broadleafcommerce.common.security.service.ExploitProtectionService;
 import org.broadleafcommerce.common.util.UrlUtil;
 import org.broadleafcommerce.common.web.BroadleafRequestContext;
@@ -65,6 +66,9 @@ public class BroadleafSearchController extends AbstractCatalogController {
     protected SearchFacetDTOService facetService;
     @Resource(name = "blSearchRedirectService")
     protected SearchRedirectService searchRedirectService;
+
+    @Resource(name = "blTranslationService")
+    protected TranslationService translationService;
     protected static String searchView = "catalog/search";
     
     protected static String PRODUCTS_ATTRIBUTE_NAME = "products";
@@ -123,6 +127,7 @@ public class BroadleafSearchController extends AbstractCatalogController {
                 }
 
                 SearchResult result = getSearchService().findSearchResults(searchCriteria);
+                preloadTranslations(result);
                 
                 facetService.setActiveFacetResults(result.getFacets(), request);
                 
@@ -160,6 +165,26 @@ public class BroadleafSearchController extends AbstractCatalogController {
         }
     }
 
+    /**
+     * Reads the translations of everything the result will render in bulk, rather than one field at a time while the
+     * page is being rendered.
+     */
+    protected void preloadTranslations(SearchResult result) {
+        List<Object> entities = new ArrayList<Object>();
+        if (result.getProducts() != null) {
+            for (Product product : result.getProducts()) {
+                entities.add(product);
+                if (product.getDefaultSku() != null) {
+                    entities.add(product.getDefaultSku());
+                }
+            }
+        }
+        if (result.getSkus() != null) {
+            entities.addAll(result.getSkus());
+        }
+        translationService.preloadTranslations(entities, BroadleafRequestContext.getBroadleafRequestContext().getJavaLocale());
+    }
+
     protected SearchService getSearchService() {
         return searchService;
     }
@@ -0,0 +1,509 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework Web
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.web.order;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.util.BLCSystemProperty;
+import org.broadleafcommerce.common.util.DaemonThreadFactory;
+import org.broadleafcommerce.core.order.domain.NullOrderImpl;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.order.service.OrderLockManager;
+import org.broadleafcommerce.core.web.order.lock.OrderLockBackend;
+import org.broadleafcommerce.core.web.order.lock.OrderLockReleaseListener;
+import org.broadleafcommerce.core.web.order.security.exception.OrderLockAcquisitionFailureException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.LinkedList;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Resource;
+
+/**
+ * An {@link OrderLockManager} that hands out expiring leases from a pluggable {@link OrderLockBackend} and queues
+ * contending requests instead of polling for the lock.
+ * <p>
+ * Requests for the same order on this node wait in a first-in, first-out queue, and only the request at the head of
+ * the queue asks the backend for the lock. Waiting threads are woken up when the lock is released, either locally or
+ * through a release notification from the backend. If the lock is held by another node that does not send a
+ * notification, the head of the queue wakes up when that node's lease expires rather than on a fixed interval.
+ * <p>
+ * Leases expire after <code>order.lock.queued.leaseTimeMs</code> so that a node that dies while holding a lock
+ * cannot block an order forever. While a lock is held, a background thread renews its lease every
+ * <code>order.lock.queued.renewIntervalMs</code>, so a long running request keeps exclusive access. If a renewal
+ * fails because the lease was already lost, the lease is marked as lost (see {@link OrderLease#isLost()}) and an
+ * error is logged. A request gives up with an {@link OrderLockAcquisitionFailureException} once it has waited for
+ * <code>order.lock.queued.maxWaitTimeMs</code>.
+ * <p>
+ * The backend is never called while holding a queue's monitor, so a slow, remote backend does not block the other
+ * local waiters for the same order.
+ * <p>
+ * Lock wait times and contention counts are exposed through JMX. To use this implementation, override the
+ * <code>blOrderLockManager</code> bean:
+ * 
+ * <pre>
+ * &lt;bean id="blOrderLockManager" class="org.broadleafcommerce.core.web.order.QueuedOrderLockManager"/&gt;
+ * </pre>
+ * 
+ * @see org.broadleafcommerce.core.web.order.lock.InMemoryOrderLockBackend
+ */
+@ManagedResource(objectName="org.broadleafcommerce:name=QueuedOrderLockManager", description="Queued Order Lock Manager", currencyTimeLimit=15)
+public class QueuedOrderLockManager implements OrderLockManager, OrderLockReleaseListener, InitializingBean, DisposableBean {
+
+    protected static final Log LOG = LogFactory.getLog(QueuedOrderLockManager.class);
+
+    @Resource(name = "blOrderLockBackend")
+    protected OrderLockBackend orderLockBackend;
+
+    protected final ConcurrentMap<String, WaitQueue> queues = new ConcurrentHashMap<String, WaitQueue>();
+
+    /**
+     * The leases currently held through this manager, keyed by owner, whose expiration is pushed back periodically
+     */
+    protected final ConcurrentMap<String, OrderLease> heldLeases = new ConcurrentHashMap<String, OrderLease>();
+
+    protected ScheduledExecutorService renewalExecutor;
+
+    protected final AtomicLong acquisitionCount = new AtomicLong();
+    protected final AtomicLong contendedAcquisitionCount = new AtomicLong();
+    protected final AtomicLong failedAcquisitionCount = new AtomicLong();
+    protected final AtomicLong totalWaitTimeMs = new AtomicLong();
+    protected final AtomicLong maxWaitTimeMs = new AtomicLong();
+    protected final AtomicInteger waitingThreadCount = new AtomicInteger();
+    protected final AtomicLong lostLeaseCount = new AtomicLong();
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        orderLockBackend.addReleaseListener(this);
+
+        long renewInterval = getRenewIntervalMs();
+        renewalExecutor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("blOrderLockLeaseRenewal"));
+        renewalExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    renewLeases();
+                } catch (RuntimeException e) {
+                    LOG.error("Could not renew order lock leases", e);
+                }
+            }
+        }, renewInterval, renewInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (renewalExecutor != null) {
+            renewalExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public Object acquireLock(Order order) {
+        if (order == null || order instanceof NullOrderImpl) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Thread[" + Thread.currentThread().getId() + "] Attempted to grab a lock for a NullOrderImpl. ");
+            }
+            return order;
+        }
+
+        String key = getLockKey(order);
+        String owner = createOwner();
+        long start = System.currentTimeMillis();
+        long deadline = start + getMaxWaitTimeMs();
+        boolean acquired = false;
+        boolean contended = false;
+
+        WaitQueue queue = enqueue(key, owner);
+        try {
+            while (true) {
+                boolean head;
+                long signals;
+                synchronized (queue) {
+                    head = queue.isHead(owner);
+                    signals = queue.getSignals();
+                }
+
+                // Backend calls happen outside of the monitor, a remote backend must not block the other local waiters
+                if (head && orderLockBackend.tryAcquire(key, owner, getLeaseTimeMs())) {
+                    acquired = true;
+                    break;
+                }
+                long remainingLease = head ? orderLockBackend.getRemainingLeaseTime(key) : 0L;
+
+                synchronized (queue) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    if (queue.getSignals() != signals) {
+                        // Released or reordered while we were talking to the backend, so try again right away
+                        continue;
+                    }
+
+                    long waitTime = remaining;
+                    if (head) {
+                        // Held by someone that may not notify us (e.g. a node that died), so wake up when the lease ends
+                        waitTime = Math.min(waitTime, Math.max(1L, remainingLease));
+                    }
+
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Thread[" + Thread.currentThread().getId() + "] waiting up to " + waitTime
+                                + " ms for lock on order[" + order.getId() + "]");
+                    }
+                    contended = true;
+                    waitingThreadCount.incrementAndGet();
+                    try {
+                        queue.wait(waitTime);
+                    } finally {
+                        waitingThreadCount.decrementAndGet();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OrderLockAcquisitionFailureException(e);
+        } finally {
+            dequeue(key, queue, owner);
+        }
+
+        recordAcquisition(System.currentTimeMillis() - start, contended, acquired);
+
+        if (!acquired) {
+            LOG.warn(String.format("Exceeded max wait time to acquire a lock on current Order (%s)", order.getId()));
+            throw new OrderLockAcquisitionFailureException("Exceeded max wait time to acquire a lock on current Order");
+        }
+
+        return holdLease(key, owner);
+    }
+
+    @Override
+    public Object acquireLockIfAvailable(Order order) {
+        if (order == null || order instanceof NullOrderImpl) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Attempted to grab a lock for a NullOrderImpl. Not blocking");
+            }
+            return order;
+        }
+
+        String key = getLockKey(order);
+        WaitQueue queue = queues.get(key);
+        if (queue != null) {
+            synchronized (queue) {
+                if (!queue.isEmpty()) {
+                    // Don't jump ahead of requests that are already waiting
+                    recordAcquisition(0L, true, false);
+                    return null;
+                }
+            }
+        }
+
+        String owner = createOwner();
+        boolean acquired = orderLockBackend.tryAcquire(key, owner, getLeaseTimeMs());
+        recordAcquisition(0L, !acquired, acquired);
+        return acquired ? holdLease(key, owner) : null;
+    }
+
+    @Override
+    public void releaseLock(Object lockObject) {
+        if (!(lockObject instanceof OrderLease)) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Thread[" + Thread.currentThread().getId() + "] Attempted to release a lock for a NullOrderImpl");
+            }
+            return;
+        }
+
+        OrderLease lease = (OrderLease) lockObject;
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Thread[" + Thread.currentThread().getId() + "] releasing lock for order[" + lease.getKey() + "]");
+        }
+        heldLeases.remove(lease.getOwner());
+        orderLockBackend.release(lease.getKey(), lease.getOwner());
+        lockReleased(lease.getKey());
+    }
+
+    @Override
+    public void lockReleased(String key) {
+        WaitQueue queue = queues.get(key);
+        if (queue != null) {
+            synchronized (queue) {
+                queue.signal();
+            }
+        }
+    }
+
+    /**
+     * Pushes back the expiration of every lease held through this manager. Leases that could not be renewed because
+     * they had already expired and been taken over are marked as lost and are no longer renewed.
+     */
+    public void renewLeases() {
+        long leaseTime = getLeaseTimeMs();
+        for (OrderLease lease : heldLeases.values()) {
+            if (!orderLockBackend.renew(lease.getKey(), lease.getOwner(), leaseTime) && heldLeases.remove(lease.getOwner(), lease)) {
+                lease.markLost();
+                lostLeaseCount.incrementAndGet();
+                LOG.error(String.format("The lock lease on order (%s) expired before it could be renewed, the order is no longer"
+                        + " exclusively locked by this request", lease.getKey()));
+            }
+        }
+    }
+
+    protected OrderLease holdLease(String key, String owner) {
+        OrderLease lease = new OrderLease(key, owner);
+        heldLeases.put(owner, lease);
+        return lease;
+    }
+
+    @Override
+    public boolean isActive() {
+        return true;
+    }
+
+    protected String getLockKey(Order order) {
+        return String.valueOf(order.getId());
+    }
+
+    protected String createOwner() {
+        return UUID.randomUUID().toString();
+    }
+
+    protected WaitQueue enqueue(String key, String owner) {
+        while (true) {
+            WaitQueue queue = queues.get(key);
+            if (queue == null) {
+                WaitQueue newQueue = new WaitQueue();
+                queue = queues.putIfAbsent(key, newQueue);
+                if (queue == null) {
+                    queue = newQueue;
+                }
+            }
+            synchronized (queue) {
+                if (!queue.isRetired()) {
+                    queue.add(owner);
+                    return queue;
+                }
+            }
+            // The queue was emptied and removed between the lookup and the lock, so try again with a fresh one
+        }
+    }
+
+    protected void dequeue(String key, WaitQueue queue, String owner) {
+        synchronized (queue) {
+            queue.remove(owner);
+            if (queue.isEmpty()) {
+                queue.retire();
+                queues.remove(key, queue);
+            } else {
+                // Let the new head of the queue know it is its turn to ask for the lock
+                queue.signal();
+            }
+        }
+    }
+
+    protected void recordAcquisition(long waitTime, boolean contended, boolean acquired) {
+        if (acquired) {
+            acquisitionCount.incrementAndGet();
+        } else {
+            failedAcquisitionCount.incrementAndGet();
+        }
+        if (contended) {
+            contendedAcquisitionCount.incrementAndGet();
+        }
+        totalWaitTimeMs.addAndGet(waitTime);
+        long max = maxWaitTimeMs.get();
+        while (waitTime > max && !maxWaitTimeMs.compareAndSet(max, waitTime)) {
+            max = maxWaitTimeMs.get();
+        }
+    }
+
+    protected long getLeaseTimeMs() {
+        return BLCSystemProperty.resolveLongSystemProperty("order.lock.queued.leaseTimeMs", 30000L);
+    }
+
+    protected long getMaxWaitTimeMs() {
+        return BLCSystemProperty.resolveLongSystemProperty("order.lock.queued.maxWaitTimeMs", 10000L);
+    }
+
+    protected long getRenewIntervalMs() {
+        return BLCSystemProperty.resolveLongSystemProperty("order.lock.queued.renewIntervalMs", 10000L);
+    }
+
+    @ManagedAttribute(description="The number of locks acquired", currencyTimeLimit=15)
+    public long getAcquisitionCount() {
+        return acquisitionCount.get();
+    }
+
+    @ManagedAttribute(description="The number of lock requests that had to wait for another holder", currencyTimeLimit=15)
+    public long getContendedAcquisitionCount() {
+        return contendedAcquisitionCount.get();
+    }
+
+    @ManagedAttribute(description="The number of lock requests that timed out or were rejected", currencyTimeLimit=15)
+    public long getFailedAcquisitionCount() {
+        return failedAcquisitionCount.get();
+    }
+
+    @ManagedAttribute(description="The total time spent waiting for locks, in milliseconds", currencyTimeLimit=15)
+    public long getTotalWaitTimeMs() {
+        return totalWaitTimeMs.get();
+    }
+
+    @ManagedAttribute(description="The average time spent waiting for a lock, in milliseconds", currencyTimeLimit=15)
+    public double getAverageWaitTimeMs() {
+        long requests = acquisitionCount.get() + failedAcquisitionCount.get();
+        return requests == 0 ? 0D : (double) totalWaitTimeMs.get() / requests;
+    }
+
+    @ManagedAttribute(description="The longest time spent waiting for a lock, in milliseconds", currencyTimeLimit=15)
+    public long getMaxWaitTimeMsObserved() {
+        return maxWaitTimeMs.get();
+    }
+
+    @ManagedAttribute(description="The number of threads currently waiting for a lock", currencyTimeLimit=15)
+    public int getWaitingThreadCount() {
+        return waitingThreadCount.get();
+    }
+
+    @ManagedAttribute(description="The number of leases that expired before they could be renewed", currencyTimeLimit=15)
+    public long getLostLeaseCount() {
+        return lostLeaseCount.get();
+    }
+
+    @ManagedAttribute(description="The number of locks currently held through this node", currencyTimeLimit=15)
+    public int getHeldLeaseCount() {
+        return heldLeases.size();
+    }
+
+    @ManagedAttribute(description="The number of orders that currently have queued lock requests", currencyTimeLimit=15)
+    public int getQueuedOrderCount() {
+        return queues.size();
+    }
+
+    @ManagedOperation(description="Reset the lock statistics")
+    public void resetStatistics() {
+        acquisitionCount.set(0L);
+        contendedAcquisitionCount.set(0L);
+        failedAcquisitionCount.set(0L);
+        totalWaitTimeMs.set(0L);
+        maxWaitTimeMs.set(0L);
+        lostLeaseCount.set(0L);
+    }
+
+    public OrderLockBackend getOrderLockBackend() {
+        return orderLockBackend;
+    }
+
+    public void setOrderLockBackend(OrderLockBackend orderLockBackend) {
+        this.orderLockBackend = orderLockBackend;
+    }
+
+    /**
+     * The lock object handed back to callers of {@link QueuedOrderLockManager#acquireLock(Order)}
+     */
+    public static class OrderLease {
+
+        protected final String key;
+        protected final String owner;
+        protected volatile boolean lost = false;
+
+        public OrderLease(String key, String owner) {
+            this.key = key;
+            this.owner = owner;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getOwner() {
+            return owner;
+        }
+
+        /**
+         * @return true if the lease expired before it could be renewed, meaning another request may have taken the lock
+         */
+        public boolean isLost() {
+            return lost;
+        }
+
+        public void markLost() {
+            lost = true;
+        }
+    }
+
+    /**
+     * The local, first-in first-out queue of lock requests for a single order. Also used as the monitor waiting
+     * threads block on.
+     */
+    protected static class WaitQueue {
+
+        protected final LinkedList<String> owners = new LinkedList<String>();
+        protected boolean retired = false;
+        protected long signals = 0L;
+
+        public void add(String owner) {
+            owners.addLast(owner);
+        }
+
+        public void remove(String owner) {
+            owners.remove(owner);
+        }
+
+        public boolean isHead(String owner) {
+            return !owners.isEmpty() && owners.getFirst().equals(owner);
+        }
+
+        public boolean isEmpty() {
+            return owners.isEmpty();
+        }
+
+        public boolean isRetired() {
+            return retired;
+        }
+
+        public void retire() {
+            retired = true;
+        }
+
+        /**
+         * Wakes up every waiting thread. Must be called while holding this queue's monitor.
+         */
+        public void signal() {
+            signals++;
+            notifyAll();
+        }
+
+        /**
+         * @return a counter that changes on every {@link #signal()}, so a thread that released the monitor can tell
+         * whether it missed a wake up
+         */
+        public long getSignals() {
+            return signals;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework Web
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.web.order.lock;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * {@link OrderLockBackend} that keeps its leases in memory. Locks are only visible to the current JVM, so this
+ * backend is suitable for single node installations and for local testing.
+ */
+public class InMemoryOrderLockBackend implements OrderLockBackend {
+
+    protected final ConcurrentMap<String, Lease> leases = new ConcurrentHashMap<String, Lease>();
+    protected final List<OrderLockReleaseListener> listeners = new CopyOnWriteArrayList<OrderLockReleaseListener>();
+
+    @Override
+    public boolean tryAcquire(String key, String owner, long leaseTimeMs) {
+        Lease lease = new Lease(owner, System.currentTimeMillis() + leaseTimeMs);
+        Lease current = leases.putIfAbsent(key, lease);
+        if (current == null) {
+            return true;
+        }
+        return current.isExpired(System.currentTimeMillis()) && leases.replace(key, current, lease);
+    }
+
+    @Override
+    public void release(String key, String owner) {
+        Lease current = leases.get(key);
+        if (current != null && current.getOwner().equals(owner) && leases.remove(key, current)) {
+            for (OrderLockReleaseListener listener : listeners) {
+                listener.lockReleased(key);
+            }
+        }
+    }
+
+    @Override
+    public boolean renew(String key, String owner, long leaseTimeMs) {
+        Lease current = leases.get(key);
+        long now = System.currentTimeMillis();
+        if (current == null || !current.getOwner().equals(owner) || current.isExpired(now)) {
+            return false;
+        }
+        return leases.replace(key, current, new Lease(owner, now + leaseTimeMs));
+    }
+
+    @Override
+    public long getRemainingLeaseTime(String key) {
+        Lease current = leases.get(key);
+        if (current == null) {
+            return 0L;
+        }
+        return Math.max(0L, current.getExpiration() - System.currentTimeMillis());
+    }
+
+    @Override
+    public void addReleaseListener(OrderLockReleaseListener listener) {
+        listeners.add(listener);
+    }
+
+    protected static class Lease {
+
+        protected final String owner;
+        protected final long expiration;
+
+        public Lease(String owner, long expiration) {
+            this.owner = owner;
+            this.expiration = expiration;
+        }
+
+        public String getOwner() {
+            return owner;
+        }
+
+        public long getExpiration() {
+            return expiration;
+        }
+
+        public boolean isExpired(long now) {
+            return now >= expiration;
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework Web
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.web.order.lock;
+
+/**
+ * Storage for the leases handed out by {@link org.broadleafcommerce.core.web.order.QueuedOrderLockManager}. A lease
+ * is owned by exactly one caller at a time and automatically expires after its lease time, so a node that dies while
+ * holding a lock cannot block an order forever.
+ * <p>
+ * The manager keeps a fair, local wait queue per order and only asks the backend for the lock on behalf of the
+ * caller at the head of that queue. Backends shared between several nodes (for example, one built on a distributed
+ * cache or a message broker) should call {@link OrderLockReleaseListener#lockReleased(String)} on the registered
+ * listeners whenever a lease is released on any node, so that waiters are woken up without polling.
+ *
+ * @see InMemoryOrderLockBackend
+ */
+public interface OrderLockBackend {
+
+    /**
+     * Attempts to take the lock for the given key. Succeeds if the key is not locked or its lease has expired.
+     *
+     * @param key the lock key, typically the order id
+     * @param owner a value that uniquely identifies this acquisition
+     * @param leaseTimeMs how long the lease is valid for if it is not released
+     * @return whether or not the lock was taken
+     */
+    boolean tryAcquire(String key, String owner, long leaseTimeMs);
+
+    /**
+     * Releases the lock for the given key if it is still held by the given owner. Releasing a lease that has already
+     * expired, or that has been taken over by somebody else, is a no-op.
+     *
+     * @param key the lock key
+     * @param owner the owner that was passed to {@link #tryAcquire(String, String, long)}
+     */
+    void release(String key, String owner);
+
+    /**
+     * Extends the lease for the given key to <code>leaseTimeMs</code> from now, provided it is still held by the given
+     * owner and has not expired.
+     *
+     * @param key the lock key
+     * @param owner the owner that was passed to {@link #tryAcquire(String, String, long)}
+     * @param leaseTimeMs how long the renewed lease is valid for if it is not released
+     * @return false if the lease expired or is held by somebody else, in which case the owner no longer has the lock
+     */
+    boolean renew(String key, String owner, long leaseTimeMs);
+
+    /**
+     * @param key the lock key
+     * @return the number of milliseconds left on the current lease for the key, or 0 if it is not locked
+     */
+    long getRemainingLeaseTime(String key);
+
+    /**
+     * Registers a listener to be notified when any lease is released
+     *
+     * @param listener the listener
+     */
+    void addReleaseListener(OrderLockReleaseListener listener);
+
+}
@@ -0,0 +1,163 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework Web
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.web.order;
+
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.order.domain.OrderImpl;
+import org.broadleafcommerce.core.web.order.QueuedOrderLockManager.OrderLease;
+import org.broadleafcommerce.core.web.order.lock.InMemoryOrderLockBackend;
+import org.broadleafcommerce.core.web.order.security.exception.OrderLockAcquisitionFailureException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class QueuedOrderLockManagerTest extends TestCase {
+
+    protected TestLockManager lockManager;
+    protected Order order;
+
+    @Override
+    protected void setUp() throws Exception {
+        lockManager = new TestLockManager();
+        lockManager.setOrderLockBackend(new InMemoryOrderLockBackend());
+        lockManager.afterPropertiesSet();
+
+        order = new OrderImpl();
+        order.setId(1L);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        lockManager.destroy();
+    }
+
+    public void testWaitersAcquireInArrivalOrder() throws Exception {
+        Object held = lockManager.acquireLock(order);
+
+        final List<String> acquiredBy = Collections.synchronizedList(new ArrayList<String>());
+        List<Thread> waiters = new ArrayList<Thread>();
+        for (final String name : Arrays.asList("first", "second", "third")) {
+            Thread waiter = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Object lock = lockManager.acquireLock(order);
+                    acquiredBy.add(name);
+                    lockManager.releaseLock(lock);
+                }
+            });
+            waiter.start();
+            waiters.add(waiter);
+            awaitWaitingThreads(waiters.size());
+        }
+
+        lockManager.releaseLock(held);
+        for (Thread waiter : waiters) {
+            waiter.join(5000L);
+        }
+        assertEquals(Arrays.asList("first", "second", "third"), acquiredBy);
+        assertEquals(0, lockManager.getQueuedOrderCount());
+    }
+
+    public void testWaitingGivesUpAfterMaxWaitTime() {
+        lockManager.maxWaitTimeMs = 200L;
+        Object held = lockManager.acquireLock(order);
+
+        long start = System.currentTimeMillis();
+        try {
+            lockManager.acquireLock(order);
+            fail("Expected the second request to time out");
+        } catch (OrderLockAcquisitionFailureException e) {
+            assertTrue(System.currentTimeMillis() - start >= 200L);
+        }
+        assertEquals(1L, lockManager.getFailedAcquisitionCount());
+        lockManager.releaseLock(held);
+    }
+
+    public void testExpiredLeaseCanBeTakenOverAndIsReportedLost() throws Exception {
+        lockManager.leaseTimeMs = 100L;
+        OrderLease held = (OrderLease) lockManager.acquireLock(order);
+
+        // Without renewal the lease runs out, and a waiter wakes up when it does instead of waiting for a release
+        long start = System.currentTimeMillis();
+        OrderLease takenOver = (OrderLease) lockManager.acquireLock(order);
+        assertTrue(System.currentTimeMillis() - start < lockManager.maxWaitTimeMs);
+
+        lockManager.renewLeases();
+        assertTrue(held.isLost());
+        assertFalse(takenOver.isLost());
+        assertEquals(1L, lockManager.getLostLeaseCount());
+
+        // Releasing the lost lease must not release the lock that replaced it
+        lockManager.releaseLock(held);
+        assertNull(lockManager.acquireLockIfAvailable(order));
+        lockManager.releaseLock(takenOver);
+    }
+
+    public void testRenewedLeaseOutlivesItsLeaseTime() throws Exception {
+        lockManager.leaseTimeMs = 200L;
+        OrderLease held = (OrderLease) lockManager.acquireLock(order);
+
+        long end = System.currentTimeMillis() + 600L;
+        while (System.currentTimeMillis() < end) {
+            lockManager.renewLeases();
+            assertNull(lockManager.acquireLockIfAvailable(order));
+            Thread.sleep(50L);
+        }
+        assertFalse(held.isLost());
+
+        lockManager.releaseLock(held);
+        assertEquals(0, lockManager.getHeldLeaseCount());
+    }
+
+    protected void awaitWaitingThreads(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (lockManager.getWaitingThreadCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5L);
+        }
+        assertEquals(count, lockManager.getWaitingThreadCount());
+    }
+
+    /**
+     * Uses fixed timings instead of system properties and leaves renewal to the test
+     */
+    protected static class TestLockManager extends QueuedOrderLockManager {
+
+        protected volatile long leaseTimeMs = 30000L;
+        protected volatile long maxWaitTimeMs = 5000L;
+
+        @Override
+        protected long getLeaseTimeMs() {
+            return leaseTimeMs;
+        }
+
+        @Override
+        protected long getMaxWaitTimeMs() {
+            return maxWaitTimeMs;
+        }
+
+        @Override
+        protected long getRenewIntervalMs() {
+            return 60L * 60L * 1000L;
+        }
+    }
+
+}
@@ -54,6 +54,26 @@ public interface ProductDao {
      */
     public List<Product> readProductsByIds(@Nonnull List<Long> productIds);
 
+    /**
+     * Retrieves a list of Product instances by their primary keys. Products already held in the second level cache
+     * are resolved from the cache and only the remaining ids are read from the database, in a single query.
+     * The returned list is in no particular order.
+     * 
+     * @param productIds the list of primary keys for products
+     * @return the list of products specified by the primary keys
+     */
+    public List<Product> readProductsByIdsPreferringCache(@Nonnull List<Long> productIds);
+
+    /**
+     * Retrieves a page of Product instances by their primary keys for the search index. Unlike
+     * {@link #readProductsByIds(List)}, the query is not put in the query cache, since the same page is not read twice,
+     * and the products come back in id order.
+     * 
+     * @param productIds the list of primary keys for products
+     * @return the list of products specified by the primary keys, ordered by id
+     */
+    public List<Product> readProductsByIdsForIndexing(@Nonnull List<Long> productIds);
+
     /**
      * Persist a {@code Product} instance to the datastore
      *
@@ -291,6 +311,16 @@ public interface ProductDao {
      */
     List<Product> readAllActiveProducts(Integer pageSize, Long lastId);
 
+    /**
+     * Reads the ids of the products that are currently active, with the same keyset paging and ordering as
+     * {@link #readAllActiveProducts(Integer, Long)}, but without loading the products themselves.
+     *
+     * @param pageSize the number of results per page
+     * @param lastId the last id from the previous page - can be null if this is the first page request
+     * @return the ids of the active products for the given page
+     */
+    List<Long> readAllActiveProductIds(Integer pageSize, Long lastId);
+
     /**
      * @deprecated Use {@link #readAllActiveProducts(int, int)}
      * 
@@ -51,6 +51,7 @@ import java.util.Map.Entry;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Resource;
+import javax.persistence.Cache;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
@@ -124,6 +125,22 @@ public class ProductDaoImpl implements ProductDao {
                     "Hibernate is required to transform the distinct results. The list of requested" +
                     "product ids was (" + productIds.size() +") in length.");
         }
+        TypedQuery<Product> query = em.createQuery(getCriteriaForProductsByIds(productIds, false));
+        query.setHint(QueryHints.HINT_CACHEABLE, true);
+        query.setHint(QueryHints.HINT_CACHE_REGION, "query.Catalog");
+
+        return query.getResultList();
+    }
+
+    @Override
+    public List<Product> readProductsByIdsForIndexing(List<Long> productIds) {
+        if (productIds == null || productIds.size() == 0) {
+            return new ArrayList<Product>();
+        }
+        return em.createQuery(getCriteriaForProductsByIds(productIds, true)).getResultList();
+    }
+
+    protected CriteriaQuery<Product> getCriteriaForProductsByIds(List<Long> productIds, boolean orderById) {
         // Set up the criteria query that specifies we want to return Products
         CriteriaBuilder builder = em.getCriteriaBuilder();
         CriteriaQuery<Product> criteria = builder.createQuery(Product.class);
@@ -136,12 +153,36 @@ public class ProductDaoImpl implements ProductDao {
         criteria.where(product.get("id").as(Long.class).in(
                 sandBoxHelper.mergeCloneIds(ProductImpl.class,
                         productIds.toArray(new Long[productIds.size()]))));
+        if (orderById) {
+            criteria.orderBy(builder.asc(product.get("id")));
+        }
+        return criteria;
+    }
 
-        TypedQuery<Product> query = em.createQuery(criteria);
-        query.setHint(QueryHints.HINT_CACHEABLE, true);
-        query.setHint(QueryHints.HINT_CACHE_REGION, "query.Catalog");
-
-        return query.getResultList();
+    @Override
+    public List<Product> readProductsByIdsPreferringCache(List<Long> productIds) {
+        if (productIds == null || productIds.size() == 0 || sandBoxHelper.isSandBoxable(ProductImpl.class.getName())) {
+            // sandboxed reads must go through the clone id merge in readProductsByIds
+            return readProductsByIds(productIds);
+        }
+        Cache cache = em.getEntityManagerFactory().getCache();
+        List<Product> products = new ArrayList<Product>(productIds.size());
+        List<Long> misses = new ArrayList<Long>();
+        for (Long productId : productIds) {
+            Product product = null;
+            if (cache.contains(ProductImpl.class, productId)) {
+                product = em.find(ProductImpl.class, productId);
+            }
+            if (product == null) {
+                misses.add(productId);
+            } else {
+                products.add(product);
+            }
+        }
+        if (!misses.isEmpty()) {
+            products.addAll(readProductsByIds(misses));
+        }
+        return products;
     }
 
     @Override
@@ -540,6 +581,26 @@ public class ProductDaoImpl implements ProductDao {
         return readAllActiveProductsInternal(pageSize, currentDate, lastId);
     }
     
+    @Override
+    public List<Long> readAllActiveProductIds(Integer pageSize, Long lastId) {
+        Date currentDate = DateUtil.getCurrentDateAfterFactoringInDateResolution(cachedDate, currentDateResolution);
+        CriteriaBuilder builder = em.getCriteriaBuilder();
+        CriteriaQuery<Long> criteria = builder.createQuery(Long.class);
+        Root<ProductImpl> product = criteria.from(ProductImpl.class);
+        Join<Product, Sku> sku = product.join("defaultSku");
+        criteria.select(product.get("id").as(Long.class));
+
+        List<Predicate> restrictions = new ArrayList<Predicate>();
+        attachActiveRestriction(currentDate, product, sku, restrictions);
+        if (lastId != null) {
+            restrictions.add(builder.gt(product.get("id").as(Long.class), lastId));
+        }
+        criteria.where(restrictions.toArray(new Predicate[restrictions.size()]));
+        criteria.orderBy(builder.asc(product.get("id")));
+
+        return em.createQuery(criteria).setMaxResults(pageSize).getResultList();
+    }
+    
     @Override
     @Deprecated
     public List<Product> readAllActiveProducts(int page, int pageSize, Date currentDate) {    
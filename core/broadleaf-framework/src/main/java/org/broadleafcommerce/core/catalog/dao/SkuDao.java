@@ -21,6 +21,7 @@ import org.broadleafcommerce.core.catalog.domain.Sku;
 import org.broadleafcommerce.core.catalog.domain.SkuFee;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * {@code SkuDao} provides persistence access to {@code Sku} instances
@@ -95,6 +96,25 @@ public interface SkuDao {
      */
     List<Sku> readSkusByIds(List<Long> ids);
 
+    /**
+     * Find all the {@code Sku} instances whose primary key matches one of the values from the passed in list.
+     * Skus already held in the second level cache are resolved from the cache and only the remaining ids are read
+     * from the database, in a single query. The returned list is in no particular order.
+     *
+     * @param ids the list of primary key values
+     * @return the list of skus that match the list of primary key values
+     */
+    List<Sku> readSkusByIdsPreferringCache(List<Long> ids);
+
+    /**
+     * Find a page of {@code Sku} instances by primary key for the search index. Unlike {@link #readSkusByIds(List)},
+     * the query is not put in the query cache, since the same page is not read twice, and the skus come back in id order.
+     *
+     * @param ids the list of primary key values
+     * @return the list of skus that match the list of primary key values, ordered by id
+     */
+    List<Sku> readSkusByIdsForIndexing(List<Long> ids);
+
     /**
      * Remove the {@code Sku} instance from the datastore
      *
@@ -157,6 +177,16 @@ public interface SkuDao {
      */
     List<Sku> readAllActiveSkus(Integer pageSize, Long lastId);
 
+    /**
+     * Reads the ids of the skus that are currently active, with the same keyset paging and ordering as
+     * {@link #readAllActiveSkus(Integer, Long)}, but without loading the skus themselves.
+     *
+     * @param pageSize the number of results per page
+     * @param lastId the last id from the previous page - can be null if this is the first page request
+     * @return the ids of the active skus for the given page
+     */
+    List<Long> readAllActiveSkuIds(Integer pageSize, Long lastId);
+
     /**
      * Returns the number of milliseconds that the current date/time will be cached for queries before refreshing.
      * This aids in query caching, otherwise every query that utilized current date would be different and caching
@@ -183,4 +213,31 @@ public interface SkuDao {
      * 
      */
     List<Sku> findSkuByURI(String uri);
+
+    /**
+     * Subtracts each quantity from the quantity available of the matching sku. Each sku is changed by a single
+     * conditional update that only applies when at least the requested quantity is available, so concurrent
+     * checkouts can neither oversell nor overwrite each other's decrements, and the rest of the sku is never written.
+     * <p>
+     * Skus are updated in ascending id order so that concurrent callers lock rows in the same order, and updating stops
+     * at the first sku without enough inventory. Nothing is undone here: callers that need all-or-nothing behavior
+     * should roll back the transaction or pass the returned ids to {@link #incrementQuantitiesAvailable(Map)}.
+     * <p>
+     * The updates bypass the persistence context, so {@code Sku} instances that are already loaded keep their previous
+     * quantity and their second level cache entries are not evicted.
+     * 
+     * @param skuQuantities the quantity to subtract, keyed by sku id
+     * @return the ids of the skus that were decremented, in the order they were updated
+     */
+    List<Long> decrementQuantitiesAvailable(Map<Long, Integer> skuQuantities);
+
+    /**
+     * Adds each quantity to the quantity available of the matching sku with a single update per sku, in ascending id
+     * order. Skus whose quantity available is null are left unchanged. As with
+     * {@link #decrementQuantitiesAvailable(Map)}, loaded {@code Sku} instances are not refreshed.
+     * 
+     * @param skuQuantities the quantity to add, keyed by sku id
+     * @return the ids of the skus that were incremented
+     */
+    List<Long> incrementQuantitiesAvailable(Map<Long, Integer> skuQuantities);
 }
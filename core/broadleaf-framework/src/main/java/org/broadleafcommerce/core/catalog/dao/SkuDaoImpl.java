@@ -30,14 +30,20 @@ import org.broadleafcommerce.common.util.dao.TypedQueryBuilder;
 import org.broadleafcommerce.core.catalog.domain.Sku;
 import org.broadleafcommerce.core.catalog.domain.SkuFee;
 import org.broadleafcommerce.core.catalog.domain.SkuImpl;
+import org.hibernate.SQLQuery;
+import org.hibernate.Session;
 import org.hibernate.ejb.QueryHints;
+import org.hibernate.persister.entity.AbstractEntityPersister;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import javax.annotation.Resource;
+import javax.persistence.Cache;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
@@ -146,7 +152,23 @@ public class SkuDaoImpl implements SkuDao {
                     "Hibernate is required to transform the distinct results. The list of requested" +
                     "sku ids was (" + skuIds.size() + ") in length.");
         }
-        // Set up the criteria query that specifies we want to return Products
+        TypedQuery<Sku> query = em.createQuery(getCriteriaForSkusByIds(skuIds, false));
+        query.setHint(QueryHints.HINT_CACHEABLE, true);
+        query.setHint(QueryHints.HINT_CACHE_REGION, "query.Catalog");
+
+        return query.getResultList();
+    }
+
+    @Override
+    public List<Sku> readSkusByIdsForIndexing(List<Long> skuIds) {
+        if (skuIds == null || skuIds.size() == 0) {
+            return new ArrayList<Sku>();
+        }
+        return em.createQuery(getCriteriaForSkusByIds(skuIds, true)).getResultList();
+    }
+
+    protected CriteriaQuery<Sku> getCriteriaForSkusByIds(List<Long> skuIds, boolean orderById) {
+        // Set up the criteria query that specifies we want to return Skus
         CriteriaBuilder builder = em.getCriteriaBuilder();
         CriteriaQuery<Sku> criteria = builder.createQuery(Sku.class);
         Root<SkuImpl> sku = criteria.from(SkuImpl.class);
@@ -157,12 +179,36 @@ public class SkuDaoImpl implements SkuDao {
         criteria.where(sku.get("id").as(Long.class).in(
                 sandBoxHelper.mergeCloneIds(SkuImpl.class,
                         skuIds.toArray(new Long[skuIds.size()]))));
+        if (orderById) {
+            criteria.orderBy(builder.asc(sku.get("id")));
+        }
+        return criteria;
+    }
 
-        TypedQuery<Sku> query = em.createQuery(criteria);
-        query.setHint(QueryHints.HINT_CACHEABLE, true);
-        query.setHint(QueryHints.HINT_CACHE_REGION, "query.Catalog");
-
-        return query.getResultList();
+    @Override
+    public List<Sku> readSkusByIdsPreferringCache(List<Long> skuIds) {
+        if (skuIds == null || skuIds.size() == 0 || sandBoxHelper.isSandBoxable(SkuImpl.class.getName())) {
+            // sandboxed reads must go through the clone id merge in readSkusByIds
+            return readSkusByIds(skuIds);
+        }
+        Cache cache = em.getEntityManagerFactory().getCache();
+        List<Sku> skus = new ArrayList<Sku>(skuIds.size());
+        List<Long> misses = new ArrayList<Long>();
+        for (Long skuId : skuIds) {
+            Sku sku = null;
+            if (cache.contains(SkuImpl.class, skuId)) {
+                sku = em.find(SkuImpl.class, skuId);
+            }
+            if (sku == null) {
+                misses.add(skuId);
+            } else {
+                skus.add(sku);
+            }
+        }
+        if (!misses.isEmpty()) {
+            skus.addAll(readSkusByIds(misses));
+        }
+        return skus;
     }
 
     @Override
@@ -262,6 +308,53 @@ public class SkuDaoImpl implements SkuDao {
         return results;
     }
 
+    @Override
+    public List<Long> decrementQuantitiesAvailable(Map<Long, Integer> skuQuantities) {
+        String template = "UPDATE %1$s SET %2$s = %2$s - ? WHERE %3$s = ? AND %2$s >= ?";
+        List<Long> response = new ArrayList<Long>();
+        for (Map.Entry<Long, Integer> entry : new TreeMap<Long, Integer>(skuQuantities).entrySet()) {
+            SQLQuery query = createQuantityAvailableUpdate(template);
+            query.setInteger(0, entry.getValue());
+            query.setLong(1, entry.getKey());
+            query.setInteger(2, entry.getValue());
+            if (query.executeUpdate() != 1) {
+                break;
+            }
+            response.add(entry.getKey());
+        }
+        return response;
+    }
+
+    @Override
+    public List<Long> incrementQuantitiesAvailable(Map<Long, Integer> skuQuantities) {
+        String template = "UPDATE %1$s SET %2$s = %2$s + ? WHERE %3$s = ? AND %2$s IS NOT NULL";
+        List<Long> response = new ArrayList<Long>();
+        for (Map.Entry<Long, Integer> entry : new TreeMap<Long, Integer>(skuQuantities).entrySet()) {
+            SQLQuery query = createQuantityAvailableUpdate(template);
+            query.setInteger(0, entry.getValue());
+            query.setLong(1, entry.getKey());
+            if (query.executeUpdate() == 1) {
+                response.add(entry.getKey());
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Builds a native update against the sku table from a template whose first, second and third arguments are the
+     * table, the quantity available column and the id column. The names are read from the Hibernate mapping so that
+     * overridden column names are honored. The empty query space keeps Hibernate from clearing the sku cache region.
+     */
+    protected SQLQuery createQuantityAvailableUpdate(String template) {
+        Session session = em.unwrap(Session.class);
+        AbstractEntityPersister persister = (AbstractEntityPersister) session.getSessionFactory().getClassMetadata(SkuImpl.class);
+        String sql = String.format(template, persister.getTableName(),
+                persister.getPropertyColumnNames("quantityAvailable")[0], persister.getIdentifierColumnNames()[0]);
+        SQLQuery query = session.createSQLQuery(sql);
+        query.addSynchronizedQuerySpace("");
+        return query;
+    }
+
     protected List<Sku> readAllActiveSkusInternal(int page, int pageSize, Date currentDate) {
         CriteriaQuery<Sku> criteria = getCriteriaForActiveSkus(currentDate);
         int firstResult = page * pageSize;
@@ -281,6 +374,25 @@ public class SkuDaoImpl implements SkuDao {
         return query.setMaxResults(pageSize).getResultList();
     }
 
+    @Override
+    public List<Long> readAllActiveSkuIds(Integer pageSize, Long lastId) {
+        Date currentDate = DateUtil.getCurrentDateAfterFactoringInDateResolution(cachedDate, currentDateResolution);
+        CriteriaBuilder builder = em.getCriteriaBuilder();
+        CriteriaQuery<Long> criteria = builder.createQuery(Long.class);
+        Root<SkuImpl> sku = criteria.from(SkuImpl.class);
+        criteria.select(sku.get("id").as(Long.class));
+
+        List<Predicate> restrictions = new ArrayList<Predicate>();
+        attachActiveRestriction(currentDate, sku, restrictions);
+        if (lastId != null) {
+            restrictions.add(builder.gt(sku.get("id").as(Long.class), lastId));
+        }
+        criteria.where(restrictions.toArray(new Predicate[restrictions.size()]));
+        criteria.orderBy(builder.asc(sku.get("id")));
+
+        return em.createQuery(criteria).setMaxResults(pageSize).getResultList();
+    }
+
     protected CriteriaQuery<Sku> getCriteriaForActiveSkus(Date currentDate) {
         return getCriteriaForActiveSkus(currentDate, null);
     }
@@ -299,11 +411,7 @@ public class SkuDaoImpl implements SkuDao {
         // Ensure the product is currently active
         List<Predicate> restrictions = new ArrayList<Predicate>();
 
-        // Add the active start/end date restrictions
-        restrictions.add(builder.lessThan(sku.get("activeStartDate").as(Date.class), currentDate));
-        restrictions.add(builder.or(
-                builder.isNull(sku.get("activeEndDate")),
-                builder.greaterThan(sku.get("activeEndDate").as(Date.class), currentDate)));
+        attachActiveRestriction(currentDate, sku, restrictions);
         if (lastId != null) {
             restrictions.add(builder.gt(sku.get("id").as(Long.class), lastId));
         }
@@ -315,4 +423,14 @@ public class SkuDaoImpl implements SkuDao {
         criteria.orderBy(builder.asc(sku.get("id")));
         return criteria;
     }
+
+    protected void attachActiveRestriction(Date currentDate, Root<SkuImpl> sku, List<Predicate> restrictions) {
+        CriteriaBuilder builder = em.getCriteriaBuilder();
+
+        // Add the active start/end date restrictions
+        restrictions.add(builder.lessThan(sku.get("activeStartDate").as(Date.class), currentDate));
+        restrictions.add(builder.or(
+                builder.isNull(sku.get("activeEndDate")),
+                builder.greaterThan(sku.get("activeEndDate").as(Date.class), currentDate)));
+    }
 }
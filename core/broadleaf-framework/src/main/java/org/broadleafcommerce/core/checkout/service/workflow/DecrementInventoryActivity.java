@@ -19,6 +19,7 @@ package org.broadleafcommerce.core.checkout.service.workflow;
 
 import org.broadleafcommerce.core.catalog.domain.Sku;
 import org.broadleafcommerce.core.inventory.service.ContextualInventoryService;
+import org.broadleafcommerce.core.inventory.service.InventoryReservationService;
 import org.broadleafcommerce.core.order.domain.OrderItem;
 import org.broadleafcommerce.core.workflow.BaseActivity;
 import org.broadleafcommerce.core.workflow.ProcessContext;
@@ -45,6 +46,9 @@ public class DecrementInventoryActivity extends BaseActivity<ProcessContext<Chec
     
     @Resource(name = "blInventoryService")
     protected ContextualInventoryService inventoryService;
+
+    @Resource(name = "blInventoryReservationService")
+    protected InventoryReservationService reservationService;
     
     @Autowired
     public DecrementInventoryActivity(@Qualifier("blDecrementInventoryRollbackHandler") DecrementInventoryRollbackHandler rollbackHandler) {
@@ -76,6 +80,11 @@ public class DecrementInventoryActivity extends BaseActivity<ProcessContext<Chec
             contextualInfo.put(ContextualInventoryService.ORDER_KEY, context.getSeedData().getOrder());
             contextualInfo.put(ContextualInventoryService.ROLLBACK_STATE_KEY, new HashMap<String, Object>());
             inventoryService.decrementInventory(skuInventoryMap, contextualInfo);
+
+            if (reservationService.isEnabled()) {
+                // the order's holds are now real decrements
+                reservationService.convertReservations(seed.getOrder().getId(), skuInventoryMap);
+            }
             
             if (getRollbackHandler() != null && !getAutomaticallyRegisterRollbackHandler()) {
                 rollbackState.put(DecrementInventoryRollbackHandler.ROLLBACK_BLC_INVENTORY_DECREMENTED, skuInventoryMap);
@@ -86,6 +95,11 @@ public class DecrementInventoryActivity extends BaseActivity<ProcessContext<Chec
             rollbackState.put(DecrementInventoryRollbackHandler.EXTENDED_ROLLBACK_STATE, contextualInfo.get(ContextualInventoryService.ROLLBACK_STATE_KEY));
         }
 
+        if (reservationService.isEnabled()) {
+            // anything the order still holds is no longer needed once its inventory has been decremented
+            reservationService.releaseReservations(seed.getOrder().getId());
+        }
+
         return context;
     }
 
@@ -22,6 +22,7 @@ import org.apache.commons.logging.LogFactory;
 import org.broadleafcommerce.common.util.StringUtil;
 import org.broadleafcommerce.core.catalog.domain.Sku;
 import org.broadleafcommerce.core.inventory.service.ContextualInventoryService;
+import org.broadleafcommerce.core.inventory.service.InventoryReservationService;
 import org.broadleafcommerce.core.inventory.service.InventoryUnavailableException;
 import org.broadleafcommerce.core.workflow.Activity;
 import org.broadleafcommerce.core.workflow.ProcessContext;
@@ -51,6 +52,9 @@ public class DecrementInventoryRollbackHandler implements RollbackHandler<Proces
 
     @Resource(name = "blInventoryService")
     protected ContextualInventoryService inventoryService;
+
+    @Resource(name = "blInventoryReservationService")
+    protected InventoryReservationService reservationService;
     
     @Override
     public void rollbackState(Activity<ProcessContext<CheckoutSeed>> activity, ProcessContext<CheckoutSeed> processContext, Map<String, Object> stateConfiguration)
@@ -106,6 +110,11 @@ public class DecrementInventoryRollbackHandler implements RollbackHandler<Proces
                     throw rfe;
                 }
             }
+
+            if (reservationService.isEnabled() && processContext.getSeedData().getOrder() != null) {
+                // the quantities incremented above reach the reservations with the next reconcile
+                reservationService.releaseReservations(processContext.getSeedData().getOrder().getId());
+            }
         }
     }
     
@@ -0,0 +1,106 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.inventory.service;
+
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.checkout.service.workflow.DecrementInventoryActivity;
+import org.broadleafcommerce.core.order.service.workflow.AbstractCheckAvailabilityActivity;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Holds inventory for carts between add-to-cart and checkout. A hold is kept in memory for a limited time, and
+ * availability is checked against the quantity on hand less the quantity held by other carts, without touching the
+ * database. Quantities on hand are reconciled with the {@link ContextualInventoryService} periodically, so decrements
+ * made elsewhere are picked up. Callers pass in the quantity the {@link ContextualInventoryService} reports for the
+ * order ({@link ContextualInventoryService#ORDER_KEY} in its context), and an order is never given more than that.
+ * <p>
+ * Holds are local to the node that made them. The conditional decrement performed at checkout remains the final
+ * guard against overselling across nodes.
+ * 
+ * @see AbstractCheckAvailabilityActivity
+ * @see DecrementInventoryActivity
+ */
+public interface InventoryReservationService {
+
+    /**
+     * @return whether reservations are enabled. When they are not, every other method is a no-op.
+     */
+    public boolean isEnabled();
+
+    /**
+     * Sets the quantity of the sku held for the order, replacing any existing hold for that sku, and extends the hold's
+     * expiration. Skus whose inventory is not tracked are always reservable.
+     * 
+     * @param orderId the order the inventory is held for
+     * @param sku the sku to hold
+     * @param quantity the total quantity of the sku the order needs
+     * @param quantityAvailable the quantity available to the order according to the {@link ContextualInventoryService},
+     * or null if the sku's inventory is not tracked
+     * @return false if there is not enough unheld inventory to cover the quantity, in which case the existing hold
+     * is left unchanged
+     */
+    public boolean reserve(Long orderId, Sku sku, int quantity, Integer quantityAvailable);
+
+    /**
+     * @param orderId the order asking, whose own hold counts as available to it. Can be null.
+     * @param sku the sku to check
+     * @param quantityAvailable the quantity available to the order according to the {@link ContextualInventoryService},
+     * or null if the sku's inventory is not tracked
+     * @return the quantity on hand that is not held by another order, or null if the sku's inventory is not tracked
+     */
+    public Integer retrieveQuantityAvailable(Long orderId, Sku sku, Integer quantityAvailable);
+
+    /**
+     * Turns the order's holds into a permanent reduction of the quantities on hand, once the inventory has been
+     * decremented at checkout
+     * 
+     * @param orderId the order that was checked out
+     * @param skuQuantities the quantities that were decremented
+     */
+    public void convertReservations(Long orderId, Map<Sku, Integer> skuQuantities);
+
+    /**
+     * Releases every hold for the order, such as once it has been checked out or its checkout was rolled back
+     * 
+     * @param orderId the order whose holds should be released
+     */
+    public void releaseReservations(Long orderId);
+
+    /**
+     * Releases the order's holds on the given skus, such as when they are removed from the cart
+     * 
+     * @param orderId the order whose holds should be released
+     * @param skus the skus to release
+     */
+    public void releaseReservations(Long orderId, Collection<Sku> skus);
+
+    /**
+     * Releases every hold whose time has run out
+     * 
+     * @return the number of holds released
+     */
+    public int sweepExpiredReservations();
+
+    /**
+     * Re-reads the quantity on hand of every sku with a hold, and forgets skus that no longer have any
+     */
+    public void reconcile();
+
+}
@@ -0,0 +1,463 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.inventory.service;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.classloader.release.ThreadLocalManager;
+import org.broadleafcommerce.common.time.SystemTime;
+import org.broadleafcommerce.common.util.DaemonThreadFactory;
+import org.broadleafcommerce.common.util.TransactionUtils;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.broadleafcommerce.core.catalog.dao.SkuDao;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.inventory.service.type.InventoryType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+/**
+ * Keeps one {@link SkuReservations} per held sku in a concurrent map, and serializes changes to a sku's holds on that
+ * sku alone, so carts holding different skus never contend. The skus each order holds are indexed so that releasing an
+ * order's holds only visits those skus. A single background thread sweeps expired holds and reconciles quantities on
+ * hand on separate schedules.
+ */
+@Service("blInventoryReservationService")
+@ManagedResource(objectName = "org.broadleafcommerce:name=InventoryReservationService", description = "Inventory Reservation Statistics", currencyTimeLimit = 15)
+public class InventoryReservationServiceImpl implements InventoryReservationService {
+
+    private static final Log LOG = LogFactory.getLog(InventoryReservationServiceImpl.class);
+
+    protected static final int RECONCILE_BATCH_SIZE = 100;
+
+    @Value("${inventory.reservation.enabled}")
+    protected boolean enabled;
+
+    @Value("${inventory.reservation.holdMillis}")
+    protected long holdMillis;
+
+    @Value("${inventory.reservation.sweepIntervalMillis}")
+    protected long sweepIntervalMillis;
+
+    @Value("${inventory.reservation.reconcileIntervalMillis}")
+    protected long reconcileIntervalMillis;
+
+    @Resource(name = "blInventoryService")
+    protected ContextualInventoryService inventoryService;
+
+    @Resource(name = "blSkuDao")
+    protected SkuDao skuDao;
+
+    @Resource(name = "blTransactionManager")
+    protected PlatformTransactionManager transactionManager;
+
+    protected final ConcurrentMap<Long, SkuReservations> reservations = new ConcurrentHashMap<Long, SkuReservations>();
+
+    /**
+     * The ids of the skus each order holds. An entry may briefly miss a hold that is being added for the same order
+     * while its holds are released; such a hold is released by the sweep once it expires.
+     */
+    protected final ConcurrentMap<Long, Set<Long>> heldSkuIdsByOrder = new ConcurrentHashMap<Long, Set<Long>>();
+
+    protected final AtomicLong rejectedReservations = new AtomicLong();
+    protected final AtomicLong expiredReservations = new AtomicLong();
+    protected final AtomicLong convertedReservations = new AtomicLong();
+
+    protected ScheduledExecutorService maintenanceExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(
+                new DaemonThreadFactory("blInventoryReservationMaintenance"));
+        maintenanceExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    sweepExpiredReservations();
+                } catch (RuntimeException e) {
+                    LOG.error("Could not sweep expired inventory reservations", e);
+                }
+            }
+        }, sweepIntervalMillis, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+        maintenanceExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                boolean isNewContext = BroadleafRequestContext.getBroadleafRequestContext() == null;
+                if (isNewContext) {
+                    BroadleafRequestContext.setBroadleafRequestContext(new BroadleafRequestContext());
+                }
+                try {
+                    reconcile();
+                } catch (RuntimeException e) {
+                    LOG.error("Could not reconcile inventory reservations", e);
+                } finally {
+                    if (isNewContext) {
+                        ThreadLocalManager.remove();
+                    }
+                }
+            }
+        }, reconcileIntervalMillis, reconcileIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (maintenanceExecutor != null) {
+            maintenanceExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The other orders' holds are taken from the smaller of the quantity on hand tracked here and the quantity
+     * available to this order, so a context that limits what the order may see also limits what it may hold.
+     */
+    @Override
+    public boolean reserve(Long orderId, Sku sku, int quantity, Integer quantityAvailable) {
+        if (!enabled || !InventoryType.CHECK_QUANTITY.equals(sku.getInventoryType()) || quantityAvailable == null) {
+            return true;
+        }
+        long expiresAt = currentTimeMillis() + holdMillis;
+        while (true) {
+            SkuReservations skuReservations = getReservations(sku, quantityAvailable);
+            synchronized (skuReservations) {
+                if (skuReservations.isRemoved) {
+                    continue;
+                }
+                Hold hold = skuReservations.holds.get(orderId);
+                int currentQuantity = hold == null ? 0 : hold.quantity;
+                int unheld = Math.min(skuReservations.quantityOnHand, quantityAvailable) - skuReservations.quantityHeld;
+                if (quantity > currentQuantity && quantity - currentQuantity > unheld) {
+                    rejectedReservations.incrementAndGet();
+                    return false;
+                }
+                if (quantity <= 0) {
+                    if (hold != null) {
+                        skuReservations.holds.remove(orderId);
+                        unindexHold(orderId, sku.getId());
+                    }
+                } else if (hold == null) {
+                    skuReservations.holds.put(orderId, new Hold(quantity, expiresAt));
+                    indexHold(orderId, sku.getId());
+                } else {
+                    hold.quantity = quantity;
+                    hold.expiresAt = expiresAt;
+                }
+                skuReservations.quantityHeld += Math.max(quantity, 0) - currentQuantity;
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public Integer retrieveQuantityAvailable(Long orderId, Sku sku, Integer quantityAvailable) {
+        if (!enabled || !InventoryType.CHECK_QUANTITY.equals(sku.getInventoryType()) || quantityAvailable == null) {
+            return quantityAvailable;
+        }
+        SkuReservations skuReservations = getReservations(sku, quantityAvailable);
+        synchronized (skuReservations) {
+            Hold hold = orderId == null ? null : skuReservations.holds.get(orderId);
+            int available = Math.min(skuReservations.quantityOnHand, quantityAvailable) - skuReservations.quantityHeld
+                    + (hold == null ? 0 : hold.quantity);
+            return Math.max(available, 0);
+        }
+    }
+
+    @Override
+    public void convertReservations(Long orderId, Map<Sku, Integer> skuQuantities) {
+        if (!enabled) {
+            return;
+        }
+        for (Map.Entry<Sku, Integer> entry : skuQuantities.entrySet()) {
+            SkuReservations skuReservations = reservations.get(entry.getKey().getId());
+            if (skuReservations == null) {
+                continue;
+            }
+            synchronized (skuReservations) {
+                Hold hold = skuReservations.holds.remove(orderId);
+                if (hold != null) {
+                    skuReservations.quantityHeld -= hold.quantity;
+                    unindexHold(orderId, entry.getKey().getId());
+                    convertedReservations.incrementAndGet();
+                }
+                skuReservations.quantityOnHand = Math.max(skuReservations.quantityOnHand - entry.getValue(), 0);
+                skuReservations.version++;
+            }
+        }
+    }
+
+    @Override
+    public void releaseReservations(Long orderId) {
+        if (!enabled) {
+            return;
+        }
+        Set<Long> skuIds = heldSkuIdsByOrder.remove(orderId);
+        if (skuIds == null) {
+            return;
+        }
+        for (Long skuId : skuIds) {
+            SkuReservations skuReservations = reservations.get(skuId);
+            if (skuReservations == null) {
+                continue;
+            }
+            synchronized (skuReservations) {
+                Hold hold = skuReservations.holds.remove(orderId);
+                if (hold != null) {
+                    skuReservations.quantityHeld -= hold.quantity;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void releaseReservations(Long orderId, Collection<Sku> skus) {
+        if (!enabled) {
+            return;
+        }
+        for (Sku sku : skus) {
+            SkuReservations skuReservations = reservations.get(sku.getId());
+            if (skuReservations == null) {
+                continue;
+            }
+            synchronized (skuReservations) {
+                Hold hold = skuReservations.holds.remove(orderId);
+                if (hold != null) {
+                    skuReservations.quantityHeld -= hold.quantity;
+                    unindexHold(orderId, sku.getId());
+                }
+            }
+        }
+    }
+
+    @Override
+    @ManagedOperation(description = "Release every inventory hold whose time has run out")
+    public int sweepExpiredReservations() {
+        long now = currentTimeMillis();
+        int released = 0;
+        for (Map.Entry<Long, SkuReservations> entry : reservations.entrySet()) {
+            SkuReservations skuReservations = entry.getValue();
+            synchronized (skuReservations) {
+                Iterator<Map.Entry<Long, Hold>> holds = skuReservations.holds.entrySet().iterator();
+                while (holds.hasNext()) {
+                    Map.Entry<Long, Hold> hold = holds.next();
+                    if (hold.getValue().expiresAt <= now) {
+                        holds.remove();
+                        skuReservations.quantityHeld -= hold.getValue().quantity;
+                        unindexHold(hold.getKey(), entry.getKey());
+                        released++;
+                    }
+                }
+            }
+        }
+        expiredReservations.addAndGet(released);
+        return released;
+    }
+
+    @Override
+    @ManagedOperation(description = "Re-read the quantity on hand of every held sku")
+    public void reconcile() {
+        List<Long> skuIds = new ArrayList<Long>();
+        for (Map.Entry<Long, SkuReservations> entry : reservations.entrySet()) {
+            SkuReservations skuReservations = entry.getValue();
+            synchronized (skuReservations) {
+                if (skuReservations.holds.isEmpty()) {
+                    skuReservations.isRemoved = true;
+                    reservations.remove(entry.getKey(), skuReservations);
+                } else {
+                    skuIds.add(entry.getKey());
+                }
+            }
+        }
+        for (int i = 0; i < skuIds.size(); i += RECONCILE_BATCH_SIZE) {
+            reconcile(skuIds.subList(i, Math.min(i + RECONCILE_BATCH_SIZE, skuIds.size())));
+        }
+    }
+
+    /**
+     * Reads fresh quantities for a batch of skus. A quantity is only applied if no checkout converted a hold for the
+     * sku while it was being read, since the value read may not reflect that decrement yet.
+     */
+    protected void reconcile(List<Long> skuIds) {
+        Map<Long, Long> versions = new HashMap<Long, Long>();
+        for (Long skuId : skuIds) {
+            SkuReservations skuReservations = reservations.get(skuId);
+            if (skuReservations != null) {
+                synchronized (skuReservations) {
+                    versions.put(skuId, skuReservations.version);
+                }
+            }
+        }
+
+        Map<Sku, Integer> quantities;
+        TransactionStatus status = TransactionUtils.createTransaction("reconcileInventoryReservations",
+                TransactionDefinition.PROPAGATION_REQUIRED, transactionManager, true);
+        try {
+            quantities = inventoryService.retrieveQuantitiesAvailable(skuDao.readSkusByIds(skuIds), null);
+            TransactionUtils.finalizeTransaction(status, transactionManager, false);
+        } catch (RuntimeException e) {
+            TransactionUtils.finalizeTransaction(status, transactionManager, true);
+            throw e;
+        }
+
+        for (Map.Entry<Sku, Integer> entry : quantities.entrySet()) {
+            Long skuId = entry.getKey().getId();
+            SkuReservations skuReservations = reservations.get(skuId);
+            if (skuReservations == null || entry.getValue() == null) {
+                continue;
+            }
+            synchronized (skuReservations) {
+                if (versions.containsKey(skuId) && versions.get(skuId) == skuReservations.version) {
+                    skuReservations.quantityOnHand = entry.getValue();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the reservations for the sku, starting from the given quantity on hand if it has none yet
+     */
+    protected SkuReservations getReservations(Sku sku, int quantityOnHand) {
+        SkuReservations skuReservations = reservations.get(sku.getId());
+        if (skuReservations == null) {
+            SkuReservations created = new SkuReservations(quantityOnHand);
+            skuReservations = reservations.putIfAbsent(sku.getId(), created);
+            if (skuReservations == null) {
+                skuReservations = created;
+            }
+        }
+        return skuReservations;
+    }
+
+    protected void indexHold(Long orderId, Long skuId) {
+        Set<Long> skuIds = heldSkuIdsByOrder.get(orderId);
+        if (skuIds == null) {
+            Set<Long> created = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+            skuIds = heldSkuIdsByOrder.putIfAbsent(orderId, created);
+            if (skuIds == null) {
+                skuIds = created;
+            }
+        }
+        skuIds.add(skuId);
+    }
+
+    protected void unindexHold(Long orderId, Long skuId) {
+        Set<Long> skuIds = heldSkuIdsByOrder.get(orderId);
+        if (skuIds != null) {
+            skuIds.remove(skuId);
+            if (skuIds.isEmpty()) {
+                heldSkuIdsByOrder.remove(orderId, skuIds);
+            }
+        }
+    }
+
+    /**
+     * Holds expire in real time, so this reads the system clock rather than a time source that may be set to a
+     * sandbox preview date.
+     */
+    protected long currentTimeMillis() {
+        return SystemTime.wallClockMillis();
+    }
+
+    @ManagedAttribute(description = "Number of skus with reservations tracked in memory")
+    public int getTrackedSkuCount() {
+        return reservations.size();
+    }
+
+    @ManagedAttribute(description = "Number of holds currently in place")
+    public int getActiveHoldCount() {
+        int count = 0;
+        for (SkuReservations skuReservations : reservations.values()) {
+            synchronized (skuReservations) {
+                count += skuReservations.holds.size();
+            }
+        }
+        return count;
+    }
+
+    @ManagedAttribute(description = "Number of reservations refused for lack of inventory")
+    public long getRejectedReservationCount() {
+        return rejectedReservations.get();
+    }
+
+    @ManagedAttribute(description = "Number of holds released because their time ran out")
+    public long getExpiredReservationCount() {
+        return expiredReservations.get();
+    }
+
+    @ManagedAttribute(description = "Number of holds converted at checkout")
+    public long getConvertedReservationCount() {
+        return convertedReservations.get();
+    }
+
+    /**
+     * The holds on a single sku. All fields are guarded by the instance's monitor.
+     */
+    protected static class SkuReservations {
+
+        protected final Map<Long, Hold> holds = new HashMap<Long, Hold>();
+        protected int quantityOnHand;
+        protected int quantityHeld;
+        protected long version;
+        protected boolean isRemoved;
+
+        public SkuReservations(int quantityOnHand) {
+            this.quantityOnHand = quantityOnHand;
+        }
+    }
+
+    protected static class Hold {
+
+        protected int quantity;
+        protected long expiresAt;
+
+        public Hold(int quantity, long expiresAt) {
+            this.quantity = quantity;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
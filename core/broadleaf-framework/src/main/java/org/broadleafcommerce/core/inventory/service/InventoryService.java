@@ -128,6 +128,9 @@ public interface InventoryService {
      * <p>If any of the given {@link Sku}s inventory type is <b>not</b> {@link InventoryType#CHECK_QUANTITY} then this
      * is a no-op and nothing actually happens</p>
      * 
+     * <p>Either every sku is decremented or none of them are. If any sku does not have enough inventory, no inventory is
+     * left decremented when the exception is thrown.</p>
+     * 
      * @param skuQuantities a map from a {@link Sku} to the quantity attempting to decrement
      * @throws InventoryUnavailableException if there is not enough inventory to decrement from any of the given skus or
      * if {@link #checkBasicAvailablility(Sku)} returns false
@@ -28,6 +28,7 @@ import org.broadleafcommerce.common.event.BroadleafSystemEventDetail;
 import org.broadleafcommerce.common.extension.ExtensionResultHolder;
 import org.broadleafcommerce.common.extension.ExtensionResultStatusType;
 import org.broadleafcommerce.common.util.TransactionUtils;
+import org.broadleafcommerce.core.catalog.dao.SkuDao;
 import org.broadleafcommerce.core.catalog.domain.Sku;
 import org.broadleafcommerce.core.catalog.service.CatalogService;
 import org.broadleafcommerce.core.inventory.service.type.InventoryType;
@@ -46,9 +47,11 @@ import org.springframework.transaction.support.TransactionSynchronizationManager
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.TreeMap;
 
 import javax.annotation.Resource;
 
@@ -59,6 +62,9 @@ public class InventoryServiceImpl implements ContextualInventoryService {
     
     @Resource(name = "blCatalogService")
     protected CatalogService catalogService;
+
+    @Resource(name = "blSkuDao")
+    protected SkuDao skuDao;
     
     @Resource(name = "blInventoryServiceExtensionManager")
     protected InventoryServiceExtensionManager extensionManager;
@@ -192,7 +198,18 @@ public class InventoryServiceImpl implements ContextualInventoryService {
         }
     }
 
+    /**
+     * Decrements every sku in the map or none of them. A CHECK_QUANTITY sku whose quantity available is null is not
+     * tracked and is left alone, as it always has been.
+     * <p>
+     * If an {@link InventoryServiceExtensionHandler} answers
+     * {@link InventoryServiceExtensionHandler#retrieveQuantitiesAvailable(Collection, Map, ExtensionResultHolder)} for
+     * the given context, its quantities are checked and the skus are saved with the new quantity, so the handler stays
+     * in charge of what is available. Otherwise each sku is decremented by a single conditional update, see
+     * {@link #decrementQuantitiesAvailable(Map)}.
+     */
     protected void decrementSku(Map<Sku, Integer> skuQuantities, Map<String, Object> context) throws InventoryUnavailableException {
+        Map<Sku, Integer> tracked = new LinkedHashMap<Sku, Integer>();
         for (Entry<Sku, Integer> entry : skuQuantities.entrySet()) {
             Sku sku = entry.getKey();
             Integer quantity = entry.getValue();
@@ -202,18 +219,7 @@ public class InventoryServiceImpl implements ContextualInventoryService {
 
             if (checkBasicAvailablility(sku)) {
                 if (InventoryType.CHECK_QUANTITY.equals(sku.getInventoryType())) {
-                    Integer inventoryAvailable = retrieveQuantityAvailable(sku, context);
-                    if (inventoryAvailable == null) {
-                        return;
-                    }
-                    if (inventoryAvailable < quantity) {
-                        throw new InventoryUnavailableException(
-                                "There was not enough inventory to fulfill this request.", sku.getId(), quantity, inventoryAvailable);
-                    }
-                    int newInventory = inventoryAvailable - quantity;
-                    sku.setQuantityAvailable(newInventory);
-                    catalogService.saveSku(sku);
-                    invalidateSkuInventory(sku);
+                    tracked.put(sku, quantity);
                 } else {
                     LOG.info("Not decrementing inventory as the Sku has been marked as always available");
                 }
@@ -221,6 +227,89 @@ public class InventoryServiceImpl implements ContextualInventoryService {
                 throw new InventoryUnavailableException("The Sku has been marked as unavailable", sku.getId(), quantity, 0);
             }
         }
+        if (tracked.isEmpty()) {
+            return;
+        }
+
+        ExtensionResultHolder<Map<Sku, Integer>> holder = new ExtensionResultHolder<Map<Sku, Integer>>();
+        ExtensionResultStatusType res = extensionManager.getProxy().retrieveQuantitiesAvailable(tracked.keySet(), context, holder);
+        if (ExtensionResultStatusType.NOT_HANDLED.equals(res)) {
+            decrementQuantitiesAvailable(tracked);
+        } else {
+            decrementQuantitiesAvailable(tracked, holder.getResult());
+        }
+    }
+
+    /**
+     * Decrements each sku by a single conditional update, so no sku is read and written back and the {@code Sku}
+     * entities are never merged. If any sku does not have enough inventory, the skus already decremented are
+     * incremented again before the exception is thrown, so this holds even when the caller is not transactional.
+     */
+    protected void decrementQuantitiesAvailable(Map<Sku, Integer> skuQuantities) throws InventoryUnavailableException {
+        Map<Long, Integer> quantities = new TreeMap<Long, Integer>();
+        Map<Long, Sku> skus = new HashMap<Long, Sku>();
+        for (Entry<Sku, Integer> entry : skuQuantities.entrySet()) {
+            Sku sku = entry.getKey();
+            if (sku.getQuantityAvailable() == null) {
+                continue;
+            }
+            Integer previousQuantity = quantities.get(sku.getId());
+            quantities.put(sku.getId(), previousQuantity == null ? entry.getValue() : previousQuantity + entry.getValue());
+            skus.put(sku.getId(), sku);
+        }
+        if (quantities.isEmpty()) {
+            return;
+        }
+
+        List<Long> decremented = skuDao.decrementQuantitiesAvailable(quantities);
+        if (decremented.size() < quantities.size()) {
+            Map<Long, Integer> compensation = new HashMap<Long, Integer>();
+            for (Long skuId : decremented) {
+                compensation.put(skuId, quantities.get(skuId));
+            }
+            if (!compensation.isEmpty()) {
+                skuDao.incrementQuantitiesAvailable(compensation);
+            }
+
+            Long unavailableSkuId = null;
+            for (Long skuId : quantities.keySet()) {
+                if (!decremented.contains(skuId)) {
+                    unavailableSkuId = skuId;
+                    break;
+                }
+            }
+            Integer inventoryAvailable = skus.get(unavailableSkuId).getQuantityAvailable();
+            throw new InventoryUnavailableException("There was not enough inventory to fulfill this request.",
+                    unavailableSkuId, quantities.get(unavailableSkuId), inventoryAvailable == null ? 0 : inventoryAvailable);
+        }
+
+        for (Long skuId : decremented) {
+            invalidateSkuInventory(skus.get(skuId));
+        }
+    }
+
+    /**
+     * Decrements the skus against the quantities reported by an extension handler. Every sku is checked before any of
+     * them is saved, and a null quantity means the handler does not track that sku.
+     */
+    protected void decrementQuantitiesAvailable(Map<Sku, Integer> skuQuantities, Map<Sku, Integer> quantitiesAvailable)
+            throws InventoryUnavailableException {
+        for (Entry<Sku, Integer> entry : skuQuantities.entrySet()) {
+            Integer inventoryAvailable = quantitiesAvailable.get(entry.getKey());
+            if (inventoryAvailable != null && inventoryAvailable < entry.getValue()) {
+                throw new InventoryUnavailableException("There was not enough inventory to fulfill this request.",
+                        entry.getKey().getId(), entry.getValue(), inventoryAvailable);
+            }
+        }
+        for (Entry<Sku, Integer> entry : skuQuantities.entrySet()) {
+            Sku sku = entry.getKey();
+            Integer inventoryAvailable = quantitiesAvailable.get(sku);
+            if (inventoryAvailable != null) {
+                sku.setQuantityAvailable(inventoryAvailable - entry.getValue());
+                catalogService.saveSku(sku);
+                invalidateSkuInventory(sku);
+            }
+        }
     }
 
     @Override
@@ -240,7 +329,13 @@ public class InventoryServiceImpl implements ContextualInventoryService {
         }
     }
 
+    /**
+     * Increments the CHECK_QUANTITY skus in the map. As with {@link #decrementSku(Map, Map)}, the quantities come from an
+     * {@link InventoryServiceExtensionHandler} when one answers for the given context, and otherwise each sku is
+     * incremented by a single update.
+     */
     protected void incrementSku(Map<Sku, Integer> skuQuantities, Map<String, Object> context) {
+        Map<Sku, Integer> tracked = new LinkedHashMap<Sku, Integer>();
         for (Entry<Sku, Integer> entry : skuQuantities.entrySet()) {
             Sku sku = entry.getKey();
             Integer quantity = entry.getValue();
@@ -248,17 +343,45 @@ public class InventoryServiceImpl implements ContextualInventoryService {
                 throw new IllegalArgumentException("Quantity " + quantity + " is not valid. Must be greater than zero and not null.");
             }
             if (InventoryType.CHECK_QUANTITY.equals(sku.getInventoryType())) {
-                Integer currentInventoryAvailable = retrieveQuantityAvailable(sku, context);
+                tracked.put(sku, quantity);
+            } else {
+                LOG.info("Not incrementing inventory as the Sku has been marked as always available");
+            }
+        }
+        if (tracked.isEmpty()) {
+            return;
+        }
+
+        ExtensionResultHolder<Map<Sku, Integer>> holder = new ExtensionResultHolder<Map<Sku, Integer>>();
+        ExtensionResultStatusType res = extensionManager.getProxy().retrieveQuantitiesAvailable(tracked.keySet(), context, holder);
+        if (!ExtensionResultStatusType.NOT_HANDLED.equals(res)) {
+            for (Entry<Sku, Integer> entry : tracked.entrySet()) {
+                Sku sku = entry.getKey();
+                Integer currentInventoryAvailable = holder.getResult().get(sku);
                 if (currentInventoryAvailable == null) {
                     throw new IllegalArgumentException("The current inventory for this Sku is null");
                 }
-                int newInventory = currentInventoryAvailable + quantity;
-                sku.setQuantityAvailable(newInventory);
+                sku.setQuantityAvailable(currentInventoryAvailable + entry.getValue());
                 catalogService.saveSku(sku);
                 invalidateSkuInventory(sku);
-            } else {
-                LOG.info("Not incrementing inventory as the Sku has been marked as always available");
             }
+            return;
+        }
+
+        Map<Long, Integer> quantities = new TreeMap<Long, Integer>();
+        Map<Long, Sku> skus = new HashMap<Long, Sku>();
+        for (Entry<Sku, Integer> entry : tracked.entrySet()) {
+            Sku sku = entry.getKey();
+            Integer previousQuantity = quantities.get(sku.getId());
+            quantities.put(sku.getId(), previousQuantity == null ? entry.getValue() : previousQuantity + entry.getValue());
+            skus.put(sku.getId(), sku);
+        }
+        List<Long> incremented = skuDao.incrementQuantitiesAvailable(quantities);
+        for (Long skuId : incremented) {
+            invalidateSkuInventory(skus.get(skuId));
+        }
+        if (incremented.size() < quantities.size()) {
+            throw new IllegalArgumentException("The current inventory for this Sku is null");
         }
     }
 
@@ -40,6 +40,15 @@ public interface OfferDao {
 
     List<Offer> readOffersByAutomaticDeliveryType();
 
+    /**
+     * Reads every automatically added, non-archived offer that has not already ended, regardless of its start date.
+     * Used to build the {@link org.broadleafcommerce.core.offer.service.OfferCatalogIndex}, which applies the start
+     * date itself so that offers scheduled for the future become active without a reload.
+     *
+     * @return the automatic delivery offers that are active now or in the future
+     */
+    List<Offer> readAllAutomaticDeliveryOffers();
+
     Offer save(Offer offer);
 
     void delete(Offer offer);
@@ -187,6 +187,22 @@ public class OfferDaoImpl implements OfferDao {
         return criteria.list();
     }
 
+    @Override
+    public List<Offer> readAllAutomaticDeliveryOffers() {
+        Criteria criteria = ((HibernateEntityManager) em).getSession().createCriteria(OfferImpl.class);
+
+        Calendar c = Calendar.getInstance();
+        c.setTime(getCurrentDateAfterFactoringInDateResolution());
+        c.add(Calendar.DATE, -1);
+        criteria.add(Restrictions.or(Restrictions.isNull("endDate"), Restrictions.gt("endDate", c.getTime())));
+        criteria.add(Restrictions.or(Restrictions.eq("archiveStatus.archived", 'N'),
+                Restrictions.isNull("archiveStatus.archived")));
+
+        criteria.add(Restrictions.eq("automaticallyAdded", true));
+
+        return criteria.list();
+    }
+
     @Override
     public Long getCurrentDateResolution() {
         return currentDateResolution;
@@ -0,0 +1,63 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.offer.domain;
+
+import org.broadleafcommerce.common.util.ApplicationContextHolder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+
+/**
+ * Publishes a Spring event once a transaction that changed an offer has committed. This lets in-memory structures
+ * derived from offers, such as the {@link org.broadleafcommerce.core.offer.service.OfferCatalogIndex}, refresh
+ * themselves without waiting for their time to live to expire.
+ *
+ * @see {@link ApplicationEventPublisher#publishEvent(org.springframework.context.ApplicationEvent)}
+ * @see {@link OfferPersistedEvent}
+ */
+public class OfferPersistedEntityListener {
+
+    /**
+     * Invoked on PostPersist, PostUpdate and PostRemove. Archiving an offer is an update, so it is covered as well.
+     *
+     * @param entity the changed Offer
+     * @see OfferPersistedEvent
+     */
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void offerUpdated(final Object entity) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                        ApplicationContextHolder.getApplicationContext().publishEvent(new OfferPersistedEvent((Offer) entity));
+                    }
+                }
+            });
+        }
+    }
+
+}
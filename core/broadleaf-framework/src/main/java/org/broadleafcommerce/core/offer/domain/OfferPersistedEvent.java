@@ -0,0 +1,49 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.offer.domain;
+
+import org.broadleafcommerce.common.event.BroadleafApplicationEvent;
+
+
+/**
+ * An event for whenever an {@link OfferImpl} has been persisted, updated or removed
+ *
+ * @see {@link OfferPersistedEntityListener}
+ * @see {@link org.broadleafcommerce.core.offer.service.OfferCatalogIndex}
+ */
+public class OfferPersistedEvent extends BroadleafApplicationEvent {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param offer the newly persisted offer
+     */
+    public OfferPersistedEvent(Offer offer) {
+        super(offer);
+    }
+
+    /**
+     * Gets the newly-persisted {@link Offer} set by the {@link OfferPersistedEntityListener}
+     * 
+     * @return
+     */
+    public Offer getOffer() {
+        return (Offer) source;
+    }
+
+}
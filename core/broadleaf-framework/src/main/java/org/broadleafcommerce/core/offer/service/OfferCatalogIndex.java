@@ -0,0 +1,52 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.offer.service;
+
+import org.broadleafcommerce.core.offer.domain.Offer;
+
+import java.util.List;
+
+/**
+ * In-memory index of the automatic delivery offers used by {@link OfferService#buildOfferListForOrder}. The index
+ * holds a lightweight, immutable view of each offer (id, start and end date) sorted by start date, so selecting the
+ * offers that are active right now does not require a query per pricing request.
+ * <p>
+ * Offers are resolved from the index by id, which is served from the Hibernate second level cache for the
+ * {@link org.broadleafcommerce.core.offer.domain.OfferImpl} entity. The returned offers are therefore managed by
+ * the current persistence context, exactly as if they had been read by
+ * {@link org.broadleafcommerce.core.offer.dao.OfferDao#readOffersByAutomaticDeliveryType()}. Every active offer is
+ * still loaded on each lookup, so the index only pays off when that cache region is enabled, which is why it is off
+ * unless <code>offer.catalog.index.enabled</code> is set.
+ * <p>
+ * The index is rebuilt whenever an offer is changed on this node (see
+ * {@link org.broadleafcommerce.core.offer.domain.OfferPersistedEvent}) and after a configurable time to live, which
+ * picks up changes made on other nodes of a cluster.
+ */
+public interface OfferCatalogIndex {
+
+    /**
+     * @return the automatic delivery offers whose start and end dates include the current date
+     */
+    List<Offer> findActiveAutomaticDeliveryOffers();
+
+    /**
+     * Discards the current index so that it is rebuilt on the next lookup
+     */
+    void invalidate();
+
+}
@@ -0,0 +1,299 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.offer.service;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.time.SystemTime;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.broadleafcommerce.core.offer.dao.OfferDao;
+import org.broadleafcommerce.core.offer.domain.Offer;
+import org.broadleafcommerce.core.offer.domain.OfferPersistedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Resource;
+
+/**
+ * Default {@link OfferCatalogIndex}. One index is kept per site. Requests running in a sandbox (for example, admin
+ * preview) bypass the index and read straight from the {@link OfferDao}, since sandboxed offers can change at any
+ * time without an event being published.
+ */
+@Service("blOfferCatalogIndex")
+public class OfferCatalogIndexImpl implements OfferCatalogIndex, ApplicationListener<OfferPersistedEvent> {
+
+    private static final Log LOG = LogFactory.getLog(OfferCatalogIndexImpl.class);
+
+    protected static final String GLOBAL_KEY = "global";
+
+    @Resource(name = "blOfferDao")
+    protected OfferDao offerDao;
+
+    /**
+     * The number of milliseconds an index is used before it is rebuilt from the database. Changes made on this node
+     * are picked up immediately; this mostly bounds how stale another node in the cluster can be.
+     */
+    @Value("${offer.catalog.index.ttl:60000}")
+    protected long ttl = 60000L;
+
+    @Value("${offer.catalog.index.enabled:false}")
+    protected boolean enabled = false;
+
+    protected final ConcurrentMap<String, Snapshot> snapshots = new ConcurrentHashMap<String, Snapshot>();
+
+    /**
+     * Bumped on every invalidation so that a snapshot being built concurrently with an offer change is not kept
+     */
+    protected final AtomicLong version = new AtomicLong();
+
+    @Override
+    public List<Offer> findActiveAutomaticDeliveryOffers() {
+        if (!isIndexable()) {
+            return offerDao.readOffersByAutomaticDeliveryType();
+        }
+        return resolve(getSnapshot().getAll());
+    }
+
+    @Override
+    public void invalidate() {
+        version.incrementAndGet();
+        snapshots.clear();
+    }
+
+    @Override
+    public void onApplicationEvent(OfferPersistedEvent event) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Invalidating the offer catalog index after a change to offer " + event.getOffer().getId());
+        }
+        invalidate();
+    }
+
+    protected boolean isIndexable() {
+        BroadleafRequestContext context = BroadleafRequestContext.getBroadleafRequestContext();
+        return enabled && (context == null || context.getSandBox() == null);
+    }
+
+    protected String getSnapshotKey() {
+        BroadleafRequestContext context = BroadleafRequestContext.getBroadleafRequestContext();
+        if (context != null && context.getNonPersistentSite() != null) {
+            return String.valueOf(context.getNonPersistentSite().getId());
+        }
+        return GLOBAL_KEY;
+    }
+
+    protected Snapshot getSnapshot() {
+        String key = getSnapshotKey();
+        Snapshot snapshot = snapshots.get(key);
+        long now = System.currentTimeMillis();
+        if (snapshot == null || snapshot.isExpired(now, ttl)) {
+            snapshot = buildSnapshot(now, version.get());
+            installSnapshot(key, snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Stores the given snapshot unless it was built before the last invalidation, or another thread already stored a
+     * snapshot that is at least as recent. The check and the write are a single compare-and-set on the map, retried
+     * until it either wins or finds a newer snapshot.
+     */
+    protected void installSnapshot(String key, Snapshot snapshot) {
+        while (snapshot.getVersion() == version.get()) {
+            Snapshot existing = snapshots.putIfAbsent(key, snapshot);
+            if (existing == null || (!existing.isNewerThan(snapshot) && snapshots.replace(key, existing, snapshot))) {
+                // an invalidation between the version check and the write may already have cleared the map
+                if (snapshot.getVersion() != version.get()) {
+                    snapshots.remove(key, snapshot);
+                }
+                return;
+            }
+            if (existing.isNewerThan(snapshot)) {
+                return;
+            }
+        }
+    }
+
+    protected Snapshot buildSnapshot(long now, long version) {
+        List<Offer> offers = offerDao.readAllAutomaticDeliveryOffers();
+        List<IndexedOffer> entries = new ArrayList<IndexedOffer>(offers.size());
+        for (Offer offer : offers) {
+            entries.add(new IndexedOffer(offer));
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Built offer catalog index for " + getSnapshotKey() + " with " + entries.size() + " offers");
+        }
+        return new Snapshot(entries, now, version);
+    }
+
+    /**
+     * Loads the offers in the given entries that are active right now. The date window mirrors
+     * {@link OfferDao#readOffersByAutomaticDeliveryType()}, which allows a day on either side so that the offer's own
+     * time zone can be applied later by the offer processors.
+     */
+    protected List<Offer> resolve(IndexedOffer[] entries) {
+        Date currentDate = SystemTime.asDate();
+        Calendar c = Calendar.getInstance();
+        c.setTime(currentDate);
+        c.add(Calendar.DATE, +1);
+        long startBefore = c.getTimeInMillis();
+        c.setTime(currentDate);
+        c.add(Calendar.DATE, -1);
+        long endAfter = c.getTimeInMillis();
+
+        List<Offer> offers = new ArrayList<Offer>();
+        int end = findFirstStartingAtOrAfter(entries, startBefore);
+        for (int i = 0; i < end; i++) {
+            IndexedOffer entry = entries[i];
+            if (entry.getEndTime() == null || entry.getEndTime() > endAfter) {
+                Offer offer = offerDao.readOfferById(entry.getId());
+                if (offer != null) {
+                    offers.add(offer);
+                }
+            }
+        }
+        return offers;
+    }
+
+    /**
+     * Binary search over the start-date ordered entries
+     */
+    protected int findFirstStartingAtOrAfter(IndexedOffer[] entries, long time) {
+        int low = 0;
+        int high = entries.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries[mid].getStartTime() < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public long getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(long ttl) {
+        this.ttl = ttl;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setOfferDao(OfferDao offerDao) {
+        this.offerDao = offerDao;
+    }
+
+    /**
+     * The parts of an offer that are needed to decide whether it is a candidate, detached from the entity
+     */
+    public static class IndexedOffer {
+
+        protected final Long id;
+        protected final long startTime;
+        protected final Long endTime;
+
+        public IndexedOffer(Offer offer) {
+            this.id = offer.getId();
+            // An offer without a start date is never returned by the automatic delivery query, so it is never active here
+            this.startTime = offer.getStartDate() == null ? Long.MAX_VALUE : offer.getStartDate().getTime();
+            this.endTime = offer.getEndDate() == null ? null : offer.getEndDate().getTime();
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public long getStartTime() {
+            return startTime;
+        }
+
+        public Long getEndTime() {
+            return endTime;
+        }
+    }
+
+    protected static final Comparator<IndexedOffer> START_TIME_COMPARATOR = new Comparator<IndexedOffer>() {
+
+        @Override
+        public int compare(IndexedOffer o1, IndexedOffer o2) {
+            return o1.getStartTime() < o2.getStartTime() ? -1 : (o1.getStartTime() == o2.getStartTime() ? 0 : 1);
+        }
+    };
+
+    /**
+     * Immutable view of the indexed offers for a site
+     */
+    protected static class Snapshot {
+
+        protected final IndexedOffer[] all;
+        protected final long createdTime;
+        protected final long version;
+
+        public Snapshot(List<IndexedOffer> entries, long createdTime, long version) {
+            List<IndexedOffer> sorted = new ArrayList<IndexedOffer>(entries);
+            Collections.sort(sorted, START_TIME_COMPARATOR);
+            this.all = sorted.toArray(new IndexedOffer[sorted.size()]);
+            this.createdTime = createdTime;
+            this.version = version;
+        }
+
+        public IndexedOffer[] getAll() {
+            return all;
+        }
+
+        public boolean isExpired(long now, long ttl) {
+            return ttl >= 0 && now - createdTime > ttl;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public long getCreatedTime() {
+            return createdTime;
+        }
+
+        /**
+         * @return true if this snapshot was built after a later invalidation, or from the same one but later, than the
+         * given snapshot
+         */
+        public boolean isNewerThan(Snapshot other) {
+            return version > other.version || (version == other.version && createdTime > other.createdTime);
+        }
+    }
+
+}
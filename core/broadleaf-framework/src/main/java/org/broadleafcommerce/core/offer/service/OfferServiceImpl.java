@@ -87,6 +87,9 @@ public class OfferServiceImpl implements OfferService {
 
     @Resource(name="blOfferDao")
     protected OfferDao offerDao;
+
+    @Resource(name="blOfferCatalogIndex")
+    protected OfferCatalogIndex offerCatalogIndex;
     
     @Resource(name="blOrderOfferProcessor")
     protected OrderOfferProcessor orderOfferProcessor;
@@ -190,23 +193,30 @@ public class OfferServiceImpl implements OfferService {
     @Override
     public List<Offer> buildOfferListForOrder(Order order) {
         List<Offer> offers = new ArrayList<Offer>();
+        Set<Offer> addedOffers = new HashSet<Offer>();
         List<CustomerOffer> customerOffers = lookupOfferCustomerByCustomer(order.getCustomer());
         for (CustomerOffer customerOffer : customerOffers) {
-            if (!offers.contains(customerOffer.getOffer())) {
+            if (addedOffers.add(customerOffer.getOffer())) {
                 offers.add(customerOffer.getOffer());
             }
         }
         List<OfferCode> orderOfferCodes = refreshOfferCodesIfApplicable(order);
         orderOfferCodes = removeOutOfDateOfferCodes(orderOfferCodes);
         for (OfferCode orderOfferCode : orderOfferCodes) {
-            if (!offers.contains(orderOfferCode.getOffer())) {
+            if (addedOffers.add(orderOfferCode.getOffer())) {
                 offers.add(orderOfferCode.getOffer());
             }
+            int sizeBeforeExtension = offers.size();
             extensionManager.getProxy().addAdditionalOffersForCode(offers, orderOfferCode);
+            // handlers add straight to the list, so keep the lookup set in sync with anything they added
+            for (int i = sizeBeforeExtension; i < offers.size(); i++) {
+                addedOffers.add(offers.get(i));
+            }
         }
         List<Offer> globalOffers = lookupAutomaticDeliveryOffers();
         for (Offer globalOffer : globalOffers) {
-            if (!offers.contains(globalOffer) && verifyMaxCustomerUsageThreshold(order, globalOffer)) {
+            if (!addedOffers.contains(globalOffer) && verifyMaxCustomerUsageThreshold(order, globalOffer)) {
+                addedOffers.add(globalOffer);
                 offers.add(globalOffer);
             }
         }
@@ -270,11 +280,15 @@ public class OfferServiceImpl implements OfferService {
     }
 
     /**
-     * Private method used to retrieve all offers with automaticallyAdded set to true
+     * Private method used to retrieve all offers with automaticallyAdded set to true. Uses the
+     * {@link OfferCatalogIndex} when one is configured.
      *
      * @return a List of automatic delivery offers
      */
     protected List<Offer> lookupAutomaticDeliveryOffers() {
+        if (offerCatalogIndex != null) {
+            return offerCatalogIndex.findActiveAutomaticDeliveryOffers();
+        }
         List<Offer> globalOffers = offerDao.readOffersByAutomaticDeliveryType();
         return globalOffers;
     }
@@ -664,6 +678,14 @@ public class OfferServiceImpl implements OfferService {
         this.offerDao = offerDao;
     }
 
+    public OfferCatalogIndex getOfferCatalogIndex() {
+        return offerCatalogIndex;
+    }
+
+    public void setOfferCatalogIndex(OfferCatalogIndex offerCatalogIndex) {
+        this.offerCatalogIndex = offerCatalogIndex;
+    }
+
     @Override
     public OrderOfferProcessor getOrderOfferProcessor() {
         return orderOfferProcessor;
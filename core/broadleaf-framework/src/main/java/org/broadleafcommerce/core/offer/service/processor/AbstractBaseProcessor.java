@@ -18,7 +18,6 @@
 package org.broadleafcommerce.core.offer.service.processor;
 
 import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.collections4.map.LRUMap;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.broadleafcommerce.common.RequestDTO;
@@ -47,6 +46,7 @@ import org.joda.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -65,7 +65,14 @@ import javax.annotation.Resource;
 public abstract class AbstractBaseProcessor implements BaseProcessor {
 
     private static final Log LOG = LogFactory.getLog(AbstractBaseProcessor.class);
-    private static final Map EXPRESSION_CACHE = new LRUMap(1000);
+    private static final Map<String, Class<?>> CONTEXT_IMPORTS;
+
+    static {
+        Map<String, Class<?>> contextImports = new HashMap<>();
+        contextImports.put("OfferType", OfferType.class);
+        contextImports.put("FulfillmentType", FulfillmentType.class);
+        CONTEXT_IMPORTS = Collections.unmodifiableMap(contextImports);
+    }
 
     @Resource(name = "blOfferTimeZoneProcessor")
     protected OfferTimeZoneProcessor offerTimeZoneProcessor;
@@ -262,12 +269,8 @@ public abstract class AbstractBaseProcessor implements BaseProcessor {
      * @return a Boolean object containing the result of executing the MVEL expression
      */
     public Boolean executeExpression(String expression, Map<String, Object> vars) {
-        Map<String, Class<?>> contextImports = new HashMap<>();
-
         expression = usePriceBeforeAdjustments(expression);
-        contextImports.put("OfferType", OfferType.class);
-        contextImports.put("FulfillmentType", FulfillmentType.class);
-        return MvelHelper.evaluateRule(expression, vars, EXPRESSION_CACHE, contextImports);
+        return MvelHelper.evaluateRule(expression, vars, MvelHelper.getSharedExpressionCache(), CONTEXT_IMPORTS);
 
     }
 
@@ -0,0 +1,191 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.offer.service.processor;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.core.offer.service.discount.domain.PromotableCandidateItemOffer;
+import org.broadleafcommerce.core.offer.service.discount.domain.PromotableOrder;
+import org.broadleafcommerce.core.offer.service.discount.domain.PromotableOrderItem;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Branch-and-bound variant of {@link ExhaustiveItemOfferPermutationOptimizer}.
+ * <p>
+ * Each permutation is given a lower bound for the subtotal it could produce: the order subtotal without adjustments
+ * minus the potential savings of every offer in the permutation. The potential savings are calculated by
+ * {@link ItemOfferProcessorImpl#calculatePotentialSavings(List, PromotableOrder)} as if each offer were the only one
+ * being applied, so an offer can never save more once it is combined with other offers. Permutations are evaluated
+ * in order of increasing bound and any permutation whose bound cannot beat the best subtotal found so far is skipped
+ * without being applied to the order.
+ * <p>
+ * The bounds are accumulated over a prefix tree of the permutations, so permutations that share a leading run of
+ * offers share the partial sums for that prefix rather than recomputing them.
+ * <p>
+ * Ties are broken by the position of the permutation in the original list, so the result is always the same
+ * permutation the exhaustive search would pick. Implementations of
+ * {@link org.broadleafcommerce.core.offer.service.OfferServiceExtensionHandler#calculatePotentialSavings} that
+ * override the savings must keep them an upper bound of what the offer can actually save for this to hold.
+ */
+@Service("blItemOfferPermutationOptimizer")
+public class BranchAndBoundItemOfferPermutationOptimizer implements ItemOfferPermutationOptimizer {
+
+    private static final Log LOG = LogFactory.getLog(BranchAndBoundItemOfferPermutationOptimizer.class);
+
+    @Override
+    public List<PromotableCandidateItemOffer> findBestPermutation(List<List<PromotableCandidateItemOffer>> permutations,
+            PromotableOrder order, ItemOfferPermutationEvaluator evaluator) {
+        List<PermutationCandidate> candidates = buildCandidates(permutations, calculateSubtotalWithoutAdjustments(order));
+        Collections.sort(candidates);
+
+        PermutationCandidate best = null;
+        BigDecimal lowestSubtotal = null;
+        int evaluatedCount = 0;
+        for (PermutationCandidate candidate : candidates) {
+            if (best != null) {
+                int boundComparison = candidate.getLowerBound().compareTo(lowestSubtotal);
+                if (boundComparison > 0) {
+                    // Candidates are sorted by bound, so nothing after this one can beat the best either
+                    break;
+                }
+                if (boundComparison == 0 && candidate.getIndex() > best.getIndex()) {
+                    // Can at best tie the current best, and ties go to the earlier permutation
+                    continue;
+                }
+            }
+
+            Money testSubtotal = evaluator.evaluatePermutation(candidate.getOffers(), order);
+            evaluatedCount++;
+
+            if (best == null || isBetter(testSubtotal.getAmount(), candidate, lowestSubtotal, best)) {
+                lowestSubtotal = testSubtotal.getAmount();
+                best = candidate;
+            }
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Evaluated " + evaluatedCount + " of " + candidates.size() + " item offer permutations");
+        }
+
+        return best.getOffers();
+    }
+
+    protected boolean isBetter(BigDecimal subtotal, PermutationCandidate candidate, BigDecimal lowestSubtotal,
+            PermutationCandidate best) {
+        int comparison = subtotal.compareTo(lowestSubtotal);
+        return comparison < 0 || (comparison == 0 && candidate.getIndex() < best.getIndex());
+    }
+
+    /**
+     * The subtotal the order would have if no item offers were applied. This is the same base price used by
+     * {@link PromotableOrderItem#calculateTotalWithAdjustments()} when an item has no adjustments.
+     */
+    protected BigDecimal calculateSubtotalWithoutAdjustments(PromotableOrder order) {
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (PromotableOrderItem item : order.getAllOrderItems()) {
+            subtotal = subtotal.add(item.calculateTotalWithoutAdjustments().getAmount());
+        }
+        return subtotal;
+    }
+
+    protected List<PermutationCandidate> buildCandidates(List<List<PromotableCandidateItemOffer>> permutations,
+            BigDecimal baseSubtotal) {
+        PrefixNode root = new PrefixNode(BigDecimal.ZERO);
+        List<PermutationCandidate> candidates = new ArrayList<PermutationCandidate>(permutations.size());
+        for (int i = 0; i < permutations.size(); i++) {
+            List<PromotableCandidateItemOffer> offerList = permutations.get(i);
+            PrefixNode node = root;
+            for (PromotableCandidateItemOffer offer : offerList) {
+                node = node.getOrCreateChild(offer);
+            }
+            candidates.add(new PermutationCandidate(i, offerList, baseSubtotal.subtract(node.getSavings())));
+        }
+        return candidates;
+    }
+
+    /**
+     * Node in the prefix tree of permutations. Holds the summed potential savings of every offer on the path from
+     * the root to this node.
+     */
+    protected static class PrefixNode {
+
+        protected final BigDecimal savings;
+        protected final Map<PromotableCandidateItemOffer, PrefixNode> children =
+                new IdentityHashMap<PromotableCandidateItemOffer, PrefixNode>();
+
+        public PrefixNode(BigDecimal savings) {
+            this.savings = savings;
+        }
+
+        public PrefixNode getOrCreateChild(PromotableCandidateItemOffer offer) {
+            PrefixNode child = children.get(offer);
+            if (child == null) {
+                child = new PrefixNode(savings.add(offer.getPotentialSavings().getAmount()));
+                children.put(offer, child);
+            }
+            return child;
+        }
+
+        public BigDecimal getSavings() {
+            return savings;
+        }
+    }
+
+    protected static class PermutationCandidate implements Comparable<PermutationCandidate> {
+
+        protected final int index;
+        protected final List<PromotableCandidateItemOffer> offers;
+        protected final BigDecimal lowerBound;
+
+        public PermutationCandidate(int index, List<PromotableCandidateItemOffer> offers, BigDecimal lowerBound) {
+            this.index = index;
+            this.offers = offers;
+            this.lowerBound = lowerBound;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public List<PromotableCandidateItemOffer> getOffers() {
+            return offers;
+        }
+
+        public BigDecimal getLowerBound() {
+            return lowerBound;
+        }
+
+        @Override
+        public int compareTo(PermutationCandidate other) {
+            int comparison = lowerBound.compareTo(other.lowerBound);
+            if (comparison == 0) {
+                comparison = index < other.index ? -1 : (index == other.index ? 0 : 1);
+            }
+            return comparison;
+        }
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.offer.service.processor;
+
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.core.offer.service.discount.domain.PromotableCandidateItemOffer;
+import org.broadleafcommerce.core.offer.service.discount.domain.PromotableOrder;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Evaluates every permutation against the order and keeps the one with the lowest subtotal. This is the historical
+ * behavior of {@link ItemOfferProcessorImpl} and is the reference implementation other optimizers are compared to.
+ */
+@Service("blExhaustiveItemOfferPermutationOptimizer")
+public class ExhaustiveItemOfferPermutationOptimizer implements ItemOfferPermutationOptimizer {
+
+    @Override
+    public List<PromotableCandidateItemOffer> findBestPermutation(List<List<PromotableCandidateItemOffer>> permutations,
+            PromotableOrder order, ItemOfferPermutationEvaluator evaluator) {
+        List<PromotableCandidateItemOffer> bestOfferList = null;
+        Money lowestSubtotal = null;
+        for (List<PromotableCandidateItemOffer> offerList : permutations) {
+            Money testSubtotal = evaluator.evaluatePermutation(offerList, order);
+
+            if (lowestSubtotal == null || testSubtotal.lessThan(lowestSubtotal)) {
+                lowestSubtotal = testSubtotal;
+                bestOfferList = offerList;
+            }
+        }
+        return bestOfferList;
+    }
+
+}
@@ -0,0 +1,45 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.offer.service.processor;
+
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.core.offer.service.discount.domain.PromotableCandidateItemOffer;
+import org.broadleafcommerce.core.offer.service.discount.domain.PromotableOrder;
+
+import java.util.List;
+
+/**
+ * Callback used by an {@link ItemOfferPermutationOptimizer} to price a single permutation of item offers. This
+ * follows the same template approach as {@link ItemOfferMarkTargets} so that the optimizer can remain unaware of
+ * how offers are actually applied to the order.
+ *
+ * @see ItemOfferProcessorImpl#evaluatePermutation(List, PromotableOrder)
+ */
+public interface ItemOfferPermutationEvaluator {
+
+    /**
+     * Applies the given offers (in order) to the passed in order, returns the resulting subtotal with adjustments
+     * and then resets the order back to its un-discounted state so that the next permutation can be evaluated.
+     *
+     * @param offerList the permutation of item offers to evaluate
+     * @param order the order being priced
+     * @return the order subtotal after applying the permutation
+     */
+    Money evaluatePermutation(List<PromotableCandidateItemOffer> offerList, PromotableOrder order);
+
+}
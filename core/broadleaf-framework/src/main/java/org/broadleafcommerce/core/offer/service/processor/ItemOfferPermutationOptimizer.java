@@ -0,0 +1,47 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.offer.service.processor;
+
+import org.broadleafcommerce.core.offer.service.discount.domain.PromotableCandidateItemOffer;
+import org.broadleafcommerce.core.offer.service.discount.domain.PromotableOrder;
+
+import java.util.List;
+
+/**
+ * Strategy used by {@link ItemOfferProcessorImpl} to choose which permutation of item offers produces the lowest
+ * order subtotal. Implementations must return the same permutation that an exhaustive search would return, which is
+ * the first permutation (in list order) that produces the lowest subtotal.
+ *
+ * @see ExhaustiveItemOfferPermutationOptimizer
+ * @see BranchAndBoundItemOfferPermutationOptimizer
+ */
+public interface ItemOfferPermutationOptimizer {
+
+    /**
+     * Determines the best permutation from the passed in list.
+     *
+     * @param permutations the candidate permutations, as built by the item offer processor. Expected to contain more
+     * than one entry and no duplicates.
+     * @param order the order being priced
+     * @param evaluator callback used to apply a permutation to the order and compute the resulting subtotal
+     * @return the permutation yielding the lowest subtotal
+     */
+    List<PromotableCandidateItemOffer> findBestPermutation(List<List<PromotableCandidateItemOffer>> permutations,
+            PromotableOrder order, ItemOfferPermutationEvaluator evaluator);
+
+}
@@ -57,6 +57,8 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
 
+import javax.annotation.Resource;
+
 /**
  * Filter and apply order item offers.
  * 
@@ -64,10 +66,14 @@ import java.util.Set;
  *
  */
 @Service("blItemOfferProcessor")
-public class ItemOfferProcessorImpl extends OrderOfferProcessorImpl implements ItemOfferProcessor, ItemOfferMarkTargets {
+public class ItemOfferProcessorImpl extends OrderOfferProcessorImpl implements ItemOfferProcessor, ItemOfferMarkTargets,
+        ItemOfferPermutationEvaluator {
     
     protected static final Log LOG = LogFactory.getLog(ItemOfferProcessorImpl.class);
 
+    @Resource(name = "blItemOfferPermutationOptimizer")
+    protected ItemOfferPermutationOptimizer itemOfferPermutationOptimizer;
+
     /* (non-Javadoc)
      * @see org.broadleafcommerce.core.offer.service.processor.ItemOfferProcessor#filterItemLevelOffer(org.broadleafcommerce.core.order.domain.Order, java.util.List, java.util.List, org.broadleafcommerce.core.offer.domain.Offer)
      */
@@ -602,27 +608,8 @@ public class ItemOfferProcessorImpl extends OrderOfferProcessorImpl implements I
         List<List<PromotableCandidateItemOffer>> permutations = buildItemOfferPermutations(itemOffers);
         removeDuplicatePermutations(permutations);
         List<PromotableCandidateItemOffer> bestOfferList = null;
-        Money lowestSubtotal = null;
         if (permutations.size() > 1) {
-            for (List<PromotableCandidateItemOffer> offerList : permutations) {
-                for (PromotableCandidateItemOffer offer : offerList) {
-                    offer.resetUses();
-                }
-                
-                applyAllItemOffers(offerList, order);
-                chooseSaleOrRetailAdjustments(order);
-                Money testSubtotal = order.calculateSubtotalWithAdjustments();
-
-                if (lowestSubtotal == null || testSubtotal.lessThan(lowestSubtotal)) {
-                    lowestSubtotal = testSubtotal;
-                    bestOfferList = offerList;
-                }
-
-                // clear price details
-                for (PromotableOrderItem item : order.getDiscountableOrderItems()) {
-                    item.resetPriceDetails();
-                }
-            }
+            bestOfferList = getItemOfferPermutationOptimizer().findBestPermutation(permutations, order, this);
         } else {
             bestOfferList = permutations.get(0);
         }
@@ -634,6 +621,24 @@ public class ItemOfferProcessorImpl extends OrderOfferProcessorImpl implements I
         return bestOfferList;
     }
 
+    @Override
+    public Money evaluatePermutation(List<PromotableCandidateItemOffer> offerList, PromotableOrder order) {
+        for (PromotableCandidateItemOffer offer : offerList) {
+            offer.resetUses();
+        }
+
+        applyAllItemOffers(offerList, order);
+        chooseSaleOrRetailAdjustments(order);
+        Money testSubtotal = order.calculateSubtotalWithAdjustments();
+
+        // clear price details
+        for (PromotableOrderItem item : order.getDiscountableOrderItems()) {
+            item.resetPriceDetails();
+        }
+
+        return testSubtotal;
+    }
+
     protected void removeDuplicatePermutations(List<List<PromotableCandidateItemOffer>> permutations) {
         Set<List<Long>> offerIdListSet = new HashSet<>();
 
@@ -721,4 +726,15 @@ public class ItemOfferProcessorImpl extends OrderOfferProcessorImpl implements I
             }  
         }
     }
+
+    public ItemOfferPermutationOptimizer getItemOfferPermutationOptimizer() {
+        if (itemOfferPermutationOptimizer == null) {
+            itemOfferPermutationOptimizer = new ExhaustiveItemOfferPermutationOptimizer();
+        }
+        return itemOfferPermutationOptimizer;
+    }
+
+    public void setItemOfferPermutationOptimizer(ItemOfferPermutationOptimizer itemOfferPermutationOptimizer) {
+        this.itemOfferPermutationOptimizer = itemOfferPermutationOptimizer;
+    }
 }
@@ -22,6 +22,7 @@ package org.broadleafcommerce.core.order.service.workflow;
 
 import org.broadleafcommerce.core.catalog.domain.Sku;
 import org.broadleafcommerce.core.inventory.service.ContextualInventoryService;
+import org.broadleafcommerce.core.inventory.service.InventoryReservationService;
 import org.broadleafcommerce.core.inventory.service.InventoryUnavailableException;
 import org.broadleafcommerce.core.inventory.service.type.InventoryType;
 import org.broadleafcommerce.core.order.domain.Order;
@@ -45,6 +46,9 @@ public abstract class AbstractCheckAvailabilityActivity extends BaseActivity<Pro
     @Resource(name = "blInventoryService")
     protected ContextualInventoryService inventoryService;
 
+    @Resource(name = "blInventoryReservationService")
+    protected InventoryReservationService reservationService;
+
     @Override
     public boolean shouldExecute(ProcessContext<CartOperationRequest> context) {
         Order order = context.getSeedData().getOrder();
@@ -52,6 +56,17 @@ public abstract class AbstractCheckAvailabilityActivity extends BaseActivity<Pro
     }
     
     protected void checkSkuAvailability(Order order, Sku sku, Integer requestedQuantity) throws InventoryUnavailableException {
+        checkSkuAvailability(order, sku, requestedQuantity, 0);
+    }
+
+    /**
+     * Checks availability of the given Sku. When inventory reservations are enabled, this also places (or resizes)
+     * the order's hold on the Sku so that it covers everything the order will contain after this operation.
+     * 
+     * @param replacedQuantity the quantity of this Sku already in the order that the requested quantity replaces,
+     * such as the previous quantity of an item being updated
+     */
+    protected void checkSkuAvailability(Order order, Sku sku, Integer requestedQuantity, int replacedQuantity) throws InventoryUnavailableException {
         // First check if this Sku is available
         if (!sku.isAvailable()) {
             throw new InventoryUnavailableException("The referenced Sku " + sku.getId() + " is marked as unavailable", sku.getId(), requestedQuantity, 0);
@@ -65,6 +80,16 @@ public abstract class AbstractCheckAvailabilityActivity extends BaseActivity<Pro
                 throw new InventoryUnavailableException(sku.getId(),
                         requestedQuantity, inventoryService.retrieveQuantityAvailable(sku, inventoryContext));
             }
+
+            if (reservationService.isEnabled() && order.getId() != null) {
+                Integer quantityAvailable = inventoryService.retrieveQuantityAvailable(sku, inventoryContext);
+                Integer orderQuantity = inventoryService.buildSkuInventoryMap(order).get(sku);
+                int totalQuantity = (orderQuantity == null ? 0 : orderQuantity) - replacedQuantity + requestedQuantity;
+                if (!reservationService.reserve(order.getId(), sku, totalQuantity, quantityAvailable)) {
+                    throw new InventoryUnavailableException(sku.getId(), requestedQuantity,
+                            reservationService.retrieveQuantityAvailable(order.getId(), sku, quantityAvailable));
+                }
+            }
         }
 
         // the other case here is ALWAYS_AVAILABLE and null, which we are treating as being available
@@ -80,14 +80,14 @@ public class CheckUpdateAvailabilityActivity extends AbstractCheckAvailabilityAc
 
         Order order = context.getSeedData().getOrder();
         Integer requestedQuantity = request.getItemRequest().getQuantity();
-        checkSkuAvailability(order, sku, requestedQuantity);
+        checkSkuAvailability(order, sku, requestedQuantity, orderItem.getQuantity());
 
         Integer previousQty = orderItem.getQuantity();
         for (OrderItem child : orderItem.getChildOrderItems()) {
             Sku childSku = ((DiscreteOrderItem) child).getSku();
             Integer childQuantity = child.getQuantity();
             childQuantity = childQuantity / previousQty;
-            checkSkuAvailability(order, childSku, childQuantity * requestedQuantity);
+            checkSkuAvailability(order, childSku, childQuantity * requestedQuantity, child.getQuantity());
         }
 
         return context;
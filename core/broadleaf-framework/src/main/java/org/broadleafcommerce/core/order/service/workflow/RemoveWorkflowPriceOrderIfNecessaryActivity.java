@@ -20,11 +20,28 @@
  */
 package org.broadleafcommerce.core.order.service.workflow;
 
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.inventory.service.ContextualInventoryService;
+import org.broadleafcommerce.core.inventory.service.InventoryReservationService;
+import org.broadleafcommerce.core.order.domain.BundleOrderItem;
+import org.broadleafcommerce.core.order.domain.DiscreteOrderItem;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.order.domain.OrderItem;
 import org.broadleafcommerce.core.workflow.ProcessContext;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Resource;
+
 /**
- * 
+ * Removes the deleted items from the order and, when inventory reservations are enabled, shrinks or releases the
+ * order's holds on the skus that were removed.
  * 
  * @author Phillip Verheyden (phillipuniverse)
  */
@@ -32,6 +49,12 @@ import org.springframework.stereotype.Component;
 public class RemoveWorkflowPriceOrderIfNecessaryActivity extends AddWorkflowPriceOrderIfNecessaryActivity {
 
     public static final int ORDER = 5000;
+
+    @Resource(name = "blInventoryService")
+    protected ContextualInventoryService inventoryService;
+
+    @Resource(name = "blInventoryReservationService")
+    protected InventoryReservationService reservationService;
     
     public RemoveWorkflowPriceOrderIfNecessaryActivity() {
         setOrder(ORDER);
@@ -39,6 +62,54 @@ public class RemoveWorkflowPriceOrderIfNecessaryActivity extends AddWorkflowPric
     
     @Override
     public ProcessContext<CartOperationRequest> execute(ProcessContext<CartOperationRequest> context) throws Exception {
-        return super.execute(context);
+        Set<Sku> removedSkus = new LinkedHashSet<Sku>();
+        for (OrderItem orderItem : context.getSeedData().getOisToDelete()) {
+            collectSkus(orderItem, removedSkus);
+        }
+
+        context = super.execute(context);
+
+        Order order = context.getSeedData().getOrder();
+        if (reservationService.isEnabled() && order != null && order.getId() != null && !removedSkus.isEmpty()) {
+            updateReservations(order, removedSkus);
+        }
+        return context;
+    }
+
+    /**
+     * Releases the holds on removed skus the order no longer contains, and shrinks the holds on those it still
+     * contains through other items
+     */
+    protected void updateReservations(Order order, Set<Sku> removedSkus) {
+        Map<Sku, Integer> remaining = inventoryService.buildSkuInventoryMap(order);
+        Map<String, Object> inventoryContext = new HashMap<>();
+        inventoryContext.put(ContextualInventoryService.ORDER_KEY, order);
+        List<Sku> released = new ArrayList<Sku>();
+        for (Sku sku : removedSkus) {
+            Integer quantity = remaining.get(sku);
+            if (quantity == null) {
+                released.add(sku);
+            } else {
+                reservationService.reserve(order.getId(), sku, quantity,
+                        inventoryService.retrieveQuantityAvailable(sku, inventoryContext));
+            }
+        }
+        if (!released.isEmpty()) {
+            reservationService.releaseReservations(order.getId(), released);
+        }
+    }
+
+    protected void collectSkus(OrderItem orderItem, Set<Sku> skus) {
+        if (orderItem instanceof DiscreteOrderItem && ((DiscreteOrderItem) orderItem).getSku() != null) {
+            skus.add(((DiscreteOrderItem) orderItem).getSku());
+        } else if (orderItem instanceof BundleOrderItem) {
+            BundleOrderItem bundleItem = (BundleOrderItem) orderItem;
+            if (bundleItem.getSku() != null) {
+                skus.add(bundleItem.getSku());
+            }
+            for (DiscreteOrderItem discreteItem : bundleItem.getDiscreteOrderItems()) {
+                collectSkus(discreteItem, skus);
+            }
+        }
     }
 }
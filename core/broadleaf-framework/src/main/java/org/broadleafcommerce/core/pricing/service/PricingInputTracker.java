@@ -0,0 +1,70 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.pricing.service;
+
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.pricing.service.workflow.PricingInputAware;
+import org.broadleafcommerce.core.pricing.service.workflow.type.PricingInputType;
+
+import java.util.Set;
+
+/**
+ * Remembers what the pricing inputs of an {@link Order} looked like the last time it was priced on this node, so that
+ * the next pricing pass only has to re-run the activities whose inputs changed.
+ *
+ * @see PricingInputAware
+ */
+public interface PricingInputTracker {
+
+    /**
+     * @return whether incremental pricing is turned on
+     */
+    public boolean isEnabled();
+
+    /**
+     * @return whether every incremental pricing pass should be checked against a full pricing pass
+     */
+    public boolean isVerifyEnabled();
+
+    /**
+     * Compares the current state of the given order against the state recorded by
+     * {@link #recordPricedInputs(Order)}.
+     *
+     * @param order
+     * @return the inputs that changed since the order was last priced, or null if the order has to be priced in full,
+     * for example because it was never priced on this node, its totals were changed by a pricing pass on another node,
+     * the recorded state is too old, or tracking is disabled
+     */
+    public Set<PricingInputType> findDirtyInputs(Order order);
+
+    /**
+     * Records the current state of the given order as its last priced state. Should only be called after a pricing
+     * pass completed successfully.
+     *
+     * @param order
+     */
+    public void recordPricedInputs(Order order);
+
+    /**
+     * Forgets the recorded state of the given order so that the next pricing pass runs in full.
+     *
+     * @param order
+     */
+    public void invalidate(Order order);
+
+}
@@ -0,0 +1,390 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.pricing.service;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.BroadleafEnumerationType;
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.common.time.SystemTime;
+import org.broadleafcommerce.common.value.ValueAssignable;
+import org.broadleafcommerce.core.offer.domain.OfferCode;
+import org.broadleafcommerce.core.order.domain.BundleOrderItem;
+import org.broadleafcommerce.core.order.domain.DiscreteOrderItem;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroup;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroupItem;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.order.domain.OrderAttribute;
+import org.broadleafcommerce.core.order.domain.OrderItem;
+import org.broadleafcommerce.core.payment.domain.OrderPayment;
+import org.broadleafcommerce.core.pricing.service.workflow.type.PricingInputType;
+import org.broadleafcommerce.profile.core.domain.Address;
+import org.broadleafcommerce.profile.core.domain.Customer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Tracks pricing inputs by fingerprinting the parts of an {@link Order} that each {@link PricingInputType} covers and
+ * keeping the fingerprints from the last successful pricing pass of each order in a bounded, per node map. An order
+ * whose fingerprints are missing or older than <code>pricing.incremental.maxAgeSeconds</code> is priced in full, which
+ * also picks up changes that are not visible on the order itself, such as catalog prices, offers starting or ending,
+ * and shipping rates.
+ * <p>
+ * Since the fingerprints are only kept on the node that priced the order, the totals that pricing pass produced are
+ * fingerprinted as well. If another node has repriced and saved the order in the meantime, the totals on the order no
+ * longer match and the order is priced in full, even if its inputs are back to what this node last priced.
+ */
+@Service("blPricingInputTracker")
+public class PricingInputTrackerImpl implements PricingInputTracker {
+
+    private static final Log LOG = LogFactory.getLog(PricingInputTrackerImpl.class);
+
+    protected static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    protected static final long FNV_PRIME = 0x100000001b3L;
+
+    @Value("${pricing.incremental.enabled:false}")
+    protected boolean enabled = false;
+
+    @Value("${pricing.incremental.verify:false}")
+    protected boolean verifyEnabled = false;
+
+    @Value("${pricing.incremental.maxAgeSeconds:300}")
+    protected long maxAgeSeconds = 300;
+
+    @Value("${pricing.incremental.maxOrders:10000}")
+    protected int maxOrders = 10000;
+
+    protected final Map<Long, PricedInputs> pricedInputs = Collections.synchronizedMap(new LinkedHashMap<Long, PricedInputs>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, PricedInputs> eldest) {
+            return size() > maxOrders;
+        }
+    });
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public boolean isVerifyEnabled() {
+        return enabled && verifyEnabled;
+    }
+
+    @Override
+    public Set<PricingInputType> findDirtyInputs(Order order) {
+        if (!enabled || order == null || order.getId() == null) {
+            return null;
+        }
+        PricedInputs previous = pricedInputs.get(order.getId());
+        if (previous == null || SystemTime.wallClockMillis() - previous.pricedAt > maxAgeSeconds * 1000L) {
+            return null;
+        }
+        Map<PricingInputType, Long> current = buildFingerprints(order);
+        if (current == null) {
+            return null;
+        }
+        if (previous.pricingResult != fingerprintPricingResult(order)) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Totals of order " + order.getId() + " changed since it was last priced on this node");
+            }
+            return null;
+        }
+        Set<PricingInputType> dirty = new HashSet<>();
+        for (Map.Entry<PricingInputType, Long> entry : current.entrySet()) {
+            if (!entry.getValue().equals(previous.fingerprints.get(entry.getKey()))) {
+                dirty.add(entry.getKey());
+            }
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Pricing inputs changed for order " + order.getId() + ": " + dirty);
+        }
+        return dirty;
+    }
+
+    @Override
+    public void recordPricedInputs(Order order) {
+        if (!enabled || order == null || order.getId() == null) {
+            return;
+        }
+        Map<PricingInputType, Long> fingerprints = buildFingerprints(order);
+        if (fingerprints == null) {
+            pricedInputs.remove(order.getId());
+        } else {
+            pricedInputs.put(order.getId(), new PricedInputs(fingerprints, fingerprintPricingResult(order),
+                    SystemTime.wallClockMillis()));
+        }
+    }
+
+    @Override
+    public void invalidate(Order order) {
+        if (order != null && order.getId() != null) {
+            pricedInputs.remove(order.getId());
+        }
+    }
+
+    /**
+     * @return a fingerprint for every tracked input of the order, or null if the order cannot be fingerprinted
+     * reliably, for example because it contains entities that have not been persisted yet
+     */
+    protected Map<PricingInputType, Long> buildFingerprints(Order order) {
+        Long items = fingerprintOrderItems(order);
+        Long fulfillment = fingerprintFulfillment(order);
+        Long payments = fingerprintPayments(order);
+        if (items == null || fulfillment == null || payments == null) {
+            return null;
+        }
+        Map<PricingInputType, Long> fingerprints = new HashMap<>();
+        fingerprints.put(PricingInputType.ORDER_ITEMS, items);
+        fingerprints.put(PricingInputType.OFFER_CODES, fingerprintOfferCodes(order));
+        fingerprints.put(PricingInputType.CUSTOMER, fingerprintCustomer(order));
+        fingerprints.put(PricingInputType.FULFILLMENT, fulfillment);
+        fingerprints.put(PricingInputType.PAYMENTS, payments);
+        return fingerprints;
+    }
+
+    /**
+     * @return a fingerprint of the totals that pricing writes to the order, which tells whether the order was repriced
+     * somewhere else since this node recorded its inputs. Should only be called for orders that
+     * {@link #buildFingerprints(Order)} accepted, since the items and fulfillment groups are keyed by id.
+     */
+    protected long fingerprintPricingResult(Order order) {
+        Fingerprint fingerprint = new Fingerprint()
+                .add(order.getSubTotal())
+                .add(order.getOrderAdjustmentsValue())
+                .add(order.getTotalFulfillmentCharges())
+                .add(order.getTotalTax())
+                .add(order.getTotal());
+        Map<Long, Money> items = new TreeMap<>();
+        for (OrderItem item : order.getOrderItems()) {
+            items.put(item.getId(), item.getTotalPrice());
+        }
+        Map<Long, Money> groups = new TreeMap<>();
+        if (order.getFulfillmentGroups() != null) {
+            for (FulfillmentGroup group : order.getFulfillmentGroups()) {
+                groups.put(group.getId(), group.getTotal());
+            }
+        }
+        return fingerprint.add(items).add(groups).value();
+    }
+
+    protected Long fingerprintOrderItems(Order order) {
+        Fingerprint fingerprint = new Fingerprint()
+                .add(order.getCurrency() == null ? null : order.getCurrency().getCurrencyCode())
+                .add(order.getTaxOverride())
+                .add(orderAttributeValues(order));
+        Map<Long, Long> items = new TreeMap<>();
+        for (OrderItem item : order.getOrderItems()) {
+            if (item.getId() == null) {
+                return null;
+            }
+            Fingerprint itemFingerprint = new Fingerprint()
+                    .add(item.getClass().getName())
+                    .add(item.getQuantity())
+                    .add(item.getRetailPrice())
+                    .add(item.getSalePrice())
+                    .add(item.isRetailPriceOverride())
+                    .add(item.isSalePriceOverride())
+                    .add(item.isDiscountingAllowed())
+                    .add(item.getParentOrderItem() == null ? null : item.getParentOrderItem().getId())
+                    .add(attributeValues(item.getOrderItemAttributes() == null ? null : item.getOrderItemAttributes().values()));
+            if (item instanceof DiscreteOrderItem) {
+                DiscreteOrderItem discreteItem = (DiscreteOrderItem) item;
+                itemFingerprint.add(discreteItem.getSku() == null ? null : discreteItem.getSku().getId())
+                        .add(discreteItem.getProduct() == null ? null : discreteItem.getProduct().getId());
+            } else if (item instanceof BundleOrderItem) {
+                BundleOrderItem bundleItem = (BundleOrderItem) item;
+                itemFingerprint.add(bundleItem.getSku() == null ? null : bundleItem.getSku().getId());
+            }
+            items.put(item.getId(), itemFingerprint.value());
+        }
+        return fingerprint.add(items).value();
+    }
+
+    protected Long fingerprintOfferCodes(Order order) {
+        Map<Long, Long> codes = new TreeMap<>();
+        if (order.getAddedOfferCodes() != null) {
+            for (OfferCode code : order.getAddedOfferCodes()) {
+                codes.put(code.getId(), 0L);
+            }
+        }
+        return new Fingerprint().add(codes).value();
+    }
+
+    protected Long fingerprintCustomer(Order order) {
+        Customer customer = order.getCustomer();
+        if (customer == null) {
+            return new Fingerprint().value();
+        }
+        return new Fingerprint()
+                .add(customer.getId())
+                .add(customer.isRegistered())
+                .add(customer.isTaxExempt())
+                .add(customer.getTaxExemptionCode())
+                .add(attributeValues(customer.getCustomerAttributes() == null ? null : customer.getCustomerAttributes().values()))
+                .value();
+    }
+
+    protected Long fingerprintFulfillment(Order order) {
+        Map<Long, Long> groups = new TreeMap<>();
+        if (order.getFulfillmentGroups() != null) {
+            for (FulfillmentGroup group : order.getFulfillmentGroups()) {
+                if (group.getId() == null) {
+                    return null;
+                }
+                Fingerprint groupFingerprint = new Fingerprint()
+                        .add(group.getType())
+                        .add(group.getFulfillmentOption() == null ? null : group.getFulfillmentOption().getId())
+                        .add(group.getShippingOverride())
+                        .add(group.isShippingPriceTaxable());
+                Address address = group.getAddress();
+                if (address != null) {
+                    groupFingerprint.add(address.getId())
+                            .add(address.getAddressLine1())
+                            .add(address.getAddressLine2())
+                            .add(address.getAddressLine3())
+                            .add(address.getCity())
+                            .add(address.getCounty())
+                            .add(address.getPostalCode())
+                            .add(address.getIsoCountrySubdivision())
+                            .add(address.getStateProvinceRegion())
+                            .add(address.getIsoCountryAlpha2() == null ? null : address.getIsoCountryAlpha2().getAlpha2());
+                }
+                Map<Long, Long> groupItems = new TreeMap<>();
+                for (FulfillmentGroupItem groupItem : group.getFulfillmentGroupItems()) {
+                    if (groupItem.getOrderItem() == null || groupItem.getOrderItem().getId() == null) {
+                        return null;
+                    }
+                    groupItems.put(groupItem.getOrderItem().getId(), (long) groupItem.getQuantity());
+                }
+                groups.put(group.getId(), groupFingerprint.add(groupItems).value());
+            }
+        }
+        return new Fingerprint().add(groups).value();
+    }
+
+    protected Long fingerprintPayments(Order order) {
+        Map<Long, Long> payments = new TreeMap<>();
+        if (order.getPayments() != null) {
+            for (OrderPayment payment : order.getPayments()) {
+                if (payment.getId() == null) {
+                    return null;
+                }
+                payments.put(payment.getId(), new Fingerprint()
+                        .add(payment.getType())
+                        .add(payment.getGatewayType())
+                        .add(payment.getAmount())
+                        .add(payment.isActive())
+                        .add(payment.getReferenceNumber())
+                        .value());
+            }
+        }
+        return new Fingerprint().add(payments).value();
+    }
+
+    protected Map<String, String> orderAttributeValues(Order order) {
+        Map<String, String> values = new TreeMap<>();
+        if (order.getOrderAttributes() != null) {
+            for (OrderAttribute attribute : order.getOrderAttributes().values()) {
+                if (attribute.getName() != null) {
+                    values.put(attribute.getName(), attribute.getValue());
+                }
+            }
+        }
+        return values;
+    }
+
+    protected Map<String, String> attributeValues(Collection<? extends ValueAssignable<String>> attributes) {
+        Map<String, String> values = new TreeMap<>();
+        if (attributes != null) {
+            for (ValueAssignable<String> attribute : attributes) {
+                if (attribute.getName() != null) {
+                    values.put(attribute.getName(), attribute.getValue());
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * The fingerprints of an order and of its totals the last time it was priced
+     */
+    protected static class PricedInputs {
+
+        protected final Map<PricingInputType, Long> fingerprints;
+        protected final long pricingResult;
+        protected final long pricedAt;
+
+        public PricedInputs(Map<PricingInputType, Long> fingerprints, long pricingResult, long pricedAt) {
+            this.fingerprints = fingerprints;
+            this.pricingResult = pricingResult;
+            this.pricedAt = pricedAt;
+        }
+    }
+
+    /**
+     * A 64 bit FNV-1a hash over the string form of a sequence of values
+     */
+    protected static class Fingerprint {
+
+        protected long hash = FNV_OFFSET_BASIS;
+
+        public Fingerprint add(Object value) {
+            if (value instanceof Money) {
+                value = ((Money) value).getAmount();
+            } else if (value instanceof BroadleafEnumerationType) {
+                value = ((BroadleafEnumerationType) value).getType();
+            }
+            if (value instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    add(entry.getKey());
+                    add(entry.getValue());
+                }
+                return mix(';');
+            }
+            String string = value == null ? "\u0000" : value.toString();
+            for (int i = 0; i < string.length(); i++) {
+                mix(string.charAt(i));
+            }
+            return mix('|');
+        }
+
+        protected Fingerprint mix(char c) {
+            hash ^= c;
+            hash *= FNV_PRIME;
+            return this;
+        }
+
+        public long value() {
+            return hash;
+        }
+    }
+
+}
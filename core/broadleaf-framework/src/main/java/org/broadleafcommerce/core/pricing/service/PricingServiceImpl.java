@@ -19,28 +19,103 @@ package org.broadleafcommerce.core.pricing.service;
 
 import javax.annotation.Resource;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroup;
 import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.order.domain.OrderItem;
 import org.broadleafcommerce.core.pricing.service.exception.PricingException;
+import org.broadleafcommerce.core.pricing.service.workflow.PricingProcessContext;
 import org.broadleafcommerce.core.workflow.ProcessContext;
 import org.broadleafcommerce.core.workflow.Processor;
 import org.broadleafcommerce.core.workflow.WorkflowException;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
+import java.util.TreeMap;
+
 @Service("blPricingService")
 public class PricingServiceImpl implements PricingService {
 
+    private static final Log LOG = LogFactory.getLog(PricingServiceImpl.class);
+
     @Resource(name="blPricingWorkflow")
     protected Processor pricingWorkflow;
 
+    @Resource(name="blPricingInputTracker")
+    protected PricingInputTracker pricingInputTracker;
+
     public Order executePricing(Order order) throws PricingException {
+        boolean priced = false;
         try {
             ProcessContext<Order> context = (ProcessContext<Order>) pricingWorkflow.doActivities(order);
             Order response = context.getSeedData();
 
+            if (pricingInputTracker.isVerifyEnabled() && context instanceof PricingProcessContext
+                    && ((PricingProcessContext) context).isIncremental()) {
+                response = verifyIncrementalPricing(response);
+            }
+            pricingInputTracker.recordPricedInputs(response);
+            priced = true;
+
             return response;
         } catch (WorkflowException e) {
             throw new PricingException("Unable to execute pricing for order -- id: " + order.getId(), e);
+        } finally {
+            if (!priced) {
+                pricingInputTracker.invalidate(order);
+            }
+        }
+    }
+
+    /**
+     * Prices the given, incrementally priced, order again in full and logs a warning if the results differ. The result
+     * of the full pricing pass is the one that is kept.
+     */
+    protected Order verifyIncrementalPricing(Order order) throws WorkflowException {
+        String incrementalResult = buildPricingResultSignature(order);
+        pricingInputTracker.invalidate(order);
+
+        ProcessContext<Order> context = (ProcessContext<Order>) pricingWorkflow.doActivities(order);
+        Order response = context.getSeedData();
+
+        String fullResult = buildPricingResultSignature(response);
+        if (!incrementalResult.equals(fullResult)) {
+            LOG.warn("Incremental pricing of order " + order.getId() + " does not match a full pricing pass. Incremental: ["
+                    + incrementalResult + "] Full: [" + fullResult + "]");
+        }
+        return response;
+    }
+
+    /**
+     * @return a readable summary of the totals the pricing workflow computed for the given order
+     */
+    protected String buildPricingResultSignature(Order order) {
+        StringBuilder signature = new StringBuilder();
+        signature.append("subTotal=").append(order.getSubTotal())
+                .append(", adjustments=").append(order.getOrderAdjustmentsValue())
+                .append(", fulfillment=").append(order.getTotalFulfillmentCharges())
+                .append(", tax=").append(order.getTotalTax())
+                .append(", total=").append(order.getTotal());
+
+        Map<Long, String> items = new TreeMap<>();
+        for (OrderItem item : order.getOrderItems()) {
+            if (item.getId() != null) {
+                items.put(item.getId(), String.valueOf(item.getTotalPrice()));
+            }
+        }
+        signature.append(", items=").append(items);
+
+        Map<Long, String> groups = new TreeMap<>();
+        if (order.getFulfillmentGroups() != null) {
+            for (FulfillmentGroup group : order.getFulfillmentGroups()) {
+                if (group.getId() != null) {
+                    groups.put(group.getId(), group.getFulfillmentPrice() + "/" + group.getTotalTax() + "/" + group.getTotal());
+                }
+            }
         }
+        signature.append(", fulfillmentGroups=").append(groups);
+        return signature.toString();
     }
 
 }
@@ -20,10 +20,16 @@ package org.broadleafcommerce.core.pricing.service.workflow;
 import org.broadleafcommerce.common.money.Money;
 import org.broadleafcommerce.core.order.domain.Order;
 import org.broadleafcommerce.core.payment.domain.OrderPayment;
+import org.broadleafcommerce.core.pricing.service.workflow.type.PricingInputType;
 import org.broadleafcommerce.core.workflow.BaseActivity;
 import org.broadleafcommerce.core.workflow.ProcessContext;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * The AdjustOrderPaymentsActivity is responsible for adjusting any of the order payments
  * that have already been applied to the order. This happens when order payments have
@@ -66,9 +72,14 @@ import org.springframework.stereotype.Component;
  * @author Elbert Bautista (elbertbautista)
  */
 @Component("blAdjustOrderPaymentsActivity")
-public class AdjustOrderPaymentsActivity extends BaseActivity<ProcessContext<Order>> {
+public class AdjustOrderPaymentsActivity extends BaseActivity<ProcessContext<Order>> implements PricingInputAware {
     
     public static final int ORDER = 9000;
+
+    protected static final Set<PricingInputType> PRICING_INPUTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            PricingInputType.PAYMENTS, PricingInputType.ORDER_TOTAL)));
+
+    protected static final Set<PricingInputType> PRICING_OUTPUTS = Collections.emptySet();
     
     public AdjustOrderPaymentsActivity() {
         setOrder(ORDER);
@@ -100,4 +111,14 @@ public class AdjustOrderPaymentsActivity extends BaseActivity<ProcessContext<Ord
         return context;
     }
 
+    @Override
+    public Set<PricingInputType> getPricingInputs() {
+        return PRICING_INPUTS;
+    }
+
+    @Override
+    public Set<PricingInputType> getPricingOutputs() {
+        return PRICING_OUTPUTS;
+    }
+
 }
@@ -19,7 +19,6 @@ package org.broadleafcommerce.core.pricing.service.workflow;
 
 import org.apache.commons.lang.StringUtils;
 import org.broadleafcommerce.common.rule.MvelHelper;
-import org.broadleafcommerce.common.util.EfficientLRUMap;
 import org.broadleafcommerce.core.catalog.domain.SkuFee;
 import org.broadleafcommerce.core.catalog.service.type.SkuFeeType;
 import org.broadleafcommerce.core.order.domain.BundleOrderItem;
@@ -29,13 +28,18 @@ import org.broadleafcommerce.core.order.domain.FulfillmentGroupFee;
 import org.broadleafcommerce.core.order.domain.FulfillmentGroupItem;
 import org.broadleafcommerce.core.order.domain.Order;
 import org.broadleafcommerce.core.order.service.FulfillmentGroupService;
+import org.broadleafcommerce.core.pricing.service.workflow.type.PricingInputType;
 import org.broadleafcommerce.core.workflow.BaseActivity;
 import org.broadleafcommerce.core.workflow.ProcessContext;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Resource;
 
@@ -44,12 +48,18 @@ import javax.annotation.Resource;
  * @author Phillip Verheyden
  */
 @Component("blConsolidateFulfillmentFeesActivity")
-public class ConsolidateFulfillmentFeesActivity extends BaseActivity<ProcessContext<Order>> {
+public class ConsolidateFulfillmentFeesActivity extends BaseActivity<ProcessContext<Order>> implements PricingInputAware {
     
     public static final int ORDER = 2000;
+
+    protected static final Set<PricingInputType> PRICING_INPUTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            PricingInputType.ORDER_ITEMS, PricingInputType.FULFILLMENT)));
+
+    protected static final Set<PricingInputType> PRICING_OUTPUTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            PricingInputType.FULFILLMENT_PRICES)));
     
     @SuppressWarnings("unchecked")
-    protected static final Map EXPRESSION_CACHE = new EfficientLRUMap(1000);
+    protected static final Map EXPRESSION_CACHE = MvelHelper.getSharedExpressionCache();
     
     @Resource(name = "blFulfillmentGroupService")
     protected FulfillmentGroupService fulfillmentGroupService;
@@ -110,14 +120,22 @@ public class ConsolidateFulfillmentFeesActivity extends BaseActivity<ProcessCont
         String feeExpression = fee.getExpression();
         
         if (StringUtils.isNotEmpty(feeExpression)) {
-            synchronized (EXPRESSION_CACHE) {
-                HashMap<String, Object> vars = new HashMap<>();
-                vars.put("fulfillmentGroup", fulfillmentGroup);
-                MvelHelper.evaluateRule(feeExpression, vars, EXPRESSION_CACHE);
-            }
+            HashMap<String, Object> vars = new HashMap<>();
+            vars.put("fulfillmentGroup", fulfillmentGroup);
+            MvelHelper.evaluateRule(feeExpression, vars, EXPRESSION_CACHE);
         }
         
         return appliesToFulfillmentGroup;
     }
 
+    @Override
+    public Set<PricingInputType> getPricingInputs() {
+        return PRICING_INPUTS;
+    }
+
+    @Override
+    public Set<PricingInputType> getPricingOutputs() {
+        return PRICING_OUTPUTS;
+    }
+
 }
@@ -23,11 +23,16 @@ import org.broadleafcommerce.core.order.domain.FulfillmentGroup;
 import org.broadleafcommerce.core.order.domain.FulfillmentGroupItem;
 import org.broadleafcommerce.core.order.domain.Order;
 import org.broadleafcommerce.core.order.domain.OrderItem;
+import org.broadleafcommerce.core.pricing.service.workflow.type.PricingInputType;
 import org.broadleafcommerce.core.workflow.BaseActivity;
 import org.broadleafcommerce.core.workflow.ProcessContext;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * Called during the pricing workflow to set the merchandise total for each FulfillmentGroup
@@ -37,9 +42,15 @@ import java.math.BigDecimal;
  * @see {@link FulfillmentGroup#setMerchandiseTotal(Money)}, {@link FulfillmentGroup#getMerchandiseTotal()}
  */
 @Component("blFulfillmentGroupMerchandiseTotalActivity")
-public class FulfillmentGroupMerchandiseTotalActivity extends BaseActivity<ProcessContext<Order>> {
+public class FulfillmentGroupMerchandiseTotalActivity extends BaseActivity<ProcessContext<Order>> implements PricingInputAware {
 
     public static final int ORDER = 4000;
+
+    protected static final Set<PricingInputType> PRICING_INPUTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            PricingInputType.ORDER_ITEMS, PricingInputType.FULFILLMENT, PricingInputType.ITEM_PRICES, PricingInputType.FULFILLMENT_PRICES)));
+
+    protected static final Set<PricingInputType> PRICING_OUTPUTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            PricingInputType.FULFILLMENT_PRICES)));
     
     public FulfillmentGroupMerchandiseTotalActivity() {
         setOrder(ORDER);
@@ -62,4 +73,14 @@ public class FulfillmentGroupMerchandiseTotalActivity extends BaseActivity<Proce
         return context;
     }
 
+    @Override
+    public Set<PricingInputType> getPricingInputs() {
+        return PRICING_INPUTS;
+    }
+
+    @Override
+    public Set<PricingInputType> getPricingOutputs() {
+        return PRICING_OUTPUTS;
+    }
+
 }
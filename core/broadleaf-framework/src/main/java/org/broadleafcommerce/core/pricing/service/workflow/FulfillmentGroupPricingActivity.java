@@ -22,11 +22,16 @@ import org.broadleafcommerce.common.money.Money;
 import org.broadleafcommerce.core.order.domain.FulfillmentGroup;
 import org.broadleafcommerce.core.order.domain.Order;
 import org.broadleafcommerce.core.pricing.service.FulfillmentPricingService;
+import org.broadleafcommerce.core.pricing.service.workflow.type.PricingInputType;
 import org.broadleafcommerce.core.workflow.BaseActivity;
 import org.broadleafcommerce.core.workflow.ProcessContext;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 import javax.annotation.Resource;
 
@@ -39,9 +44,15 @@ import javax.annotation.Resource;
  * @see {@link FulfillmentGroup}, {@link Order}
  */
 @Component("blFulfillmentGroupPricingActivity")
-public class FulfillmentGroupPricingActivity extends BaseActivity<ProcessContext<Order>> {
+public class FulfillmentGroupPricingActivity extends BaseActivity<ProcessContext<Order>> implements PricingInputAware {
 
     public static final int ORDER = 5000;
+
+    protected static final Set<PricingInputType> PRICING_INPUTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            PricingInputType.ORDER_ITEMS, PricingInputType.FULFILLMENT, PricingInputType.FULFILLMENT_PRICES)));
+
+    protected static final Set<PricingInputType> PRICING_OUTPUTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            PricingInputType.FULFILLMENT_PRICES)));
     
     @Resource(name = "blFulfillmentPricingService")
     private FulfillmentPricingService fulfillmentPricingService;
@@ -81,4 +92,14 @@ public class FulfillmentGroupPricingActivity extends BaseActivity<ProcessContext
         return context;
     }
 
+    @Override
+    public Set<PricingInputType> getPricingInputs() {
+        return PRICING_INPUTS;
+    }
+
+    @Override
+    public Set<PricingInputType> getPricingOutputs() {
+        return PRICING_OUTPUTS;
+    }
+
 }
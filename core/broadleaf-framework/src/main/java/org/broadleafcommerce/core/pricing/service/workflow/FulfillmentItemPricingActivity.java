@@ -25,6 +25,7 @@ import org.broadleafcommerce.core.order.domain.FulfillmentGroup;
 import org.broadleafcommerce.core.order.domain.FulfillmentGroupItem;
 import org.broadleafcommerce.core.order.domain.Order;
 import org.broadleafcommerce.core.order.domain.OrderItem;
+import org.broadleafcommerce.core.pricing.service.workflow.type.PricingInputType;
 import org.broadleafcommerce.core.workflow.BaseActivity;
 import org.broadleafcommerce.core.workflow.ProcessContext;
 import org.springframework.stereotype.Component;
@@ -32,10 +33,14 @@ import org.springframework.stereotype.Component;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Currency;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Called during the pricing workflow to set each item's merchandise total and taxable total
@@ -43,11 +48,17 @@ import java.util.Map;
  * @author Brian Polster 
  */
 @Component("blFulfillmentItemPricingActivity")
-public class FulfillmentItemPricingActivity extends BaseActivity<ProcessContext<Order>> {
+public class FulfillmentItemPricingActivity extends BaseActivity<ProcessContext<Order>> implements PricingInputAware {
     
     private static final Log LOG = LogFactory.getLog(FulfillmentItemPricingActivity.class);
 
     public static final int ORDER = 3000;
+
+    protected static final Set<PricingInputType> PRICING_INPUTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            PricingInputType.ORDER_ITEMS, PricingInputType.FULFILLMENT, PricingInputType.ITEM_PRICES)));
+
+    protected static final Set<PricingInputType> PRICING_OUTPUTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            PricingInputType.FULFILLMENT_PRICES)));
     
     public FulfillmentItemPricingActivity() {
         setOrder(ORDER);
@@ -322,4 +333,14 @@ public class FulfillmentItemPricingActivity extends BaseActivity<ProcessContext<
         return numTimesToApply.longValue();
     }
 
+    @Override
+    public Set<PricingInputType> getPricingInputs() {
+        return PRICING_INPUTS;
+    }
+
+    @Override
+    public Set<PricingInputType> getPricingOutputs() {
+        return PRICING_OUTPUTS;
+    }
+
 }
@@ -22,18 +22,33 @@ import org.broadleafcommerce.core.offer.domain.OfferCode;
 import org.broadleafcommerce.core.offer.service.OfferService;
 import org.broadleafcommerce.core.order.domain.Order;
 import org.broadleafcommerce.core.order.service.OrderService;
+import org.broadleafcommerce.core.pricing.service.workflow.type.PricingInputType;
 import org.broadleafcommerce.core.workflow.BaseActivity;
 import org.broadleafcommerce.core.workflow.ProcessContext;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.annotation.Resource;
 
 @Component("blOfferActivity")
-public class OfferActivity extends BaseActivity<ProcessContext<Order>> {
+public class OfferActivity extends BaseActivity<ProcessContext<Order>> implements PricingInputAware {
 
     public static final int ORDER = 1000;
+
+    /**
+     * Offer qualification rules can reference the fulfillment groups, for instance their address, so a fulfillment
+     * change can qualify or disqualify item and order offers
+     */
+    protected static final Set<PricingInputType> PRICING_INPUTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            PricingInputType.ORDER_ITEMS, PricingInputType.OFFER_CODES, PricingInputType.CUSTOMER, PricingInputType.FULFILLMENT)));
+
+    protected static final Set<PricingInputType> PRICING_OUTPUTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            PricingInputType.ITEM_PRICES)));
     
     @Resource(name="blOfferService")
     protected OfferService offerService;
@@ -70,4 +85,14 @@ public class OfferActivity extends BaseActivity<ProcessContext<Order>> {
         return offerCodesFromCustomer;
     }
 
+    @Override
+    public Set<PricingInputType> getPricingInputs() {
+        return PRICING_INPUTS;
+    }
+
+    @Override
+    public Set<PricingInputType> getPricingOutputs() {
+        return PRICING_OUTPUTS;
+    }
+
 }
@@ -0,0 +1,42 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.pricing.service.workflow;
+
+import org.broadleafcommerce.core.pricing.service.workflow.type.PricingInputType;
+
+import java.util.Set;
+
+/**
+ * Implemented by pricing workflow activities that declare which parts of the order they read and which results they
+ * produce. When incremental pricing is enabled, {@link PricingProcessContext} only runs an activity if one of its inputs
+ * changed since the order was last priced, or was produced by an activity that already re-ran in this pass. Activities
+ * that do not implement this interface always run, and so does everything after them.
+ */
+public interface PricingInputAware {
+
+    /**
+     * @return the inputs this activity reads; a change to any of them requires the activity to run again
+     */
+    public Set<PricingInputType> getPricingInputs();
+
+    /**
+     * @return the results this activity writes, which become dirty for later activities whenever it runs
+     */
+    public Set<PricingInputType> getPricingOutputs();
+
+}
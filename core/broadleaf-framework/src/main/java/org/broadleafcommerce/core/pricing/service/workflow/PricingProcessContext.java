@@ -0,0 +1,99 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.pricing.service.workflow;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.pricing.service.workflow.type.PricingInputType;
+import org.broadleafcommerce.core.workflow.Activity;
+import org.broadleafcommerce.core.workflow.DefaultProcessContextImpl;
+import org.broadleafcommerce.core.workflow.ProcessContext;
+import org.broadleafcommerce.core.workflow.SelectiveProcessContext;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Process context for the blPricingWorkflow. When it is created with the set of inputs that changed since the order was
+ * last priced, activities that implement {@link PricingInputAware} are skipped unless one of their inputs is in that
+ * set. The outputs of every activity that does run are added to the set, so that later activities depending on them run
+ * too. An activity that does not declare its inputs always runs and switches the rest of the workflow to full pricing.
+ * 
+ * Without a dirty set every activity runs, exactly as with {@link DefaultProcessContextImpl}.
+ */
+public class PricingProcessContext extends DefaultProcessContextImpl<Order> implements SelectiveProcessContext<Order> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Log LOG = LogFactory.getLog(PricingProcessContext.class);
+
+    protected Set<PricingInputType> dirtyInputs;
+
+    protected boolean incremental = false;
+
+    public PricingProcessContext() {
+        //do nothing
+    }
+
+    public PricingProcessContext(Set<PricingInputType> dirtyInputs) {
+        this.dirtyInputs = dirtyInputs == null ? null : new HashSet<>(dirtyInputs);
+        this.incremental = dirtyInputs != null;
+    }
+
+    @Override
+    public boolean shouldExecute(Activity<? extends ProcessContext<Order>> activity) {
+        if (dirtyInputs == null || !(activity instanceof PricingInputAware)) {
+            return true;
+        }
+        boolean execute = !Collections.disjoint(((PricingInputAware) activity).getPricingInputs(), dirtyInputs);
+        if (!execute && LOG.isDebugEnabled()) {
+            LOG.debug("Skipping " + activity.getBeanName() + ", none of its pricing inputs changed");
+        }
+        return execute;
+    }
+
+    @Override
+    public void activityExecuted(Activity<? extends ProcessContext<Order>> activity) {
+        if (dirtyInputs == null) {
+            return;
+        }
+        if (activity instanceof PricingInputAware) {
+            dirtyInputs.addAll(((PricingInputAware) activity).getPricingOutputs());
+        } else {
+            dirtyInputs = null;
+        }
+    }
+
+    /**
+     * @return true if this pass started from a set of changed inputs, meaning some activities may have been skipped
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * @return the inputs and intermediate results that are dirty at this point of the workflow, or null when pricing in
+     * full
+     */
+    public Set<PricingInputType> getDirtyInputs() {
+        return dirtyInputs;
+    }
+
+}
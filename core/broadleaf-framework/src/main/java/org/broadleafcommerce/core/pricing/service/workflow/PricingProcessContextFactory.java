@@ -18,16 +18,21 @@
 package org.broadleafcommerce.core.pricing.service.workflow;
 
 import org.broadleafcommerce.core.order.domain.Order;
-import org.broadleafcommerce.core.workflow.DefaultProcessContextImpl;
+import org.broadleafcommerce.core.pricing.service.PricingInputTracker;
 import org.broadleafcommerce.core.workflow.ProcessContext;
 import org.broadleafcommerce.core.workflow.ProcessContextFactory;
 import org.broadleafcommerce.core.workflow.WorkflowException;
 
+import javax.annotation.Resource;
+
 public class PricingProcessContextFactory implements ProcessContextFactory<Order, Order> {
 
+    @Resource(name = "blPricingInputTracker")
+    protected PricingInputTracker pricingInputTracker;
+
     @Override
     public ProcessContext<Order> createContext(Order seedData) throws WorkflowException {
-        ProcessContext<Order> context = new DefaultProcessContextImpl<>();
+        ProcessContext<Order> context = new PricingProcessContext(pricingInputTracker == null ? null : pricingInputTracker.findDirtyInputs(seedData));
         context.setSeedData(seedData);
 
         return context;
@@ -19,16 +19,28 @@ package org.broadleafcommerce.core.pricing.service.workflow;
 
 import org.broadleafcommerce.core.offer.service.ShippingOfferService;
 import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.pricing.service.workflow.type.PricingInputType;
 import org.broadleafcommerce.core.workflow.BaseActivity;
 import org.broadleafcommerce.core.workflow.ProcessContext;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 import javax.annotation.Resource;
 
 @Component("blShippingOfferActivity")
-public class ShippingOfferActivity extends BaseActivity<ProcessContext<Order>> {
+public class ShippingOfferActivity extends BaseActivity<ProcessContext<Order>> implements PricingInputAware {
 
     public static final int ORDER = 6000;
+
+    protected static final Set<PricingInputType> PRICING_INPUTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            PricingInputType.ORDER_ITEMS, PricingInputType.OFFER_CODES, PricingInputType.CUSTOMER, PricingInputType.FULFILLMENT, PricingInputType.ITEM_PRICES, PricingInputType.FULFILLMENT_PRICES)));
+
+    protected static final Set<PricingInputType> PRICING_OUTPUTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            PricingInputType.FULFILLMENT_PRICES)));
     
     @Resource(name="blShippingOfferService")
     private ShippingOfferService shippingOfferService;
@@ -46,4 +58,14 @@ public class ShippingOfferActivity extends BaseActivity<ProcessContext<Order>> {
         return context;
     }
 
+    @Override
+    public Set<PricingInputType> getPricingInputs() {
+        return PRICING_INPUTS;
+    }
+
+    @Override
+    public Set<PricingInputType> getPricingOutputs() {
+        return PRICING_OUTPUTS;
+    }
+
 }
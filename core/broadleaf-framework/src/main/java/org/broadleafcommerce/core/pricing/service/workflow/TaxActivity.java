@@ -20,19 +20,31 @@ package org.broadleafcommerce.core.pricing.service.workflow;
 import org.broadleafcommerce.core.order.domain.Order;
 import org.broadleafcommerce.core.pricing.service.TaxService;
 import org.broadleafcommerce.core.pricing.service.module.TaxModule;
+import org.broadleafcommerce.core.pricing.service.workflow.type.PricingInputType;
 import org.broadleafcommerce.core.workflow.BaseActivity;
 import org.broadleafcommerce.core.workflow.ProcessContext;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 import javax.annotation.Resource;
 
 /**
  * Utilized within the blPricingWorkflow to calculate tax for an {@link Order}
  */
 @Component("blTaxActivity")
-public class TaxActivity extends BaseActivity<ProcessContext<Order>> {
+public class TaxActivity extends BaseActivity<ProcessContext<Order>> implements PricingInputAware {
 
     public static final int ORDER = 7000;
+
+    protected static final Set<PricingInputType> PRICING_INPUTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            PricingInputType.ORDER_ITEMS, PricingInputType.CUSTOMER, PricingInputType.FULFILLMENT, PricingInputType.ITEM_PRICES, PricingInputType.FULFILLMENT_PRICES)));
+
+    protected static final Set<PricingInputType> PRICING_OUTPUTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            PricingInputType.TAX)));
     
     protected TaxModule taxModule;
 
@@ -65,4 +77,14 @@ public class TaxActivity extends BaseActivity<ProcessContext<Order>> {
         this.taxService = taxService;
     }
 
+    @Override
+    public Set<PricingInputType> getPricingInputs() {
+        return PRICING_INPUTS;
+    }
+
+    @Override
+    public Set<PricingInputType> getPricingOutputs() {
+        return PRICING_OUTPUTS;
+    }
+
 }
@@ -24,11 +24,16 @@ import org.broadleafcommerce.core.order.domain.FulfillmentGroupFee;
 import org.broadleafcommerce.core.order.domain.FulfillmentGroupItem;
 import org.broadleafcommerce.core.order.domain.Order;
 import org.broadleafcommerce.core.order.domain.TaxDetail;
+import org.broadleafcommerce.core.pricing.service.workflow.type.PricingInputType;
 import org.broadleafcommerce.core.workflow.BaseActivity;
 import org.broadleafcommerce.core.workflow.ProcessContext;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * The TotalActivity is responsible for calculating and setting totals for a given order.
@@ -39,9 +44,15 @@ import java.math.BigDecimal;
  *
  */
 @Component("blTotalActivity")
-public class TotalActivity extends BaseActivity<ProcessContext<Order>> {
+public class TotalActivity extends BaseActivity<ProcessContext<Order>> implements PricingInputAware {
 
     public static final int ORDER = 8000;
+
+    protected static final Set<PricingInputType> PRICING_INPUTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            PricingInputType.ORDER_ITEMS, PricingInputType.FULFILLMENT, PricingInputType.ITEM_PRICES, PricingInputType.FULFILLMENT_PRICES, PricingInputType.TAX)));
+
+    protected static final Set<PricingInputType> PRICING_OUTPUTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            PricingInputType.ORDER_TOTAL)));
     
     public TotalActivity() {
         setOrder(ORDER);
@@ -173,4 +184,15 @@ public class TotalActivity extends BaseActivity<ProcessContext<Order>> {
         
         order.setTotalTax(orderTotalTax);
     }
+
+    @Override
+    public Set<PricingInputType> getPricingInputs() {
+        return PRICING_INPUTS;
+    }
+
+    @Override
+    public Set<PricingInputType> getPricingOutputs() {
+        return PRICING_OUTPUTS;
+    }
+
 }
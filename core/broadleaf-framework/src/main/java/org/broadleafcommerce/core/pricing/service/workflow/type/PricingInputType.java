@@ -0,0 +1,112 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.pricing.service.workflow.type;
+
+import org.broadleafcommerce.common.BroadleafEnumerationType;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An extendible enumeration of the inputs that the pricing workflow reads and the intermediate results its activities
+ * hand to one another. The first group is tracked directly on the {@link org.broadleafcommerce.core.order.domain.Order}
+ * between pricing runs; the second group only becomes dirty when an activity that produces it is re-run.
+ * 
+ * @see org.broadleafcommerce.core.pricing.service.workflow.PricingInputAware
+ */
+public class PricingInputType implements Serializable, BroadleafEnumerationType {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Map<String, PricingInputType> TYPES = new LinkedHashMap<String, PricingInputType>();
+
+    public static final PricingInputType ORDER_ITEMS = new PricingInputType("ORDER_ITEMS", "Order Items");
+    public static final PricingInputType OFFER_CODES = new PricingInputType("OFFER_CODES", "Offer Codes");
+    public static final PricingInputType CUSTOMER = new PricingInputType("CUSTOMER", "Customer");
+    public static final PricingInputType FULFILLMENT = new PricingInputType("FULFILLMENT", "Fulfillment");
+    public static final PricingInputType PAYMENTS = new PricingInputType("PAYMENTS", "Payments");
+
+    public static final PricingInputType ITEM_PRICES = new PricingInputType("ITEM_PRICES", "Item Prices and Adjustments");
+    public static final PricingInputType FULFILLMENT_PRICES = new PricingInputType("FULFILLMENT_PRICES", "Fulfillment Prices");
+    public static final PricingInputType TAX = new PricingInputType("TAX", "Tax");
+    public static final PricingInputType ORDER_TOTAL = new PricingInputType("ORDER_TOTAL", "Order Total");
+
+    public static PricingInputType getInstance(final String type) {
+        return TYPES.get(type);
+    }
+
+    private String type;
+    private String friendlyType;
+
+    public PricingInputType() {
+        //do nothing
+    }
+
+    public PricingInputType(final String type, final String friendlyType) {
+        this.friendlyType = friendlyType;
+        setType(type);
+    }
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public String getFriendlyType() {
+        return friendlyType;
+    }
+
+    private void setType(final String type) {
+        this.type = type;
+        if (!TYPES.containsKey(type)) {
+            TYPES.put(type, this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return type;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((type == null) ? 0 : type.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (!getClass().isAssignableFrom(obj.getClass()))
+            return false;
+        PricingInputType other = (PricingInputType) obj;
+        if (type == null) {
+            if (other.type != null)
+                return false;
+        } else if (!type.equals(other.type))
+            return false;
+        return true;
+    }
+}
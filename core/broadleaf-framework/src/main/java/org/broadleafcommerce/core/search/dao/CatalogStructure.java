@@ -19,7 +19,9 @@ package org.broadleafcommerce.core.search.dao;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -32,12 +34,20 @@ import java.util.Set;
  * (3) All the child products for a given category
  * </p>
  *
+ * This implementation keeps everything in boxed hash maps, which is simple but costs well over a hundred bytes per
+ * product-category link. {@link CompactCatalogStructure} holds the same information in primitive arrays.
+ *
  * @author Jeff Fischer
  */
-public class CatalogStructure implements Serializable {
+public class CatalogStructure implements ProductCatalogStructure, Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Rough cost of one boxed entry in a HashMap or HashSet, counting the entry, its boxed key and its table slot
+     */
+    protected static final int ESTIMATED_ENTRY_BYTES = 64;
+
     protected Map<Long, Set<Long>> parentCategoriesByProduct = new HashMap<Long, Set<Long>>();
     protected Map<Long, Set<Long>> parentCategoriesByCategory = new HashMap<Long, Set<Long>>();
     protected Map<Long, List<Long>> productsByCategory = new HashMap<Long, List<Long>>();
@@ -67,4 +77,79 @@ public class CatalogStructure implements Serializable {
         this.displayOrdersByCategoryProduct = displayOrdersByCategoryProduct;
     }
 
+    @Override
+    public boolean containsProduct(Long productId) {
+        return parentCategoriesByProduct.containsKey(productId);
+    }
+
+    @Override
+    public long[] getParentCategoryIdsForProduct(Long productId) {
+        return toArray(parentCategoriesByProduct.get(productId));
+    }
+
+    @Override
+    public void addProduct(Long productId, Collection<Long> parentCategoryIds) {
+        if (!parentCategoriesByProduct.containsKey(productId)) {
+            parentCategoriesByProduct.put(productId, new HashSet<Long>(parentCategoryIds));
+        }
+    }
+
+    @Override
+    public boolean containsCategory(Long categoryId) {
+        return parentCategoriesByCategory.containsKey(categoryId);
+    }
+
+    @Override
+    public long[] getParentCategoryIdsForCategory(Long categoryId) {
+        return toArray(parentCategoriesByCategory.get(categoryId));
+    }
+
+    @Override
+    public void addCategory(Long categoryId, Collection<Long> parentCategoryIds) {
+        if (!parentCategoriesByCategory.containsKey(categoryId)) {
+            parentCategoriesByCategory.put(categoryId, new HashSet<Long>(parentCategoryIds));
+        }
+    }
+
+    @Override
+    public BigDecimal getDisplayOrder(Long categoryId, Long productId) {
+        return displayOrdersByCategoryProduct.get(categoryId + "-" + productId);
+    }
+
+    @Override
+    public void putDisplayOrder(Long categoryId, Long productId, BigDecimal displayOrder) {
+        displayOrdersByCategoryProduct.put(categoryId + "-" + productId, displayOrder);
+    }
+
+    @Override
+    public long getHeapSize() {
+        long size = 0;
+        for (Set<Long> parents : parentCategoriesByProduct.values()) {
+            size += ESTIMATED_ENTRY_BYTES * (2 + parents.size());
+        }
+        for (Set<Long> parents : parentCategoriesByCategory.values()) {
+            size += ESTIMATED_ENTRY_BYTES * (2 + parents.size());
+        }
+        // each display order adds a string key of roughly 20 characters and a BigDecimal on top of its entry
+        size += (ESTIMATED_ENTRY_BYTES + 80L + 40L) * displayOrdersByCategoryProduct.size();
+        return size;
+    }
+
+    @Override
+    public long getOffHeapSize() {
+        return 0;
+    }
+
+    protected long[] toArray(Set<Long> ids) {
+        if (ids == null) {
+            return new long[0];
+        }
+        long[] array = new long[ids.size()];
+        int i = 0;
+        for (Long id : ids) {
+            array[i++] = id;
+        }
+        return array;
+    }
+
 }
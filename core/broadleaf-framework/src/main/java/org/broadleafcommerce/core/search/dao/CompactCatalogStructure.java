@@ -0,0 +1,386 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.dao;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link ProductCatalogStructure} that keeps the catalog hierarchy in primitive arrays instead of the boxed hash maps
+ * of {@link CatalogStructure}.
+ * <p>
+ * Parent category ids are appended to one shared array, and each product or category maps to its row in that array
+ * (offset and length packed into one long) through an open addressing long to long hash table. Rows are added whole
+ * and never change, so this is a compressed sparse row layout that can be extended one page of products at a time.
+ * Display orders are keyed by the category and product ids packed into one long and stored as longs scaled by
+ * 10^{@value #DISPLAY_ORDER_SCALE}; the rare value that does not fit falls back to a small string keyed map.
+ * <p>
+ * With off heap storage enabled, every array lives in a direct buffer, leaving only a few objects on the heap.
+ */
+public class CompactCatalogStructure implements ProductCatalogStructure {
+
+    protected static final int DISPLAY_ORDER_SCALE = 6;
+    protected static final int INITIAL_CAPACITY = 1024;
+
+    protected final boolean offHeap;
+
+    protected final LongLongMap productRows;
+    protected final LongLongMap categoryRows;
+    protected final LongList parentCategoryIds;
+    protected final LongLongMap displayOrders;
+    protected final Map<String, BigDecimal> unpackedDisplayOrders = new HashMap<String, BigDecimal>();
+
+    public CompactCatalogStructure() {
+        this(false);
+    }
+
+    public CompactCatalogStructure(boolean offHeap) {
+        this.offHeap = offHeap;
+        productRows = new LongLongMap(INITIAL_CAPACITY, offHeap);
+        categoryRows = new LongLongMap(INITIAL_CAPACITY, offHeap);
+        parentCategoryIds = new LongList(INITIAL_CAPACITY, offHeap);
+        displayOrders = new LongLongMap(INITIAL_CAPACITY, offHeap);
+    }
+
+    @Override
+    public boolean containsProduct(Long productId) {
+        return productRows.containsKey(productId);
+    }
+
+    @Override
+    public long[] getParentCategoryIdsForProduct(Long productId) {
+        return readRow(productRows, productId);
+    }
+
+    @Override
+    public void addProduct(Long productId, Collection<Long> parentCategoryIds) {
+        if (!productRows.containsKey(productId)) {
+            productRows.put(productId, appendRow(parentCategoryIds));
+        }
+    }
+
+    @Override
+    public boolean containsCategory(Long categoryId) {
+        return categoryRows.containsKey(categoryId);
+    }
+
+    @Override
+    public long[] getParentCategoryIdsForCategory(Long categoryId) {
+        return readRow(categoryRows, categoryId);
+    }
+
+    @Override
+    public void addCategory(Long categoryId, Collection<Long> parentCategoryIds) {
+        if (!categoryRows.containsKey(categoryId)) {
+            categoryRows.put(categoryId, appendRow(parentCategoryIds));
+        }
+    }
+
+    @Override
+    public BigDecimal getDisplayOrder(Long categoryId, Long productId) {
+        if (isPackable(categoryId, productId)) {
+            long key = pack(categoryId, productId);
+            if (displayOrders.containsKey(key)) {
+                return BigDecimal.valueOf(displayOrders.get(key), DISPLAY_ORDER_SCALE);
+            }
+        }
+        return unpackedDisplayOrders.get(categoryId + "-" + productId);
+    }
+
+    @Override
+    public void putDisplayOrder(Long categoryId, Long productId, BigDecimal displayOrder) {
+        if (isPackable(categoryId, productId)) {
+            try {
+                displayOrders.put(pack(categoryId, productId), displayOrder.movePointRight(DISPLAY_ORDER_SCALE).longValueExact());
+                return;
+            } catch (ArithmeticException e) {
+                // more precision than the scale keeps, or too large for a long
+            }
+        }
+        unpackedDisplayOrders.put(categoryId + "-" + productId, displayOrder);
+    }
+
+    @Override
+    public long getHeapSize() {
+        long size = productRows.getHeapSize() + categoryRows.getHeapSize() + parentCategoryIds.getHeapSize()
+                + displayOrders.getHeapSize();
+        return size + (CatalogStructure.ESTIMATED_ENTRY_BYTES + 80L + 40L) * unpackedDisplayOrders.size();
+    }
+
+    @Override
+    public long getOffHeapSize() {
+        return productRows.getOffHeapSize() + categoryRows.getOffHeapSize() + parentCategoryIds.getOffHeapSize()
+                + displayOrders.getOffHeapSize();
+    }
+
+    protected long appendRow(Collection<Long> ids) {
+        long offset = parentCategoryIds.size();
+        for (Long id : ids) {
+            parentCategoryIds.add(id);
+        }
+        return (offset << 32) | ids.size();
+    }
+
+    protected long[] readRow(LongLongMap rows, Long key) {
+        if (!rows.containsKey(key)) {
+            return new long[0];
+        }
+        long row = rows.get(key);
+        int offset = (int) (row >>> 32);
+        int length = (int) row;
+        long[] ids = new long[length];
+        for (int i = 0; i < length; i++) {
+            ids[i] = parentCategoryIds.get(offset + i);
+        }
+        return ids;
+    }
+
+    /**
+     * Two ids can share one long key when both are non-negative and fit in 31 bits, which keeps the packed key
+     * positive and clear of the empty slot marker
+     */
+    protected boolean isPackable(Long categoryId, Long productId) {
+        return categoryId >= 0 && categoryId <= Integer.MAX_VALUE && productId >= 0 && productId <= Integer.MAX_VALUE;
+    }
+
+    protected long pack(long categoryId, long productId) {
+        return (categoryId << 32) | productId;
+    }
+
+    /**
+     * A fixed length array of longs, either on the heap or in a direct buffer
+     */
+    protected abstract static class LongStore {
+
+        public static LongStore create(int length, boolean offHeap) {
+            return offHeap ? new DirectLongStore(length) : new HeapLongStore(length);
+        }
+
+        public abstract long get(int index);
+
+        public abstract void set(int index, long value);
+
+        public abstract int length();
+
+        public abstract boolean isOffHeap();
+
+        public long getBytes() {
+            return 8L * length();
+        }
+    }
+
+    protected static class HeapLongStore extends LongStore {
+
+        protected final long[] values;
+
+        public HeapLongStore(int length) {
+            values = new long[length];
+        }
+
+        @Override
+        public long get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public void set(int index, long value) {
+            values[index] = value;
+        }
+
+        @Override
+        public int length() {
+            return values.length;
+        }
+
+        @Override
+        public boolean isOffHeap() {
+            return false;
+        }
+    }
+
+    /**
+     * Backed by a direct buffer, which is released when this store is garbage collected
+     */
+    protected static class DirectLongStore extends LongStore {
+
+        protected final LongBuffer values;
+
+        public DirectLongStore(int length) {
+            values = ByteBuffer.allocateDirect(8 * length).asLongBuffer();
+        }
+
+        @Override
+        public long get(int index) {
+            return values.get(index);
+        }
+
+        @Override
+        public void set(int index, long value) {
+            values.put(index, value);
+        }
+
+        @Override
+        public int length() {
+            return values.capacity();
+        }
+
+        @Override
+        public boolean isOffHeap() {
+            return true;
+        }
+    }
+
+    /**
+     * An append only list of longs that doubles its store as it fills up
+     */
+    protected static class LongList {
+
+        protected final boolean offHeap;
+        protected LongStore values;
+        protected int size;
+
+        public LongList(int capacity, boolean offHeap) {
+            this.offHeap = offHeap;
+            values = LongStore.create(capacity, offHeap);
+        }
+
+        public void add(long value) {
+            if (size == values.length()) {
+                LongStore grown = LongStore.create(values.length() * 2, offHeap);
+                for (int i = 0; i < size; i++) {
+                    grown.set(i, values.get(i));
+                }
+                values = grown;
+            }
+            values.set(size++, value);
+        }
+
+        public long get(int index) {
+            return values.get(index);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long getHeapSize() {
+            return values.isOffHeap() ? 0 : values.getBytes();
+        }
+
+        public long getOffHeapSize() {
+            return values.isOffHeap() ? values.getBytes() : 0;
+        }
+    }
+
+    /**
+     * An open addressing hash table from long to long with linear probing. {@link Long#MIN_VALUE} marks an empty slot
+     * and so cannot be used as a key.
+     */
+    protected static class LongLongMap {
+
+        protected static final long EMPTY = Long.MIN_VALUE;
+
+        protected final boolean offHeap;
+        protected LongStore keys;
+        protected LongStore values;
+        protected int size;
+
+        public LongLongMap(int capacity, boolean offHeap) {
+            this.offHeap = offHeap;
+            allocate(capacity);
+        }
+
+        public boolean containsKey(long key) {
+            return key != EMPTY && keys.get(indexOf(key)) == key;
+        }
+
+        /**
+         * @return the value for the key, which must be present
+         */
+        public long get(long key) {
+            return values.get(indexOf(key));
+        }
+
+        public void put(long key, long value) {
+            if (key == EMPTY) {
+                throw new IllegalArgumentException("Long.MIN_VALUE cannot be used as a key");
+            }
+            if (2 * (size + 1) > keys.length()) {
+                resize();
+            }
+            int index = indexOf(key);
+            if (keys.get(index) == EMPTY) {
+                keys.set(index, key);
+                size++;
+            }
+            values.set(index, value);
+        }
+
+        public long getHeapSize() {
+            return keys.isOffHeap() ? 0 : keys.getBytes() + values.getBytes();
+        }
+
+        public long getOffHeapSize() {
+            return keys.isOffHeap() ? keys.getBytes() + values.getBytes() : 0;
+        }
+
+        /**
+         * @return the slot holding the key, or the empty slot where it would be inserted
+         */
+        protected int indexOf(long key) {
+            int mask = keys.length() - 1;
+            long hash = key * 0x9E3779B97F4A7C15L;
+            int index = (int) (hash ^ (hash >>> 32)) & mask;
+            while (true) {
+                long current = keys.get(index);
+                if (current == key || current == EMPTY) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        protected void allocate(int capacity) {
+            keys = LongStore.create(capacity, offHeap);
+            values = LongStore.create(capacity, offHeap);
+            for (int i = 0; i < capacity; i++) {
+                keys.set(i, EMPTY);
+            }
+            size = 0;
+        }
+
+        protected void resize() {
+            LongStore oldKeys = keys;
+            LongStore oldValues = values;
+            allocate(oldKeys.length() * 2);
+            for (int i = 0; i < oldKeys.length(); i++) {
+                long key = oldKeys.get(i);
+                if (key != EMPTY) {
+                    int index = indexOf(key);
+                    keys.set(index, key);
+                    values.set(index, oldValues.get(i));
+                    size++;
+                }
+            }
+        }
+    }
+}
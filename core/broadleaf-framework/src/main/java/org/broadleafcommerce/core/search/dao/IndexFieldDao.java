@@ -47,6 +47,14 @@ public interface IndexFieldDao {
      * @return a SearchField instance for the given field
      */
     public IndexField readIndexFieldByFieldId(Long fieldId);
+
+    /**
+     * Returns the IndexField with the given id, or null if none exists.
+     *
+     * @param indexFieldId the id of the IndexField
+     * @return the IndexField with the given id
+     */
+    public IndexField readIndexFieldById(Long indexFieldId);
     
     /**
      * Finds all of the {@link IndexField}s based on the entity type.
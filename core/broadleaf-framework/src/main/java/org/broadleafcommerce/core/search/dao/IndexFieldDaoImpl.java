@@ -59,6 +59,11 @@ public class IndexFieldDaoImpl implements IndexFieldDao {
         return readIndexFieldByFieldId(field.getId());
     }
 
+    @Override
+    public IndexField readIndexFieldById(Long indexFieldId) {
+        return em.find(IndexFieldImpl.class, indexFieldId);
+    }
+
     @Override
     public IndexField readIndexFieldByFieldId(Long fieldId) {
         CriteriaBuilder builder = em.getCriteriaBuilder();
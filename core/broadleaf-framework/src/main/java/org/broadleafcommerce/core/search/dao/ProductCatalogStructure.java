@@ -0,0 +1,80 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.dao;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+
+/**
+ * The catalog hierarchy lookups needed while building Solr documents: the immediate parent categories of each product
+ * and category, and the display order of each product within a category. Implementations are populated incrementally
+ * by {@link SolrIndexDao#populateProductCatalogStructure(java.util.List, ProductCatalogStructure)} and only ever used by one
+ * thread at a time.
+ *
+ * @see CatalogStructure
+ * @see CompactCatalogStructure
+ */
+public interface ProductCatalogStructure {
+
+    /**
+     * @return whether the parent categories of the given product have been recorded
+     */
+    boolean containsProduct(Long productId);
+
+    /**
+     * @return the ids of the immediate parent categories of the given product, or an empty array if none were recorded
+     */
+    long[] getParentCategoryIdsForProduct(Long productId);
+
+    /**
+     * Records the immediate parent categories of a product. A product that is already recorded is left as is.
+     */
+    void addProduct(Long productId, Collection<Long> parentCategoryIds);
+
+    /**
+     * @return whether the parent categories of the given category have been recorded
+     */
+    boolean containsCategory(Long categoryId);
+
+    /**
+     * @return the ids of the immediate parent categories of the given category, or an empty array if none were recorded
+     */
+    long[] getParentCategoryIdsForCategory(Long categoryId);
+
+    /**
+     * Records the immediate parent categories of a category. A category that is already recorded is left as is.
+     */
+    void addCategory(Long categoryId, Collection<Long> parentCategoryIds);
+
+    /**
+     * @return the display order of the product within the category, or null if none was recorded
+     */
+    BigDecimal getDisplayOrder(Long categoryId, Long productId);
+
+    void putDisplayOrder(Long categoryId, Long productId, BigDecimal displayOrder);
+
+    /**
+     * @return the approximate number of bytes of heap held by this structure
+     */
+    long getHeapSize();
+
+    /**
+     * @return the number of bytes held by this structure outside of the heap
+     */
+    long getOffHeapSize();
+}
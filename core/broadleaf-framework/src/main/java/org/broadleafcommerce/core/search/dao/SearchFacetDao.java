@@ -50,6 +50,14 @@ public interface SearchFacetDao {
      */
     public List<SearchFacet> readAllSearchFacets(FieldEntity entityType);
 
+    /**
+     * Returns the SearchFacet with the given id, or null if none exists
+     *
+     * @param searchFacetId the id of the SearchFacet
+     * @return the SearchFacet with the given id
+     */
+    public SearchFacet readSearchFacetById(Long searchFacetId);
+
     /**
      * Persist to the data layer.
      *
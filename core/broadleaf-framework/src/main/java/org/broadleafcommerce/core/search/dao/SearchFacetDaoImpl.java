@@ -110,6 +110,11 @@ public class SearchFacetDaoImpl implements SearchFacetDao {
         return query.getResultList();
     }
 
+    @Override
+    public SearchFacet readSearchFacetById(Long searchFacetId) {
+        return em.find(SearchFacetImpl.class, searchFacetId);
+    }
+
     @Override
     public SearchFacet save(SearchFacet searchFacet) {
         return em.merge(searchFacet);
@@ -0,0 +1,93 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.dao;
+
+import org.broadleafcommerce.core.search.domain.SolrIndexChange;
+import org.broadleafcommerce.core.search.domain.SolrIndexChangeType;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads and writes the {@link SolrIndexChange} outbox, and resolves the catalog relationships needed to find the
+ * documents a change affects.
+ */
+public interface SolrIndexChangeDao {
+
+    /**
+     * Persists a new change record
+     * 
+     * @param entityType the kind of entity that changed
+     * @param entityId the id of the entity that changed
+     * @return the saved change
+     */
+    public SolrIndexChange createChange(SolrIndexChangeType entityType, Long entityId);
+
+    /**
+     * Reads the oldest changes in the order they were recorded
+     * 
+     * @param limit the maximum number of changes to read
+     * @return the changes
+     */
+    public List<SolrIndexChange> readChanges(int limit);
+
+    /**
+     * Reads the ids of the recorded changes in id order, a page at a time
+     * 
+     * @param lastId the last id of the previous page, or null for the first page
+     * @param limit the maximum number of ids to read
+     * @return the ids of the changes
+     */
+    public List<Long> readChangeIds(Long lastId, int limit);
+
+    /**
+     * @return the number of changes waiting to be processed
+     */
+    public Long readCountChanges();
+
+    /**
+     * Removes the given changes from the outbox
+     * 
+     * @param changeIds the ids of the changes to remove
+     * @return the number of changes removed
+     */
+    public int deleteChanges(Collection<Long> changeIds);
+
+    /**
+     * Flushes the current persistence context, so that the entity listeners for any pending catalog changes run
+     * before the changes they record are written
+     */
+    public void flush();
+
+    /**
+     * @param categoryIds the parent categories
+     * @return the ids of the direct sub-categories of the given categories
+     */
+    public List<Long> readSubCategoryIds(Collection<Long> categoryIds);
+
+    /**
+     * Reads a page of the ids of the products directly within the given categories, ordered by id
+     * 
+     * @param categoryIds the categories
+     * @param lastId the last id read from the previous page, or null to start at the beginning
+     * @param limit the maximum number of ids to read
+     * @return the product ids
+     */
+    public List<Long> readProductIdsByCategoryIds(Collection<Long> categoryIds, Long lastId, int limit);
+
+}
@@ -0,0 +1,154 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.dao;
+
+import org.broadleafcommerce.common.persistence.EntityConfiguration;
+import org.broadleafcommerce.core.search.domain.SolrIndexChange;
+import org.broadleafcommerce.core.search.domain.SolrIndexChangeType;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+
+@Repository("blSolrIndexChangeDao")
+public class SolrIndexChangeDaoImpl implements SolrIndexChangeDao {
+
+    /**
+     * Upper bound on the number of ids bound to a single IN clause, which some databases limit
+     */
+    protected static final int IN_CLAUSE_LIMIT = 500;
+
+    @PersistenceContext(unitName = "blPU")
+    protected EntityManager em;
+
+    @Resource(name = "blEntityConfiguration")
+    protected EntityConfiguration entityConfiguration;
+
+    @Override
+    public SolrIndexChange createChange(SolrIndexChangeType entityType, Long entityId) {
+        SolrIndexChange change = (SolrIndexChange) entityConfiguration.createEntityInstance(SolrIndexChange.class.getName());
+        change.setEntityType(entityType);
+        change.setEntityId(entityId);
+        change.setDateCreated(new Date());
+        em.persist(change);
+        return change;
+    }
+
+    @Override
+    public List<SolrIndexChange> readChanges(int limit) {
+        TypedQuery<SolrIndexChange> query = em.createQuery(
+                "select change from org.broadleafcommerce.core.search.domain.SolrIndexChange change "
+                        + "order by change.id",
+                SolrIndexChange.class);
+        query.setMaxResults(limit);
+
+        return query.getResultList();
+    }
+
+    @Override
+    public List<Long> readChangeIds(Long lastId, int limit) {
+        TypedQuery<Long> query = em.createQuery(
+                "select change.id from org.broadleafcommerce.core.search.domain.SolrIndexChange change "
+                        + "where change.id > :lastId order by change.id",
+                Long.class);
+        query.setParameter("lastId", lastId == null ? Long.valueOf(Long.MIN_VALUE) : lastId);
+        query.setMaxResults(limit);
+
+        return query.getResultList();
+    }
+
+    @Override
+    public Long readCountChanges() {
+        TypedQuery<Long> query = em.createQuery(
+                "select count(change.id) from org.broadleafcommerce.core.search.domain.SolrIndexChange change",
+                Long.class);
+
+        return query.getSingleResult();
+    }
+
+    @Override
+    public int deleteChanges(Collection<Long> changeIds) {
+        int deleted = 0;
+        for (List<Long> ids : partition(changeIds)) {
+            Query query = em.createQuery(
+                    "delete from org.broadleafcommerce.core.search.domain.SolrIndexChangeImpl change "
+                            + "where change.id in :ids");
+            query.setParameter("ids", ids);
+            deleted += query.executeUpdate();
+        }
+        return deleted;
+    }
+
+    @Override
+    public void flush() {
+        em.flush();
+    }
+
+    @Override
+    public List<Long> readSubCategoryIds(Collection<Long> categoryIds) {
+        List<Long> response = new ArrayList<Long>();
+        for (List<Long> ids : partition(categoryIds)) {
+            TypedQuery<Long> query = em.createQuery(
+                    "select xref.subCategory.id from org.broadleafcommerce.core.catalog.domain.CategoryXrefImpl xref "
+                            + "where xref.category.id in :ids",
+                    Long.class);
+            query.setParameter("ids", ids);
+            response.addAll(query.getResultList());
+        }
+        return response;
+    }
+
+    @Override
+    public List<Long> readProductIdsByCategoryIds(Collection<Long> categoryIds, Long lastId, int limit) {
+        TypedQuery<Long> query = em.createQuery(
+                "select distinct xref.product.id from org.broadleafcommerce.core.catalog.domain.CategoryProductXrefImpl xref "
+                        + "where xref.category.id in :ids and xref.product.id > :lastId "
+                        + "order by xref.product.id",
+                Long.class);
+        query.setParameter("ids", categoryIds);
+        query.setParameter("lastId", lastId == null ? Long.valueOf(Long.MIN_VALUE) : lastId);
+        query.setMaxResults(limit);
+
+        return query.getResultList();
+    }
+
+    protected List<List<Long>> partition(Collection<Long> ids) {
+        List<List<Long>> partitions = new ArrayList<List<Long>>();
+        List<Long> current = new ArrayList<Long>(IN_CLAUSE_LIMIT);
+        for (Long id : ids) {
+            current.add(id);
+            if (current.size() == IN_CLAUSE_LIMIT) {
+                partitions.add(current);
+                current = new ArrayList<Long>(IN_CLAUSE_LIMIT);
+            }
+        }
+        if (!current.isEmpty()) {
+            partitions.add(current);
+        }
+        return partitions;
+    }
+
+}
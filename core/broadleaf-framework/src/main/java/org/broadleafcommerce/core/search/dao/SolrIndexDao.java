@@ -32,8 +32,21 @@ public interface SolrIndexDao {
      *
      * @param productIds
      * @param catalogStructure lightweight container defining product and category hierarchies
-     * @see org.broadleafcommerce.core.search.dao.CatalogStructure
+     * @see org.broadleafcommerce.core.search.dao.ProductCatalogStructure
      */
+    void populateProductCatalogStructure(List<Long> productIds, ProductCatalogStructure catalogStructure);
+
+    /**
+     * Populate the contents of the default, map based, catalog structure for a list of products. This is what
+     * {@link org.broadleafcommerce.core.search.service.solr.index.SolrIndexService} calls unless
+     * <code>solr.index.catalogStructure.compact</code> is turned on.
+     *
+     * @param productIds
+     * @param catalogStructure lightweight container defining product and category hierarchies
+     * @deprecated in favor of {@link #populateProductCatalogStructure(List, ProductCatalogStructure)}, which works with
+     * any {@link ProductCatalogStructure}, including a {@link CompactCatalogStructure}
+     */
+    @Deprecated
     void populateProductCatalogStructure(List<Long> productIds, CatalogStructure catalogStructure);
 
 }
@@ -54,7 +54,13 @@ public class SolrIndexDaoImpl implements SolrIndexDao {
     protected SandBoxHelper sandBoxHelper;
     
     @Override
+    @Deprecated
     public void populateProductCatalogStructure(List<Long> productIds, CatalogStructure catalogStructure) {
+        populateProductCatalogStructure(productIds, (ProductCatalogStructure) catalogStructure);
+    }
+
+    @Override
+    public void populateProductCatalogStructure(List<Long> productIds, ProductCatalogStructure catalogStructure) {
         BroadleafRequestContext context = BroadleafRequestContext.getBroadleafRequestContext();
         Boolean oldIgnoreFilters = context.getInternalIgnoreFilters();
         context.setInternalIgnoreFilters(false);
@@ -85,7 +91,7 @@ public class SolrIndexDaoImpl implements SolrIndexDao {
                     if (reverse.containsKey(sandBoxProductVal)) {
                         sandBoxProductVal = reverse.get(sandBoxProductVal);
                     }
-                    if (!catalogStructure.getParentCategoriesByProduct().containsKey(sandBoxProductVal)) {
+                    if (!catalogStructure.containsProduct(sandBoxProductVal)) {
                         if (!parentCategoriesByProduct.containsKey(sandBoxProductVal)) {
                             parentCategoriesByProduct.put(sandBoxProductVal, new HashSet<Long>());
                         }
@@ -100,11 +106,11 @@ public class SolrIndexDaoImpl implements SolrIndexDao {
 
                     // Cache the display order bigdecimals
                     BigDecimal displayOrder = (item.getDisplayOrder() == null) ? new BigDecimal("1.00000") : item.getDisplayOrder();
-                    catalogStructure.getDisplayOrdersByCategoryProduct().put(item.getCategory() + "-" + item.getProduct(), displayOrder);
+                    catalogStructure.putDisplayOrder(item.getCategory(), item.getProduct(), displayOrder);
                 }
                 for (Map.Entry<Long, Set<Long>> entry : parentCategoriesByProduct.entrySet()) {
                     for (Long categoryId : entry.getValue()) {
-                        if (!catalogStructure.getParentCategoriesByCategory().containsKey(categoryId)) {
+                        if (!catalogStructure.containsCategory(categoryId)) {
                             Set<Long> hierarchy = new HashSet<>();
                             parentCategoriesByCategory.put(categoryId, hierarchy);
                         }
@@ -114,8 +120,12 @@ public class SolrIndexDaoImpl implements SolrIndexDao {
                 pos = (count * batchSize) < products.length ? (count * batchSize) : products.length;
             }
             readFullCategoryHierarchy(parentCategoriesByCategory, new HashSet<Long>());
-            catalogStructure.getParentCategoriesByProduct().putAll(parentCategoriesByProduct);
-            catalogStructure.getParentCategoriesByCategory().putAll(parentCategoriesByCategory);
+            for (Map.Entry<Long, Set<Long>> entry : parentCategoriesByProduct.entrySet()) {
+                catalogStructure.addProduct(entry.getKey(), entry.getValue());
+            }
+            for (Map.Entry<Long, Set<Long>> entry : parentCategoriesByCategory.entrySet()) {
+                catalogStructure.addCategory(entry.getKey(), entry.getValue());
+            }
         } finally {
             context.setInternalIgnoreFilters(oldIgnoreFilters);
         }
@@ -20,7 +20,9 @@ package org.broadleafcommerce.core.search.domain;
 import org.broadleafcommerce.core.catalog.domain.Category;
 import org.broadleafcommerce.core.search.service.solr.SolrHelperService;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 
@@ -58,6 +60,12 @@ public class SearchCriteria {
      * {@link SolrHelperService#getCategoryFieldName()}
      */
     protected boolean searchExplicitCategory = false;
+
+    /**
+     * The stored Solr fields to return as {@link SearchResultProjection}s instead of hydrating the matching Products
+     * or Skus. When empty, the full entities are returned.
+     */
+    protected List<String> projectionFields = new ArrayList<>();
     
     public Integer getPage() {
         return page;
@@ -130,4 +138,12 @@ public class SearchCriteria {
     public void setRequestHandler(String requestHandler) {
         this.requestHandler = requestHandler;
     }
+
+    public List<String> getProjectionFields() {
+        return projectionFields;
+    }
+
+    public void setProjectionFields(List<String> projectionFields) {
+        this.projectionFields = projectionFields;
+    }
 }
@@ -32,6 +32,7 @@ public class SearchResult {
     
     protected List<Product> products;
     protected List<Sku> skus;
+    protected List<SearchResultProjection> projections;
     protected List<SearchFacetDTO> facets;
     
     protected Integer totalResults;
@@ -56,6 +57,14 @@ public class SearchResult {
         this.skus = skus;
     }
 
+    public List<SearchResultProjection> getProjections() {
+        return projections;
+    }
+
+    public void setProjections(List<SearchResultProjection> projections) {
+        this.projections = projections;
+    }
+
     public List<SearchFacetDTO> getFacets() {
         return facets;
     }
@@ -0,0 +1,51 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.domain;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A lightweight search result built from the stored Solr fields requested through
+ * {@link SearchCriteria#getProjectionFields()}, for pages that do not need the full Product or Sku entity graph.
+ */
+public class SearchResultProjection {
+
+    protected Long id;
+    protected Map<String, Object> fieldValues;
+
+    public SearchResultProjection(Long id, Map<String, Object> fieldValues) {
+        this.id = id;
+        this.fieldValues = fieldValues;
+    }
+
+    /**
+     * @return the id of the Product or Sku this result was indexed from
+     */
+    public Long getId() {
+        return id;
+    }
+
+    public Object getFieldValue(String fieldName) {
+        return fieldValues.get(fieldName);
+    }
+
+    public Map<String, Object> getFieldValues() {
+        return Collections.unmodifiableMap(fieldValues);
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * A row in the Solr index outbox. One is written for every committed change to an entity that contributes to the
+ * catalog index, and removed once the documents affected by the change have been reindexed.
+ * 
+ * @see org.broadleafcommerce.core.search.service.solr.index.SolrIndexChangeService
+ */
+public interface SolrIndexChange extends Serializable {
+
+    public Long getId();
+
+    public void setId(Long id);
+
+    /**
+     * @return the kind of entity that changed
+     */
+    public SolrIndexChangeType getEntityType();
+
+    public void setEntityType(SolrIndexChangeType entityType);
+
+    /**
+     * @return the id of the entity that changed
+     */
+    public Long getEntityId();
+
+    public void setEntityId(Long entityId);
+
+    /**
+     * @return when the change was recorded
+     */
+    public Date getDateCreated();
+
+    public void setDateCreated(Date dateCreated);
+}
@@ -0,0 +1,75 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.domain;
+
+import org.broadleafcommerce.common.util.ApplicationContextHolder;
+import org.broadleafcommerce.core.catalog.domain.Category;
+import org.broadleafcommerce.core.catalog.domain.CategoryProductXref;
+import org.broadleafcommerce.core.catalog.domain.CategoryXref;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.search.service.solr.index.SolrIndexChangeService;
+import org.springframework.context.ApplicationContext;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Records changes to the entities that make up the catalog index with the {@link SolrIndexChangeService}, so the
+ * affected documents can be reindexed without a full rebuild. Changes made through the admin are saved through the
+ * same entities and are captured here as well.
+ * <p>
+ * Cross references are recorded against the side of the relationship whose documents change: adding a product to a
+ * category reindexes the product, and moving a category reindexes everything beneath it.
+ */
+public class SolrIndexChangeEntityListener {
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void entityChanged(final Object entity) {
+        if (entity instanceof Product) {
+            recordChange(SolrIndexChangeType.PRODUCT, ((Product) entity).getId());
+        } else if (entity instanceof Sku) {
+            recordChange(SolrIndexChangeType.SKU, ((Sku) entity).getId());
+        } else if (entity instanceof Category) {
+            recordChange(SolrIndexChangeType.CATEGORY, ((Category) entity).getId());
+        } else if (entity instanceof IndexField) {
+            recordChange(SolrIndexChangeType.INDEX_FIELD, ((IndexField) entity).getId());
+        } else if (entity instanceof CategoryProductXref) {
+            Product product = ((CategoryProductXref) entity).getProduct();
+            if (product != null) {
+                recordChange(SolrIndexChangeType.PRODUCT, product.getId());
+            }
+        } else if (entity instanceof CategoryXref) {
+            Category subCategory = ((CategoryXref) entity).getSubCategory();
+            if (subCategory != null) {
+                recordChange(SolrIndexChangeType.CATEGORY, subCategory.getId());
+            }
+        }
+    }
+
+    protected void recordChange(SolrIndexChangeType entityType, Long entityId) {
+        ApplicationContext context = ApplicationContextHolder.getApplicationContext();
+        if (entityId != null && context != null) {
+            context.getBean("blSolrIndexChangeService", SolrIndexChangeService.class).recordChange(entityType, entityId);
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.domain;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Index;
+import org.hibernate.annotations.Parameter;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Inheritance;
+import javax.persistence.InheritanceType;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+@Entity
+@Inheritance(strategy = InheritanceType.JOINED)
+@Table(name = "BLC_SOLR_INDEX_CHANGE")
+public class SolrIndexChangeImpl implements SolrIndexChange {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(generator = "SolrIndexChangeId")
+    @GenericGenerator(
+            name="SolrIndexChangeId",
+            strategy="org.broadleafcommerce.common.persistence.IdOverrideTableGenerator",
+            parameters = {
+                    @Parameter(name="segment_value", value="SolrIndexChangeImpl"),
+                    @Parameter(name="entity_name", value="org.broadleafcommerce.core.search.domain.SolrIndexChangeImpl")
+            }
+    )
+    @Column(name = "SOLR_INDEX_CHANGE_ID")
+    protected Long id;
+
+    @Column(name = "ENTITY_TYPE", nullable = false)
+    @Index(name = "SOLR_INDEX_CHANGE_ENTITY_INDEX", columnNames = { "ENTITY_TYPE", "ENTITY_ID" })
+    protected String entityType;
+
+    @Column(name = "ENTITY_ID", nullable = false)
+    protected Long entityId;
+
+    @Column(name = "DATE_CREATED")
+    @Temporal(TemporalType.TIMESTAMP)
+    protected Date dateCreated;
+
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    @Override
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    @Override
+    public SolrIndexChangeType getEntityType() {
+        return SolrIndexChangeType.getInstance(entityType);
+    }
+
+    @Override
+    public void setEntityType(SolrIndexChangeType entityType) {
+        this.entityType = entityType == null ? null : entityType.getType();
+    }
+
+    @Override
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    @Override
+    public void setEntityId(Long entityId) {
+        this.entityId = entityId;
+    }
+
+    @Override
+    public Date getDateCreated() {
+        return dateCreated;
+    }
+
+    @Override
+    public void setDateCreated(Date dateCreated) {
+        this.dateCreated = dateCreated;
+    }
+}
@@ -132,6 +132,9 @@ public class SolrHelperServiceImpl implements SolrHelperService {
     @Resource(name = "blIndexFieldDao")
     protected IndexFieldDao indexFieldDao;
 
+    @Resource(name = "blSolrSearchCacheService")
+    protected SolrSearchCacheService searchCacheService;
+
     @Value("${solr.index.use.sku}")
     protected boolean useSku;
 
@@ -984,9 +987,9 @@ public class SolrHelperServiceImpl implements SolrHelperService {
 
         if (ExtensionResultStatusType.NOT_HANDLED.equals(status)) {
             if (useSku) {
-                fields = indexFieldDao.readSearchableFieldsByEntityType(FieldEntity.SKU);
+                fields = searchCacheService.readSearchableFieldsByEntityType(FieldEntity.SKU);
             } else {
-                fields = indexFieldDao.readSearchableFieldsByEntityType(FieldEntity.PRODUCT);
+                fields = searchCacheService.readSearchableFieldsByEntityType(FieldEntity.PRODUCT);
             }
         }
 
@@ -0,0 +1,76 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.service.solr;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.broadleafcommerce.core.catalog.domain.Category;
+import org.broadleafcommerce.core.search.domain.FieldEntity;
+import org.broadleafcommerce.core.search.domain.IndexField;
+import org.broadleafcommerce.core.search.domain.SearchFacet;
+
+import java.util.List;
+
+/**
+ * Caches the responses of storefront Solr queries along with the facet and index field metadata needed to build them.
+ * Each cache can be switched on separately; when a cache is off, its methods read straight through.
+ * 
+ * @see SolrSearchServiceImpl
+ */
+public interface SolrSearchCacheService {
+
+    /**
+     * @return a copy of the cached response for the given query in the current site, sandbox and locale, or null if
+     * there is none. The returned response belongs to the caller and may be modified.
+     */
+    public QueryResponse getSearchResult(SolrQuery query);
+
+    /**
+     * Caches a copy of the response of the given query for the current site, sandbox and locale
+     */
+    public void putSearchResult(SolrQuery query, QueryResponse response);
+
+    /**
+     * Drops every cached query response. Called whenever changes become visible in the live index on this node, but
+     * not for commits to the reindex core.
+     */
+    public void invalidateSearchResults();
+
+    /**
+     * @return the SearchFacets shown on searches for the given entity type
+     * @see org.broadleafcommerce.core.search.dao.SearchFacetDao#readAllSearchFacets(FieldEntity)
+     */
+    public List<SearchFacet> readAllSearchFacets(FieldEntity entityType);
+
+    /**
+     * @return the SearchFacets of the given category and its parents
+     * @see Category#getCumulativeSearchFacets()
+     */
+    public List<SearchFacet> readCumulativeSearchFacets(Category category);
+
+    /**
+     * @return the searchable IndexFields for the given entity type
+     * @see org.broadleafcommerce.core.search.dao.IndexFieldDao#readSearchableFieldsByEntityType(FieldEntity)
+     */
+    public List<IndexField> readSearchableFieldsByEntityType(FieldEntity entityType);
+
+    /**
+     * Drops all cached facet and index field metadata
+     */
+    public void invalidateMetadata();
+}
@@ -0,0 +1,341 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.service.solr;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.broadleafcommerce.core.catalog.domain.Category;
+import org.broadleafcommerce.core.search.dao.IndexFieldDao;
+import org.broadleafcommerce.core.search.dao.SearchFacetDao;
+import org.broadleafcommerce.core.search.domain.CategorySearchFacet;
+import org.broadleafcommerce.core.search.domain.FieldEntity;
+import org.broadleafcommerce.core.search.domain.IndexField;
+import org.broadleafcommerce.core.search.domain.SearchFacet;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Resource;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+
+/**
+ * Ehcache backed {@link SolrSearchCacheService}. Query responses are kept in "blSolrSearchResultElements" and
+ * metadata in "blSolrSearchMetadataElements"; size and time to live are bounded by the ehcache configuration.
+ * 
+ * Responses are cached as a private copy of their raw values, and every hit is handed a new {@link QueryResponse}
+ * built from another copy, so no two requests ever share documents or facet lists.
+ * 
+ * Metadata is cached as entity ids and resolved through the DAOs on each read, which are second level cache hits,
+ * so no detached entity ever outlives its session.
+ */
+@Service("blSolrSearchCacheService")
+@ManagedResource(objectName = "org.broadleafcommerce:name=SolrSearchCacheService", description = "Solr Search Cache Statistics", currencyTimeLimit = 15)
+public class SolrSearchCacheServiceImpl implements SolrSearchCacheService {
+
+    @Value("${solr.search.cache.results.enabled}")
+    protected boolean searchResultCacheEnabled;
+
+    @Value("${solr.search.cache.metadata.enabled}")
+    protected boolean metadataCacheEnabled;
+
+    @Resource(name = "blSearchFacetDao")
+    protected SearchFacetDao searchFacetDao;
+
+    @Resource(name = "blIndexFieldDao")
+    protected IndexFieldDao indexFieldDao;
+
+    protected Cache searchResultCache;
+    protected Cache metadataCache;
+
+    protected final AtomicLong searchResultHits = new AtomicLong();
+    protected final AtomicLong searchResultMisses = new AtomicLong();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public QueryResponse getSearchResult(SolrQuery query) {
+        if (!searchResultCacheEnabled) {
+            return null;
+        }
+        Element element = getSearchResultCache().get(buildSearchResultKey(query));
+        if (element == null) {
+            searchResultMisses.incrementAndGet();
+            return null;
+        }
+        searchResultHits.incrementAndGet();
+        QueryResponse response = new QueryResponse();
+        response.setResponse(copyResponseValues((NamedList<Object>) element.getObjectValue()));
+        return response;
+    }
+
+    @Override
+    public void putSearchResult(SolrQuery query, QueryResponse response) {
+        if (searchResultCacheEnabled && response.getResponse() != null) {
+            getSearchResultCache().put(new Element(buildSearchResultKey(query), copyResponseValues(response.getResponse())));
+        }
+    }
+
+    @Override
+    @ManagedOperation(description = "Drop every cached Solr query response")
+    public void invalidateSearchResults() {
+        if (searchResultCacheEnabled) {
+            getSearchResultCache().removeAll();
+        }
+    }
+
+    @Override
+    public List<SearchFacet> readAllSearchFacets(FieldEntity entityType) {
+        if (!metadataCacheEnabled) {
+            return searchFacetDao.readAllSearchFacets(entityType);
+        }
+        String key = buildContextKey() + "|facets|" + entityType.getType();
+        List<Long> ids = getCachedIds(key);
+        if (ids == null) {
+            List<SearchFacet> searchFacets = searchFacetDao.readAllSearchFacets(entityType);
+            putCachedIds(key, searchFacets);
+            return searchFacets;
+        }
+        List<SearchFacet> searchFacets = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            SearchFacet searchFacet = searchFacetDao.readSearchFacetById(id);
+            if (searchFacet != null) {
+                searchFacets.add(searchFacet);
+            }
+        }
+        return searchFacets;
+    }
+
+    @Override
+    public List<SearchFacet> readCumulativeSearchFacets(Category category) {
+        if (!metadataCacheEnabled || category.getId() == null) {
+            return getCumulativeSearchFacets(category);
+        }
+        String key = buildContextKey() + "|categoryFacets|" + category.getId();
+        List<Long> ids = getCachedIds(key);
+        if (ids == null) {
+            List<SearchFacet> searchFacets = getCumulativeSearchFacets(category);
+            putCachedIds(key, searchFacets);
+            return searchFacets;
+        }
+        List<SearchFacet> searchFacets = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            SearchFacet searchFacet = searchFacetDao.readSearchFacetById(id);
+            if (searchFacet != null) {
+                searchFacets.add(searchFacet);
+            }
+        }
+        return searchFacets;
+    }
+
+    @Override
+    public List<IndexField> readSearchableFieldsByEntityType(FieldEntity entityType) {
+        if (!metadataCacheEnabled) {
+            return indexFieldDao.readSearchableFieldsByEntityType(entityType);
+        }
+        String key = buildContextKey() + "|searchableFields|" + entityType.getType();
+        List<Long> ids = getCachedIds(key);
+        if (ids == null) {
+            List<IndexField> indexFields = indexFieldDao.readSearchableFieldsByEntityType(entityType);
+            List<Long> indexFieldIds = new ArrayList<>(indexFields.size());
+            for (IndexField indexField : indexFields) {
+                indexFieldIds.add(indexField.getId());
+            }
+            getMetadataCache().put(new Element(key, indexFieldIds));
+            return indexFields;
+        }
+        List<IndexField> indexFields = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            IndexField indexField = indexFieldDao.readIndexFieldById(id);
+            if (indexField != null) {
+                indexFields.add(indexField);
+            }
+        }
+        return indexFields;
+    }
+
+    @Override
+    @ManagedOperation(description = "Drop all cached search facet and index field metadata")
+    public void invalidateMetadata() {
+        if (metadataCacheEnabled) {
+            getMetadataCache().removeAll();
+        }
+    }
+
+    /**
+     * Copies the raw values of a query response. Callers and extension handlers are free to modify the documents and
+     * facets of the response they were given, so the cache only ever holds its own copy and hands out new ones.
+     * Documents, named lists, lists and maps are copied; their leaf values (strings, numbers, dates) are immutable.
+     */
+    protected NamedList<Object> copyResponseValues(NamedList<Object> values) {
+        return copyNamedList(values);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    protected Object copyResponseValue(Object value) {
+        if (value instanceof SolrDocumentList) {
+            SolrDocumentList documents = (SolrDocumentList) value;
+            SolrDocumentList copy = new SolrDocumentList();
+            copy.setNumFound(documents.getNumFound());
+            copy.setStart(documents.getStart());
+            copy.setMaxScore(documents.getMaxScore());
+            for (SolrDocument document : documents) {
+                copy.add(copySolrDocument(document));
+            }
+            return copy;
+        }
+        if (value instanceof SolrDocument) {
+            return copySolrDocument((SolrDocument) value);
+        }
+        if (value instanceof NamedList) {
+            return copyNamedList((NamedList<Object>) value);
+        }
+        if (value instanceof Map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                copy.put(entry.getKey(), copyResponseValue(entry.getValue()));
+            }
+            return copy;
+        }
+        if (value instanceof Collection) {
+            List copy = new ArrayList(((Collection) value).size());
+            for (Object item : (Collection) value) {
+                copy.add(copyResponseValue(item));
+            }
+            return copy;
+        }
+        return value;
+    }
+
+    protected NamedList<Object> copyNamedList(NamedList<Object> values) {
+        if (values == null) {
+            return null;
+        }
+        NamedList<Object> copy = values instanceof SimpleOrderedMap ? new SimpleOrderedMap<>() : new NamedList<>();
+        for (int i = 0; i < values.size(); i++) {
+            copy.add(values.getName(i), copyResponseValue(values.getVal(i)));
+        }
+        return copy;
+    }
+
+    protected SolrDocument copySolrDocument(SolrDocument document) {
+        SolrDocument copy = new SolrDocument();
+        for (Map.Entry<String, Object> field : document.entrySet()) {
+            copy.setField(field.getKey(), copyResponseValue(field.getValue()));
+        }
+        if (document.hasChildDocuments()) {
+            for (SolrDocument child : document.getChildDocuments()) {
+                copy.addChildDocument(copySolrDocument(child));
+            }
+        }
+        return copy;
+    }
+
+    protected List<SearchFacet> getCumulativeSearchFacets(Category category) {
+        List<SearchFacet> searchFacets = new ArrayList<>();
+        for (CategorySearchFacet categorySearchFacet : category.getCumulativeSearchFacets()) {
+            searchFacets.add(categorySearchFacet.getSearchFacet());
+        }
+        return searchFacets;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected List<Long> getCachedIds(String key) {
+        Element element = getMetadataCache().get(key);
+        return element == null ? null : (List<Long>) element.getObjectValue();
+    }
+
+    protected void putCachedIds(String key, List<SearchFacet> searchFacets) {
+        List<Long> ids = new ArrayList<>(searchFacets.size());
+        for (SearchFacet searchFacet : searchFacets) {
+            ids.add(searchFacet.getId());
+        }
+        getMetadataCache().put(new Element(key, ids));
+    }
+
+    /**
+     * Builds a key from every parameter of the final query, sorted by name, so that two requests that produce the
+     * same Solr query share an entry no matter how their criteria were assembled.
+     */
+    protected String buildSearchResultKey(SolrQuery query) {
+        StringBuilder key = new StringBuilder(buildContextKey());
+        Iterator<String> names = query.getParameterNamesIterator();
+        TreeSet<String> sortedNames = new TreeSet<>();
+        while (names.hasNext()) {
+            sortedNames.add(names.next());
+        }
+        for (String name : sortedNames) {
+            key.append('|').append(name).append('=').append(Arrays.toString(query.getParams(name)));
+        }
+        return key.toString();
+    }
+
+    protected String buildContextKey() {
+        BroadleafRequestContext context = BroadleafRequestContext.getBroadleafRequestContext();
+        if (context == null) {
+            return "";
+        }
+        StringBuilder key = new StringBuilder();
+        key.append(context.getNonPersistentSite() == null ? null : context.getNonPersistentSite().getId());
+        key.append('|').append(context.getSandBoxId());
+        key.append('|').append(context.getLocale() == null ? null : context.getLocale().getLocaleCode());
+        return key.toString();
+    }
+
+    protected Cache getSearchResultCache() {
+        if (searchResultCache == null) {
+            searchResultCache = CacheManager.getInstance().getCache("blSolrSearchResultElements");
+        }
+        return searchResultCache;
+    }
+
+    protected Cache getMetadataCache() {
+        if (metadataCache == null) {
+            metadataCache = CacheManager.getInstance().getCache("blSolrSearchMetadataElements");
+        }
+        return metadataCache;
+    }
+
+    @ManagedAttribute(description = "Number of Solr queries answered from the cache")
+    public long getSearchResultHitCount() {
+        return searchResultHits.get();
+    }
+
+    @ManagedAttribute(description = "Number of Solr queries that had to be sent to Solr")
+    public long getSearchResultMissCount() {
+        return searchResultMisses.get();
+    }
+}
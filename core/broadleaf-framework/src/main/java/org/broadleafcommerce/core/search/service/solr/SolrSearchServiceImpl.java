@@ -35,12 +35,12 @@ import org.broadleafcommerce.common.web.BroadleafRequestContext;
 import org.broadleafcommerce.core.catalog.dao.ProductDao;
 import org.broadleafcommerce.core.catalog.dao.SkuDao;
 import org.broadleafcommerce.core.catalog.domain.Category;
+import org.broadleafcommerce.core.catalog.domain.Indexable;
 import org.broadleafcommerce.core.catalog.domain.Product;
 import org.broadleafcommerce.core.catalog.domain.Sku;
 import org.broadleafcommerce.core.search.dao.FieldDao;
 import org.broadleafcommerce.core.search.dao.IndexFieldDao;
 import org.broadleafcommerce.core.search.dao.SearchFacetDao;
-import org.broadleafcommerce.core.search.domain.CategorySearchFacet;
 import org.broadleafcommerce.core.search.domain.FieldEntity;
 import org.broadleafcommerce.core.search.domain.IndexField;
 import org.broadleafcommerce.core.search.domain.IndexFieldType;
@@ -50,6 +50,7 @@ import org.broadleafcommerce.core.search.domain.SearchFacetDTO;
 import org.broadleafcommerce.core.search.domain.SearchFacetRange;
 import org.broadleafcommerce.core.search.domain.SearchFacetResultDTO;
 import org.broadleafcommerce.core.search.domain.SearchResult;
+import org.broadleafcommerce.core.search.domain.SearchResultProjection;
 import org.broadleafcommerce.core.search.domain.solr.FieldType;
 import org.broadleafcommerce.core.search.service.SearchService;
 import org.springframework.beans.factory.DisposableBean;
@@ -64,10 +65,14 @@ import java.net.URLDecoder;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 import javax.annotation.Resource;
 
@@ -110,6 +115,9 @@ public class SolrSearchServiceImpl implements SearchService, DisposableBean {
     @Resource(name = "blSolrSearchServiceExtensionManager")
     protected SolrSearchServiceExtensionManager extensionManager;
 
+    @Resource(name = "blSolrSearchCacheService")
+    protected SolrSearchCacheService searchCacheService;
+
     @Autowired
     protected Environment environment;
 
@@ -208,6 +216,11 @@ public class SolrSearchServiceImpl implements SearchService, DisposableBean {
         }
 
         solrQuery.setFields(shs.getIndexableIdFieldName());
+        if (isProjectionSearch(searchCriteria)) {
+            for (String projectionField : searchCriteria.getProjectionFields()) {
+                solrQuery.addField(projectionField);
+            }
+        }
         if (filterQueries != null) {
             solrQuery.setFilterQueries(filterQueries);
         }
@@ -253,7 +266,7 @@ public class SolrSearchServiceImpl implements SearchService, DisposableBean {
         List<SolrDocument> responseDocuments;
         int numResults = 0;
         try {
-            response = solrConfiguration.getServer().query(solrQuery, getSolrQueryMethod());
+            response = getQueryResponse(solrQuery);
             responseDocuments = getResponseDocuments(response);
             numResults = (int) response.getResults().getNumFound();
 
@@ -280,7 +293,9 @@ public class SolrSearchServiceImpl implements SearchService, DisposableBean {
         result.setQueryResponse(response);
         setPagingAttributes(result, numResults, searchCriteria);
 
-        if (useSku) {
+        if (isProjectionSearch(searchCriteria)) {
+            result.setProjections(getProjections(responseDocuments));
+        } else if (useSku) {
             List<Sku> skus = getSkus(responseDocuments);
             result.setSkus(skus);
         } else {
@@ -418,6 +433,21 @@ public class SolrSearchServiceImpl implements SearchService, DisposableBean {
         return searchContextDTO;
     }
 
+    /**
+     * Sends the query to Solr, unless an identical query was recently answered and is still cached
+     * 
+     * @param solrQuery the fully built query
+     * @return the response to the query
+     */
+    protected QueryResponse getQueryResponse(SolrQuery solrQuery) throws SolrServerException, IOException {
+        QueryResponse response = searchCacheService.getSearchResult(solrQuery);
+        if (response == null) {
+            response = solrConfiguration.getServer().query(solrQuery, getSolrQueryMethod());
+            searchCacheService.putSearchResult(solrQuery, response);
+        }
+        return response;
+    }
+
     protected List<SolrDocument> getResponseDocuments(QueryResponse response) {
         return shs.getResponseDocuments(response);
     }
@@ -429,9 +459,9 @@ public class SolrSearchServiceImpl implements SearchService, DisposableBean {
 
         if (Objects.equals(ExtensionResultStatusType.NOT_HANDLED, status)) {
             if (useSku) {
-                return buildSearchFacetDTOs(searchFacetDao.readAllSearchFacets(FieldEntity.SKU));
+                return buildSearchFacetDTOs(searchCacheService.readAllSearchFacets(FieldEntity.SKU));
             }
-            return buildSearchFacetDTOs(searchFacetDao.readAllSearchFacets(FieldEntity.PRODUCT));
+            return buildSearchFacetDTOs(searchCacheService.readAllSearchFacets(FieldEntity.PRODUCT));
         }
 
         return buildSearchFacetDTOs(searchFacets);
@@ -459,10 +489,7 @@ public class SolrSearchServiceImpl implements SearchService, DisposableBean {
         ExtensionResultStatusType status = extensionManager.getProxy().getCategorySearchFacets(category, searchFacets);
 
         if (Objects.equals(ExtensionResultStatusType.NOT_HANDLED, status)) {
-            List<CategorySearchFacet> categorySearchFacets = category.getCumulativeSearchFacets();
-            for (CategorySearchFacet categorySearchFacet : categorySearchFacets) {
-                searchFacets.add(categorySearchFacet.getSearchFacet());
-            }
+            searchFacets.addAll(searchCacheService.readCumulativeSearchFacets(category));
         }
 
         return buildSearchFacetDTOs(searchFacets);
@@ -550,31 +577,21 @@ public class SolrSearchServiceImpl implements SearchService, DisposableBean {
     /**
      * Given a list of product IDs from solr, this method will look up the IDs via the productDao and build out
      * actual Product instances. It will return a Products that is sorted by the order of the IDs in the passed
-     * in list.
+     * in list. Products already in the second level cache are not read again.
      * 
      * @param response
      * @return the actual Product instances as a result of the search
      */
     protected List<Product> getProducts(List<SolrDocument> responseDocuments) {
-        final List<Long> productIds = new ArrayList<>();
-        for (SolrDocument doc : responseDocuments) {
-            productIds.add((Long) doc.getFieldValue(shs.getIndexableIdFieldName()));
-        }
+        List<Long> productIds = getIndexableIds(responseDocuments);
 
-        List<Product> products = productDao.readProductsByIds(productIds);
+        List<Product> products = productDao.readProductsByIdsPreferringCache(productIds);
 
         extensionManager.getProxy().batchFetchCatalogData(products);
 
         // We have to sort the products list by the order of the productIds list to maintain sortability in the UI
         if (products != null) {
-            Collections.sort(products, new Comparator<Product>() {
-                @Override
-                public int compare(Product o1, Product o2) {
-                    Long o1id = shs.getIndexableId(o1);
-                    Long o2id = shs.getIndexableId(o2);
-                    return new Integer(productIds.indexOf(o1id)).compareTo(productIds.indexOf(o2id));
-                }
-            });
+            products = sortByIndexableIds(productIds, products);
         }
 
         extensionManager.getProxy().modifySearchResults(responseDocuments, products);
@@ -585,32 +602,107 @@ public class SolrSearchServiceImpl implements SearchService, DisposableBean {
     /**
      * Given a list of Sku IDs from solr, this method will look up the IDs via the skuDao and build out
      * actual Sku instances. It will return a Sku list that is sorted by the order of the IDs in the passed
-     * in list.
+     * in list. Skus already in the second level cache are not read again.
      * 
      * @param response
      * @return the actual Sku instances as a result of the search
      */
     protected List<Sku> getSkus(List<SolrDocument> responseDocuments) {
-        final List<Long> skuIds = new ArrayList<>();
-        for (SolrDocument doc : responseDocuments) {
-            skuIds.add((Long) doc.getFieldValue(shs.getIndexableIdFieldName()));
-        }
+        List<Long> skuIds = getIndexableIds(responseDocuments);
 
-        List<Sku> skus = skuDao.readSkusByIds(skuIds);
+        List<Sku> skus = skuDao.readSkusByIdsPreferringCache(skuIds);
 
         // We have to sort the skus list by the order of the skuIds list to maintain sortability in the UI
         if (skus != null) {
-            Collections.sort(skus, new Comparator<Sku>() {
-                @Override
-                public int compare(Sku o1, Sku o2) {
-                    return new Integer(skuIds.indexOf(o1.getId())).compareTo(skuIds.indexOf(o2.getId()));
-                }
-            });
+            skus = sortByIndexableIds(skuIds, skus);
         }
 
         return skus;
     }
 
+    /**
+     * Builds a {@link SearchResultProjection} from the stored fields of each document, in the order Solr returned them,
+     * without touching the database.
+     * 
+     * @param responseDocuments
+     * @return the projections requested by {@link SearchCriteria#getProjectionFields()}
+     */
+    protected List<SearchResultProjection> getProjections(List<SolrDocument> responseDocuments) {
+        List<SearchResultProjection> projections = new ArrayList<>(responseDocuments.size());
+        for (SolrDocument doc : responseDocuments) {
+            Map<String, Object> fieldValues = new HashMap<>();
+            for (String fieldName : doc.getFieldNames()) {
+                fieldValues.put(fieldName, doc.getFieldValue(fieldName));
+            }
+            Long id = (Long) doc.getFieldValue(shs.getIndexableIdFieldName());
+            projections.add(new SearchResultProjection(id, fieldValues));
+        }
+        return projections;
+    }
+
+    protected boolean isProjectionSearch(SearchCriteria searchCriteria) {
+        return searchCriteria.getProjectionFields() != null && !searchCriteria.getProjectionFields().isEmpty();
+    }
+
+    protected List<Long> getIndexableIds(List<SolrDocument> responseDocuments) {
+        List<Long> ids = new ArrayList<>(responseDocuments.size());
+        for (SolrDocument doc : responseDocuments) {
+            ids.add((Long) doc.getFieldValue(shs.getIndexableIdFieldName()));
+        }
+        return ids;
+    }
+
+    /**
+     * Puts the given indexables in the order of the passed in ids. This keeps the semantics of the previous
+     * indexOf-based comparator while looking each position up only once: the sort is stable, an id listed more than
+     * once sorts by its first position, and every indexable is kept. Indexables whose id is not in the list sort
+     * first, and ids with no matching indexable are skipped. Both cases are logged at debug level since they usually
+     * mean the index is out of date with the database.
+     * 
+     * @param ids the ids in the order Solr returned them
+     * @param indexables the hydrated indexables, in any order
+     * @return a new list of the indexables sorted by their position in the id list
+     */
+    protected <T extends Indexable> List<T> sortByIndexableIds(List<Long> ids, List<T> indexables) {
+        final Map<Long, Integer> positions = new HashMap<>(ids.size() * 2);
+        for (int i = 0; i < ids.size(); i++) {
+            if (!positions.containsKey(ids.get(i))) {
+                positions.put(ids.get(i), i);
+            }
+        }
+
+        final Map<T, Integer> indexablePositions = new IdentityHashMap<>(indexables.size() * 2);
+        Set<Long> foundIds = new HashSet<>(indexables.size() * 2);
+        for (T indexable : indexables) {
+            Long id = shs.getIndexableId(indexable);
+            Integer position = positions.get(id);
+            if (position == null) {
+                position = -1;
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Indexable with id " + id + " was not in the search response, sorting it first");
+                }
+            }
+            indexablePositions.put(indexable, position);
+            foundIds.add(id);
+        }
+        if (LOG.isDebugEnabled() && foundIds.size() < positions.size()) {
+            for (Long id : positions.keySet()) {
+                if (!foundIds.contains(id)) {
+                    LOG.debug("No indexable was found for id " + id + " returned by the search response");
+                }
+            }
+        }
+
+        List<T> sorted = new ArrayList<>(indexables);
+        Collections.sort(sorted, new Comparator<T>() {
+            @Override
+            public int compare(T o1, T o2) {
+                return indexablePositions.get(o1).compareTo(indexablePositions.get(o2));
+            }
+        });
+        return sorted;
+    }
+
     /**
      * Create the wrapper DTO around the SearchFacet
      * 
@@ -79,6 +79,15 @@ public abstract class GlobalSolrFullReIndexOperation implements SolrIndexOperati
         }
     }
 
+    /**
+     * @return whether a global reindex currently holds the lock in this JVM
+     */
+    public static boolean isLocked() {
+        synchronized (LOCK_OBJECT) {
+            return IS_LOCKED;
+        }
+    }
+
     @Override
     public SolrClient getSolrServerForIndexing() {
         return solrConfiguration.getReindexServer();
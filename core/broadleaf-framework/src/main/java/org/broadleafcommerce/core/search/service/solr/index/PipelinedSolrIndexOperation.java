@@ -0,0 +1,56 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.service.solr.index;
+
+import org.broadleafcommerce.common.exception.ServiceException;
+import org.broadleafcommerce.core.catalog.domain.Indexable;
+
+import java.util.List;
+
+/**
+ * A {@link SolrIndexOperation} that can be run by {@link SolrIndexPipeline}. Pages are read in keyset order with
+ * {@link #readIndexableIds(int, Long)}, which only selects the ids, and only those ids travel to the worker threads
+ * that build the documents. Each worker has its own transaction and EntityManager, so it loads the page with
+ * {@link #readIndexablesByIds(List)} before handing it to {@link #buildPage(List)}.
+ * <p>
+ * Since several pages are built at once, {@link #beforeBuildPage()}, {@link #buildPage(List)} and
+ * {@link #afterBuildPage()} are called concurrently from different threads and must be thread safe.
+ */
+public interface PipelinedSolrIndexOperation extends SolrIndexOperation {
+
+    /**
+     * Reads the ids of the next page of {@link Indexable} items, in the same order as {@link #readIndexables(int, Long)}
+     * but without loading the items themselves. Called between {@link #beforeReadIndexables()} and
+     * {@link #afterReadIndexables()}.
+     * 
+     * @param pageSize the maximum number of ids to read
+     * @param lastId the last id of the previous page, or null for the first page
+     * @return the ids of the page in ascending order, empty when there is nothing left to read
+     * @throws ServiceException
+     */
+    public List<Long> readIndexableIds(int pageSize, Long lastId) throws ServiceException;
+
+    /**
+     * Loads the {@link Indexable} items of a page previously returned by {@link #readIndexableIds(int, Long)}
+     * 
+     * @param ids the ids of the items in the page, in the order they were read
+     * @throws ServiceException
+     */
+    public List<? extends Indexable> readIndexablesByIds(List<Long> ids) throws ServiceException;
+
+}
@@ -22,6 +22,7 @@ import org.broadleafcommerce.common.exception.ServiceException;
 import org.broadleafcommerce.common.site.domain.Catalog;
 import org.broadleafcommerce.common.web.BroadleafRequestContext;
 import org.broadleafcommerce.core.search.dao.CatalogStructure;
+import org.broadleafcommerce.core.search.dao.ProductCatalogStructure;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -38,14 +39,14 @@ public class SolrIndexCachedOperation {
 
     public static final Long DEFAULT_CATALOG_CACHE_KEY = 0l;
     
-    private static final ThreadLocal<Map<Long, CatalogStructure>> CACHE = new ThreadLocal<Map<Long, CatalogStructure>>();
+    private static final ThreadLocal<Map<Long, ProductCatalogStructure>> CACHE = new ThreadLocal<Map<Long, ProductCatalogStructure>>();
 
     /**
      * Retrieve the cache bound to the current thread.
      *
      * @return The cache for the current thread, or null if not set
      */
-    public static CatalogStructure getCache() {
+    public static ProductCatalogStructure getCatalogStructure() {
         BroadleafRequestContext ctx = BroadleafRequestContext.getBroadleafRequestContext();
         Catalog currentCatalog = ctx == null ? null : ctx.getCurrentCatalog();
         if (currentCatalog != null) {
@@ -55,17 +56,46 @@ public class SolrIndexCachedOperation {
         }
     }
 
+    /**
+     * Retrieve the cache bound to the current thread.
+     *
+     * @return The cache for the current thread, or null if not set
+     * @throws IllegalStateException if the cache is not a {@link CatalogStructure}, which happens when
+     * <code>solr.index.catalogStructure.compact</code> is turned on
+     * @deprecated in favor of {@link #getCatalogStructure()}, which returns any {@link ProductCatalogStructure}
+     */
+    @Deprecated
+    public static CatalogStructure getCache() {
+        ProductCatalogStructure cache = getCatalogStructure();
+        if (cache != null && !(cache instanceof CatalogStructure)) {
+            throw new IllegalStateException("The cache is a " + cache.getClass().getName()
+                    + ", use SolrIndexCachedOperation.getCatalogStructure() to retrieve it");
+        }
+        return (CatalogStructure) cache;
+    }
+
     /**
      * Set the cache on the current thread
      *
-     * @param cache the cache object (usually an empty map)
+     * @param cache the cache object (usually an empty catalog structure)
+     * @deprecated in favor of {@link #setCache(ProductCatalogStructure)}
      */
+    @Deprecated
     public static void setCache(CatalogStructure cache) {
+        setCache((ProductCatalogStructure) cache);
+    }
+
+    /**
+     * Set the cache on the current thread
+     *
+     * @param cache the cache object (usually an empty catalog structure)
+     */
+    public static void setCache(ProductCatalogStructure cache) {
         BroadleafRequestContext ctx = BroadleafRequestContext.getBroadleafRequestContext();
         Catalog currentCatalog = ctx == null ? null : ctx.getCurrentCatalog();
-        Map<Long, CatalogStructure> catalogCaches = CACHE.get();
+        Map<Long, ProductCatalogStructure> catalogCaches = CACHE.get();
         if (catalogCaches == null) {
-            catalogCaches = new HashMap<Long, CatalogStructure>();
+            catalogCaches = new HashMap<Long, ProductCatalogStructure>();
             CACHE.set(catalogCaches);
         }
         if (currentCatalog != null) {
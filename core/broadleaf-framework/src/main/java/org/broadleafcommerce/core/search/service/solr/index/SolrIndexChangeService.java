@@ -0,0 +1,61 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.service.solr.index;
+
+import org.broadleafcommerce.common.exception.ServiceException;
+import org.broadleafcommerce.core.search.domain.SolrIndexChange;
+import org.broadleafcommerce.core.search.domain.SolrIndexChangeType;
+
+import java.io.IOException;
+
+/**
+ * Keeps the catalog index up to date by reindexing only the documents affected by committed catalog changes, rather
+ * than rebuilding the whole index.
+ * <p>
+ * Changes are captured by {@link org.broadleafcommerce.core.search.domain.SolrIndexChangeEntityListener} and written to
+ * the {@link SolrIndexChange} outbox as part of their own transaction, just before it commits. {@link #processChanges()} drains the outbox in
+ * micro-batches: repeated changes to the same entity are coalesced, category changes are expanded to the products
+ * beneath the category, and the affected documents are replaced in the primary index.
+ */
+public interface SolrIndexChangeService {
+
+    /**
+     * Records that the given entity changed. If called within a transaction, the change is written to the outbox in
+     * that same transaction just before it commits, so it is kept exactly when the change itself is.
+     * 
+     * @param entityType the kind of entity that changed
+     * @param entityId the id of the entity that changed
+     */
+    public void recordChange(SolrIndexChangeType entityType, Long entityId);
+
+    /**
+     * Reindexes the documents affected by the oldest batch of recorded changes and removes those changes from the
+     * outbox. Does nothing while a full reindex is running, since the swapped-in index would not reflect them.
+     * 
+     * @return the number of changes processed
+     * @throws ServiceException
+     * @throws IOException
+     */
+    public int processChanges() throws ServiceException, IOException;
+
+    /**
+     * @return the number of changes waiting to be processed
+     */
+    public Long getPendingChangeCount();
+
+}
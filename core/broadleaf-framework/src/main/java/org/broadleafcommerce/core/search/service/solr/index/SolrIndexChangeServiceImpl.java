@@ -0,0 +1,620 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.service.solr.index;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.broadleafcommerce.common.classloader.release.ThreadLocalManager;
+import org.broadleafcommerce.common.exception.ServiceException;
+import org.broadleafcommerce.common.util.DaemonThreadFactory;
+import org.broadleafcommerce.common.util.StopWatch;
+import org.broadleafcommerce.common.util.StringUtil;
+import org.broadleafcommerce.common.util.TransactionUtils;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.broadleafcommerce.core.catalog.dao.ProductDao;
+import org.broadleafcommerce.core.catalog.dao.SkuDao;
+import org.broadleafcommerce.core.catalog.domain.Indexable;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.search.dao.SolrIndexChangeDao;
+import org.broadleafcommerce.core.search.domain.SolrIndexChange;
+import org.broadleafcommerce.core.search.domain.SolrIndexChangeType;
+import org.broadleafcommerce.core.search.service.solr.SolrConfiguration;
+import org.broadleafcommerce.core.search.service.solr.SolrHelperService;
+import org.hibernate.Session;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Default implementation of {@link SolrIndexChangeService}. Capture is controlled by {@code solr.index.change.capture.enabled} and processing by
+ * {@code solr.index.change.process.enabled}, so that every node can record changes while only one of them drains the
+ * outbox on a schedule. Processing can also be triggered through JMX.
+ * <p>
+ * A change to an {@link org.broadleafcommerce.core.search.domain.IndexField} alters the documents of every product,
+ * so it falls back to {@link SolrIndexService#rebuildIndex()}, which covers every change recorded before it started.
+ */
+@Service("blSolrIndexChangeService")
+@ManagedResource(objectName = "org.broadleafcommerce:name=SolrIndexChangeService", description = "Incremental Solr Indexing Statistics", currencyTimeLimit = 15)
+public class SolrIndexChangeServiceImpl implements SolrIndexChangeService {
+
+    private static final Log LOG = LogFactory.getLog(SolrIndexChangeServiceImpl.class);
+
+    @Value("${solr.index.change.capture.enabled}")
+    protected boolean captureEnabled;
+
+    @Value("${solr.index.change.process.enabled}")
+    protected boolean processEnabled;
+
+    @Value("${solr.index.change.process.intervalMillis}")
+    protected long processIntervalMillis;
+
+    @Value("${solr.index.change.process.batchSize}")
+    protected int batchSize;
+
+    @Value("${solr.index.product.pageSize}")
+    protected int pageSize;
+
+    @Value("${solr.index.use.sku}")
+    protected boolean useSku;
+
+    @Qualifier("blCatalogSolrConfiguration")
+    @Autowired(required = false)
+    protected SolrConfiguration solrConfiguration;
+
+    @Resource(name = "blSolrIndexChangeDao")
+    protected SolrIndexChangeDao solrIndexChangeDao;
+
+    @Resource(name = "blSolrIndexService")
+    protected SolrIndexService solrIndexService;
+
+    @Resource(name = "blSolrHelperService")
+    protected SolrHelperService shs;
+
+    @Resource(name = "blProductDao")
+    protected ProductDao productDao;
+
+    @Resource(name = "blSkuDao")
+    protected SkuDao skuDao;
+
+    @Resource(name = "blTransactionManager")
+    protected PlatformTransactionManager transactionManager;
+
+    @PersistenceContext(unitName = "blPU")
+    protected EntityManager em;
+
+    protected final ReentrantLock processLock = new ReentrantLock();
+    protected final AtomicLong processedChanges = new AtomicLong();
+    protected final AtomicLong reindexedItems = new AtomicLong();
+    protected final AtomicLong fullRebuilds = new AtomicLong();
+    protected final AtomicLong failedRuns = new AtomicLong();
+
+    protected ScheduledExecutorService processExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (processEnabled && solrConfiguration != null) {
+            processExecutor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("blSolrIndexChangeProcessor"));
+            processExecutor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    processPendingChanges();
+                }
+            }, processIntervalMillis, processIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (processExecutor != null) {
+            processExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void recordChange(SolrIndexChangeType entityType, Long entityId) {
+        if (!captureEnabled) {
+            return;
+        }
+        ChangeKey key = new ChangeKey(entityType, entityId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            saveChanges(Collections.singleton(key));
+            return;
+        }
+        PendingChanges pending = findPendingChanges();
+        if (pending == null) {
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.registerSynchronization(pending);
+            registerBeforeCompletion(pending);
+        }
+        pending.keys.add(key);
+    }
+
+    /**
+     * Has Hibernate write the pending changes after it has flushed the transaction for the last time. The entity
+     * listeners only fire on a flush, and when the commit does the only flush that happens after every Spring
+     * {@code beforeCommit} callback has already run.
+     */
+    protected void registerBeforeCompletion(PendingChanges pending) {
+        ((EventSource) em.unwrap(Session.class)).getActionQueue().registerProcess(pending);
+    }
+
+    /**
+     * Looks the pending changes up among the synchronizations of the current transaction rather than binding them as a
+     * resource, since synchronizations are suspended along with their transaction and a REQUIRES_NEW transaction
+     * gets its own set.
+     * 
+     * @return the changes already recorded in the current transaction, or null if there are none yet
+     */
+    protected PendingChanges findPendingChanges() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingChanges && ((PendingChanges) synchronization).getOwner() == this) {
+                return (PendingChanges) synchronization;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes changes flushed outside of a Spring managed transaction to the outbox in a transaction of their own.
+     * Failures are logged rather than thrown, since the change they describe has already been written.
+     */
+    protected void saveChanges(Collection<ChangeKey> keys) {
+        TransactionStatus status = TransactionUtils.createTransaction("saveSolrIndexChanges",
+                TransactionDefinition.PROPAGATION_REQUIRES_NEW, transactionManager, false);
+        try {
+            for (ChangeKey key : keys) {
+                solrIndexChangeDao.createChange(key.entityType, key.entityId);
+            }
+            TransactionUtils.finalizeTransaction(status, transactionManager, false);
+        } catch (RuntimeException e) {
+            TransactionUtils.finalizeTransaction(status, transactionManager, true);
+            LOG.error(String.format("Could not record %s Solr index changes. They will not be indexed until the next "
+                    + "full reindex.", keys.size()), e);
+        }
+    }
+
+    /**
+     * Drains the outbox for the scheduled processor, stopping once a batch comes back short or a run fails
+     */
+    protected void processPendingChanges() {
+        boolean isNewContext = BroadleafRequestContext.getBroadleafRequestContext() == null;
+        if (isNewContext) {
+            BroadleafRequestContext.setBroadleafRequestContext(new BroadleafRequestContext());
+        }
+        try {
+            while (processChanges() >= batchSize) {
+                // keep going until the backlog is drained
+            }
+        } catch (Exception e) {
+            failedRuns.incrementAndGet();
+            LOG.error("Could not process Solr index changes. They will be retried on the next run.", e);
+        } finally {
+            if (isNewContext) {
+                ThreadLocalManager.remove();
+            }
+        }
+    }
+
+    @Override
+    @ManagedOperation(description = "Reindex the documents affected by the oldest batch of recorded changes")
+    public int processChanges() throws ServiceException, IOException {
+        if (solrConfiguration == null || !processLock.tryLock()) {
+            return 0;
+        }
+        try {
+            if (GlobalSolrFullReIndexOperation.isLocked()) {
+                LOG.debug("A full reindex is running, deferring Solr index changes until it completes");
+                return 0;
+            }
+            StopWatch s = new StopWatch();
+
+            List<SolrIndexChange> changes = readChanges();
+            if (changes.isEmpty()) {
+                return 0;
+            }
+
+            List<Long> changeIds = new ArrayList<Long>(changes.size());
+            Set<Long> productIds = new TreeSet<Long>();
+            Set<Long> skuIds = new TreeSet<Long>();
+            Set<Long> categoryIds = new TreeSet<Long>();
+            boolean isIndexFieldChanged = false;
+            for (SolrIndexChange change : changes) {
+                changeIds.add(change.getId());
+                SolrIndexChangeType entityType = change.getEntityType();
+                if (SolrIndexChangeType.PRODUCT.equals(entityType)) {
+                    productIds.add(change.getEntityId());
+                } else if (SolrIndexChangeType.SKU.equals(entityType)) {
+                    skuIds.add(change.getEntityId());
+                } else if (SolrIndexChangeType.CATEGORY.equals(entityType)) {
+                    categoryIds.add(change.getEntityId());
+                } else if (SolrIndexChangeType.INDEX_FIELD.equals(entityType)) {
+                    isIndexFieldChanged = true;
+                }
+            }
+
+            if (isIndexFieldChanged) {
+                return rebuildIndex();
+            }
+
+            reindex(productIds, skuIds);
+            reindexCategories(categoryIds);
+            deleteChanges(changeIds);
+
+            processedChanges.addAndGet(changeIds.size());
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(String.format("Processed %s Solr index changes in %s", changeIds.size(), s.toLapString()));
+            }
+            return changeIds.size();
+        } finally {
+            processLock.unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the whole index and then clears the changes that were pending when the rebuild started. Their ids are
+     * read up front rather than taken as a range, since ids are allocated before commit and a change committed while
+     * the rebuild runs can carry a lower id than one read before it.
+     */
+    protected int rebuildIndex() throws ServiceException, IOException {
+        LOG.info("An index field changed, rebuilding the Solr index");
+        List<Long> changeIds = readAllChangeIds();
+        solrIndexService.rebuildIndex();
+        fullRebuilds.incrementAndGet();
+
+        if (!changeIds.isEmpty()) {
+            deleteChanges(changeIds);
+            processedChanges.addAndGet(changeIds.size());
+        }
+        return changeIds.size();
+    }
+
+    /**
+     * Reindexes every product within the given categories and their descendants, a page at a time, so that a change
+     * high in the category tree is spread over many small updates instead of a full rebuild
+     */
+    protected void reindexCategories(Set<Long> categoryIds) throws ServiceException {
+        if (categoryIds.isEmpty()) {
+            return;
+        }
+        List<Long> allCategoryIds = readCategoryTree(categoryIds);
+        for (int i = 0; i < allCategoryIds.size(); i += pageSize) {
+            List<Long> categoryPage = allCategoryIds.subList(i, Math.min(i + pageSize, allCategoryIds.size()));
+            Long lastId = null;
+            while (true) {
+                List<Long> productIds = readProductIdsByCategoryIds(categoryPage, lastId);
+                if (productIds.isEmpty()) {
+                    break;
+                }
+                reindex(productIds, Collections.<Long>emptyList());
+                lastId = productIds.get(productIds.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * Replaces the documents for the given products and skus. In product mode a sku change reindexes its product; in
+     * sku mode a product change reindexes all of its skus.
+     */
+    protected void reindex(Collection<Long> productIds, Collection<Long> skuIds) throws ServiceException {
+        if (productIds.isEmpty() && skuIds.isEmpty()) {
+            return;
+        }
+        TransactionStatus status = TransactionUtils.createTransaction("reindexChangedItems",
+                TransactionDefinition.PROPAGATION_REQUIRED, transactionManager, true);
+        try {
+            Set<Long> ids = new TreeSet<Long>();
+            if (useSku) {
+                ids.addAll(skuIds);
+                if (!productIds.isEmpty()) {
+                    for (Product product : productDao.readProductsByIds(new ArrayList<Long>(productIds))) {
+                        for (Sku sku : product.getAllSkus()) {
+                            ids.add(sku.getId());
+                        }
+                    }
+                }
+            } else {
+                ids.addAll(productIds);
+                if (!skuIds.isEmpty()) {
+                    for (Sku sku : skuDao.readSkusByIds(new ArrayList<Long>(skuIds))) {
+                        if (sku.getProduct() != null) {
+                            ids.add(sku.getProduct().getId());
+                        }
+                    }
+                }
+            }
+
+            List<Long> idList = new ArrayList<Long>(ids);
+            for (int i = 0; i < idList.size(); i += pageSize) {
+                reindexPage(idList.subList(i, Math.min(i + pageSize, idList.size())));
+            }
+            TransactionUtils.finalizeTransaction(status, transactionManager, false);
+        } catch (ServiceException | RuntimeException e) {
+            TransactionUtils.finalizeTransaction(status, transactionManager, true);
+            throw e;
+        }
+    }
+
+    /**
+     * Deletes the current documents for the given products or skus from the primary index and adds fresh ones for
+     * those that are still indexable. Both are made visible by the same commit.
+     */
+    protected void reindexPage(List<Long> ids) throws ServiceException {
+        final List<? extends Indexable> indexables = readIndexables(ids);
+        try {
+            solrIndexService.deleteByQuery(buildDeleteQuery(ids));
+            if (CollectionUtils.isEmpty(indexables)) {
+                solrIndexService.commit(solrConfiguration.getServer());
+            } else {
+                solrIndexService.performCachedOperation(new SolrIndexCachedOperation.CacheOperation() {
+
+                    @Override
+                    public void execute() throws ServiceException {
+                        solrIndexService.buildIncrementalIndex(indexables, solrConfiguration.getServer());
+                    }
+                });
+            }
+        } catch (SolrServerException | IOException e) {
+            throw new ServiceException("Could not update index", e);
+        }
+        reindexedItems.addAndGet(ids.size());
+    }
+
+    protected List<? extends Indexable> readIndexables(List<Long> ids) {
+        if (useSku) {
+            List<Sku> skus = solrIndexService.filterIndexableSkus(skuDao.readSkusByIds(ids));
+            List<Sku> response = new ArrayList<Sku>(skus.size());
+            for (Sku sku : skus) {
+                if (sku.isActive()) {
+                    response.add(sku);
+                }
+            }
+            return response;
+        } else {
+            List<Product> response = new ArrayList<Product>(ids.size());
+            for (Product product : productDao.readProductsByIds(ids)) {
+                if (product.isActive()) {
+                    response.add(product);
+                }
+            }
+            return response;
+        }
+    }
+
+    protected String buildDeleteQuery(List<Long> ids) {
+        return StringUtil.sanitize(shs.getNamespaceFieldName()) + ":(\"" + StringUtil.sanitize(solrConfiguration.getNamespace())
+                + "\") AND " + shs.getIndexableIdFieldName() + ":(" + StringUtils.join(ids, " OR ") + ")";
+    }
+
+    /**
+     * @return the given categories along with all of their descendants
+     */
+    protected List<Long> readCategoryTree(Set<Long> categoryIds) {
+        TransactionStatus status = TransactionUtils.createTransaction("readCategoryTree",
+                TransactionDefinition.PROPAGATION_REQUIRED, transactionManager, true);
+        try {
+            Set<Long> response = new LinkedHashSet<Long>(categoryIds);
+            Collection<Long> parents = categoryIds;
+            while (!parents.isEmpty()) {
+                List<Long> children = new ArrayList<Long>();
+                for (Long childId : solrIndexChangeDao.readSubCategoryIds(parents)) {
+                    if (response.add(childId)) {
+                        children.add(childId);
+                    }
+                }
+                parents = children;
+            }
+            TransactionUtils.finalizeTransaction(status, transactionManager, false);
+            return new ArrayList<Long>(response);
+        } catch (RuntimeException e) {
+            TransactionUtils.finalizeTransaction(status, transactionManager, true);
+            throw e;
+        }
+    }
+
+    protected List<Long> readProductIdsByCategoryIds(List<Long> categoryIds, Long lastId) {
+        TransactionStatus status = TransactionUtils.createTransaction("readCategoryProducts",
+                TransactionDefinition.PROPAGATION_REQUIRED, transactionManager, true);
+        try {
+            List<Long> response = solrIndexChangeDao.readProductIdsByCategoryIds(categoryIds, lastId, pageSize);
+            TransactionUtils.finalizeTransaction(status, transactionManager, false);
+            return response;
+        } catch (RuntimeException e) {
+            TransactionUtils.finalizeTransaction(status, transactionManager, true);
+            throw e;
+        }
+    }
+
+    protected List<SolrIndexChange> readChanges() {
+        TransactionStatus status = TransactionUtils.createTransaction("readSolrIndexChanges",
+                TransactionDefinition.PROPAGATION_REQUIRED, transactionManager, true);
+        try {
+            List<SolrIndexChange> response = solrIndexChangeDao.readChanges(batchSize);
+            TransactionUtils.finalizeTransaction(status, transactionManager, false);
+            return response;
+        } catch (RuntimeException e) {
+            TransactionUtils.finalizeTransaction(status, transactionManager, true);
+            throw e;
+        }
+    }
+
+    protected List<Long> readAllChangeIds() {
+        TransactionStatus status = TransactionUtils.createTransaction("readSolrIndexChanges",
+                TransactionDefinition.PROPAGATION_REQUIRED, transactionManager, true);
+        try {
+            List<Long> response = new ArrayList<Long>();
+            Long lastId = null;
+            while (true) {
+                List<Long> ids = solrIndexChangeDao.readChangeIds(lastId, batchSize);
+                response.addAll(ids);
+                if (ids.size() < batchSize) {
+                    break;
+                }
+                lastId = ids.get(ids.size() - 1);
+            }
+            TransactionUtils.finalizeTransaction(status, transactionManager, false);
+            return response;
+        } catch (RuntimeException e) {
+            TransactionUtils.finalizeTransaction(status, transactionManager, true);
+            throw e;
+        }
+    }
+
+    protected void deleteChanges(List<Long> changeIds) {
+        TransactionStatus status = TransactionUtils.createTransaction("deleteSolrIndexChanges",
+                TransactionDefinition.PROPAGATION_REQUIRED, transactionManager, false);
+        try {
+            solrIndexChangeDao.deleteChanges(changeIds);
+            TransactionUtils.finalizeTransaction(status, transactionManager, false);
+        } catch (RuntimeException e) {
+            TransactionUtils.finalizeTransaction(status, transactionManager, true);
+            throw e;
+        }
+    }
+
+    @Override
+    @ManagedAttribute(description = "Number of changes waiting to be indexed")
+    public Long getPendingChangeCount() {
+        TransactionStatus status = TransactionUtils.createTransaction("readSolrIndexChanges",
+                TransactionDefinition.PROPAGATION_REQUIRED, transactionManager, true);
+        try {
+            Long response = solrIndexChangeDao.readCountChanges();
+            TransactionUtils.finalizeTransaction(status, transactionManager, false);
+            return response;
+        } catch (RuntimeException e) {
+            TransactionUtils.finalizeTransaction(status, transactionManager, true);
+            throw e;
+        }
+    }
+
+    @ManagedAttribute(description = "Number of changes processed")
+    public long getProcessedChangeCount() {
+        return processedChanges.get();
+    }
+
+    @ManagedAttribute(description = "Number of products or skus reindexed because of a change")
+    public long getReindexedItemCount() {
+        return reindexedItems.get();
+    }
+
+    @ManagedAttribute(description = "Number of full rebuilds triggered by index field changes")
+    public long getFullRebuildCount() {
+        return fullRebuilds.get();
+    }
+
+    @ManagedAttribute(description = "Number of scheduled runs that failed")
+    public long getFailedRunCount() {
+        return failedRuns.get();
+    }
+
+    /**
+     * The changes recorded during a single transaction. Hibernate writes them to the outbox in that same transaction
+     * once it has flushed the catalog changes they describe, so both are committed or rolled back together. The
+     * synchronization only serves to find them again within the transaction and to drop them once it completes, since
+     * a session that outlives the transaction may keep the process registered.
+     */
+    protected class PendingChanges extends TransactionSynchronizationAdapter implements BeforeTransactionCompletionProcess {
+
+        protected final Set<ChangeKey> keys = new LinkedHashSet<ChangeKey>();
+
+        @Override
+        public void doBeforeTransactionCompletion(SessionImplementor session) {
+            if (keys.isEmpty()) {
+                return;
+            }
+            for (ChangeKey key : keys) {
+                solrIndexChangeDao.createChange(key.entityType, key.entityId);
+            }
+            // the session has already been flushed for the commit
+            solrIndexChangeDao.flush();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            keys.clear();
+        }
+
+        public SolrIndexChangeServiceImpl getOwner() {
+            return SolrIndexChangeServiceImpl.this;
+        }
+    }
+
+    protected static class ChangeKey {
+
+        protected final SolrIndexChangeType entityType;
+        protected final Long entityId;
+
+        public ChangeKey(SolrIndexChangeType entityType, Long entityId) {
+            this.entityType = entityType;
+            this.entityId = entityId;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * entityType.hashCode() + entityId.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof ChangeKey)) {
+                return false;
+            }
+            ChangeKey other = (ChangeKey) obj;
+            return entityType.equals(other.entityType) && entityId.equals(other.entityId);
+        }
+    }
+}
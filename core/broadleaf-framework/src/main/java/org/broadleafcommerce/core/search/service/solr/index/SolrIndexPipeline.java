@@ -0,0 +1,354 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.service.solr.index;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrInputDocument;
+import org.broadleafcommerce.common.classloader.release.ThreadLocalManager;
+import org.broadleafcommerce.common.exception.ServiceException;
+import org.broadleafcommerce.common.util.DaemonThreadFactory;
+import org.broadleafcommerce.common.util.StopWatch;
+import org.broadleafcommerce.common.util.TransactionUtils;
+import org.broadleafcommerce.core.catalog.domain.Indexable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a {@link PipelinedSolrIndexOperation} as three concurrent stages:
+ * <ol>
+ *     <li>the calling thread reads the ids of each page in keyset order, without loading the items, and queues them</li>
+ *     <li>a pool of builder threads loads each page in its own transaction and runs
+ *     {@link PipelinedSolrIndexOperation#buildPage(List)}, which builds the documents as usual</li>
+ *     <li>a sender thread adds the built documents to Solr in batches and commits once at the end</li>
+ * </ol>
+ * The stages are connected by bounded queues, so a slow stage holds back the ones before it instead of letting pages
+ * pile up in memory. Builders keep their own
+ * {@link org.broadleafcommerce.core.search.dao.ProductCatalogStructure} cache and a copy of the caller's request state.
+ * <p>
+ * Documents reach the sender through {@link #submitDocuments(Collection, SolrClient)}, which
+ * {@link SolrIndexServiceImpl#buildIncrementalIndex(List, SolrClient)} calls in place of adding them to Solr itself, so
+ * the extension handlers that build and modify documents run exactly as they do in a sequential reindex.
+ */
+public class SolrIndexPipeline {
+
+    private static final Log LOG = LogFactory.getLog(SolrIndexPipeline.class);
+
+    protected static final ThreadLocal<SolrIndexPipeline> CURRENT = new ThreadLocal<SolrIndexPipeline>();
+
+    protected static final long POLL_MILLIS = 100L;
+
+    protected final SolrIndexService indexService;
+    protected final PipelinedSolrIndexOperation operation;
+    protected final PlatformTransactionManager transactionManager;
+    protected final SolrClient solrServer;
+    protected final int pageSize;
+    protected final int builderThreads;
+    protected final int sendBatchSize;
+
+    protected final BlockingQueue<Page> pages;
+    protected final BlockingQueue<List<SolrInputDocument>> documents;
+
+    protected final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    protected final AtomicLong pagesBuilt = new AtomicLong();
+    protected final AtomicLong documentsSent = new AtomicLong();
+    protected volatile boolean readingDone;
+    protected volatile boolean buildingDone;
+
+    /**
+     * @param readAheadPages how many read pages may wait for a builder before reading pauses
+     * @param sendQueueCapacity how many built pages may wait for the sender before building pauses
+     */
+    public SolrIndexPipeline(SolrIndexService indexService, PipelinedSolrIndexOperation operation,
+            PlatformTransactionManager transactionManager, int pageSize, int builderThreads, int readAheadPages,
+            int sendBatchSize, int sendQueueCapacity) {
+        this.indexService = indexService;
+        this.operation = operation;
+        this.transactionManager = transactionManager;
+        this.solrServer = operation.getSolrServerForIndexing();
+        this.pageSize = pageSize;
+        this.builderThreads = Math.max(1, builderThreads);
+        this.sendBatchSize = Math.max(1, sendBatchSize);
+        this.pages = new ArrayBlockingQueue<Page>(Math.max(1, readAheadPages));
+        this.documents = new ArrayBlockingQueue<List<SolrInputDocument>>(Math.max(1, sendQueueCapacity));
+    }
+
+    /**
+     * Hands built documents to the pipeline running on the current thread, if any, instead of adding them to Solr
+     * directly.
+     * 
+     * @return true if the documents were queued for sending, false if the caller should add them itself
+     */
+    public static boolean submitDocuments(Collection<SolrInputDocument> documents, SolrClient solrServer) {
+        SolrIndexPipeline pipeline = CURRENT.get();
+        if (pipeline == null || pipeline.solrServer != solrServer) {
+            return false;
+        }
+        pipeline.offer(pipeline.documents, new ArrayList<SolrInputDocument>(documents));
+        return true;
+    }
+
+    public void execute(Long numItemsToIndex) throws ServiceException, IOException {
+        StopWatch s = new StopWatch();
+        final Object[] pack = indexService.saveState();
+        ExecutorService executor = Executors.newFixedThreadPool(builderThreads + 1, new DaemonThreadFactory("blSolrIndexPipeline"));
+        try {
+            List<Future<?>> builders = new ArrayList<Future<?>>();
+            for (int i = 0; i < builderThreads; i++) {
+                builders.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        runBuilder(pack);
+                    }
+                }));
+            }
+            Future<?> sender = executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    runSender();
+                }
+            });
+
+            try {
+                read(numItemsToIndex);
+            } catch (Throwable e) {
+                fail(e);
+            } finally {
+                readingDone = true;
+            }
+            await(builders);
+            buildingDone = true;
+            await(sender);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Throwable e = failure.get();
+        if (e != null) {
+            if (e instanceof ServiceException) {
+                throw (ServiceException) e;
+            }
+            if (e instanceof IOException) {
+                throw (IOException) e;
+            }
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            throw new ServiceException("Could not rebuild index", e);
+        }
+
+        LOG.info(String.format("Pipelined indexing built %s pages and sent %s documents in %s", pagesBuilt.get(),
+                documentsSent.get(), s.toLapString()));
+    }
+
+    protected void read(Long numItemsToIndex) throws ServiceException {
+        int page = 1;
+        Long lastId = null;
+        long remainingNumItemsToIndex = numItemsToIndex;
+        long totalPages = (numItemsToIndex + pageSize - 1) / pageSize;
+
+        while (remainingNumItemsToIndex > 0 && failure.get() == null) {
+            LOG.info(String.format("Reading page number %s of %s", page, totalPages));
+
+            List<Long> ids;
+            TransactionStatus status = TransactionUtils.createTransaction("readItemsToIndex",
+                    TransactionDefinition.PROPAGATION_REQUIRED, transactionManager, true);
+            try {
+                try {
+                    operation.beforeReadIndexables();
+                    ids = operation.readIndexableIds(pageSize, lastId);
+                } finally {
+                    operation.afterReadIndexables();
+                }
+                TransactionUtils.finalizeTransaction(status, transactionManager, false);
+            } catch (ServiceException | RuntimeException e) {
+                TransactionUtils.finalizeTransaction(status, transactionManager, true);
+                throw e;
+            }
+
+            if (CollectionUtils.isEmpty(ids)) {
+                break;
+            }
+            lastId = ids.get(ids.size() - 1);
+            offer(pages, new Page(page, new ArrayList<Long>(ids)));
+            remainingNumItemsToIndex -= pageSize;
+            page++;
+        }
+    }
+
+    protected void runBuilder(Object[] pack) {
+        indexService.restoreState(pack);
+        CURRENT.set(this);
+        try {
+            indexService.performCachedOperation(new SolrIndexCachedOperation.CacheOperation() {
+
+                @Override
+                public void execute() throws ServiceException {
+                    while (!(readingDone && pages.isEmpty())) {
+                        Page page = poll(pages);
+                        if (page != null && failure.get() == null) {
+                            buildPage(page);
+                        }
+                    }
+                }
+            });
+        } catch (Throwable e) {
+            fail(e);
+        } finally {
+            CURRENT.remove();
+            ThreadLocalManager.remove();
+        }
+    }
+
+    protected void buildPage(Page page) throws ServiceException {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(String.format("Building page number %s on %s", page.number, Thread.currentThread().getName()));
+        }
+        TransactionStatus status = TransactionUtils.createTransaction("buildItemsToIndex",
+                TransactionDefinition.PROPAGATION_REQUIRED, transactionManager, true);
+        try {
+            List<? extends Indexable> indexables = operation.readIndexablesByIds(page.ids);
+            try {
+                operation.beforeBuildPage();
+
+                operation.buildPage(indexables);
+            } finally {
+                operation.afterBuildPage();
+            }
+            TransactionUtils.finalizeTransaction(status, transactionManager, false);
+        } catch (ServiceException | RuntimeException e) {
+            TransactionUtils.finalizeTransaction(status, transactionManager, true);
+            throw e;
+        }
+        pagesBuilt.incrementAndGet();
+    }
+
+    protected void runSender() {
+        try {
+            List<SolrInputDocument> batch = new ArrayList<SolrInputDocument>(sendBatchSize);
+            while (!(buildingDone && documents.isEmpty())) {
+                List<SolrInputDocument> built = poll(documents);
+                if (built == null || failure.get() != null) {
+                    continue;
+                }
+                batch.addAll(built);
+                if (batch.size() >= sendBatchSize) {
+                    send(batch);
+                    batch = new ArrayList<SolrInputDocument>(sendBatchSize);
+                }
+            }
+            if (failure.get() == null) {
+                if (!batch.isEmpty()) {
+                    send(batch);
+                }
+                if (documentsSent.get() > 0) {
+                    indexService.commit(solrServer);
+                }
+            }
+        } catch (Throwable e) {
+            fail(e);
+        }
+    }
+
+    protected void send(List<SolrInputDocument> batch) throws IOException, ServiceException {
+        try {
+            solrServer.add(batch);
+        } catch (SolrServerException e) {
+            throw new ServiceException("Could not rebuild index", e);
+        }
+        documentsSent.addAndGet(batch.size());
+    }
+
+    /**
+     * Blocks until the item is queued or the pipeline has failed, in which case the item is dropped
+     */
+    protected <T> void offer(BlockingQueue<T> queue, T item) {
+        try {
+            while (failure.get() == null) {
+                if (queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+        }
+    }
+
+    protected <T> T poll(BlockingQueue<T> queue) {
+        try {
+            return queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+            return null;
+        }
+    }
+
+    protected void await(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            await(future);
+        }
+    }
+
+    protected void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+        } catch (ExecutionException e) {
+            fail(e.getCause());
+        }
+    }
+
+    protected void fail(Throwable e) {
+        if (failure.compareAndSet(null, e)) {
+            LOG.error("Pipelined indexing failed, stopping all stages", e);
+        }
+    }
+
+    protected static class Page {
+
+        protected final int number;
+        protected final List<Long> ids;
+
+        public Page(int number, List<Long> ids) {
+            this.number = number;
+            this.ids = ids;
+        }
+    }
+}
@@ -49,8 +49,10 @@ import org.broadleafcommerce.core.catalog.service.dynamic.DynamicSkuPricingServi
 import org.broadleafcommerce.core.catalog.service.dynamic.SkuActiveDateConsiderationContext;
 import org.broadleafcommerce.core.catalog.service.dynamic.SkuPricingConsiderationContext;
 import org.broadleafcommerce.core.search.dao.CatalogStructure;
+import org.broadleafcommerce.core.search.dao.CompactCatalogStructure;
 import org.broadleafcommerce.core.search.dao.FieldDao;
 import org.broadleafcommerce.core.search.dao.IndexFieldDao;
+import org.broadleafcommerce.core.search.dao.ProductCatalogStructure;
 import org.broadleafcommerce.core.search.dao.SearchFacetDao;
 import org.broadleafcommerce.core.search.dao.SolrIndexDao;
 import org.broadleafcommerce.core.search.domain.Field;
@@ -60,6 +62,7 @@ import org.broadleafcommerce.core.search.domain.IndexFieldType;
 import org.broadleafcommerce.core.search.domain.solr.FieldType;
 import org.broadleafcommerce.core.search.service.solr.SolrConfiguration;
 import org.broadleafcommerce.core.search.service.solr.SolrHelperService;
+import org.broadleafcommerce.core.search.service.solr.SolrSearchCacheService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
@@ -119,6 +122,27 @@ public class SolrIndexServiceImpl implements SolrIndexService {
     @Value("${solr.index.waitFlush}")
     protected boolean waitFlush;
 
+    @Value("${solr.index.catalogStructure.compact}")
+    protected boolean compactCatalogStructure;
+
+    @Value("${solr.index.catalogStructure.offHeap}")
+    protected boolean offHeapCatalogStructure;
+
+    @Value("${solr.index.pipeline.enabled}")
+    protected boolean pipelineEnabled;
+
+    @Value("${solr.index.pipeline.builderThreads}")
+    protected int pipelineBuilderThreads;
+
+    @Value("${solr.index.pipeline.readAheadPages}")
+    protected int pipelineReadAheadPages;
+
+    @Value("${solr.index.pipeline.sendBatchSize}")
+    protected int pipelineSendBatchSize;
+
+    @Value("${solr.index.pipeline.sendQueueCapacity}")
+    protected int pipelineSendQueueCapacity;
+
     @Resource(name = "blProductDao")
     protected ProductDao productDao;
 
@@ -149,6 +173,9 @@ public class SolrIndexServiceImpl implements SolrIndexService {
     @Resource(name = "blSandBoxHelper")
     protected SandBoxHelper sandBoxHelper;
 
+    @Resource(name = "blSolrSearchCacheService")
+    protected SolrSearchCacheService searchCacheService;
+
     @Resource(name = "blSearchFacetDao")
     protected SearchFacetDao searchFacetDao;
 
@@ -158,14 +185,26 @@ public class SolrIndexServiceImpl implements SolrIndexService {
     @Override
     public void performCachedOperation(SolrIndexCachedOperation.CacheOperation cacheOperation) throws ServiceException {
         try {
-            CatalogStructure cache = new CatalogStructure();
+            ProductCatalogStructure cache = createCatalogStructure();
             SolrIndexCachedOperation.setCache(cache);
             cacheOperation.execute();
+            LOG.info(String.format("The catalog structure for this operation held %d bytes on the heap and %d bytes off the heap",
+                    cache.getHeapSize(), cache.getOffHeapSize()));
         } finally {
             SolrIndexCachedOperation.clearCache();
         }
     }
 
+    /**
+     * @return the structure that will cache the catalog hierarchy for the duration of a cached operation
+     */
+    protected ProductCatalogStructure createCatalogStructure() {
+        if (compactCatalogStructure) {
+            return new CompactCatalogStructure(offHeapCatalogStructure);
+        }
+        return new CatalogStructure();
+    }
+
     @Override
     public void rebuildIndex() throws ServiceException, IOException {
         LOG.info("Rebuilding the entire Solr index...");
@@ -196,27 +235,14 @@ public class SolrIndexServiceImpl implements SolrIndexService {
         if (!solrConfiguration.isSingleCoreMode()) {
             shs.swapActiveCores(solrConfiguration);
         }
+        // a full rebuild is where index field and facet changes take effect
+        searchCacheService.invalidateMetadata();
+        searchCacheService.invalidateSearchResults();
     }
 
     @Override
     public SolrIndexOperation getReindexOperation() {
-        return new GlobalSolrFullReIndexOperation(this, solrConfiguration, shs, errorOnConcurrentReIndex) {
-
-            @Override
-            public List<? extends Indexable> readIndexables(int pageSize, Long lastId) {
-                return readAllActiveIndexables(pageSize, lastId);
-            }
-
-            @Override
-            public Long countIndexables() {
-                return countIndexableItems();
-            }
-
-            @Override
-            public void buildPage(List<? extends Indexable> indexables) throws ServiceException {
-                buildIncrementalIndex(indexables, getSolrServerForIndexing());
-            }
-        };
+        return new FullReIndexOperation();
     }
 
     @Override
@@ -241,25 +267,29 @@ public class SolrIndexServiceImpl implements SolrIndexService {
                 if (LOG.isDebugEnabled()) {
                     LOG.debug("There are at most " + numItemsToIndex + " items to index");
                 }
-                performCachedOperation(new SolrIndexCachedOperation.CacheOperation() {
-
-                    @Override
-                    public void execute() throws ServiceException {
-                        int page = 1;
-                        Long lastId = null;
-                        Long remainingNumItemsToIndex = numItemsToIndex;
-                        Long totalPages = getTotalPageCount(numItemsToIndex);
-
-                        while (remainingNumItemsToIndex > 0) {
-                            String pageNumberMessage = buildPageNumberMessage(page, totalPages);
-                            LOG.info(pageNumberMessage);
-
-                            lastId = buildIncrementalIndex(pageSize, lastId, operation);
-                            remainingNumItemsToIndex -= pageSize;
-                            page++;
+                if (isPipelined(operation)) {
+                    createPipeline((PipelinedSolrIndexOperation) operation).execute(numItemsToIndex);
+                } else {
+                    performCachedOperation(new SolrIndexCachedOperation.CacheOperation() {
+
+                        @Override
+                        public void execute() throws ServiceException {
+                            int page = 1;
+                            Long lastId = null;
+                            Long remainingNumItemsToIndex = numItemsToIndex;
+                            Long totalPages = getTotalPageCount(numItemsToIndex);
+
+                            while (remainingNumItemsToIndex > 0) {
+                                String pageNumberMessage = buildPageNumberMessage(page, totalPages);
+                                LOG.info(pageNumberMessage);
+
+                                lastId = buildIncrementalIndex(pageSize, lastId, operation);
+                                remainingNumItemsToIndex -= pageSize;
+                                page++;
+                            }
                         }
-                    }
-                });
+                    });
+                }
 
             } finally {
                 restoreState(pack);
@@ -271,6 +301,19 @@ public class SolrIndexServiceImpl implements SolrIndexService {
         }
     }
 
+    /**
+     * Whether the given operation should be run through a {@link SolrIndexPipeline} rather than page by page on the
+     * calling thread. Only operations that can reload a page by id are eligible.
+     */
+    protected boolean isPipelined(SolrIndexOperation operation) {
+        return pipelineEnabled && operation instanceof PipelinedSolrIndexOperation;
+    }
+
+    protected SolrIndexPipeline createPipeline(PipelinedSolrIndexOperation operation) {
+        return new SolrIndexPipeline(this, operation, transactionManager, pageSize, pipelineBuilderThreads,
+                pipelineReadAheadPages, pipelineSendBatchSize, pipelineSendQueueCapacity);
+    }
+
     protected long getTotalPageCount(Long numItemsToIndex) {
         long numPagesToIndex = numItemsToIndex / pageSize;
         boolean hasRemainingItemsToIndex = numItemsToIndex % pageSize != 0;
@@ -332,6 +375,7 @@ public class SolrIndexServiceImpl implements SolrIndexService {
 
             //Explicitly do a hard commit here since we just deleted the entire index
             server.commit();
+            invalidateSearchResults(server);
         } catch (Exception e) {
             if (ServiceException.class.isAssignableFrom(e.getClass())) {
                 throw (ServiceException) e;
@@ -347,6 +391,7 @@ public class SolrIndexServiceImpl implements SolrIndexService {
             LOG.debug("Deleting by query: " + deleteQuery);
             server.deleteByQuery(deleteQuery);
             server.commit();
+            invalidateSearchResults(server);
         } catch (Exception e) {
             throw new ServiceException("Could not delete documents", e);
         }
@@ -355,7 +400,7 @@ public class SolrIndexServiceImpl implements SolrIndexService {
     protected Long buildIncrementalIndex(int pageSize, Long lastId, SolrIndexOperation operation) throws ServiceException {
         TransactionStatus status = TransactionUtils.createTransaction("readItemsToIndex",
             TransactionDefinition.PROPAGATION_REQUIRED, transactionManager, true);
-        if (SolrIndexCachedOperation.getCache() == null) {
+        if (SolrIndexCachedOperation.getCatalogStructure() == null) {
             LOG.warn("Consider using SolrIndexService.performCachedOperation() in combination with " +
                     "SolrIndexService.buildIncrementalIndex() for better caching performance during solr indexing");
         }
@@ -393,7 +438,7 @@ public class SolrIndexServiceImpl implements SolrIndexService {
     public Collection<SolrInputDocument> buildIncrementalIndex(List<? extends Indexable> indexables, SolrClient solrServer) throws ServiceException {
         TransactionStatus status = TransactionUtils.createTransaction("executeIncrementalIndex",
                 TransactionDefinition.PROPAGATION_REQUIRED, transactionManager, true);
-        if (SolrIndexCachedOperation.getCache() == null) {
+        if (SolrIndexCachedOperation.getCatalogStructure() == null) {
             LOG.warn("Consider using SolrIndexService.performCachedOperation() in combination with " +
                     "SolrIndexService.buildIncrementalIndex() for better caching performance during solr indexing");
         }
@@ -416,7 +461,13 @@ public class SolrIndexServiceImpl implements SolrIndexService {
                 }
             });
 
-            solrIndexDao.populateProductCatalogStructure(productIds, SolrIndexCachedOperation.getCache());
+            ProductCatalogStructure cache = SolrIndexCachedOperation.getCatalogStructure();
+            if (cache instanceof CatalogStructure) {
+                // keeps DAOs that only override the CatalogStructure variant working
+                solrIndexDao.populateProductCatalogStructure(productIds, (CatalogStructure) cache);
+            } else {
+                solrIndexDao.populateProductCatalogStructure(productIds, cache);
+            }
 
             List<IndexField> fields = null;
             FieldEntity currentFieldType = null;
@@ -438,7 +489,8 @@ public class SolrIndexServiceImpl implements SolrIndexService {
 
             logDocuments(documents);
 
-            if (!CollectionUtils.isEmpty(documents) && solrServer != null) {
+            if (!CollectionUtils.isEmpty(documents) && solrServer != null
+                    && !SolrIndexPipeline.submitDocuments(documents, solrServer)) {
                 solrServer.add(documents);
                 commit(solrServer);
             }
@@ -464,6 +516,23 @@ public class SolrIndexServiceImpl implements SolrIndexService {
         }
     }
 
+    protected List<? extends Indexable> readIndexablesByIds(List<Long> ids) {
+        if (useSku) {
+            List<Sku> skus = skuDao.readSkusByIdsForIndexing(ids);
+            return filterIndexableSkus(skus);
+        } else {
+            return productDao.readProductsByIdsForIndexing(ids);
+        }
+    }
+
+    protected List<Long> readAllActiveIndexableIds(int pageSize, Long lastId) {
+        if (useSku) {
+            return skuDao.readAllActiveSkuIds(pageSize, lastId);
+        } else {
+            return productDao.readAllActiveProductIds(pageSize, lastId);
+        }
+    }
+
     protected List<? extends Indexable> readAllActiveIndexables(int pageSize, Long lastId) {
         if (useSku) {
             List<Sku> skus = skuDao.readAllActiveSkus(pageSize, lastId);
@@ -592,7 +661,7 @@ public class SolrIndexServiceImpl implements SolrIndexService {
     }
 
     protected void attachBasicDocumentFields(Indexable indexable, SolrInputDocument document) {
-        CatalogStructure cache = SolrIndexCachedOperation.getCache();
+        ProductCatalogStructure cache = SolrIndexCachedOperation.getCatalogStructure();
         if (cache == null) {
             String msg = "SolrIndexService.performCachedOperation() must be used in conjuction with"
                 + " solrIndexDao.populateProductCatalogStructure() in order to correctly build catalog documents or should"
@@ -610,17 +679,17 @@ public class SolrIndexServiceImpl implements SolrIndexService {
         extensionManager.getProxy().attachAdditionalBasicFields(indexable, document, shs);
 
         Long cacheKey = this.shs.getCurrentProductId(indexable); // current
-        if (!cache.getParentCategoriesByProduct().containsKey(cacheKey)) {
+        if (!cache.containsProduct(cacheKey)) {
             cacheKey = sandBoxHelper.getOriginalId(cacheKey); // parent
-            if (!cache.getParentCategoriesByProduct().containsKey(cacheKey)) {
+            if (!cache.containsProduct(cacheKey)) {
                 cacheKey = shs.getIndexableId(indexable); // master
             }
         }
 
         // TODO: figure this out more generally; this doesn't work for CMS content
         // The explicit categories are the ones defined by the product itself
-        if (cache.getParentCategoriesByProduct().containsKey(cacheKey)) {
-            for (Long categoryId : cache.getParentCategoriesByProduct().get(cacheKey)) {
+        if (cache.containsProduct(cacheKey)) {
+            for (Long categoryId : cache.getParentCategoryIdsForProduct(cacheKey)) {
                 document.addField(shs.getExplicitCategoryFieldName(), shs.getCategoryId(categoryId));
 
                 // Make sure that we're always referencing the parent for the sort field
@@ -629,12 +698,10 @@ public class SolrIndexServiceImpl implements SolrIndexService {
                 // by product id is the overridden versions. Need to always look at parent version for cache stuff, which
                 // is given from shs.getCategoryId
                 // First try the current level
-                String displayOrderKey = categoryId + "-" + cacheKey;
-                Long displayOrder = convertDisplayOrderToLong(cache, displayOrderKey);
+                Long displayOrder = convertDisplayOrderToLong(cache, categoryId, cacheKey);
                 if (displayOrder == null) {
                     // Didn't find the cache at the current level, this might be an override so look upwards
-                    displayOrderKey = shs.getCategoryId(categoryId) + "-" + cacheKey;
-                    displayOrder = convertDisplayOrderToLong(cache, displayOrderKey);
+                    displayOrder = convertDisplayOrderToLong(cache, shs.getCategoryId(categoryId), cacheKey);
                 }
                 
                 if (document.getField(categorySortFieldName) == null && displayOrder != null) {
@@ -642,7 +709,7 @@ public class SolrIndexServiceImpl implements SolrIndexService {
                 }
 
                 // This is the entire tree of every category defined on the product
-                buildFullCategoryHierarchy(document, cache, categoryId, new HashSet<Long>());
+                buildCategoryHierarchy(document, cache, categoryId, new HashSet<Long>());
             }
         }
     }
@@ -654,7 +721,7 @@ public class SolrIndexServiceImpl implements SolrIndexService {
      * @param cache the catalog structure cache
      * @param categoryId the current category id
      */
-    protected void buildFullCategoryHierarchy(SolrInputDocument document, CatalogStructure cache, Long categoryId, Set<Long> indexedParents) {
+    protected void buildFullCategoryHierarchy(SolrInputDocument document, ProductCatalogStructure cache, Long categoryId, Set<Long> indexedParents) {
         Long catIdToAdd = shs.getCategoryId(categoryId); 
 
         Collection<Object> existingValues = document.getFieldValues(shs.getCategoryFieldName());
@@ -662,15 +729,35 @@ public class SolrIndexServiceImpl implements SolrIndexService {
             document.addField(shs.getCategoryFieldName(), catIdToAdd);
         }
 
-        Set<Long> parents = cache.getParentCategoriesByCategory().get(categoryId);
-        for (Long parent : parents) {
+        for (Long parent : cache.getParentCategoryIdsForCategory(categoryId)) {
             if (!indexedParents.contains(parent)) {
                 indexedParents.add(parent);
-                buildFullCategoryHierarchy(document, cache, parent, indexedParents);
+                buildCategoryHierarchy(document, cache, parent, indexedParents);
             }
         }
     }
 
+    /**
+     * @deprecated in favor of {@link #buildFullCategoryHierarchy(SolrInputDocument, ProductCatalogStructure, Long, Set)},
+     * which works with any {@link ProductCatalogStructure}, including a {@link CompactCatalogStructure}
+     */
+    @Deprecated
+    protected void buildFullCategoryHierarchy(SolrInputDocument document, CatalogStructure cache, Long categoryId, Set<Long> indexedParents) {
+        buildFullCategoryHierarchy(document, (ProductCatalogStructure) cache, categoryId, indexedParents);
+    }
+
+    /**
+     * Calls the {@link CatalogStructure} variant of {@link #buildFullCategoryHierarchy} for the default catalog
+     * structure, so that overrides of it keep being used
+     */
+    protected void buildCategoryHierarchy(SolrInputDocument document, ProductCatalogStructure cache, Long categoryId, Set<Long> indexedParents) {
+        if (cache instanceof CatalogStructure) {
+            buildFullCategoryHierarchy(document, (CatalogStructure) cache, categoryId, indexedParents);
+        } else {
+            buildFullCategoryHierarchy(document, cache, categoryId, indexedParents);
+        }
+    }
+
     /**
      * Returns a map of prefix to value for the requested attributes. For example, if the requested field corresponds to
      * a Sku's description and the locales list has the en_US locale and the es_ES locale, the resulting map could be
@@ -792,11 +879,23 @@ public class SolrIndexServiceImpl implements SolrIndexService {
             }
 
             server.commit(waitFlush, waitSearcher, softCommit);
+            invalidateSearchResults(server);
         } catch (SolrServerException e) {
             throw new ServiceException("Could not commit changes to Solr index", e);
         }
     }
 
+    /**
+     * Drops the cached search results if the given server is the one storefront queries are sent to. Commits and
+     * deletes against the reindex core are not visible to searches until the cores are swapped, which invalidates
+     * the cache on its own.
+     */
+    protected void invalidateSearchResults(SolrClient server) {
+        if (server == solrConfiguration.getServer()) {
+            searchCacheService.invalidateSearchResults();
+        }
+    }
+
     @Override
     public void logDocuments(Collection<SolrInputDocument> documents) {
         if (LOG.isTraceEnabled()) {
@@ -811,9 +910,25 @@ public class SolrIndexServiceImpl implements SolrIndexService {
      *  displayOrder value.
      *
      * @param cache
-     * @param displayOrderKey
+     * @param categoryId
+     * @param productId
      * @return
      */
+    protected Long convertDisplayOrderToLong(ProductCatalogStructure cache, Long categoryId, Long productId) {
+        BigDecimal displayOrder = cache.getDisplayOrder(categoryId, productId);
+
+        if (displayOrder == null) {
+            return null;
+        }
+
+        return displayOrder.multiply(BigDecimal.valueOf(1000000)).longValue();
+    }
+
+    /**
+     * @deprecated in favor of {@link #convertDisplayOrderToLong(ProductCatalogStructure, Long, Long)}, which works
+     * with any {@link ProductCatalogStructure}, including a {@link CompactCatalogStructure}
+     */
+    @Deprecated
     protected Long convertDisplayOrderToLong(CatalogStructure cache, String displayOrderKey) {
         BigDecimal displayOrder = cache.getDisplayOrdersByCategoryProduct().get(displayOrderKey);
 
@@ -852,4 +967,39 @@ public class SolrIndexServiceImpl implements SolrIndexService {
         }
     }
 
+    /**
+     * The full reindex of all active products or skus. Pages can be reloaded by id, so the reindex can be run through
+     * a {@link SolrIndexPipeline} when {@code solr.index.pipeline.enabled} is set.
+     */
+    protected class FullReIndexOperation extends GlobalSolrFullReIndexOperation implements PipelinedSolrIndexOperation {
+
+        public FullReIndexOperation() {
+            super(SolrIndexServiceImpl.this, solrConfiguration, shs, errorOnConcurrentReIndex);
+        }
+
+        @Override
+        public List<? extends Indexable> readIndexables(int pageSize, Long lastId) {
+            return readAllActiveIndexables(pageSize, lastId);
+        }
+
+        @Override
+        public List<Long> readIndexableIds(int pageSize, Long lastId) {
+            return readAllActiveIndexableIds(pageSize, lastId);
+        }
+
+        @Override
+        public List<? extends Indexable> readIndexablesByIds(List<Long> ids) {
+            return SolrIndexServiceImpl.this.readIndexablesByIds(ids);
+        }
+
+        @Override
+        public Long countIndexables() {
+            return countIndexableItems();
+        }
+
+        @Override
+        public void buildPage(List<? extends Indexable> indexables) throws ServiceException {
+            buildIncrementalIndex(indexables, getSolrServerForIndexing());
+        }
+    }
 }
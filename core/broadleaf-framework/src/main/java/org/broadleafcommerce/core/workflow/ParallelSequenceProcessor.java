@@ -0,0 +1,397 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.workflow;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.classloader.release.ThreadLocalManager;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.broadleafcommerce.core.workflow.monitor.WorkflowStatisticsService;
+import org.broadleafcommerce.core.workflow.state.ActivityStateManager;
+import org.broadleafcommerce.core.workflow.state.ActivityStateManagerImpl;
+import org.broadleafcommerce.core.workflow.state.RollbackStateLocal;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A {@link SequenceProcessor} that runs activities with no dependency on each other at the same time.
+ * <p>
+ * Dependencies are declared on the workflow bean with the <code>activityDependencies</code> property, which maps an
+ * activity bean name to the bean names of the activities that must finish before it starts. Activities that are not
+ * in the map depend on every activity ordered before them, so a workflow without any declared dependencies runs
+ * exactly like a {@link SequenceProcessor}. For example, to let two custom activities that call out to remote
+ * services run at the same time once the checkout has been validated:
+ * 
+ * <pre>
+ * &lt;bean id="blCheckoutWorkflow" class="org.broadleafcommerce.core.workflow.ParallelSequenceProcessor"&gt;
+ *     ...
+ *     &lt;property name="activityDependencies"&gt;
+ *         &lt;map&gt;
+ *             &lt;entry key="myAddressVerificationActivity"&gt;
+ *                 &lt;list&gt;&lt;value&gt;blValidateCheckoutActivity&lt;/value&gt;&lt;/list&gt;
+ *             &lt;/entry&gt;
+ *             &lt;entry key="myFraudScreeningActivity"&gt;
+ *                 &lt;list&gt;&lt;value&gt;blValidateCheckoutActivity&lt;/value&gt;&lt;/list&gt;
+ *             &lt;/entry&gt;
+ *         &lt;/map&gt;
+ *     &lt;/property&gt;
+ * &lt;/bean&gt;
+ * </pre>
+ * 
+ * Activities are grouped into stages, where every activity in a stage only depends on activities in earlier stages.
+ * The first activity of a stage runs on the calling thread and the rest are handed to the bounded
+ * <code>blWorkflowTaskExecutor</code>. Once a stage has finished, rollback handlers and error handlers are applied
+ * in the configured activity order, as if the stage had run sequentially. If an activity in a stage fails, the other
+ * activities of that stage will already have run, and their rollback handlers are executed as well.
+ * <p>
+ * Activities running on a worker thread see the caller's {@link BroadleafRequestContext}, and any state they
+ * register with the {@link ActivityStateManager} belongs to the calling workflow. They do not take part in the
+ * caller's transaction or persistence context, so only declare activities as independent when they do not load or
+ * modify entities through the shared context (remote rate and tax lookups, for example). All activities must return
+ * the same {@link ProcessContext} instance they were given.
+ */
+public class ParallelSequenceProcessor<U, T> extends SequenceProcessor<U, T> {
+
+    private static final Log LOG = LogFactory.getLog(ParallelSequenceProcessor.class);
+
+    protected Map<String, List<String>> activityDependencies = new HashMap<>();
+
+    protected Executor taskExecutor;
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        super.onApplicationEvent(event);
+
+        Map<String, Integer> positions = new HashMap<>();
+        List<Activity<ProcessContext<U>>> activities = getActivities();
+        for (int i = 0; i < activities.size(); i++) {
+            positions.put(activities.get(i).getBeanName(), i);
+        }
+        for (Map.Entry<String, List<String>> entry : activityDependencies.entrySet()) {
+            Integer position = positions.get(entry.getKey());
+            if (position == null) {
+                throw new BeanInitializationException("The workflow processor [" + beanName + "] declares dependencies for "
+                        + "the activity [" + entry.getKey() + "], which is not part of the workflow");
+            }
+            for (String dependency : entry.getValue()) {
+                Integer dependencyPosition = positions.get(dependency);
+                if (dependencyPosition == null || dependencyPosition >= position) {
+                    throw new BeanInitializationException("The workflow processor [" + beanName + "] declares that the "
+                            + "activity [" + entry.getKey() + "] depends on [" + dependency + "], which is not ordered before it");
+                }
+            }
+        }
+    }
+
+    @Override
+    public <P extends ProcessContext<U>> P doActivities(T seedData) throws WorkflowException {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(getBeanName() + " processor is running..");
+        }
+        ActivityStateManager activityStateManager = getBeanFactory().getBean(ActivityStateManager.class, "blActivityStateManager");
+        if (activityStateManager == null) {
+            throw new IllegalStateException("Unable to find an instance of ActivityStateManager registered under bean id blActivityStateManager");
+        }
+        ProcessContext<U> context = null;
+
+        RollbackStateLocal rollbackStateLocal = new RollbackStateLocal();
+        rollbackStateLocal.setThreadId(String.valueOf(Thread.currentThread().getId()));
+        rollbackStateLocal.setWorkflowId(getBeanName());
+        RollbackStateLocal.setRollbackStateLocal(rollbackStateLocal);
+
+        WorkflowStatisticsService statisticsService = getEnabledWorkflowStatisticsService();
+        long workflowStart = System.nanoTime();
+        boolean workflowFailed = false;
+        if (statisticsService != null) {
+            statisticsService.workflowStarted(getBeanName());
+        }
+
+        try {
+            context = createContext(seedData);
+
+            stages:
+            for (List<Activity<ProcessContext<U>>> stage : buildStages(getActivities())) {
+                List<Activity<ProcessContext<U>>> runnable = new ArrayList<>(stage.size());
+                for (Activity<ProcessContext<U>> activity : stage) {
+                    if (shouldExecute(activity, context)) {
+                        runnable.add(activity);
+                    } else {
+                        LOG.debug("Not executing activity: " + activity.getBeanName() + " based on the context: " + context);
+                        if (statisticsService != null) {
+                            statisticsService.activitySkipped(getBeanName(), activity.getBeanName());
+                        }
+                    }
+                }
+                if (runnable.isEmpty()) {
+                    continue;
+                }
+
+                List<ActivityResult<U>> results = executeStage(runnable, context, rollbackStateLocal);
+
+                boolean stageFailed = false;
+                for (ActivityResult<U> result : results) {
+                    if (statisticsService != null) {
+                        statisticsService.activityExecuted(getBeanName(), result.activity.getBeanName(), result.elapsedNanos, result.exception != null);
+                    }
+                    if (result.exception == null) {
+                        context = result.context;
+                        activityExecuted(result.activity, context);
+                    } else {
+                        stageFailed = true;
+                    }
+                }
+
+                if (!stageFailed) {
+                    //ensure its ok to continue the process before registering any RollbackHandlers, as SequenceProcessor does
+                    if (processShouldStop(context, runnable.get(runnable.size() - 1))) {
+                        break;
+                    }
+                    for (ActivityResult<U> result : results) {
+                        registerRollbackHandler(result.activity, context);
+                    }
+                    continue;
+                }
+
+                //a sibling failed, so everything else that completed in this stage has to be rolled back with it
+                for (ActivityResult<U> result : results) {
+                    if (result.exception == null) {
+                        registerRollbackHandler(result.activity, context);
+                    }
+                }
+
+                List<Activity<ProcessContext<U>>> handledFailures = new ArrayList<>();
+                for (ActivityResult<U> result : results) {
+                    if (result.exception == null) {
+                        continue;
+                    }
+                    workflowFailed = true;
+                    rollbackOnError(result.activity, result.exception, rollbackStateLocal, statisticsService);
+
+                    ErrorHandler errorHandler = result.activity.getErrorHandler();
+                    if (errorHandler == null) {
+                        getDefaultErrorHandler().handleError(context, result.exception);
+                        break stages;
+                    } else {
+                        errorHandler.handleError(context, result.exception);
+                    }
+                    handledFailures.add(result.activity);
+                }
+
+                //ensure its ok to continue the process
+                if (processShouldStop(context, runnable.get(runnable.size() - 1))) {
+                    break;
+                }
+                for (Activity<ProcessContext<U>> activity : handledFailures) {
+                    registerRollbackHandler(activity, context);
+                }
+            }
+        } catch (RuntimeException | WorkflowException e) {
+            workflowFailed = true;
+            throw e;
+        } finally {
+            if (statisticsService != null) {
+                statisticsService.workflowCompleted(getBeanName(), System.nanoTime() - workflowStart, workflowFailed);
+            }
+            rollbackStateLocal = RollbackStateLocal.getRollbackStateLocal();
+            if (rollbackStateLocal != null && rollbackStateLocal.getWorkflowId().equals(getBeanName())) {
+                activityStateManager.clearAllState();
+            }
+        }
+        LOG.debug(getBeanName() + " processor is done.");
+
+        return (P) context;
+    }
+
+    /**
+     * Groups the activities into stages that can each run concurrently. An activity is placed in the stage after the
+     * latest stage holding one of its dependencies, and activities without declared dependencies are placed after
+     * every activity ordered before them. The configured order is kept within each stage.
+     */
+    protected List<List<Activity<ProcessContext<U>>>> buildStages(List<Activity<ProcessContext<U>>> activities) {
+        Map<String, Integer> stageByName = new HashMap<>();
+        List<List<Activity<ProcessContext<U>>>> stages = new ArrayList<>();
+        int highestStage = -1;
+        for (Activity<ProcessContext<U>> activity : activities) {
+            int stage;
+            List<String> dependencies = activityDependencies.get(activity.getBeanName());
+            if (dependencies == null) {
+                stage = highestStage + 1;
+            } else {
+                stage = 0;
+                for (String dependency : dependencies) {
+                    Integer dependencyStage = stageByName.get(dependency);
+                    if (dependencyStage != null) {
+                        stage = Math.max(stage, dependencyStage + 1);
+                    }
+                }
+            }
+            stageByName.put(activity.getBeanName(), stage);
+            highestStage = Math.max(highestStage, stage);
+            while (stages.size() <= stage) {
+                stages.add(new ArrayList<Activity<ProcessContext<U>>>());
+            }
+            stages.get(stage).add(activity);
+        }
+        return stages;
+    }
+
+    /**
+     * Runs the given activities, the first on the calling thread and the rest on the task executor, and waits for
+     * all of them to finish
+     * 
+     * @return the outcome of each activity, in the same order as the activities
+     */
+    protected List<ActivityResult<U>> executeStage(List<Activity<ProcessContext<U>>> activities, final ProcessContext<U> context,
+            RollbackStateLocal rollbackStateLocal) {
+        Executor executor = getTaskExecutor();
+        if (activities.size() == 1 || executor == null) {
+            List<ActivityResult<U>> results = new ArrayList<>(activities.size());
+            for (Activity<ProcessContext<U>> activity : activities) {
+                results.add(executeActivity(activity, context));
+            }
+            return results;
+        }
+
+        final Thread callingThread = Thread.currentThread();
+        final BroadleafRequestContext requestContext = BroadleafRequestContext.getBroadleafRequestContext();
+        final String threadId = rollbackStateLocal.getThreadId();
+        final String workflowId = rollbackStateLocal.getWorkflowId();
+
+        List<FutureTask<ActivityResult<U>>> tasks = new ArrayList<>(activities.size() - 1);
+        for (final Activity<ProcessContext<U>> activity : activities.subList(1, activities.size())) {
+            FutureTask<ActivityResult<U>> task = new FutureTask<>(new Callable<ActivityResult<U>>() {
+                @Override
+                public ActivityResult<U> call() throws Exception {
+                    if (Thread.currentThread() == callingThread) {
+                        // The executor ran this on the caller (e.g. CallerRunsPolicy), which already has its state
+                        return executeActivity(activity, context);
+                    }
+                    BroadleafRequestContext.setBroadleafRequestContext(requestContext);
+                    RollbackStateLocal workerState = new RollbackStateLocal();
+                    workerState.setThreadId(threadId);
+                    workerState.setWorkflowId(workflowId);
+                    RollbackStateLocal.setRollbackStateLocal(workerState);
+                    try {
+                        return executeActivity(activity, context);
+                    } finally {
+                        ThreadLocalManager.remove();
+                    }
+                }
+            });
+            tasks.add(task);
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.run();
+            }
+        }
+
+        List<ActivityResult<U>> results = new ArrayList<>(activities.size());
+        results.add(executeActivity(activities.get(0), context));
+        boolean interrupted = false;
+        for (int i = 0; i < tasks.size(); i++) {
+            ActivityResult<U> result = null;
+            while (result == null) {
+                try {
+                    result = tasks.get(i).get();
+                } catch (InterruptedException e) {
+                    // Keep waiting, the activity can't be abandoned while its rollback state is still being registered
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    result = new ActivityResult<>(activities.get(i + 1), null, 0L, e.getCause());
+                }
+            }
+            results.add(result);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return results;
+    }
+
+    protected ActivityResult<U> executeActivity(Activity<ProcessContext<U>> activity, ProcessContext<U> context) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("running activity:" + activity.getBeanName() + " using arguments:" + context);
+        }
+        long start = System.nanoTime();
+        try {
+            ProcessContext<U> result = activity.execute(context);
+            return new ActivityResult<>(activity, result, System.nanoTime() - start, null);
+        } catch (Throwable activityException) {
+            return new ActivityResult<>(activity, context, System.nanoTime() - start, activityException);
+        }
+    }
+
+    protected void registerRollbackHandler(Activity<ProcessContext<U>> activity, ProcessContext<U> context) {
+        if (activity.getRollbackHandler() != null && activity.getAutomaticallyRegisterRollbackHandler()) {
+            ActivityStateManagerImpl.getStateManager().registerState(activity, context, activity.getRollbackRegion(), activity.getRollbackHandler(), activity.getStateConfiguration());
+        }
+    }
+
+    /**
+     * @return the executor for activities that run concurrently, looking up <code>blWorkflowTaskExecutor</code> if
+     * one has not been set explicitly. If there is none, every stage runs sequentially on the calling thread.
+     */
+    public Executor getTaskExecutor() {
+        if (taskExecutor == null && getBeanFactory() != null && getBeanFactory().containsBean("blWorkflowTaskExecutor")) {
+            taskExecutor = getBeanFactory().getBean("blWorkflowTaskExecutor", Executor.class);
+        }
+        return taskExecutor;
+    }
+
+    public void setTaskExecutor(Executor taskExecutor) {
+        this.taskExecutor = taskExecutor;
+    }
+
+    public Map<String, List<String>> getActivityDependencies() {
+        return Collections.unmodifiableMap(activityDependencies);
+    }
+
+    /**
+     * @param activityDependencies a map of activity bean name to the bean names of the activities it depends on
+     */
+    public void setActivityDependencies(Map<String, List<String>> activityDependencies) {
+        this.activityDependencies = new HashMap<>(activityDependencies);
+    }
+
+    protected static class ActivityResult<U> {
+
+        protected final Activity<ProcessContext<U>> activity;
+        protected final ProcessContext<U> context;
+        protected final long elapsedNanos;
+        protected final Throwable exception;
+
+        public ActivityResult(Activity<ProcessContext<U>> activity, ProcessContext<U> context, long elapsedNanos, Throwable exception) {
+            this.activity = activity;
+            this.context = context;
+            this.elapsedNanos = elapsedNanos;
+            this.exception = exception;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.workflow;
+
+/**
+ * A {@link ProcessContext} that can veto individual activities before the processor asks the activity itself via
+ * {@link Activity#shouldExecute(ProcessContext)}, and that is told about every activity that completed without error.
+ * This lets a context skip parts of a workflow whose inputs are known not to have changed.
+ *
+ * @param <T> SeedData
+ */
+public interface SelectiveProcessContext<T> extends ProcessContext<T> {
+
+    /**
+     * @return false if the given activity can be skipped for this context
+     */
+    public boolean shouldExecute(Activity<? extends ProcessContext<T>> activity);
+
+    /**
+     * Called by the processor after the given activity completed without error
+     */
+    public void activityExecuted(Activity<? extends ProcessContext<T>> activity);
+
+}
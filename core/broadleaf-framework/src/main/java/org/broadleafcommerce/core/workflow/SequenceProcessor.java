@@ -19,6 +19,7 @@ package org.broadleafcommerce.core.workflow;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.core.workflow.monitor.WorkflowStatisticsService;
 import org.broadleafcommerce.core.workflow.state.ActivityStateManager;
 import org.broadleafcommerce.core.workflow.state.ActivityStateManagerImpl;
 import org.broadleafcommerce.core.workflow.state.RollbackFailureException;
@@ -32,6 +33,8 @@ public class SequenceProcessor<U, T> extends BaseProcessor<U, T> {
 
     private ProcessContextFactory<U, T> processContextFactory;
 
+    protected WorkflowStatisticsService workflowStatisticsService;
+
     @Override
     public boolean supports(Activity<? extends ProcessContext<U>> activity) {
         return true;
@@ -57,6 +60,13 @@ public class SequenceProcessor<U, T> extends BaseProcessor<U, T> {
         rollbackStateLocal.setThreadId(String.valueOf(Thread.currentThread().getId()));
         rollbackStateLocal.setWorkflowId(getBeanName());
         RollbackStateLocal.setRollbackStateLocal(rollbackStateLocal);
+
+        WorkflowStatisticsService statisticsService = getEnabledWorkflowStatisticsService();
+        long workflowStart = System.nanoTime();
+        boolean workflowFailed = false;
+        if (statisticsService != null) {
+            statisticsService.workflowStarted(getBeanName());
+        }
         
         try {
             //retrieve injected by Spring
@@ -66,34 +76,24 @@ public class SequenceProcessor<U, T> extends BaseProcessor<U, T> {
             context = createContext(seedData);
 
             for (Activity<ProcessContext<U>> activity : activities) {
-                if (activity.shouldExecute(context)) {
+                if (shouldExecute(activity, context)) {
                     if (LOG.isDebugEnabled()) {
                         LOG.debug("running activity:" + activity.getBeanName() + " using arguments:" + context);
                     }
     
+                    long activityStart = System.nanoTime();
                     try {
                         context = activity.execute(context);
+                        if (statisticsService != null) {
+                            statisticsService.activityExecuted(getBeanName(), activity.getBeanName(), System.nanoTime() - activityStart, false);
+                        }
+                        activityExecuted(activity, context);
                     } catch (Throwable activityException) {
-                        RollbackFailureException rollbackFailure = null;
-                        if (getAutoRollbackOnError()) {
-                            LOG.info(String.format("Exception ocurred in %s, executing rollback handlers", rollbackStateLocal.getWorkflowId()));
-                            
-                            try {
-                                ActivityStateManagerImpl.getStateManager().rollbackAllState();
-                            } catch (Throwable rollbackException) {
-                                LOG.fatal(String.format("There was an exception rolling back %s", rollbackStateLocal.getWorkflowId()), rollbackException);
-                                
-                                if (rollbackException instanceof RollbackFailureException) {
-                                    rollbackFailure = (RollbackFailureException) rollbackException;
-                                } else {
-                                    rollbackFailure = new RollbackFailureException(rollbackException);
-                                }
-                                
-                                LOG.error(String.format("The original cause of the rollback for %s was", rollbackStateLocal.getWorkflowId()), activityException);
-                                rollbackFailure.setOriginalWorkflowException(activityException);
-                                throw rollbackFailure;
-                            }
+                        workflowFailed = true;
+                        if (statisticsService != null) {
+                            statisticsService.activityExecuted(getBeanName(), activity.getBeanName(), System.nanoTime() - activityStart, true);
                         }
+                        rollbackOnError(activity, activityException, rollbackStateLocal, statisticsService);
                         
                         ErrorHandler errorHandler = activity.getErrorHandler();
                         if (errorHandler == null) {
@@ -115,9 +115,18 @@ public class SequenceProcessor<U, T> extends BaseProcessor<U, T> {
                     }
                 } else {
                     LOG.debug("Not executing activity: " + activity.getBeanName() + " based on the context: " + context);
+                    if (statisticsService != null) {
+                        statisticsService.activitySkipped(getBeanName(), activity.getBeanName());
+                    }
                 }
             }
+        } catch (RuntimeException | WorkflowException e) {
+            workflowFailed = true;
+            throw e;
         } finally {
+            if (statisticsService != null) {
+                statisticsService.workflowCompleted(getBeanName(), System.nanoTime() - workflowStart, workflowFailed);
+            }
             rollbackStateLocal = RollbackStateLocal.getRollbackStateLocal();
             if (rollbackStateLocal != null && rollbackStateLocal.getWorkflowId().equals(getBeanName())) {
                 activityStateManager.clearAllState();
@@ -128,6 +137,69 @@ public class SequenceProcessor<U, T> extends BaseProcessor<U, T> {
         return (P) context;
     }
 
+    /**
+     * If {@link #getAutoRollbackOnError()} is set, executes all of the rollback handlers registered so far for this
+     * workflow
+     *
+     * @param activity
+     *            the activity that failed
+     * @param activityException
+     *            the exception the activity threw
+     * @throws RollbackFailureException
+     *            if one of the rollback handlers failed
+     */
+    protected void rollbackOnError(Activity<ProcessContext<U>> activity, Throwable activityException, RollbackStateLocal rollbackStateLocal,
+            WorkflowStatisticsService statisticsService) throws RollbackFailureException {
+        if (getAutoRollbackOnError()) {
+            LOG.info(String.format("Exception ocurred in %s, executing rollback handlers", rollbackStateLocal.getWorkflowId()));
+            if (statisticsService != null) {
+                statisticsService.workflowRolledBack(getBeanName(), activity.getBeanName());
+            }
+            
+            try {
+                ActivityStateManagerImpl.getStateManager().rollbackAllState();
+            } catch (Throwable rollbackException) {
+                LOG.fatal(String.format("There was an exception rolling back %s", rollbackStateLocal.getWorkflowId()), rollbackException);
+                
+                RollbackFailureException rollbackFailure;
+                if (rollbackException instanceof RollbackFailureException) {
+                    rollbackFailure = (RollbackFailureException) rollbackException;
+                } else {
+                    rollbackFailure = new RollbackFailureException(rollbackException);
+                }
+                
+                LOG.error(String.format("The original cause of the rollback for %s was", rollbackStateLocal.getWorkflowId()), activityException);
+                rollbackFailure.setOriginalWorkflowException(activityException);
+                throw rollbackFailure;
+            }
+        }
+    }
+
+    /**
+     * Determine if the given activity should run. A {@link SelectiveProcessContext} is consulted first, then the
+     * activity itself.
+     *
+     * @param activity
+     *            the current activity in the iteration
+     * @param context
+     *            the current process context
+     */
+    protected boolean shouldExecute(Activity<ProcessContext<U>> activity, ProcessContext<U> context) {
+        if (context instanceof SelectiveProcessContext && !((SelectiveProcessContext<U>) context).shouldExecute(activity)) {
+            return false;
+        }
+        return activity.shouldExecute(context);
+    }
+
+    /**
+     * Lets a {@link SelectiveProcessContext} know that the given activity completed without error
+     */
+    protected void activityExecuted(Activity<ProcessContext<U>> activity, ProcessContext<U> context) {
+        if (context instanceof SelectiveProcessContext) {
+            ((SelectiveProcessContext<U>) context).activityExecuted(activity);
+        }
+    }
+
     /**
      * Determine if the process should stop
      *
@@ -148,6 +220,33 @@ public class SequenceProcessor<U, T> extends BaseProcessor<U, T> {
         return processContextFactory.createContext(seedData);
     }
 
+    /**
+     * Returns the service that records activity timings for this workflow, looking up
+     * <code>blWorkflowStatisticsService</code> if one has not been set explicitly. May return null, in which case no
+     * statistics are recorded.
+     */
+    public WorkflowStatisticsService getWorkflowStatisticsService() {
+        if (workflowStatisticsService == null && getBeanFactory() != null && getBeanFactory().containsBean("blWorkflowStatisticsService")) {
+            workflowStatisticsService = getBeanFactory().getBean("blWorkflowStatisticsService", WorkflowStatisticsService.class);
+        }
+        return workflowStatisticsService;
+    }
+
+    /**
+     * @return the {@link WorkflowStatisticsService}, or null if there isn't one or it is disabled
+     */
+    protected WorkflowStatisticsService getEnabledWorkflowStatisticsService() {
+        WorkflowStatisticsService statisticsService = getWorkflowStatisticsService();
+        if (statisticsService != null && !statisticsService.isEnabled()) {
+            return null;
+        }
+        return statisticsService;
+    }
+
+    public void setWorkflowStatisticsService(WorkflowStatisticsService workflowStatisticsService) {
+        this.workflowStatisticsService = workflowStatisticsService;
+    }
+
     @Override
     public void setProcessContextFactory(ProcessContextFactory<U, T> processContextFactory) {
         this.processContextFactory = processContextFactory;
@@ -0,0 +1,84 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.workflow.monitor;
+
+import org.broadleafcommerce.common.jmx.LatencyHistogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Running counters for a single workflow or for a single activity within a workflow
+ */
+public class WorkflowStatistic {
+
+    protected final LatencyHistogram latency = new LatencyHistogram();
+    protected final AtomicLong errorCount = new AtomicLong();
+    protected final AtomicLong skipCount = new AtomicLong();
+    protected final AtomicLong rollbackCount = new AtomicLong();
+
+    public void recordExecution(long elapsedNanos, boolean failed) {
+        latency.record(elapsedNanos);
+        if (failed) {
+            errorCount.incrementAndGet();
+        }
+    }
+
+    public void recordSkip() {
+        skipCount.incrementAndGet();
+    }
+
+    public void recordRollback() {
+        rollbackCount.incrementAndGet();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getExecutionCount() {
+        return latency.getCount();
+    }
+
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    public long getSkipCount() {
+        return skipCount.get();
+    }
+
+    public long getRollbackCount() {
+        return rollbackCount.get();
+    }
+
+    /**
+     * @return the percentage of executions that ended in an exception
+     */
+    public double getErrorRate() {
+        long executions = getExecutionCount();
+        return executions == 0 ? 0D : errorCount.get() * 100D / executions;
+    }
+
+    public void reset() {
+        latency.reset();
+        errorCount.set(0L);
+        skipCount.set(0L);
+        rollbackCount.set(0L);
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.workflow.monitor;
+
+import java.util.Map;
+
+/**
+ * Collects timing and outcome statistics for workflows run by a {@link org.broadleafcommerce.core.workflow.SequenceProcessor}.
+ * Statistics are kept for each workflow as a whole and for each activity within it, keyed as
+ * <code>workflowBeanName</code> and <code>workflowBeanName.activityBeanName</code> respectively.
+ * <p>
+ * Implementations are called on every workflow execution and should be cheap and thread safe.
+ */
+public interface WorkflowStatisticsService {
+
+    /**
+     * @return whether or not statistics should be recorded at all
+     */
+    boolean isEnabled();
+
+    /**
+     * Called before the first activity of a workflow is considered
+     * 
+     * @param workflowName the bean name of the workflow processor
+     */
+    void workflowStarted(String workflowName);
+
+    /**
+     * Called once a workflow has finished, whether or not it was successful
+     * 
+     * @param workflowName the bean name of the workflow processor
+     * @param elapsedNanos how long the whole workflow took
+     * @param failed whether or not any activity threw an exception
+     */
+    void workflowCompleted(String workflowName, long elapsedNanos, boolean failed);
+
+    /**
+     * Called after an activity has executed
+     * 
+     * @param workflowName the bean name of the workflow processor
+     * @param activityName the bean name of the activity
+     * @param elapsedNanos how long {@link org.broadleafcommerce.core.workflow.Activity#execute} took
+     * @param failed whether or not the activity threw an exception
+     */
+    void activityExecuted(String workflowName, String activityName, long elapsedNanos, boolean failed);
+
+    /**
+     * Called when an activity was not executed because its <code>shouldExecute</code> method returned false
+     * 
+     * @param workflowName the bean name of the workflow processor
+     * @param activityName the bean name of the activity
+     */
+    void activitySkipped(String workflowName, String activityName);
+
+    /**
+     * Called when a failing activity caused the registered rollback handlers to run
+     * 
+     * @param workflowName the bean name of the workflow processor
+     * @param activityName the bean name of the activity that failed
+     */
+    void workflowRolledBack(String workflowName, String activityName);
+
+    /**
+     * @return the statistics recorded so far, keyed by workflow name and by workflow and activity name
+     */
+    Map<String, WorkflowStatistic> getStatistics();
+
+    /**
+     * Clears all of the recorded statistics
+     */
+    void resetStatistics();
+
+}
@@ -0,0 +1,340 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.workflow.monitor;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.jmx.LatencyHistogram;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InvalidAttributeValueException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanException;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ReflectionException;
+
+/**
+ * Default {@link WorkflowStatisticsService}. Latencies are kept in a {@link LatencyHistogram} per workflow and per
+ * activity, and are published as a dynamic MBean with one set of attributes (count, errors, errorRate, skips,
+ * rollbacks, meanMs, p50Ms, p95Ms, p99Ms and maxMs) per key.
+ * <p>
+ * When <code>workflow.trace.enabled</code> is true, each workflow run is also recorded in a {@link WorkflowTrace} for
+ * the current request. Outermost workflow runs that take longer than <code>workflow.trace.slowThresholdMs</code> are
+ * logged at INFO and kept as the LAST_SLOW_TRACE attribute.
+ */
+@Service("blWorkflowStatisticsService")
+@ManagedResource(objectName="org.broadleafcommerce:name=WorkflowStatistics", description="Workflow Statistics", currencyTimeLimit=15)
+public class WorkflowStatisticsServiceImpl implements WorkflowStatisticsService, DynamicMBean {
+
+    private static final Log LOG = LogFactory.getLog(WorkflowStatisticsServiceImpl.class);
+
+    protected static final String TRACE_ENABLED = "TRACE_ENABLED";
+    protected static final String SLOW_TRACE_THRESHOLD_MS = "SLOW_TRACE_THRESHOLD_MS";
+    protected static final String LAST_SLOW_TRACE = "LAST_SLOW_TRACE";
+
+    protected static final String[] STAT_ATTRIBUTES = { "count", "errors", "errorRate", "skips", "rollbacks", "meanMs", "p50Ms", "p95Ms", "p99Ms", "maxMs" };
+
+    @Value("${workflow.statistics.enabled}")
+    protected boolean enabled = true;
+
+    @Value("${workflow.trace.enabled}")
+    protected volatile boolean traceEnabled = false;
+
+    @Value("${workflow.trace.slowThresholdMs}")
+    protected volatile long slowTraceThresholdMs = 1000L;
+
+    protected volatile String lastSlowTrace = "";
+
+    protected final ConcurrentMap<String, WorkflowStatistic> statistics = new ConcurrentHashMap<String, WorkflowStatistic>();
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void workflowStarted(String workflowName) {
+        if (traceEnabled) {
+            WorkflowTrace.getOrCreateCurrentTrace().enterWorkflow();
+        }
+    }
+
+    @Override
+    public void workflowCompleted(String workflowName, long elapsedNanos, boolean failed) {
+        getStatistic(workflowName).recordExecution(elapsedNanos, failed);
+        WorkflowTrace trace = WorkflowTrace.getCurrentTrace();
+        if (trace != null && trace.depth > 0) {
+            int depth = trace.exitWorkflow(workflowName, elapsedNanos, failed ? "FAILED" : "OK");
+            if (depth == 1 && slowTraceThresholdMs >= 0 && elapsedNanos >= slowTraceThresholdMs * 1000000L) {
+                lastSlowTrace = trace.formatLastRun();
+                if (LOG.isInfoEnabled()) {
+                    LOG.info("Slow workflow " + workflowName + ":" + lastSlowTrace);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void activityExecuted(String workflowName, String activityName, long elapsedNanos, boolean failed) {
+        getStatistic(getKey(workflowName, activityName)).recordExecution(elapsedNanos, failed);
+        WorkflowTrace trace = WorkflowTrace.getCurrentTrace();
+        if (trace != null && trace.depth > 0) {
+            trace.addActivity(workflowName, activityName, elapsedNanos, failed ? "FAILED" : "OK");
+        }
+    }
+
+    @Override
+    public void activitySkipped(String workflowName, String activityName) {
+        getStatistic(getKey(workflowName, activityName)).recordSkip();
+        WorkflowTrace trace = WorkflowTrace.getCurrentTrace();
+        if (trace != null && trace.depth > 0) {
+            trace.addActivity(workflowName, activityName, 0L, "SKIPPED");
+        }
+    }
+
+    @Override
+    public void workflowRolledBack(String workflowName, String activityName) {
+        getStatistic(workflowName).recordRollback();
+        getStatistic(getKey(workflowName, activityName)).recordRollback();
+    }
+
+    @Override
+    public Map<String, WorkflowStatistic> getStatistics() {
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    @Override
+    public void resetStatistics() {
+        for (WorkflowStatistic statistic : statistics.values()) {
+            statistic.reset();
+        }
+        lastSlowTrace = "";
+    }
+
+    /**
+     * @return a plain text table of every workflow and activity, slowest total time first
+     */
+    public String getReport() {
+        List<Map.Entry<String, WorkflowStatistic>> entries = new ArrayList<Map.Entry<String, WorkflowStatistic>>(statistics.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, WorkflowStatistic>>() {
+            @Override
+            public int compare(Map.Entry<String, WorkflowStatistic> o1, Map.Entry<String, WorkflowStatistic> o2) {
+                return Double.compare(o2.getValue().getLatency().getTotalMillis(), o1.getValue().getLatency().getTotalMillis());
+            }
+        });
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-80s %10s %8s %8s %10s %10s %10s %10s%n", "name", "count", "errors", "skips", "meanMs", "p95Ms", "p99Ms", "maxMs"));
+        for (Map.Entry<String, WorkflowStatistic> entry : entries) {
+            WorkflowStatistic stat = entry.getValue();
+            LatencyHistogram latency = stat.getLatency();
+            sb.append(String.format("%-80s %10d %8d %8d %10.3f %10.3f %10.3f %10.3f%n", entry.getKey(), stat.getExecutionCount(),
+                    stat.getErrorCount(), stat.getSkipCount(), latency.getMeanMillis(), latency.getPercentileMillis(95D),
+                    latency.getPercentileMillis(99D), latency.getMaxMillis()));
+        }
+        return sb.toString();
+    }
+
+    protected WorkflowStatistic getStatistic(String key) {
+        WorkflowStatistic statistic = statistics.get(key);
+        if (statistic == null) {
+            WorkflowStatistic newStatistic = new WorkflowStatistic();
+            statistic = statistics.putIfAbsent(key, newStatistic);
+            if (statistic == null) {
+                statistic = newStatistic;
+            }
+        }
+        return statistic;
+    }
+
+    protected String getKey(String workflowName, String activityName) {
+        return workflowName + "." + activityName;
+    }
+
+    protected Object getStatisticAttribute(WorkflowStatistic stat, String name) {
+        if ("count".equals(name)) {
+            return stat.getExecutionCount();
+        } else if ("errors".equals(name)) {
+            return stat.getErrorCount();
+        } else if ("errorRate".equals(name)) {
+            return stat.getErrorRate();
+        } else if ("skips".equals(name)) {
+            return stat.getSkipCount();
+        } else if ("rollbacks".equals(name)) {
+            return stat.getRollbackCount();
+        } else if ("meanMs".equals(name)) {
+            return stat.getLatency().getMeanMillis();
+        } else if ("p50Ms".equals(name)) {
+            return stat.getLatency().getPercentileMillis(50D);
+        } else if ("p95Ms".equals(name)) {
+            return stat.getLatency().getPercentileMillis(95D);
+        } else if ("p99Ms".equals(name)) {
+            return stat.getLatency().getPercentileMillis(99D);
+        } else if ("maxMs".equals(name)) {
+            return stat.getLatency().getMaxMillis();
+        }
+        return null;
+    }
+
+    protected String getStatisticAttributeType(String name) {
+        if (name.endsWith("Ms") || "errorRate".equals(name)) {
+            return "java.lang.Double";
+        }
+        return "java.lang.Long";
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException, MBeanException, ReflectionException {
+        if (TRACE_ENABLED.equals(attribute)) {
+            return traceEnabled;
+        } else if (SLOW_TRACE_THRESHOLD_MS.equals(attribute)) {
+            return slowTraceThresholdMs;
+        } else if (LAST_SLOW_TRACE.equals(attribute)) {
+            return lastSlowTrace;
+        }
+        int pos = attribute.lastIndexOf('.');
+        if (pos > 0) {
+            WorkflowStatistic stat = statistics.get(attribute.substring(0, pos));
+            if (stat != null) {
+                Object value = getStatisticAttribute(stat, attribute.substring(pos + 1));
+                if (value != null) {
+                    return value;
+                }
+            }
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException, InvalidAttributeValueException, MBeanException, ReflectionException {
+        if (TRACE_ENABLED.equals(attribute.getName())) {
+            traceEnabled = (Boolean) attribute.getValue();
+        } else if (SLOW_TRACE_THRESHOLD_MS.equals(attribute.getName())) {
+            slowTraceThresholdMs = (Long) attribute.getValue();
+        }
+        //do nothing - not allowed
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (Exception e) {
+                LOG.debug("cannot get attribute: " + attribute, e);
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        for (Object attr : attributes) {
+            try {
+                setAttribute((Attribute) attr);
+            } catch (Exception e) {
+                LOG.error("cannot set attribute: " + ((Attribute) attr).getName(), e);
+            }
+        }
+        return attributes;
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws MBeanException, ReflectionException {
+        if (actionName.equals("reset")) {
+            resetStatistics();
+            return null;
+        } else if (actionName.equals("report")) {
+            return getReport();
+        }
+        throw new MBeanException(new RuntimeException("Not Supported"));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        SortedSet<String> keys = new TreeSet<String>(statistics.keySet());
+        List<MBeanAttributeInfo> attrs = new ArrayList<MBeanAttributeInfo>();
+        for (String key : keys) {
+            for (String name : STAT_ATTRIBUTES) {
+                String attributeName = key + "." + name;
+                attrs.add(new MBeanAttributeInfo(attributeName, getStatisticAttributeType(name), attributeName, true, false, false));
+            }
+        }
+        attrs.add(new MBeanAttributeInfo(TRACE_ENABLED, "java.lang.Boolean", "Record a per-request trace of workflow activities", true, true, false));
+        attrs.add(new MBeanAttributeInfo(SLOW_TRACE_THRESHOLD_MS, "java.lang.Long", "Log traces of outermost workflows slower than this", true, true, false));
+        attrs.add(new MBeanAttributeInfo(LAST_SLOW_TRACE, "java.lang.String", "The most recent slow workflow trace", true, false, false));
+        MBeanOperationInfo[] opers = {
+            new MBeanOperationInfo(
+                    "reset",
+                    "Reset the workflow statistics",
+                    null,   // no parameters
+                    "void",
+                    MBeanOperationInfo.ACTION),
+            new MBeanOperationInfo(
+                    "report",
+                    "Tabulate the workflow statistics, slowest first",
+                    null,   // no parameters
+                    "java.lang.String",
+                    MBeanOperationInfo.INFO)
+        };
+        return new MBeanInfo(
+            getClass().getName(),
+            "Workflow Statistics",
+            attrs.toArray(new MBeanAttributeInfo[attrs.size()]),
+            null,  // constructors
+            opers,
+            null); // notifications
+    }
+
+    public boolean isTraceEnabled() {
+        return traceEnabled;
+    }
+
+    public void setTraceEnabled(boolean traceEnabled) {
+        this.traceEnabled = traceEnabled;
+    }
+
+    public long getSlowTraceThresholdMs() {
+        return slowTraceThresholdMs;
+    }
+
+    public void setSlowTraceThresholdMs(long slowTraceThresholdMs) {
+        this.slowTraceThresholdMs = slowTraceThresholdMs;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.workflow.monitor;
+
+import org.broadleafcommerce.common.classloader.release.ThreadLocalManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A record of the workflows and activities run on the current thread, in the order they finished. Nested workflows
+ * (for example, the pricing workflow run from within checkout) are recorded with a greater depth.
+ * <p>
+ * The trace is bound to the request thread and is cleared along with the other Broadleaf thread locals at the end of
+ * the request, so code running later in the same request can inspect it through {@link #getCurrentTrace()}. Traces are
+ * only recorded when <code>workflow.trace.enabled</code> is true.
+ */
+public class WorkflowTrace {
+
+    private static final ThreadLocal<WorkflowTrace> THREAD_LOCAL = ThreadLocalManager.createThreadLocal(WorkflowTrace.class, false);
+
+    /**
+     * Guards against unbounded growth on threads that are not request threads, such as background jobs
+     */
+    protected static final int MAX_ENTRIES = 1000;
+
+    /**
+     * @return the trace for the current thread, or null if nothing has been traced
+     */
+    public static WorkflowTrace getCurrentTrace() {
+        return THREAD_LOCAL.get();
+    }
+
+    protected static WorkflowTrace getOrCreateCurrentTrace() {
+        WorkflowTrace trace = THREAD_LOCAL.get();
+        if (trace == null) {
+            trace = new WorkflowTrace();
+            THREAD_LOCAL.set(trace);
+        }
+        return trace;
+    }
+
+    public static void clearCurrentTrace() {
+        ThreadLocalManager.remove(THREAD_LOCAL);
+    }
+
+    protected final List<Entry> entries = new ArrayList<Entry>();
+    protected int depth = 0;
+    protected int droppedEntries = 0;
+    protected int runStartIndex = 0;
+
+    protected void enterWorkflow() {
+        if (depth == 0) {
+            runStartIndex = entries.size();
+        }
+        depth++;
+    }
+
+    /**
+     * @return the depth of the workflow that just finished, where 1 is the outermost workflow
+     */
+    protected int exitWorkflow(String workflowName, long elapsedNanos, String outcome) {
+        add(new Entry(workflowName, null, depth, elapsedNanos, outcome));
+        return depth--;
+    }
+
+    protected void addActivity(String workflowName, String activityName, long elapsedNanos, String outcome) {
+        add(new Entry(workflowName, activityName, depth, elapsedNanos, outcome));
+    }
+
+    protected void add(Entry entry) {
+        if (entries.size() < MAX_ENTRIES) {
+            entries.add(entry);
+        } else {
+            droppedEntries++;
+        }
+    }
+
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    public int getDroppedEntries() {
+        return droppedEntries;
+    }
+
+    /**
+     * Renders the entries recorded since the most recent outermost workflow started
+     */
+    public String formatLastRun() {
+        return format(runStartIndex);
+    }
+
+    /**
+     * Renders the entries recorded from the given index onward, one per line and indented by depth
+     */
+    public String format(int fromIndex) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = fromIndex; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            sb.append('\n');
+            for (int j = 1; j < entry.getDepth(); j++) {
+                sb.append("    ");
+            }
+            sb.append(entry.getActivityName() == null ? "workflow " + entry.getWorkflowName() : "  " + entry.getActivityName());
+            sb.append(": ").append(String.format("%.3f", entry.getElapsedMillis())).append(" ms");
+            sb.append(" [").append(entry.getOutcome()).append(']');
+        }
+        if (droppedEntries > 0) {
+            sb.append("\n(").append(droppedEntries).append(" entries were dropped)");
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return format(0);
+    }
+
+    public static class Entry {
+
+        protected final String workflowName;
+        protected final String activityName;
+        protected final int depth;
+        protected final long elapsedNanos;
+        protected final String outcome;
+
+        public Entry(String workflowName, String activityName, int depth, long elapsedNanos, String outcome) {
+            this.workflowName = workflowName;
+            this.activityName = activityName;
+            this.depth = depth;
+            this.elapsedNanos = elapsedNanos;
+            this.outcome = outcome;
+        }
+
+        public String getWorkflowName() {
+            return workflowName;
+        }
+
+        /**
+         * @return the activity name, or null if this entry is for a workflow as a whole
+         */
+        public String getActivityName() {
+            return activityName;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getElapsedMillis() {
+            return elapsedNanos / 1000000D;
+        }
+
+        public String getOutcome() {
+            return outcome;
+        }
+    }
+}
@@ -21,10 +21,11 @@ import org.broadleafcommerce.core.workflow.Activity;
 import org.broadleafcommerce.core.workflow.ProcessContext;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Deque;
 import java.util.Map;
-import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingDeque;
 
 import javax.annotation.PostConstruct;
 
@@ -40,7 +41,12 @@ public class ActivityStateManagerImpl<T extends ProcessContext<?>> implements Ac
         return ACTIVITY_STATE_MANAGER;
     }
 
-    protected Map<String, Stack<StateContainer>> stateMap = Collections.synchronizedMap(new HashMap<String, Stack<StateContainer>>());
+    /**
+     * State registered per workflow run, most recent first. Activities of a single run may register state from
+     * several threads at once (see {@link org.broadleafcommerce.core.workflow.ParallelSequenceProcessor}), so both the
+     * map and the deques are safe for concurrent use.
+     */
+    protected ConcurrentMap<String, Deque<StateContainer>> stateMap = new ConcurrentHashMap<String, Deque<StateContainer>>();
 
     @PostConstruct
     public void init() {
@@ -50,17 +56,18 @@ public class ActivityStateManagerImpl<T extends ProcessContext<?>> implements Ac
     @Override
     public void clearAllState() {
         RollbackStateLocal rollbackStateLocal = getRollbackStateLocal();
-        stateMap.remove(rollbackStateLocal.getThreadId() + "_" + rollbackStateLocal.getWorkflowId());
+        stateMap.remove(getStateKey(rollbackStateLocal));
         RollbackStateLocal.clearRollbackStateLocal();
     }
 
     @Override
     public void clearRegionState(String region) {
         RollbackStateLocal rollbackStateLocal = getRollbackStateLocal();
-        Stack<StateContainer> containers = stateMap.get(rollbackStateLocal.getThreadId() + "_" + rollbackStateLocal.getWorkflowId());
+        Deque<StateContainer> containers = stateMap.get(getStateKey(rollbackStateLocal));
         if (containers != null) {
-            while (!containers.empty()) {
-                String myRegion = containers.pop().getRegion();
+            StateContainer stateContainer;
+            while ((stateContainer = containers.pollFirst()) != null) {
+                String myRegion = stateContainer.getRegion();
                 if ((region == null && myRegion == null) || (region != null && region.equals(myRegion))) {
                     break;
                 }
@@ -81,10 +88,14 @@ public class ActivityStateManagerImpl<T extends ProcessContext<?>> implements Ac
     @Override
     public void registerState(Activity<T> activity, T processContext, String region, RollbackHandler<T> rollbackHandler, Map<String, Object> stateItems) {
         RollbackStateLocal rollbackStateLocal = getRollbackStateLocal();
-        Stack<StateContainer> containers = stateMap.get(rollbackStateLocal.getThreadId() + "_" + rollbackStateLocal.getWorkflowId());
+        String key = getStateKey(rollbackStateLocal);
+        Deque<StateContainer> containers = stateMap.get(key);
         if (containers == null) {
-            containers = new Stack<>();
-            stateMap.put(rollbackStateLocal.getThreadId() + "_" + rollbackStateLocal.getWorkflowId(), containers);
+            Deque<StateContainer> newContainers = new LinkedBlockingDeque<>();
+            containers = stateMap.putIfAbsent(key, newContainers);
+            if (containers == null) {
+                containers = newContainers;
+            }
         }
 
         StateContainer stateContainer = new StateContainer();
@@ -94,16 +105,16 @@ public class ActivityStateManagerImpl<T extends ProcessContext<?>> implements Ac
         stateContainer.setActivity(activity);
         stateContainer.setProcessContext(processContext);
 
-        containers.push(stateContainer);
+        containers.addFirst(stateContainer);
     }
 
     @Override
     public void rollbackAllState() throws RollbackFailureException {
         RollbackStateLocal rollbackStateLocal = getRollbackStateLocal();
-        Stack<StateContainer> containers = stateMap.get(rollbackStateLocal.getThreadId() + "_" + rollbackStateLocal.getWorkflowId());
+        Deque<StateContainer> containers = stateMap.get(getStateKey(rollbackStateLocal));
         if (containers != null) {
-            while (!containers.empty()) {
-                StateContainer stateContainer = containers.pop();
+            StateContainer stateContainer;
+            while ((stateContainer = containers.pollFirst()) != null) {
                 stateContainer.getRollbackHandler().rollbackState(stateContainer.getActivity(), stateContainer.getProcessContext(), stateContainer.getStateItems());
             }
         }
@@ -112,10 +123,10 @@ public class ActivityStateManagerImpl<T extends ProcessContext<?>> implements Ac
     @Override
     public void rollbackRegionState(String region) throws RollbackFailureException {
         RollbackStateLocal rollbackStateLocal = getRollbackStateLocal();
-        Stack<StateContainer> containers = stateMap.get(rollbackStateLocal.getThreadId() + "_" + rollbackStateLocal.getWorkflowId());
+        Deque<StateContainer> containers = stateMap.get(getStateKey(rollbackStateLocal));
         if (containers != null) {
-            while (!containers.empty()) {
-                StateContainer stateContainer = containers.pop();
+            StateContainer stateContainer;
+            while ((stateContainer = containers.pollFirst()) != null) {
                 if ((region == null && stateContainer.getRegion() == null) || (region != null && region.equals(stateContainer.getRegion()))) {
                     stateContainer.getRollbackHandler().rollbackState(stateContainer.getActivity(), stateContainer.getProcessContext(), stateContainer.getStateItems());
                 }
@@ -123,6 +134,10 @@ public class ActivityStateManagerImpl<T extends ProcessContext<?>> implements Ac
         }
     }
 
+    protected String getStateKey(RollbackStateLocal rollbackStateLocal) {
+        return rollbackStateLocal.getThreadId() + "_" + rollbackStateLocal.getWorkflowId();
+    }
+
     protected RollbackStateLocal getRollbackStateLocal() {
         RollbackStateLocal rollbackStateLocal = RollbackStateLocal.getRollbackStateLocal();
         if (rollbackStateLocal == null) {
@@ -22,6 +22,7 @@ import org.broadleafcommerce.core.catalog.domain.Sku
 import org.broadleafcommerce.core.catalog.domain.SkuImpl
 import org.broadleafcommerce.core.checkout.service.workflow.DecrementInventoryActivity
 import org.broadleafcommerce.core.inventory.service.ContextualInventoryService
+import org.broadleafcommerce.core.inventory.service.InventoryReservationService
 import org.broadleafcommerce.core.inventory.service.type.InventoryType
 import org.broadleafcommerce.core.order.domain.BundleOrderItem
 import org.broadleafcommerce.core.order.domain.BundleOrderItemImpl
@@ -94,6 +95,7 @@ class DecrementInventoryActivitySpec extends BaseCheckoutActivitySpec{
 
         activity = new DecrementInventoryActivity().with {
             inventoryService = mockInventoryService
+            reservationService = Mock(InventoryReservationService)
             rollbackHandler = new NullCheckoutRollbackHandler()
             it
         }
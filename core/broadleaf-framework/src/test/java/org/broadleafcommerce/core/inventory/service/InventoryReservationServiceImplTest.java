@@ -0,0 +1,144 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.inventory.service;
+
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.catalog.domain.SkuImpl;
+import org.broadleafcommerce.core.inventory.service.type.InventoryType;
+
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+public class InventoryReservationServiceImplTest extends TestCase {
+
+    protected static final long NOW = 1000000L;
+
+    protected InventoryReservationServiceImpl reservationService;
+    protected Sku sku;
+    protected long now;
+
+    @Override
+    protected void setUp() throws Exception {
+        now = NOW;
+        sku = sku(1L, InventoryType.CHECK_QUANTITY);
+
+        reservationService = new InventoryReservationServiceImpl() {
+            @Override
+            protected long currentTimeMillis() {
+                return now;
+            }
+        };
+        reservationService.enabled = true;
+        reservationService.holdMillis = 1000L;
+    }
+
+    public void testReservationsCannotExceedTheQuantityOnHand() {
+        assertTrue(reservationService.reserve(100L, sku, 6, 10));
+        assertFalse(reservationService.reserve(200L, sku, 5, 10));
+        assertTrue(reservationService.reserve(200L, sku, 4, 10));
+
+        assertEquals(Integer.valueOf(6), reservationService.retrieveQuantityAvailable(100L, sku, 10));
+        assertEquals(Integer.valueOf(0), reservationService.retrieveQuantityAvailable(null, sku, 10));
+        assertEquals(1, reservationService.getRejectedReservationCount());
+    }
+
+    public void testShrinkingAHoldFreesTheDifference() {
+        assertTrue(reservationService.reserve(100L, sku, 6, 10));
+        assertTrue(reservationService.reserve(100L, sku, 2, 10));
+
+        assertTrue(reservationService.reserve(200L, sku, 8, 10));
+        assertFalse(reservationService.reserve(300L, sku, 1, 10));
+    }
+
+    public void testReleasingAnOrderFreesAllOfItsHolds() {
+        Sku other = sku(2L, InventoryType.CHECK_QUANTITY);
+        assertTrue(reservationService.reserve(100L, sku, 6, 10));
+        assertTrue(reservationService.reserve(100L, other, 3, 3));
+        assertTrue(reservationService.reserve(200L, sku, 4, 10));
+
+        reservationService.releaseReservations(100L);
+
+        assertEquals(1, reservationService.getActiveHoldCount());
+        assertFalse(reservationService.heldSkuIdsByOrder.containsKey(100L));
+        assertTrue(reservationService.reserve(300L, sku, 6, 10));
+        assertTrue(reservationService.reserve(300L, other, 3, 3));
+    }
+
+    public void testTheQuantityAvailableToTheOrderLimitsItsHold() {
+        assertTrue(reservationService.reserve(100L, sku, 6, 10));
+
+        assertFalse(reservationService.reserve(200L, sku, 3, 8));
+        assertTrue(reservationService.reserve(200L, sku, 2, 8));
+        assertEquals(Integer.valueOf(2), reservationService.retrieveQuantityAvailable(200L, sku, 8));
+        assertEquals(Integer.valueOf(8), reservationService.retrieveQuantityAvailable(100L, sku, 10));
+    }
+
+    public void testReleasingSkusLeavesTheOrdersOtherHolds() {
+        Sku other = sku(2L, InventoryType.CHECK_QUANTITY);
+        assertTrue(reservationService.reserve(100L, sku, 6, 10));
+        assertTrue(reservationService.reserve(100L, other, 3, 3));
+
+        reservationService.releaseReservations(100L, Collections.singletonList(sku));
+
+        assertEquals(1, reservationService.getActiveHoldCount());
+        assertEquals(Collections.singleton(2L), reservationService.heldSkuIdsByOrder.get(100L));
+        assertTrue(reservationService.reserve(200L, sku, 10, 10));
+        assertFalse(reservationService.reserve(200L, other, 1, 3));
+    }
+
+    public void testExpiredHoldsAreSwept() {
+        assertTrue(reservationService.reserve(100L, sku, 6, 10));
+        now = NOW + 500L;
+        assertTrue(reservationService.reserve(200L, sku, 4, 10));
+
+        now = NOW + 1000L;
+        assertEquals(1, reservationService.sweepExpiredReservations());
+        assertEquals(Integer.valueOf(6), reservationService.retrieveQuantityAvailable(null, sku, 10));
+        assertFalse(reservationService.heldSkuIdsByOrder.containsKey(100L));
+
+        // reserving again extends the remaining hold
+        assertTrue(reservationService.reserve(200L, sku, 4, 10));
+        now = NOW + 1600L;
+        assertEquals(0, reservationService.sweepExpiredReservations());
+        assertEquals(1, reservationService.getExpiredReservationCount());
+    }
+
+    public void testConvertingHoldsReducesTheQuantityOnHand() {
+        assertTrue(reservationService.reserve(100L, sku, 6, 10));
+
+        reservationService.convertReservations(100L, Collections.singletonMap(sku, 6));
+
+        assertEquals(0, reservationService.getActiveHoldCount());
+        assertEquals(Integer.valueOf(4), reservationService.retrieveQuantityAvailable(null, sku, 10));
+        assertFalse(reservationService.reserve(200L, sku, 5, 10));
+    }
+
+    public void testUntrackedSkusAreAlwaysReservable() {
+        assertTrue(reservationService.reserve(100L, sku(3L, InventoryType.ALWAYS_AVAILABLE), 1000, null));
+        assertEquals(0, reservationService.getTrackedSkuCount());
+    }
+
+    protected Sku sku(Long id, InventoryType inventoryType) {
+        SkuImpl sku = new SkuImpl();
+        sku.setId(id);
+        sku.setName("sku " + id);
+        sku.setInventoryType(inventoryType);
+        return sku;
+    }
+}
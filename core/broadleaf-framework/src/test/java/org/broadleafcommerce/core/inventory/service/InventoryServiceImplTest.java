@@ -0,0 +1,212 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.inventory.service;
+
+import org.broadleafcommerce.common.extension.ExtensionResultHolder;
+import org.broadleafcommerce.common.extension.ExtensionResultStatusType;
+import org.broadleafcommerce.core.catalog.dao.SkuDao;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.catalog.domain.SkuImpl;
+import org.broadleafcommerce.core.catalog.service.CatalogService;
+import org.broadleafcommerce.core.inventory.service.type.InventoryType;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.springframework.context.ApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class InventoryServiceImplTest extends TestCase {
+
+    protected InventoryServiceImpl inventoryService;
+    protected InventoryServiceExtensionManager extensionManager;
+    protected CatalogService catalogService;
+
+    /**
+     * Stands in for the SKU table: the DAO mock applies each conditional update to it atomically
+     */
+    protected final Map<Long, Integer> stock = new HashMap<Long, Integer>();
+
+    @Override
+    protected void setUp() throws Exception {
+        SkuDao skuDao = EasyMock.createMock(SkuDao.class);
+        EasyMock.expect(skuDao.decrementQuantitiesAvailable(EasyMock.<Map<Long, Integer>>anyObject())).andAnswer(new IAnswer<List<Long>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public List<Long> answer() throws Throwable {
+                return decrement((Map<Long, Integer>) EasyMock.getCurrentArguments()[0]);
+            }
+        }).anyTimes();
+        EasyMock.expect(skuDao.incrementQuantitiesAvailable(EasyMock.<Map<Long, Integer>>anyObject())).andAnswer(new IAnswer<List<Long>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public List<Long> answer() throws Throwable {
+                return increment((Map<Long, Integer>) EasyMock.getCurrentArguments()[0]);
+            }
+        }).anyTimes();
+        EasyMock.replay(skuDao);
+
+        catalogService = EasyMock.createMock(CatalogService.class);
+        extensionManager = new InventoryServiceExtensionManager();
+
+        inventoryService = new InventoryServiceImpl();
+        inventoryService.skuDao = skuDao;
+        inventoryService.catalogService = catalogService;
+        inventoryService.extensionManager = extensionManager;
+        inventoryService.applicationContext = EasyMock.createNiceMock(ApplicationContext.class);
+    }
+
+    public void testConcurrentDecrementsNeverOversell() throws Exception {
+        final Sku sku = sku(1L, 50);
+        stock.put(1L, 50);
+        final AtomicInteger sold = new AtomicInteger();
+        final AtomicInteger rejected = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int i = 0; i < 120; i++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        try {
+                            inventoryService.decrementInventory(sku, 1, null);
+                            sold.incrementAndGet();
+                        } catch (InventoryUnavailableException e) {
+                            rejected.incrementAndGet();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(50, sold.get());
+        assertEquals(70, rejected.get());
+        assertEquals(Integer.valueOf(0), stock.get(1L));
+    }
+
+    public void testInsufficientStockDecrementsNothing() throws Exception {
+        Sku plenty = sku(1L, 10);
+        Sku scarce = sku(2L, 1);
+        stock.put(1L, 10);
+        stock.put(2L, 1);
+        Map<Sku, Integer> quantities = new HashMap<Sku, Integer>();
+        quantities.put(plenty, 3);
+        quantities.put(scarce, 2);
+
+        try {
+            inventoryService.decrementInventory(quantities, null);
+            fail("there is not enough inventory for the second sku");
+        } catch (InventoryUnavailableException e) {
+            assertEquals(Long.valueOf(2L), e.getSkuId());
+        }
+        assertEquals(Integer.valueOf(10), stock.get(1L));
+        assertEquals(Integer.valueOf(1), stock.get(2L));
+    }
+
+    public void testUntrackedQuantityIsLeftAlone() throws Exception {
+        Sku sku = sku(1L, null);
+
+        inventoryService.decrementInventory(sku, 5, null);
+
+        assertTrue(stock.isEmpty());
+    }
+
+    public void testHandlerQuantitiesAreUsedWithTheCallersContext() throws Exception {
+        final Map<String, Object> context = new HashMap<String, Object>();
+        context.put("warehouse", "east");
+        final Sku sku = sku(1L, 100);
+        extensionManager.registerHandler(new AbstractInventoryServiceExtensionHandler() {
+            @Override
+            public ExtensionResultStatusType retrieveQuantitiesAvailable(Collection<Sku> skus, Map<String, Object> ctx,
+                    ExtensionResultHolder<Map<Sku, Integer>> result) {
+                assertSame(context, ctx);
+                Map<Sku, Integer> quantities = new HashMap<Sku, Integer>();
+                quantities.put(sku, 4);
+                result.setResult(quantities);
+                return ExtensionResultStatusType.HANDLED;
+            }
+        });
+        EasyMock.expect(catalogService.saveSku(sku)).andReturn(sku);
+        EasyMock.replay(catalogService);
+
+        inventoryService.decrementInventory(sku, 3, context);
+        assertEquals(Integer.valueOf(1), sku.getQuantityAvailable());
+        EasyMock.verify(catalogService);
+
+        try {
+            inventoryService.decrementInventory(sku, 5, context);
+            fail("the handler only reports 4 available");
+        } catch (InventoryUnavailableException e) {
+            assertEquals(Long.valueOf(1L), e.getSkuId());
+        }
+    }
+
+    protected Sku sku(Long id, Integer quantityAvailable) {
+        SkuImpl sku = new SkuImpl();
+        sku.setId(id);
+        sku.setName("sku " + id);
+        sku.setActiveStartDate(new Date(System.currentTimeMillis() - 86400000L));
+        sku.setInventoryType(InventoryType.CHECK_QUANTITY);
+        sku.setQuantityAvailable(quantityAvailable);
+        return sku;
+    }
+
+    protected synchronized List<Long> decrement(Map<Long, Integer> quantities) {
+        List<Long> decremented = new ArrayList<Long>();
+        for (Entry<Long, Integer> entry : quantities.entrySet()) {
+            Integer available = stock.get(entry.getKey());
+            if (available == null || available < entry.getValue()) {
+                break;
+            }
+            stock.put(entry.getKey(), available - entry.getValue());
+            decremented.add(entry.getKey());
+        }
+        return decremented;
+    }
+
+    protected synchronized List<Long> increment(Map<Long, Integer> quantities) {
+        List<Long> incremented = new ArrayList<Long>();
+        for (Entry<Long, Integer> entry : quantities.entrySet()) {
+            Integer available = stock.get(entry.getKey());
+            if (available != null) {
+                stock.put(entry.getKey(), available + entry.getValue());
+                incremented.add(entry.getKey());
+            }
+        }
+        return incremented;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.offer.service;
+
+import org.broadleafcommerce.core.offer.dao.OfferDao;
+import org.broadleafcommerce.core.offer.domain.Offer;
+import org.broadleafcommerce.core.offer.domain.OfferImpl;
+import org.broadleafcommerce.core.offer.service.OfferCatalogIndexImpl.IndexedOffer;
+import org.broadleafcommerce.core.offer.service.OfferCatalogIndexImpl.Snapshot;
+import org.broadleafcommerce.core.offer.service.type.OfferType;
+import org.easymock.EasyMock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class OfferCatalogIndexImplTest extends TestCase {
+
+    protected static final long DAY = 24L * 60 * 60 * 1000;
+
+    protected OfferCatalogIndexImpl index;
+    protected List<Offer> automaticOffers;
+    protected int snapshotReads;
+
+    @Override
+    protected void setUp() throws Exception {
+        long now = System.currentTimeMillis();
+        automaticOffers = new ArrayList<Offer>();
+        automaticOffers.add(offer(1L, OfferType.ORDER_ITEM, now - 10 * DAY, null));
+        automaticOffers.add(offer(2L, OfferType.ORDER, now - 10 * DAY, new Date(now + 10 * DAY)));
+        automaticOffers.add(offer(3L, OfferType.ORDER_ITEM, now + 10 * DAY, null));
+        automaticOffers.add(offer(4L, OfferType.ORDER_ITEM, now - 10 * DAY, new Date(now - 5 * DAY)));
+
+        final Map<Long, Offer> byId = new HashMap<Long, Offer>();
+        for (Offer offer : automaticOffers) {
+            byId.put(offer.getId(), offer);
+        }
+
+        index = new OfferCatalogIndexImpl() {
+            @Override
+            protected Snapshot buildSnapshot(long now, long version) {
+                snapshotReads++;
+                return super.buildSnapshot(now, version);
+            }
+        };
+        index.setEnabled(true);
+        OfferDao offerDao = EasyMock.createMock(OfferDao.class);
+        EasyMock.expect(offerDao.readAllAutomaticDeliveryOffers()).andReturn(automaticOffers).anyTimes();
+        EasyMock.expect(offerDao.readOffersByAutomaticDeliveryType()).andReturn(automaticOffers.subList(0, 2)).anyTimes();
+        for (final Offer offer : automaticOffers) {
+            EasyMock.expect(offerDao.readOfferById(offer.getId())).andReturn(offer).anyTimes();
+        }
+        EasyMock.replay(offerDao);
+        index.setOfferDao(offerDao);
+    }
+
+    public void testOnlyCurrentlyActiveOffersAreReturned() {
+        assertEquals(Arrays.asList(1L, 2L), ids(index.findActiveAutomaticDeliveryOffers()));
+    }
+
+    public void testDisabledIndexReadsFromTheDao() {
+        index.setEnabled(false);
+        assertEquals(Arrays.asList(1L, 2L), ids(index.findActiveAutomaticDeliveryOffers()));
+        assertEquals(0, snapshotReads);
+    }
+
+    public void testSnapshotIsReusedUntilInvalidated() {
+        index.findActiveAutomaticDeliveryOffers();
+        index.findActiveAutomaticDeliveryOffers();
+        assertEquals(1, snapshotReads);
+
+        index.invalidate();
+        index.findActiveAutomaticDeliveryOffers();
+        assertEquals(2, snapshotReads);
+    }
+
+    public void testSnapshotBuiltBeforeInvalidationIsDiscarded() {
+        Snapshot stale = index.buildSnapshot(System.currentTimeMillis(), index.version.get());
+        index.invalidate();
+        index.installSnapshot(OfferCatalogIndexImpl.GLOBAL_KEY, stale);
+        assertTrue(index.snapshots.isEmpty());
+    }
+
+    public void testOlderSnapshotDoesNotReplaceNewerOne() {
+        long version = index.version.get();
+        long now = System.currentTimeMillis();
+        Snapshot older = new Snapshot(new ArrayList<IndexedOffer>(), now - 1000, version);
+        Snapshot newer = new Snapshot(new ArrayList<IndexedOffer>(), now, version);
+
+        index.installSnapshot(OfferCatalogIndexImpl.GLOBAL_KEY, newer);
+        index.installSnapshot(OfferCatalogIndexImpl.GLOBAL_KEY, older);
+        assertSame(newer, index.snapshots.get(OfferCatalogIndexImpl.GLOBAL_KEY));
+
+        Snapshot latest = new Snapshot(new ArrayList<IndexedOffer>(), now + 1000, version);
+        index.installSnapshot(OfferCatalogIndexImpl.GLOBAL_KEY, latest);
+        assertSame(latest, index.snapshots.get(OfferCatalogIndexImpl.GLOBAL_KEY));
+    }
+
+    protected Offer offer(Long id, OfferType type, long start, Date end) {
+        Offer offer = new OfferImpl();
+        offer.setId(id);
+        offer.setType(type);
+        offer.setStartDate(new Date(start));
+        offer.setEndDate(end);
+        return offer;
+    }
+
+    protected List<Long> ids(List<Offer> offers) {
+        List<Long> ids = new ArrayList<Long>();
+        for (Offer offer : offers) {
+            ids.add(offer.getId());
+        }
+        return ids;
+    }
+
+}
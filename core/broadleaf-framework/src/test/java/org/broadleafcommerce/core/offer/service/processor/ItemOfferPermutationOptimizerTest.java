@@ -0,0 +1,173 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.offer.service.processor;
+
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.core.offer.domain.Offer;
+import org.broadleafcommerce.core.offer.domain.OfferImpl;
+import org.broadleafcommerce.core.offer.service.discount.domain.PromotableCandidateItemOffer;
+import org.broadleafcommerce.core.offer.service.discount.domain.PromotableCandidateItemOfferImpl;
+import org.broadleafcommerce.core.offer.service.discount.domain.PromotableOrder;
+import org.broadleafcommerce.core.offer.service.discount.domain.PromotableOrderItem;
+import org.easymock.EasyMock;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Equivalence suite for {@link BranchAndBoundItemOfferPermutationOptimizer}. Every scenario is run through both the
+ * exhaustive and the branch-and-bound optimizer, and both must pick the exact same permutation.
+ */
+public class ItemOfferPermutationOptimizerTest extends TestCase {
+
+    protected static final int ITEM_COUNT = 5;
+    protected static final Money ITEM_PRICE = new Money(20D);
+
+    protected PromotableOrder order;
+    protected Map<PromotableCandidateItemOffer, Integer> offerIndexes;
+
+    @Override
+    protected void setUp() throws Exception {
+        List<PromotableOrderItem> items = new ArrayList<PromotableOrderItem>();
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            PromotableOrderItem item = EasyMock.createMock(PromotableOrderItem.class);
+            EasyMock.expect(item.calculateTotalWithoutAdjustments()).andReturn(ITEM_PRICE).anyTimes();
+            EasyMock.replay(item);
+            items.add(item);
+        }
+        order = EasyMock.createMock(PromotableOrder.class);
+        EasyMock.expect(order.getAllOrderItems()).andReturn(items).anyTimes();
+        EasyMock.replay(order);
+        offerIndexes = new IdentityHashMap<PromotableCandidateItemOffer, Integer>();
+    }
+
+    public void testMatchesExhaustiveSearch() throws Exception {
+        Random random = new Random(42L);
+        int exhaustiveEvaluations = 0;
+        int branchAndBoundEvaluations = 0;
+        for (int scenario = 0; scenario < 500; scenario++) {
+            List<PromotableCandidateItemOffer> offers = createOffers(random, 2 + random.nextInt(6));
+            List<List<PromotableCandidateItemOffer>> permutations = createPermutations(random, offers, 2 + random.nextInt(10));
+
+            CountingEvaluator exhaustiveEvaluator = new CountingEvaluator();
+            List<PromotableCandidateItemOffer> expected = new ExhaustiveItemOfferPermutationOptimizer()
+                    .findBestPermutation(permutations, order, exhaustiveEvaluator);
+
+            CountingEvaluator branchAndBoundEvaluator = new CountingEvaluator();
+            List<PromotableCandidateItemOffer> actual = new BranchAndBoundItemOfferPermutationOptimizer()
+                    .findBestPermutation(permutations, order, branchAndBoundEvaluator);
+
+            assertSame("Scenario " + scenario + " picked a different permutation", expected, actual);
+            assertTrue(branchAndBoundEvaluator.getCount() <= exhaustiveEvaluator.getCount());
+            exhaustiveEvaluations += exhaustiveEvaluator.getCount();
+            branchAndBoundEvaluations += branchAndBoundEvaluator.getCount();
+        }
+        assertTrue("Expected some permutations to be pruned", branchAndBoundEvaluations < exhaustiveEvaluations);
+    }
+
+    public void testTiesGoToFirstPermutation() throws Exception {
+        List<PromotableCandidateItemOffer> offers = createOffers(new Random(7L), 3);
+        List<List<PromotableCandidateItemOffer>> permutations = new ArrayList<List<PromotableCandidateItemOffer>>();
+        List<PromotableCandidateItemOffer> reversed = new ArrayList<PromotableCandidateItemOffer>(offers);
+        Collections.reverse(reversed);
+        permutations.add(reversed);
+        permutations.add(offers);
+
+        ItemOfferPermutationEvaluator constantEvaluator = new ItemOfferPermutationEvaluator() {
+
+            @Override
+            public Money evaluatePermutation(List<PromotableCandidateItemOffer> offerList, PromotableOrder order) {
+                return new Money(50D);
+            }
+        };
+        assertSame(reversed, new BranchAndBoundItemOfferPermutationOptimizer().findBestPermutation(permutations, order, constantEvaluator));
+        assertSame(reversed, new ExhaustiveItemOfferPermutationOptimizer().findBestPermutation(permutations, order, constantEvaluator));
+    }
+
+    protected List<PromotableCandidateItemOffer> createOffers(Random random, int count) {
+        List<PromotableCandidateItemOffer> offers = new ArrayList<PromotableCandidateItemOffer>();
+        for (int i = 0; i < count; i++) {
+            Offer offer = new OfferImpl();
+            offer.setId((long) i);
+            PromotableCandidateItemOffer candidate = new PromotableCandidateItemOfferImpl(order, offer);
+            candidate.setPotentialSavings(new Money(random.nextInt(8) * 2.5D));
+            offerIndexes.put(candidate, i);
+            offers.add(candidate);
+        }
+        return offers;
+    }
+
+    protected List<List<PromotableCandidateItemOffer>> createPermutations(Random random,
+            List<PromotableCandidateItemOffer> offers, int count) {
+        List<List<PromotableCandidateItemOffer>> permutations = new ArrayList<List<PromotableCandidateItemOffer>>();
+        for (int i = 0; i < count; i++) {
+            List<PromotableCandidateItemOffer> permutation = new ArrayList<PromotableCandidateItemOffer>(offers);
+            Collections.shuffle(permutation, random);
+            // Share prefixes between permutations every so often
+            if (i > 0 && random.nextBoolean()) {
+                List<PromotableCandidateItemOffer> previous = permutations.get(i - 1);
+                permutation = new ArrayList<PromotableCandidateItemOffer>(previous);
+                Collections.shuffle(permutation.subList(1, permutation.size()), random);
+            }
+            if (permutation.size() > 1 && random.nextInt(3) == 0) {
+                permutation.remove(permutation.size() - 1);
+            }
+            permutations.add(permutation);
+        }
+        return permutations;
+    }
+
+    /**
+     * Simulates applying a permutation. Each offer realizes some fraction of its potential savings depending on the
+     * offers applied before it, mirroring how combined offers can only lose savings compared to being applied alone.
+     */
+    protected class CountingEvaluator implements ItemOfferPermutationEvaluator {
+
+        protected int count = 0;
+
+        @Override
+        public Money evaluatePermutation(List<PromotableCandidateItemOffer> offerList, PromotableOrder order) {
+            count++;
+            BigDecimal subtotal = ITEM_PRICE.getAmount().multiply(new BigDecimal(ITEM_COUNT));
+            int previousIndex = 0;
+            for (int position = 0; position < offerList.size(); position++) {
+                PromotableCandidateItemOffer offer = offerList.get(position);
+                int index = offerIndexes.get(offer);
+                BigDecimal fraction = new BigDecimal((3 * index + 5 * position + 7 * previousIndex) % 5).divide(new BigDecimal(4));
+                if (fraction.compareTo(BigDecimal.ONE) > 0) {
+                    fraction = BigDecimal.ONE;
+                }
+                subtotal = subtotal.subtract(offer.getPotentialSavings().getAmount().multiply(fraction));
+                previousIndex = index;
+            }
+            return new Money(subtotal);
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+
+}
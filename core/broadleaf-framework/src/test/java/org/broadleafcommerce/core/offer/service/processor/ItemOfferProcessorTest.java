@@ -535,6 +535,11 @@ public class ItemOfferProcessorTest extends TestCase {
         verify();
     }
 
+    public void testApplyItemQualifiersAndTargetsWithBranchAndBoundOptimizer() throws Exception {
+        itemProcessor.setItemOfferPermutationOptimizer(new BranchAndBoundItemOfferPermutationOptimizer());
+        testApplyItemQualifiersAndTargets();
+    }
+
     public void testApplyItemQualifiersAndTargets() throws Exception {
         replay();
 
@@ -0,0 +1,279 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.pricing.service;
+
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.core.offer.domain.OfferCode;
+import org.broadleafcommerce.core.order.domain.DiscreteOrderItem;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroup;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroupItem;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.order.domain.OrderItem;
+import org.broadleafcommerce.core.payment.domain.OrderPayment;
+import org.broadleafcommerce.core.pricing.service.PricingInputTrackerImpl.Fingerprint;
+import org.broadleafcommerce.core.pricing.service.workflow.type.PricingInputType;
+import org.broadleafcommerce.profile.core.domain.Address;
+import org.broadleafcommerce.profile.core.domain.Customer;
+import org.easymock.EasyMock;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class PricingInputTrackerImplTest extends TestCase {
+
+    protected PricingInputTrackerImpl tracker;
+
+    @Override
+    protected void setUp() throws Exception {
+        tracker = new PricingInputTrackerImpl();
+        tracker.enabled = true;
+    }
+
+    public void testOrderThatWasNeverPricedIsPricedInFull() {
+        assertNull(tracker.findDirtyInputs(new OrderFixture().build()));
+    }
+
+    public void testUnchangedOrderHasNoDirtyInputs() {
+        tracker.recordPricedInputs(new OrderFixture().build());
+
+        assertEquals(Collections.<PricingInputType>emptySet(), tracker.findDirtyInputs(new OrderFixture().build()));
+    }
+
+    public void testItemOrderDoesNotMatter() {
+        tracker.recordPricedInputs(new OrderFixture().build());
+        OrderFixture reordered = new OrderFixture();
+        Collections.reverse(reordered.itemIds);
+
+        assertTrue(tracker.findDirtyInputs(reordered.build()).isEmpty());
+    }
+
+    public void testQuantityChangeOnlyDirtiesOrderItems() {
+        tracker.recordPricedInputs(new OrderFixture().build());
+        OrderFixture changed = new OrderFixture();
+        changed.quantity = 3;
+
+        assertEquals(Collections.singleton(PricingInputType.ORDER_ITEMS), tracker.findDirtyInputs(changed.build()));
+    }
+
+    public void testPriceChangeDirtiesOrderItems() {
+        tracker.recordPricedInputs(new OrderFixture().build());
+        OrderFixture changed = new OrderFixture();
+        changed.salePrice = new Money("8.00");
+
+        assertEquals(Collections.singleton(PricingInputType.ORDER_ITEMS), tracker.findDirtyInputs(changed.build()));
+    }
+
+    public void testAddedOfferCodeOnlyDirtiesOfferCodes() {
+        tracker.recordPricedInputs(new OrderFixture().build());
+        OrderFixture changed = new OrderFixture();
+        changed.offerCodeIds.add(31L);
+
+        assertEquals(Collections.singleton(PricingInputType.OFFER_CODES), tracker.findDirtyInputs(changed.build()));
+    }
+
+    public void testCustomerChangeOnlyDirtiesCustomer() {
+        tracker.recordPricedInputs(new OrderFixture().build());
+        OrderFixture changed = new OrderFixture();
+        changed.taxExempt = true;
+
+        assertEquals(Collections.singleton(PricingInputType.CUSTOMER), tracker.findDirtyInputs(changed.build()));
+    }
+
+    public void testAddressChangeOnlyDirtiesFulfillment() {
+        tracker.recordPricedInputs(new OrderFixture().build());
+        OrderFixture changed = new OrderFixture();
+        changed.postalCode = "10001";
+
+        assertEquals(Collections.singleton(PricingInputType.FULFILLMENT), tracker.findDirtyInputs(changed.build()));
+    }
+
+    public void testPaymentChangeOnlyDirtiesPayments() {
+        tracker.recordPricedInputs(new OrderFixture().build());
+        OrderFixture changed = new OrderFixture();
+        changed.paymentAmount = new Money("5.00");
+
+        assertEquals(Collections.singleton(PricingInputType.PAYMENTS), tracker.findDirtyInputs(changed.build()));
+    }
+
+    public void testUnsavedItemIsPricedInFull() {
+        tracker.recordPricedInputs(new OrderFixture().build());
+        OrderFixture unsaved = new OrderFixture();
+        unsaved.itemIds.add(null);
+
+        assertNull(tracker.findDirtyInputs(unsaved.build()));
+
+        tracker.recordPricedInputs(unsaved.build());
+        assertNull(tracker.findDirtyInputs(new OrderFixture().build()));
+    }
+
+    public void testOrderRepricedOnAnotherNodeIsPricedInFull() {
+        tracker.recordPricedInputs(new OrderFixture().build());
+        // another node priced a different quantity and saved its totals, then the quantity was changed back here
+        OrderFixture repricedElsewhere = new OrderFixture();
+        repricedElsewhere.total = new Money("54.00");
+
+        assertNull(tracker.findDirtyInputs(repricedElsewhere.build()));
+    }
+
+    public void testStaleFingerprintsArePricedInFull() {
+        tracker.recordPricedInputs(new OrderFixture().build());
+        tracker.maxAgeSeconds = -1;
+
+        assertNull(tracker.findDirtyInputs(new OrderFixture().build()));
+    }
+
+    public void testInvalidatedOrderIsPricedInFull() {
+        Order order = new OrderFixture().build();
+        tracker.recordPricedInputs(order);
+        tracker.invalidate(order);
+
+        assertNull(tracker.findDirtyInputs(new OrderFixture().build()));
+    }
+
+    public void testLeastRecentlyPricedOrdersAreForgotten() {
+        tracker.maxOrders = 2;
+        for (long orderId = 1; orderId <= 3; orderId++) {
+            OrderFixture fixture = new OrderFixture();
+            fixture.orderId = orderId;
+            tracker.recordPricedInputs(fixture.build());
+        }
+
+        OrderFixture first = new OrderFixture();
+        first.orderId = 1L;
+        OrderFixture last = new OrderFixture();
+        last.orderId = 3L;
+        assertNull(tracker.findDirtyInputs(first.build()));
+        assertNotNull(tracker.findDirtyInputs(last.build()));
+    }
+
+    public void testDisabledTrackerPricesInFull() {
+        tracker.enabled = false;
+        tracker.recordPricedInputs(new OrderFixture().build());
+
+        assertNull(tracker.findDirtyInputs(new OrderFixture().build()));
+    }
+
+    public void testFingerprintSeparatesValues() {
+        assertFalse(new Fingerprint().add("ab").add("c").value() == new Fingerprint().add("a").add("bc").value());
+        assertFalse(new Fingerprint().add(null).value() == new Fingerprint().add("null").value());
+        assertFalse(new Fingerprint().add("a").add("b").value() == new Fingerprint().add("b").add("a").value());
+        assertFalse(new Fingerprint().add(map("a", "b")).add("c").value() == new Fingerprint().add(map("a", "b", "c", null)).value());
+    }
+
+    public void testFingerprintComparesMoneyByAmount() {
+        assertEquals(new Fingerprint().add(new BigDecimal("10.00")).value(), new Fingerprint().add(new Money("10.00")).value());
+        assertEquals(new Fingerprint().add(PricingInputType.TAX).value(), new Fingerprint().add("TAX").value());
+    }
+
+    protected Map<String, String> map(String... keysAndValues) {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+
+    /**
+     * Builds a new, mocked, order with two items in one fulfillment group. Each build returns new instances, so that
+     * only the values are shared between builds.
+     */
+    protected static class OrderFixture {
+
+        protected Long orderId = 1L;
+        protected List<Long> itemIds = new ArrayList<>(Arrays.asList(11L, 12L));
+        protected int quantity = 2;
+        protected Money salePrice = new Money("9.00");
+        protected List<Long> offerCodeIds = new ArrayList<>(Arrays.asList(30L));
+        protected boolean taxExempt = false;
+        protected String postalCode = "75201";
+        protected Money paymentAmount = new Money("20.00");
+        protected Money total = new Money("36.00");
+
+        public Order build() {
+            List<OrderItem> items = new ArrayList<>();
+            List<FulfillmentGroupItem> groupItems = new ArrayList<>();
+            for (Long itemId : itemIds) {
+                DiscreteOrderItem item = EasyMock.createNiceMock(DiscreteOrderItem.class);
+                EasyMock.expect(item.getId()).andReturn(itemId).anyTimes();
+                EasyMock.expect(item.getQuantity()).andReturn(quantity).anyTimes();
+                EasyMock.expect(item.getRetailPrice()).andReturn(new Money("10.00")).anyTimes();
+                EasyMock.expect(item.getSalePrice()).andReturn(salePrice).anyTimes();
+                EasyMock.expect(item.isDiscountingAllowed()).andReturn(true).anyTimes();
+                EasyMock.replay(item);
+                items.add(item);
+
+                FulfillmentGroupItem groupItem = EasyMock.createNiceMock(FulfillmentGroupItem.class);
+                EasyMock.expect(groupItem.getOrderItem()).andReturn(item).anyTimes();
+                EasyMock.expect(groupItem.getQuantity()).andReturn(2).anyTimes();
+                EasyMock.replay(groupItem);
+                groupItems.add(groupItem);
+            }
+
+            Address address = EasyMock.createNiceMock(Address.class);
+            EasyMock.expect(address.getId()).andReturn(40L).anyTimes();
+            EasyMock.expect(address.getAddressLine1()).andReturn("1 Main St").anyTimes();
+            EasyMock.expect(address.getPostalCode()).andReturn(postalCode).anyTimes();
+            EasyMock.replay(address);
+
+            FulfillmentGroup group = EasyMock.createNiceMock(FulfillmentGroup.class);
+            EasyMock.expect(group.getId()).andReturn(50L).anyTimes();
+            EasyMock.expect(group.getAddress()).andReturn(address).anyTimes();
+            EasyMock.expect(group.getFulfillmentGroupItems()).andReturn(groupItems).anyTimes();
+            EasyMock.replay(group);
+
+            List<OfferCode> offerCodes = new ArrayList<>();
+            for (Long offerCodeId : offerCodeIds) {
+                OfferCode offerCode = EasyMock.createNiceMock(OfferCode.class);
+                EasyMock.expect(offerCode.getId()).andReturn(offerCodeId).anyTimes();
+                EasyMock.replay(offerCode);
+                offerCodes.add(offerCode);
+            }
+
+            OrderPayment payment = EasyMock.createNiceMock(OrderPayment.class);
+            EasyMock.expect(payment.getId()).andReturn(60L).anyTimes();
+            EasyMock.expect(payment.getAmount()).andReturn(paymentAmount).anyTimes();
+            EasyMock.expect(payment.isActive()).andReturn(true).anyTimes();
+            EasyMock.replay(payment);
+
+            Customer customer = EasyMock.createNiceMock(Customer.class);
+            EasyMock.expect(customer.getId()).andReturn(70L).anyTimes();
+            EasyMock.expect(customer.isRegistered()).andReturn(true).anyTimes();
+            EasyMock.expect(customer.isTaxExempt()).andReturn(taxExempt).anyTimes();
+            EasyMock.replay(customer);
+
+            Order order = EasyMock.createNiceMock(Order.class);
+            EasyMock.expect(order.getId()).andReturn(orderId).anyTimes();
+            EasyMock.expect(order.getOrderItems()).andReturn(items).anyTimes();
+            EasyMock.expect(order.getFulfillmentGroups()).andReturn(Arrays.asList(group)).anyTimes();
+            EasyMock.expect(order.getAddedOfferCodes()).andReturn(offerCodes).anyTimes();
+            EasyMock.expect(order.getPayments()).andReturn(Arrays.asList(payment)).anyTimes();
+            EasyMock.expect(order.getCustomer()).andReturn(customer).anyTimes();
+            EasyMock.expect(order.getTotal()).andReturn(total).anyTimes();
+            EasyMock.replay(order);
+            return order;
+        }
+    }
+
+}
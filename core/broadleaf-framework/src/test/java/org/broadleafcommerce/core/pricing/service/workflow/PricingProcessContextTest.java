@@ -0,0 +1,194 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.pricing.service.workflow;
+
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.order.domain.OrderImpl;
+import org.broadleafcommerce.core.pricing.service.PricingInputTracker;
+import org.broadleafcommerce.core.pricing.service.workflow.type.PricingInputType;
+import org.broadleafcommerce.core.workflow.Activity;
+import org.broadleafcommerce.core.workflow.BaseActivity;
+import org.broadleafcommerce.core.workflow.DefaultErrorHandler;
+import org.broadleafcommerce.core.workflow.ProcessContext;
+import org.broadleafcommerce.core.workflow.SequenceProcessor;
+import org.broadleafcommerce.core.workflow.WorkflowException;
+import org.broadleafcommerce.core.workflow.state.ActivityStateManager;
+import org.broadleafcommerce.core.workflow.state.ActivityStateManagerImpl;
+import org.easymock.EasyMock;
+import org.springframework.beans.factory.BeanFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+/**
+ * Runs the activities of the blPricingWorkflow, with their declared pricing inputs and outputs, through the
+ * {@link SequenceProcessor} the workflow is configured with
+ */
+public class PricingProcessContextTest extends TestCase {
+
+    protected SequenceProcessor<Order, Order> processor;
+    protected PricingInputTracker tracker;
+    protected List<String> executed;
+    protected List<Activity<ProcessContext<Order>>> activities;
+
+    @Override
+    protected void setUp() throws Exception {
+        executed = new ArrayList<>();
+        activities = new ArrayList<>();
+        activities.add(recording(new OfferActivity(), "offer"));
+        activities.add(recording(new ConsolidateFulfillmentFeesActivity(), "consolidateFees"));
+        activities.add(recording(new FulfillmentItemPricingActivity(), "fulfillmentItemPricing"));
+        activities.add(recording(new FulfillmentGroupMerchandiseTotalActivity(), "merchandiseTotal"));
+        activities.add(recording(new FulfillmentGroupPricingActivity(), "fulfillmentGroupPricing"));
+        activities.add(recording(new ShippingOfferActivity(), "shippingOffer"));
+        activities.add(recording(new TaxActivity(), "tax"));
+        activities.add(recording(new TotalActivity(), "total"));
+        activities.add(recording(new AdjustOrderPaymentsActivity(), "adjustPayments"));
+
+        ActivityStateManagerImpl<ProcessContext<Order>> stateManager = new ActivityStateManagerImpl<>();
+        stateManager.init();
+        BeanFactory beanFactory = EasyMock.createMock(BeanFactory.class);
+        EasyMock.expect(beanFactory.getBean(ActivityStateManager.class, "blActivityStateManager")).andReturn(stateManager).anyTimes();
+        EasyMock.expect(beanFactory.containsBean(EasyMock.anyObject(String.class))).andReturn(false).anyTimes();
+        EasyMock.replay(beanFactory);
+
+        tracker = EasyMock.createMock(PricingInputTracker.class);
+        PricingProcessContextFactory contextFactory = new PricingProcessContextFactory();
+        contextFactory.pricingInputTracker = tracker;
+
+        processor = new SequenceProcessor<>();
+        processor.setBeanName("blPricingWorkflow");
+        processor.setBeanFactory(beanFactory);
+        processor.setDefaultErrorHandler(new DefaultErrorHandler());
+        processor.setProcessContextFactory(contextFactory);
+        processor.setActivities(activities);
+    }
+
+    public void testFullPricingRunsEverything() throws Exception {
+        PricingProcessContext context = price(null);
+
+        assertFalse(context.isIncremental());
+        assertEquals(9, executed.size());
+    }
+
+    public void testNothingChangedRunsNothing() throws Exception {
+        PricingProcessContext context = price(Collections.<PricingInputType>emptySet());
+
+        assertTrue(context.isIncremental());
+        assertTrue(executed.isEmpty());
+    }
+
+    public void testPaymentChangeOnlyAdjustsPayments() throws Exception {
+        price(Collections.singleton(PricingInputType.PAYMENTS));
+
+        assertEquals(Arrays.asList("adjustPayments"), executed);
+    }
+
+    public void testFulfillmentChangeReappliesOffersAndEverythingAfter() throws Exception {
+        price(Collections.singleton(PricingInputType.FULFILLMENT));
+
+        assertEquals(9, executed.size());
+    }
+
+    public void testOfferCodeChangeFlowsThroughDerivedResults() throws Exception {
+        price(Collections.singleton(PricingInputType.OFFER_CODES));
+
+        assertEquals(Arrays.asList("offer", "fulfillmentItemPricing", "merchandiseTotal", "fulfillmentGroupPricing",
+                "shippingOffer", "tax", "total", "adjustPayments"), executed);
+    }
+
+    public void testCustomerChangeSkipsFulfillmentFees() throws Exception {
+        price(Collections.singleton(PricingInputType.CUSTOMER));
+
+        assertTrue(executed.contains("offer"));
+        assertFalse(executed.contains("consolidateFees"));
+        assertTrue(executed.contains("tax"));
+    }
+
+    public void testUndeclaredActivitySwitchesToFullPricing() throws Exception {
+        List<Activity<ProcessContext<Order>>> withCustom = new ArrayList<>(activities);
+        withCustom.add(1, named(new BaseActivity<ProcessContext<Order>>() {
+            @Override
+            public ProcessContext<Order> execute(ProcessContext<Order> context) throws Exception {
+                executed.add(getBeanName());
+                return context;
+            }
+        }, "custom"));
+        processor.setActivities(withCustom);
+
+        PricingProcessContext context = price(new HashSet<>(Arrays.asList(PricingInputType.PAYMENTS)));
+
+        assertEquals(9, executed.size());
+        assertFalse(executed.contains("offer"));
+        assertNull(context.getDirtyInputs());
+    }
+
+    protected PricingProcessContext price(Set<PricingInputType> dirtyInputs) throws WorkflowException {
+        Order order = new OrderImpl();
+        EasyMock.reset(tracker);
+        EasyMock.expect(tracker.findDirtyInputs(order)).andReturn(dirtyInputs);
+        EasyMock.replay(tracker);
+        ProcessContext<Order> context = processor.doActivities(order);
+        EasyMock.verify(tracker);
+        return (PricingProcessContext) context;
+    }
+
+    protected RecordingActivity recording(PricingInputAware activity, String name) {
+        return named(new RecordingActivity(activity), name);
+    }
+
+    protected <A extends BaseActivity<ProcessContext<Order>>> A named(A activity, String name) {
+        activity.setBeanName(name);
+        return activity;
+    }
+
+    /**
+     * Declares the pricing inputs and outputs of a real pricing activity, but only records that it ran
+     */
+    protected class RecordingActivity extends BaseActivity<ProcessContext<Order>> implements PricingInputAware {
+
+        protected final PricingInputAware declaration;
+
+        public RecordingActivity(PricingInputAware declaration) {
+            this.declaration = declaration;
+        }
+
+        @Override
+        public ProcessContext<Order> execute(ProcessContext<Order> context) throws Exception {
+            executed.add(getBeanName());
+            return context;
+        }
+
+        @Override
+        public Set<PricingInputType> getPricingInputs() {
+            return declaration.getPricingInputs();
+        }
+
+        @Override
+        public Set<PricingInputType> getPricingOutputs() {
+            return declaration.getPricingOutputs();
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.dao;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+public class CompactCatalogStructureTest extends TestCase {
+
+    public void testLongLongMapGrowsAndKeepsEveryEntry() {
+        for (boolean offHeap : new boolean[] { false, true }) {
+            CompactCatalogStructure.LongLongMap map = new CompactCatalogStructure.LongLongMap(4, offHeap);
+            for (long key = -500; key < 5000; key++) {
+                map.put(key, key * 3);
+            }
+            assertEquals(5500, map.size);
+            for (long key = -500; key < 5000; key++) {
+                assertTrue(map.containsKey(key));
+                assertEquals(key * 3, map.get(key));
+            }
+            assertTrue(map.keys.length() >= 2 * map.size);
+        }
+    }
+
+    public void testLongLongMapMissingKeys() {
+        CompactCatalogStructure.LongLongMap map = new CompactCatalogStructure.LongLongMap(4, false);
+        map.put(1L, 10L);
+        map.put(1L, 11L);
+
+        assertEquals(1, map.size);
+        assertEquals(11L, map.get(1L));
+        assertFalse(map.containsKey(2L));
+        assertFalse(map.containsKey(Long.MIN_VALUE));
+        try {
+            map.put(Long.MIN_VALUE, 1L);
+            fail("Long.MIN_VALUE marks an empty slot and cannot be a key");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testLongListGrowsInOrder() {
+        for (boolean offHeap : new boolean[] { false, true }) {
+            CompactCatalogStructure.LongList list = new CompactCatalogStructure.LongList(2, offHeap);
+            for (long value = 0; value < 1000; value++) {
+                list.add(value * 7);
+            }
+            assertEquals(1000, list.size());
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i * 7L, list.get(i));
+            }
+            assertEquals(offHeap ? 0 : 8L * 1024, list.getHeapSize());
+            assertEquals(offHeap ? 8L * 1024 : 0, list.getOffHeapSize());
+        }
+    }
+
+    public void testParentCategoriesKeepTheirOrder() {
+        CompactCatalogStructure structure = new CompactCatalogStructure();
+        structure.addProduct(1L, Arrays.asList(30L, 10L, 20L));
+        structure.addProduct(2L, Collections.<Long>emptyList());
+        structure.addCategory(10L, Arrays.asList(5L));
+        structure.addProduct(1L, Arrays.asList(99L));
+
+        assertTrue(structure.containsProduct(1L));
+        assertTrue(Arrays.equals(new long[] { 30L, 10L, 20L }, structure.getParentCategoryIdsForProduct(1L)));
+        assertTrue(structure.containsProduct(2L));
+        assertEquals(0, structure.getParentCategoryIdsForProduct(2L).length);
+        assertTrue(Arrays.equals(new long[] { 5L }, structure.getParentCategoryIdsForCategory(10L)));
+    }
+
+    public void testMissingEntriesAreEmpty() {
+        CompactCatalogStructure structure = new CompactCatalogStructure();
+
+        assertFalse(structure.containsProduct(1L));
+        assertFalse(structure.containsCategory(1L));
+        assertEquals(0, structure.getParentCategoryIdsForProduct(1L).length);
+        assertEquals(0, structure.getParentCategoryIdsForCategory(1L).length);
+        assertNull(structure.getDisplayOrder(1L, 2L));
+    }
+
+    public void testDisplayOrdersRoundTrip() {
+        CompactCatalogStructure structure = new CompactCatalogStructure(true);
+        structure.putDisplayOrder(1L, 2L, new BigDecimal("3.5"));
+        structure.putDisplayOrder(2L, 1L, new BigDecimal("-1"));
+        // too precise and too large to be packed, kept in the fallback map
+        structure.putDisplayOrder(1L, 3L, new BigDecimal("0.1234567"));
+        structure.putDisplayOrder(-1L, 3L, BigDecimal.ONE);
+
+        assertEquals(0, new BigDecimal("3.5").compareTo(structure.getDisplayOrder(1L, 2L)));
+        assertEquals(0, new BigDecimal("-1").compareTo(structure.getDisplayOrder(2L, 1L)));
+        assertEquals(new BigDecimal("0.1234567"), structure.getDisplayOrder(1L, 3L));
+        assertEquals(BigDecimal.ONE, structure.getDisplayOrder(-1L, 3L));
+        assertNull(structure.getDisplayOrder(3L, 1L));
+        assertEquals(2, structure.unpackedDisplayOrders.size());
+        assertTrue(structure.getOffHeapSize() > 0);
+    }
+}
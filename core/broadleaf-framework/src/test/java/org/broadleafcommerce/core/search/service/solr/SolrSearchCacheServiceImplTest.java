@@ -0,0 +1,124 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.service.solr;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+
+import junit.framework.TestCase;
+
+public class SolrSearchCacheServiceImplTest extends TestCase {
+
+    protected CacheManager cacheManager;
+    protected SolrSearchCacheServiceImpl cacheService;
+    protected SolrQuery query;
+
+    @Override
+    protected void setUp() throws Exception {
+        cacheManager = new CacheManager(new Configuration().name("SolrSearchCacheServiceImplTest"));
+        Cache cache = new Cache(new CacheConfiguration("searchResults", 100));
+        cacheManager.addCache(cache);
+
+        cacheService = new SolrSearchCacheServiceImpl();
+        cacheService.searchResultCacheEnabled = true;
+        cacheService.searchResultCache = cache;
+
+        query = new SolrQuery("shirt");
+        query.setRows(15);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        cacheManager.shutdown();
+    }
+
+    public void testEveryHitGetsItsOwnCopy() {
+        cacheService.putSearchResult(query, buildResponse(1L, 2L));
+
+        QueryResponse first = cacheService.getSearchResult(query);
+        first.getResults().get(0).setField("id", 99L);
+        first.getResults().remove(1);
+
+        QueryResponse second = cacheService.getSearchResult(query);
+        assertNotSame(first, second);
+        assertEquals(2, second.getResults().size());
+        assertEquals(2L, second.getResults().getNumFound());
+        assertEquals(1L, second.getResults().get(0).getFieldValue("id"));
+        assertEquals(1, second.getFacetFields().size());
+    }
+
+    public void testChangingTheOriginalResponseDoesNotChangeTheCache() {
+        QueryResponse response = buildResponse(1L, 2L);
+        cacheService.putSearchResult(query, response);
+
+        response.getResults().get(0).setField("id", 99L);
+
+        assertEquals(1L, cacheService.getSearchResult(query).getResults().get(0).getFieldValue("id"));
+    }
+
+    public void testInvalidatingDropsEveryResponse() {
+        cacheService.putSearchResult(query, buildResponse(1L));
+
+        cacheService.invalidateSearchResults();
+
+        assertNull(cacheService.getSearchResult(query));
+        assertEquals(1, cacheService.getSearchResultMissCount());
+    }
+
+    public void testNothingIsCachedWhenDisabled() {
+        cacheService.searchResultCacheEnabled = false;
+        cacheService.putSearchResult(query, buildResponse(1L));
+
+        assertNull(cacheService.getSearchResult(query));
+        assertEquals(0, cacheService.searchResultCache.getSize());
+    }
+
+    protected QueryResponse buildResponse(Long... ids) {
+        SolrDocumentList documents = new SolrDocumentList();
+        documents.setNumFound(ids.length);
+        for (Long id : ids) {
+            SolrDocument document = new SolrDocument();
+            document.setField("id", id);
+            documents.add(document);
+        }
+
+        NamedList<Object> colorCounts = new NamedList<>();
+        colorCounts.add("red", 2);
+        NamedList<Object> facetFields = new SimpleOrderedMap<>();
+        facetFields.add("color", colorCounts);
+        NamedList<Object> facetCounts = new SimpleOrderedMap<>();
+        facetCounts.add("facet_fields", facetFields);
+
+        NamedList<Object> values = new NamedList<>();
+        values.add("response", documents);
+        values.add("facet_counts", facetCounts);
+
+        QueryResponse response = new QueryResponse();
+        response.setResponse(values);
+        return response;
+    }
+}
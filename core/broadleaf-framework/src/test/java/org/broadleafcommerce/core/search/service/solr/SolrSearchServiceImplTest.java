@@ -0,0 +1,112 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.service.solr;
+
+import org.broadleafcommerce.core.catalog.domain.Indexable;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.ProductImpl;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class SolrSearchServiceImplTest extends TestCase {
+
+    protected SolrSearchServiceImpl searchService;
+
+    @Override
+    protected void setUp() throws Exception {
+        SolrHelperService shs = EasyMock.createMock(SolrHelperService.class);
+        EasyMock.expect(shs.getIndexableId(EasyMock.isA(Indexable.class))).andAnswer(new IAnswer<Long>() {
+            @Override
+            public Long answer() throws Throwable {
+                return ((Indexable) EasyMock.getCurrentArguments()[0]).getId();
+            }
+        }).anyTimes();
+        EasyMock.replay(shs);
+
+        searchService = new SolrSearchServiceImpl();
+        searchService.shs = shs;
+    }
+
+    public void testIndexablesAreSortedByTheResponseOrder() {
+        Product p1 = product(1L);
+        Product p2 = product(2L);
+        Product p3 = product(3L);
+
+        List<Product> sorted = searchService.sortByIndexableIds(Arrays.asList(3L, 1L, 2L), Arrays.asList(p1, p2, p3));
+
+        assertEquals(Arrays.asList(p3, p1, p2), sorted);
+    }
+
+    public void testIdsWithoutAnIndexableAreSkipped() {
+        Product p1 = product(1L);
+        Product p3 = product(3L);
+
+        List<Product> sorted = searchService.sortByIndexableIds(Arrays.asList(3L, 2L, 1L), Arrays.asList(p1, p3));
+
+        assertEquals(Arrays.asList(p3, p1), sorted);
+    }
+
+    public void testIndexablesMissingFromTheResponseAreKeptFirst() {
+        Product p1 = product(1L);
+        Product p2 = product(2L);
+        Product p4 = product(4L);
+        Product p5 = product(5L);
+
+        List<Product> sorted = searchService.sortByIndexableIds(Arrays.asList(2L, 1L),
+                Arrays.asList(p1, p5, p2, p4));
+
+        assertEquals(Arrays.asList(p5, p4, p2, p1), sorted);
+    }
+
+    public void testDuplicatesAreKeptAtTheirFirstPosition() {
+        Product p1 = product(1L);
+        Product p2 = product(2L);
+        Product p2Copy = product(2L);
+
+        List<Product> sorted = searchService.sortByIndexableIds(Arrays.asList(2L, 1L, 2L),
+                Arrays.asList(p1, p2, p2Copy));
+
+        assertEquals(3, sorted.size());
+        assertSame(p2, sorted.get(0));
+        assertSame(p2Copy, sorted.get(1));
+        assertSame(p1, sorted.get(2));
+    }
+
+    public void testTheHydratedListIsNotModified() {
+        Product p1 = product(1L);
+        Product p2 = product(2L);
+        List<Product> products = Collections.unmodifiableList(Arrays.asList(p1, p2));
+
+        List<Product> sorted = searchService.sortByIndexableIds(Arrays.asList(2L, 1L), products);
+
+        assertEquals(Arrays.asList(p2, p1), sorted);
+        assertEquals(Arrays.asList(p1, p2), products);
+    }
+
+    protected Product product(Long id) {
+        Product product = new ProductImpl();
+        product.setId(id);
+        return product;
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.service.solr.index;
+
+import org.broadleafcommerce.core.catalog.dao.SkuDao;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.search.dao.SolrIndexChangeDao;
+import org.broadleafcommerce.core.search.domain.SolrIndexChange;
+import org.broadleafcommerce.core.search.domain.SolrIndexChangeImpl;
+import org.broadleafcommerce.core.search.domain.SolrIndexChangeType;
+import org.broadleafcommerce.core.search.service.solr.SolrConfiguration;
+import org.easymock.EasyMock;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class SolrIndexChangeServiceImplTest extends TestCase {
+
+    protected TestSolrIndexChangeService service;
+    protected SolrIndexChangeDao changeDao;
+    protected SolrIndexService indexService;
+    protected SkuDao skuDao;
+
+    @Override
+    protected void setUp() throws Exception {
+        changeDao = EasyMock.createMock(SolrIndexChangeDao.class);
+        indexService = EasyMock.createMock(SolrIndexService.class);
+        skuDao = EasyMock.createMock(SkuDao.class);
+
+        service = new TestSolrIndexChangeService();
+        service.captureEnabled = true;
+        service.batchSize = 100;
+        service.pageSize = 50;
+        service.useSku = false;
+        service.solrIndexChangeDao = changeDao;
+        service.solrIndexService = indexService;
+        service.skuDao = skuDao;
+        service.transactionManager = new TestTransactionManager();
+        service.solrConfiguration = org.easymock.classextension.EasyMock.createNiceMock(SolrConfiguration.class);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    public void testChangesAreWrittenInTheCallersTransactionBeforeItCommits() {
+        EasyMock.expect(changeDao.createChange(SolrIndexChangeType.PRODUCT, 1L)).andReturn(null);
+        EasyMock.expect(changeDao.createChange(SolrIndexChangeType.SKU, 2L)).andReturn(null);
+        changeDao.flush();
+        EasyMock.replay(changeDao);
+
+        TransactionSynchronizationManager.initSynchronization();
+        service.recordChange(SolrIndexChangeType.PRODUCT, 1L);
+        service.recordChange(SolrIndexChangeType.SKU, 2L);
+        service.recordChange(SolrIndexChangeType.PRODUCT, 1L);
+
+        assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+        assertEquals(1, service.beforeCompletionProcesses.size());
+        service.beforeCompletionProcesses.get(0).doBeforeTransactionCompletion(null);
+        TransactionSynchronizationManager.getSynchronizations().get(0).afterCompletion(
+                TransactionSynchronization.STATUS_COMMITTED);
+
+        EasyMock.verify(changeDao);
+    }
+
+    public void testChangesFlushedOnlyByTheCommitAreWritten() {
+        EasyMock.expect(changeDao.createChange(SolrIndexChangeType.CATEGORY, 3L)).andReturn(null);
+        changeDao.flush();
+        EasyMock.replay(changeDao);
+
+        TransactionSynchronizationManager.initSynchronization();
+        // the commit flush fires the entity listener after every beforeCommit callback has run, so none runs here
+        service.recordChange(SolrIndexChangeType.CATEGORY, 3L);
+        service.beforeCompletionProcesses.get(0).doBeforeTransactionCompletion(null);
+
+        EasyMock.verify(changeDao);
+    }
+
+    public void testRolledBackChangesAreNeverWritten() {
+        EasyMock.replay(changeDao);
+
+        TransactionSynchronizationManager.initSynchronization();
+        service.recordChange(SolrIndexChangeType.PRODUCT, 1L);
+        TransactionSynchronizationManager.getSynchronizations().get(0).afterCompletion(
+                TransactionSynchronization.STATUS_ROLLED_BACK);
+        // a session that outlives the transaction may still run the process on its next commit
+        service.beforeCompletionProcesses.get(0).doBeforeTransactionCompletion(null);
+
+        EasyMock.verify(changeDao);
+    }
+
+    public void testNothingIsRecordedWhenCaptureIsDisabled() {
+        service.captureEnabled = false;
+        EasyMock.replay(changeDao);
+
+        TransactionSynchronizationManager.initSynchronization();
+        service.recordChange(SolrIndexChangeType.PRODUCT, 1L);
+        assertTrue(TransactionSynchronizationManager.getSynchronizations().isEmpty());
+
+        EasyMock.verify(changeDao);
+    }
+
+    public void testDrainCoalescesChangesAndDeletesWhatItProcessed() throws Exception {
+        service.pageSize = 2;
+        EasyMock.expect(changeDao.readChanges(100)).andReturn(Arrays.asList(
+                change(10L, SolrIndexChangeType.PRODUCT, 3L),
+                change(11L, SolrIndexChangeType.PRODUCT, 1L),
+                change(12L, SolrIndexChangeType.SKU, 5L),
+                change(13L, SolrIndexChangeType.PRODUCT, 1L)));
+        EasyMock.expect(changeDao.deleteChanges(Arrays.asList(10L, 11L, 12L, 13L))).andReturn(4);
+        EasyMock.expect(skuDao.readSkusByIds(Arrays.asList(5L))).andReturn(Collections.singletonList(skuOfProduct(2L)));
+        EasyMock.replay(changeDao, skuDao);
+
+        assertEquals(4, service.processChanges());
+
+        List<List<Long>> expected = new ArrayList<List<Long>>();
+        expected.add(Arrays.asList(1L, 2L));
+        expected.add(Arrays.asList(3L));
+        assertEquals(expected, service.reindexedPages);
+        assertEquals(4, service.getProcessedChangeCount());
+        EasyMock.verify(changeDao, skuDao);
+    }
+
+    public void testRebuildDeletesOnlyTheChangesItRead() throws Exception {
+        service.batchSize = 2;
+        EasyMock.expect(changeDao.readChanges(2)).andReturn(Arrays.asList(
+                change(20L, SolrIndexChangeType.SKU, 1L),
+                change(21L, SolrIndexChangeType.INDEX_FIELD, 7L)));
+        EasyMock.expect(changeDao.readChangeIds(null, 2)).andReturn(Arrays.asList(20L, 21L));
+        EasyMock.expect(changeDao.readChangeIds(21L, 2)).andReturn(Arrays.asList(25L));
+        EasyMock.expect(changeDao.deleteChanges(Arrays.asList(20L, 21L, 25L))).andReturn(3);
+        indexService.rebuildIndex();
+        EasyMock.replay(changeDao, indexService);
+
+        assertEquals(3, service.processChanges());
+
+        assertTrue(service.reindexedPages.isEmpty());
+        assertEquals(1, service.getFullRebuildCount());
+        EasyMock.verify(changeDao, indexService);
+    }
+
+    protected SolrIndexChange change(Long id, SolrIndexChangeType entityType, Long entityId) {
+        SolrIndexChange change = new SolrIndexChangeImpl();
+        change.setId(id);
+        change.setEntityType(entityType);
+        change.setEntityId(entityId);
+        return change;
+    }
+
+    protected Sku skuOfProduct(Long productId) {
+        Product product = EasyMock.createNiceMock(Product.class);
+        EasyMock.expect(product.getId()).andReturn(productId).anyTimes();
+        Sku sku = EasyMock.createNiceMock(Sku.class);
+        EasyMock.expect(sku.getProduct()).andReturn(product).anyTimes();
+        EasyMock.replay(product, sku);
+        return sku;
+    }
+
+    protected static class TestSolrIndexChangeService extends SolrIndexChangeServiceImpl {
+
+        protected final List<List<Long>> reindexedPages = new ArrayList<List<Long>>();
+        protected final List<PendingChanges> beforeCompletionProcesses = new ArrayList<PendingChanges>();
+
+        @Override
+        protected void registerBeforeCompletion(PendingChanges pending) {
+            beforeCompletionProcesses.add(pending);
+        }
+
+        @Override
+        protected void reindexPage(List<Long> ids) {
+            reindexedPages.add(new ArrayList<Long>(ids));
+        }
+    }
+
+    protected static class TestTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
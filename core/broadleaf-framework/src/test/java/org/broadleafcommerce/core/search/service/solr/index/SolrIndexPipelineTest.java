@@ -0,0 +1,292 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.service.solr.index;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.response.UpdateResponse;
+import org.apache.solr.common.SolrInputDocument;
+import org.broadleafcommerce.common.exception.ServiceException;
+import org.broadleafcommerce.core.catalog.domain.Indexable;
+import org.broadleafcommerce.core.search.domain.FieldEntity;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class SolrIndexPipelineTest extends TestCase {
+
+    protected SolrClient solrClient;
+    protected SolrIndexService indexService;
+    protected TestTransactionManager transactionManager;
+    protected List<Long> sentIds;
+    protected AtomicInteger commits;
+
+    @Override
+    protected void setUp() throws Exception {
+        sentIds = Collections.synchronizedList(new ArrayList<Long>());
+        commits = new AtomicInteger();
+        transactionManager = new TestTransactionManager();
+
+        solrClient = org.easymock.classextension.EasyMock.createNiceMock(SolrClient.class);
+        EasyMock.expect(solrClient.add(EasyMock.<Collection<SolrInputDocument>>anyObject())).andAnswer(new IAnswer<UpdateResponse>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public UpdateResponse answer() throws Throwable {
+                for (SolrInputDocument document : (Collection<SolrInputDocument>) EasyMock.getCurrentArguments()[0]) {
+                    sentIds.add((Long) document.getFieldValue("id"));
+                }
+                return null;
+            }
+        }).anyTimes();
+        org.easymock.classextension.EasyMock.replay(solrClient);
+
+        indexService = EasyMock.createNiceMock(SolrIndexService.class);
+        indexService.performCachedOperation(EasyMock.isA(SolrIndexCachedOperation.CacheOperation.class));
+        EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() throws Throwable {
+                ((SolrIndexCachedOperation.CacheOperation) EasyMock.getCurrentArguments()[0]).execute();
+                return null;
+            }
+        }).anyTimes();
+        indexService.commit(solrClient);
+        EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() throws Throwable {
+                commits.incrementAndGet();
+                return null;
+            }
+        }).anyTimes();
+        EasyMock.replay(indexService);
+    }
+
+    public void testPagesAreReadInKeysetOrderAndEveryIdIsSentOnce() throws Exception {
+        TestOperation operation = new TestOperation(ids(1, 250));
+        new SolrIndexPipeline(indexService, operation, transactionManager, 20, 4, 2, 15, 2).execute(250L);
+
+        List<Long> expectedLastIds = new ArrayList<Long>();
+        expectedLastIds.add(null);
+        for (long lastId = 20; lastId <= 240; lastId += 20) {
+            expectedLastIds.add(lastId);
+        }
+        assertEquals(expectedLastIds, operation.lastIds);
+
+        for (List<Long> page : operation.builtPages) {
+            List<Long> sorted = new ArrayList<Long>(page);
+            Collections.sort(sorted);
+            assertEquals("a page must be loaded in the order its ids were read", sorted, page);
+        }
+        assertEquals(13, operation.builtPages.size());
+
+        List<Long> sent = new ArrayList<Long>(sentIds);
+        Collections.sort(sent);
+        assertEquals(ids(1, 250), sent);
+        assertEquals(1, commits.get());
+        assertEquals(0, transactionManager.rollbacks.get());
+        assertEquals(transactionManager.begins.get(), transactionManager.commits.get());
+    }
+
+    public void testBuildFailureIsRethrownAndNothingIsCommitted() throws Exception {
+        TestOperation operation = new TestOperation(ids(1, 500));
+        operation.failOnId = 105L;
+        try {
+            new SolrIndexPipeline(indexService, operation, transactionManager, 10, 3, 2, 5, 2).execute(500L);
+            fail("the build failure should be rethrown");
+        } catch (ServiceException e) {
+            assertEquals("failed to build 105", e.getMessage());
+        }
+        assertEquals(0, commits.get());
+        assertTrue("reading should stop once a build has failed", operation.lastIds.size() < 50);
+        assertTrue(transactionManager.rollbacks.get() >= 1);
+    }
+
+    public void testReadFailureIsRethrown() throws Exception {
+        TestOperation operation = new TestOperation(ids(1, 100));
+        operation.failReadAfter = 40L;
+        try {
+            new SolrIndexPipeline(indexService, operation, transactionManager, 20, 2, 2, 10, 2).execute(100L);
+            fail("the read failure should be rethrown");
+        } catch (IllegalStateException e) {
+            assertEquals("failed to read after 40", e.getMessage());
+        }
+        assertEquals(0, commits.get());
+    }
+
+    protected static List<Long> ids(long from, long to) {
+        List<Long> ids = new ArrayList<Long>();
+        for (long id = from; id <= to; id++) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    protected class TestOperation implements PipelinedSolrIndexOperation {
+
+        protected final List<Long> ids;
+        protected final List<Long> lastIds = Collections.synchronizedList(new ArrayList<Long>());
+        protected final List<List<Long>> builtPages = Collections.synchronizedList(new ArrayList<List<Long>>());
+        protected volatile Long failOnId;
+        protected volatile Long failReadAfter;
+
+        public TestOperation(List<Long> ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public List<Long> readIndexableIds(int pageSize, Long lastId) {
+            if (failReadAfter != null && failReadAfter.equals(lastId)) {
+                throw new IllegalStateException("failed to read after " + lastId);
+            }
+            lastIds.add(lastId);
+            List<Long> page = new ArrayList<Long>();
+            for (Long id : ids) {
+                if ((lastId == null || id > lastId) && page.size() < pageSize) {
+                    page.add(id);
+                }
+            }
+            return page;
+        }
+
+        @Override
+        public List<? extends Indexable> readIndexablesByIds(List<Long> ids) {
+            List<Indexable> indexables = new ArrayList<Indexable>();
+            for (Long id : ids) {
+                indexables.add(new TestIndexable(id));
+            }
+            return indexables;
+        }
+
+        @Override
+        public void buildPage(List<? extends Indexable> indexables) throws ServiceException {
+            List<Long> page = new ArrayList<Long>();
+            List<SolrInputDocument> documents = new ArrayList<SolrInputDocument>();
+            for (Indexable indexable : indexables) {
+                if (indexable.getId().equals(failOnId)) {
+                    throw new ServiceException("failed to build " + failOnId);
+                }
+                page.add(indexable.getId());
+                SolrInputDocument document = new SolrInputDocument();
+                document.addField("id", indexable.getId());
+                documents.add(document);
+            }
+            builtPages.add(page);
+            assertTrue("documents built on a pipeline thread should go to the sender",
+                    SolrIndexPipeline.submitDocuments(documents, solrClient));
+        }
+
+        @Override
+        public List<? extends Indexable> readIndexables(int pageSize, Long lastId) {
+            throw new UnsupportedOperationException("the pipeline only reads ids");
+        }
+
+        @Override
+        public SolrClient getSolrServerForIndexing() {
+            return solrClient;
+        }
+
+        @Override
+        public boolean obtainLock() {
+            return true;
+        }
+
+        @Override
+        public void beforeCountIndexables() {
+        }
+
+        @Override
+        public Long countIndexables() {
+            return (long) ids.size();
+        }
+
+        @Override
+        public void afterCountIndexables() {
+        }
+
+        @Override
+        public void beforeReadIndexables() {
+        }
+
+        @Override
+        public void afterReadIndexables() {
+        }
+
+        @Override
+        public void beforeBuildPage() {
+        }
+
+        @Override
+        public void afterBuildPage() {
+        }
+
+        @Override
+        public void releaseLock() {
+        }
+    }
+
+    protected static class TestIndexable implements Indexable {
+
+        protected final Long id;
+
+        public TestIndexable(Long id) {
+            this.id = id;
+        }
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public FieldEntity getFieldEntityType() {
+            return FieldEntity.PRODUCT;
+        }
+    }
+
+    protected static class TestTransactionManager implements PlatformTransactionManager {
+
+        protected final AtomicInteger begins = new AtomicInteger();
+        protected final AtomicInteger commits = new AtomicInteger();
+        protected final AtomicInteger rollbacks = new AtomicInteger();
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            begins.incrementAndGet();
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            commits.incrementAndGet();
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            rollbacks.incrementAndGet();
+        }
+    }
+}
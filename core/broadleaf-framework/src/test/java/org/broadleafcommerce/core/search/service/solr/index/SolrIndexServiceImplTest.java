@@ -0,0 +1,85 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.service.solr.index;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.broadleafcommerce.core.search.service.solr.SolrConfiguration;
+import org.broadleafcommerce.core.search.service.solr.SolrHelperService;
+import org.broadleafcommerce.core.search.service.solr.SolrSearchCacheService;
+import org.easymock.EasyMock;
+
+import junit.framework.TestCase;
+
+public class SolrIndexServiceImplTest extends TestCase {
+
+    protected SolrIndexServiceImpl indexService;
+    protected SolrClient liveServer;
+    protected SolrClient reindexServer;
+    protected SolrSearchCacheService searchCacheService;
+
+    @Override
+    protected void setUp() throws Exception {
+        liveServer = org.easymock.classextension.EasyMock.createNiceMock(SolrClient.class);
+        reindexServer = org.easymock.classextension.EasyMock.createNiceMock(SolrClient.class);
+        org.easymock.classextension.EasyMock.replay(liveServer, reindexServer);
+
+        SolrConfiguration solrConfiguration = org.easymock.classextension.EasyMock.createNiceMock(SolrConfiguration.class);
+        EasyMock.expect(solrConfiguration.getServer()).andReturn(liveServer).anyTimes();
+        EasyMock.expect(solrConfiguration.getReindexServer()).andReturn(reindexServer).anyTimes();
+        org.easymock.classextension.EasyMock.replay(solrConfiguration);
+
+        searchCacheService = EasyMock.createMock(SolrSearchCacheService.class);
+
+        indexService = new SolrIndexServiceImpl();
+        indexService.commit = true;
+        indexService.solrConfiguration = solrConfiguration;
+        indexService.searchCacheService = searchCacheService;
+        indexService.shs = EasyMock.createNiceMock(SolrHelperService.class);
+        EasyMock.replay(indexService.shs);
+    }
+
+    public void testCommittingTheReindexCoreKeepsTheSearchCache() throws Exception {
+        EasyMock.replay(searchCacheService);
+
+        indexService.commit(reindexServer);
+        indexService.deleteAllDocuments(reindexServer);
+
+        EasyMock.verify(searchCacheService);
+    }
+
+    public void testCommittingTheLiveCoreInvalidatesTheSearchCache() throws Exception {
+        searchCacheService.invalidateSearchResults();
+        EasyMock.expectLastCall().times(2);
+        EasyMock.replay(searchCacheService);
+
+        indexService.commit(liveServer);
+        indexService.deleteAllDocuments(liveServer);
+
+        EasyMock.verify(searchCacheService);
+    }
+
+    public void testSwappingTheCoresInvalidatesTheSearchCache() throws Exception {
+        searchCacheService.invalidateMetadata();
+        searchCacheService.invalidateSearchResults();
+        EasyMock.replay(searchCacheService);
+
+        indexService.postBuildIndex();
+
+        EasyMock.verify(searchCacheService);
+    }
+}
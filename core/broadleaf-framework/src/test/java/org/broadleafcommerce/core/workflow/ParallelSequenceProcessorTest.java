@@ -0,0 +1,253 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.workflow;
+
+import org.broadleafcommerce.core.workflow.state.ActivityStateManager;
+import org.broadleafcommerce.core.workflow.state.ActivityStateManagerImpl;
+import org.broadleafcommerce.core.workflow.state.RollbackFailureException;
+import org.broadleafcommerce.core.workflow.state.RollbackHandler;
+import org.easymock.EasyMock;
+import org.springframework.beans.factory.BeanFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class ParallelSequenceProcessorTest extends TestCase {
+
+    protected ExecutorService executor;
+    protected ParallelSequenceProcessor<String, String> processor;
+    protected List<String> rolledBack;
+
+    @Override
+    protected void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(2);
+        rolledBack = Collections.synchronizedList(new ArrayList<String>());
+
+        ActivityStateManagerImpl<ProcessContext<String>> stateManager = new ActivityStateManagerImpl<>();
+        stateManager.init();
+        BeanFactory beanFactory = EasyMock.createMock(BeanFactory.class);
+        EasyMock.expect(beanFactory.getBean(ActivityStateManager.class, "blActivityStateManager")).andReturn(stateManager).anyTimes();
+        EasyMock.expect(beanFactory.containsBean(EasyMock.anyObject(String.class))).andReturn(false).anyTimes();
+        EasyMock.replay(beanFactory);
+
+        processor = new ParallelSequenceProcessor<>();
+        processor.setBeanName("testWorkflow");
+        processor.setBeanFactory(beanFactory);
+        processor.setTaskExecutor(executor);
+        processor.setDefaultErrorHandler(new DefaultErrorHandler());
+        processor.setProcessContextFactory(new ProcessContextFactory<String, String>() {
+            @Override
+            public ProcessContext<String> createContext(String preSeedData) throws WorkflowException {
+                ProcessContext<String> context = new DefaultProcessContextImpl<>();
+                context.setSeedData(preSeedData);
+                return context;
+            }
+        });
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    public void testStagesFollowDeclaredDependencies() {
+        TestActivity a = new TestActivity("a");
+        TestActivity b = new TestActivity("b");
+        TestActivity c = new TestActivity("c");
+        TestActivity d = new TestActivity("d");
+        processor.setActivityDependencies(dependencies("b", "a", "c", "a"));
+
+        List<List<Activity<ProcessContext<String>>>> stages = processor.buildStages(Arrays.<Activity<ProcessContext<String>>>asList(a, b, c, d));
+
+        assertEquals(3, stages.size());
+        assertEquals(Arrays.asList(a), stages.get(0));
+        assertEquals(Arrays.asList(b, c), stages.get(1));
+        assertEquals(Arrays.asList(d), stages.get(2));
+    }
+
+    public void testWithoutDependenciesEveryActivityIsItsOwnStage() {
+        TestActivity a = new TestActivity("a");
+        TestActivity b = new TestActivity("b");
+
+        List<List<Activity<ProcessContext<String>>>> stages = processor.buildStages(Arrays.<Activity<ProcessContext<String>>>asList(a, b));
+
+        assertEquals(2, stages.size());
+    }
+
+    public void testIndependentActivitiesRunConcurrently() throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        TestActivity a = new TestActivity("a");
+        TestActivity b = new TestActivity("b");
+        b.barrier = barrier;
+        TestActivity c = new TestActivity("c");
+        c.barrier = barrier;
+        processor.setActivities(Arrays.<Activity<ProcessContext<String>>>asList(a, b, c));
+        processor.setActivityDependencies(dependencies("b", "a", "c", "a"));
+
+        ProcessContext<String> context = processor.doActivities("seed");
+
+        assertFalse(context.isStopped());
+        assertTrue(a.executed && b.executed && c.executed);
+    }
+
+    public void testFailureRollsBackStateRegisteredOnWorkerThreads() throws Exception {
+        TestActivity a = new TestActivity("a");
+        a.setAutomaticallyRegisterRollbackHandler(true);
+        TestActivity b = new TestActivity("b");
+        b.registerStateOnExecute = true;
+        TestActivity c = new TestActivity("c");
+        c.registerStateOnExecute = true;
+        TestActivity d = new TestActivity("d");
+        d.fail = true;
+        processor.setActivities(Arrays.<Activity<ProcessContext<String>>>asList(a, b, c, d));
+        processor.setActivityDependencies(dependencies("b", "a", "c", "a"));
+
+        try {
+            processor.doActivities("seed");
+            fail("Expected the failing activity to stop the workflow");
+        } catch (WorkflowException e) {
+            // expected
+        }
+
+        assertEquals(3, rolledBack.size());
+        assertTrue(rolledBack.containsAll(Arrays.asList("a", "b", "c")));
+    }
+
+    public void testEveryRollbackHandlerFiresWhenManyWorkersRegisterState() throws Exception {
+        ExecutorService wideExecutor = Executors.newFixedThreadPool(8);
+        processor.setTaskExecutor(wideExecutor);
+        try {
+            for (int run = 0; run < 25; run++) {
+                rolledBack.clear();
+                List<Activity<ProcessContext<String>>> activities = new ArrayList<>();
+                Map<String, List<String>> dependencies = new HashMap<>();
+                TestActivity root = new TestActivity("root");
+                root.setAutomaticallyRegisterRollbackHandler(true);
+                activities.add(root);
+                List<String> expected = new ArrayList<>();
+                expected.add("root");
+                for (int i = 0; i < 16; i++) {
+                    TestActivity worker = new TestActivity("worker" + i);
+                    // half register their own state from the worker thread, half are registered by the processor
+                    if (i % 2 == 0) {
+                        worker.registerStateOnExecute = true;
+                    } else {
+                        worker.setAutomaticallyRegisterRollbackHandler(true);
+                    }
+                    activities.add(worker);
+                    dependencies.put(worker.getBeanName(), Arrays.asList("root"));
+                    expected.add(worker.getBeanName());
+                }
+                TestActivity failing = new TestActivity("failing");
+                failing.fail = true;
+                activities.add(failing);
+                processor.setActivities(activities);
+                processor.setActivityDependencies(dependencies);
+
+                try {
+                    processor.doActivities("seed");
+                    fail("Expected the failing activity to stop the workflow");
+                } catch (WorkflowException e) {
+                    // expected
+                }
+
+                assertEquals(expected.size(), rolledBack.size());
+                assertTrue(rolledBack.containsAll(expected));
+            }
+        } finally {
+            wideExecutor.shutdownNow();
+        }
+    }
+
+    public void testStoppingActivityEndsTheWorkflowAfterItsStage() throws Exception {
+        TestActivity a = new TestActivity("a");
+        a.setAutomaticallyRegisterRollbackHandler(true);
+        TestActivity b = new TestActivity("b");
+        b.setAutomaticallyRegisterRollbackHandler(true);
+        b.stop = true;
+        TestActivity c = new TestActivity("c");
+        processor.setActivities(Arrays.<Activity<ProcessContext<String>>>asList(a, b, c));
+        processor.setActivityDependencies(dependencies("b", "a", "c", "b"));
+
+        ProcessContext<String> context = processor.doActivities("seed");
+
+        assertTrue(context.isStopped());
+        assertTrue(a.executed && b.executed);
+        assertFalse(c.executed);
+    }
+
+    protected Map<String, List<String>> dependencies(String... pairs) {
+        Map<String, List<String>> dependencies = new HashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (!dependencies.containsKey(pairs[i])) {
+                dependencies.put(pairs[i], new ArrayList<String>());
+            }
+            dependencies.get(pairs[i]).add(pairs[i + 1]);
+        }
+        return dependencies;
+    }
+
+    protected class TestActivity extends BaseActivity<ProcessContext<String>> {
+
+        protected CyclicBarrier barrier;
+        protected boolean registerStateOnExecute = false;
+        protected boolean fail = false;
+        protected boolean stop = false;
+        protected volatile boolean executed = false;
+
+        public TestActivity(String name) {
+            setBeanName(name);
+            setRollbackHandler(new RollbackHandler<ProcessContext<String>>() {
+                @Override
+                public void rollbackState(Activity<ProcessContext<String>> activity, ProcessContext<String> processContext,
+                        Map<String, Object> stateConfiguration) throws RollbackFailureException {
+                    rolledBack.add(activity.getBeanName());
+                }
+            });
+        }
+
+        @Override
+        public ProcessContext<String> execute(ProcessContext<String> context) throws Exception {
+            if (barrier != null) {
+                // Both activities in the stage must be running at once to get past this
+                barrier.await(5, TimeUnit.SECONDS);
+            }
+            if (fail) {
+                throw new IllegalStateException("failing activity " + getBeanName());
+            }
+            if (registerStateOnExecute) {
+                ActivityStateManagerImpl.getStateManager().registerState(this, context, getRollbackHandler(), new HashMap<String, Object>());
+            }
+            if (stop) {
+                context.stopProcess();
+            }
+            executed = true;
+            return context;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.workflow.monitor;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanAttributeInfo;
+
+import junit.framework.TestCase;
+
+public class WorkflowStatisticsServiceImplTest extends TestCase {
+
+    protected static final double DELTA = 0.0000001D;
+
+    protected WorkflowStatisticsServiceImpl service;
+
+    @Override
+    protected void setUp() throws Exception {
+        service = new WorkflowStatisticsServiceImpl();
+        WorkflowTrace.clearCurrentTrace();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        WorkflowTrace.clearCurrentTrace();
+    }
+
+    public void testActivityCountersAreKeptPerWorkflowAndActivity() throws Exception {
+        service.workflowStarted("blPricingWorkflow");
+        service.activityExecuted("blPricingWorkflow", "blOfferActivity", 2000000L, false);
+        service.activityExecuted("blPricingWorkflow", "blOfferActivity", 4000000L, true);
+        service.activitySkipped("blPricingWorkflow", "blTaxActivity");
+        service.workflowRolledBack("blPricingWorkflow", "blOfferActivity");
+        service.workflowCompleted("blPricingWorkflow", 7000000L, true);
+
+        WorkflowStatistic offer = service.getStatistics().get("blPricingWorkflow.blOfferActivity");
+        assertEquals(2L, offer.getExecutionCount());
+        assertEquals(1L, offer.getErrorCount());
+        assertEquals(50D, offer.getErrorRate(), DELTA);
+        assertEquals(1L, offer.getRollbackCount());
+        assertEquals(3D, offer.getLatency().getMeanMillis(), DELTA);
+
+        WorkflowStatistic tax = service.getStatistics().get("blPricingWorkflow.blTaxActivity");
+        assertEquals(0L, tax.getExecutionCount());
+        assertEquals(1L, tax.getSkipCount());
+
+        WorkflowStatistic workflow = service.getStatistics().get("blPricingWorkflow");
+        assertEquals(1L, workflow.getExecutionCount());
+        assertEquals(1L, workflow.getErrorCount());
+        assertEquals(1L, workflow.getRollbackCount());
+    }
+
+    public void testStatisticsArePublishedAsMBeanAttributes() throws Exception {
+        service.activityExecuted("blCheckoutWorkflow", "blPaymentServiceActivity", 1000000L, false);
+
+        assertEquals(1L, service.getAttribute("blCheckoutWorkflow.blPaymentServiceActivity.count"));
+        assertEquals(1D, (Double) service.getAttribute("blCheckoutWorkflow.blPaymentServiceActivity.maxMs"), DELTA);
+        assertEquals(0D, (Double) service.getAttribute("blCheckoutWorkflow.blPaymentServiceActivity.errorRate"), DELTA);
+
+        Set<String> names = new HashSet<String>();
+        for (MBeanAttributeInfo info : service.getMBeanInfo().getAttributes()) {
+            names.add(info.getName());
+        }
+        for (String name : WorkflowStatisticsServiceImpl.STAT_ATTRIBUTES) {
+            assertTrue(names.contains("blCheckoutWorkflow.blPaymentServiceActivity." + name));
+        }
+
+        try {
+            service.getAttribute("blCheckoutWorkflow.unknownActivity.count");
+            fail("Expected an unknown key to be rejected");
+        } catch (AttributeNotFoundException e) {
+            // expected
+        }
+    }
+
+    public void testResetClearsCounters() {
+        service.activityExecuted("blPricingWorkflow", "blOfferActivity", 1000000L, true);
+        service.resetStatistics();
+
+        WorkflowStatistic offer = service.getStatistics().get("blPricingWorkflow.blOfferActivity");
+        assertEquals(0L, offer.getExecutionCount());
+        assertEquals(0L, offer.getErrorCount());
+        assertEquals(0D, offer.getLatency().getMaxMillis(), DELTA);
+    }
+
+    public void testSlowOutermostWorkflowIsTraced() throws Exception {
+        service.setTraceEnabled(true);
+        service.setSlowTraceThresholdMs(5L);
+
+        service.workflowStarted("blCheckoutWorkflow");
+        service.workflowStarted("blPricingWorkflow");
+        service.activityExecuted("blPricingWorkflow", "blOfferActivity", 1000000L, false);
+        service.workflowCompleted("blPricingWorkflow", 6000000L, false);
+        assertEquals("", service.getAttribute(WorkflowStatisticsServiceImpl.LAST_SLOW_TRACE));
+
+        service.workflowCompleted("blCheckoutWorkflow", 8000000L, false);
+        String trace = (String) service.getAttribute(WorkflowStatisticsServiceImpl.LAST_SLOW_TRACE);
+        assertTrue(trace.contains("blCheckoutWorkflow"));
+        assertTrue(trace.contains("blOfferActivity"));
+    }
+
+    public void testFastWorkflowIsNotTraced() throws Exception {
+        service.setTraceEnabled(true);
+        service.setSlowTraceThresholdMs(1000L);
+
+        service.workflowStarted("blPricingWorkflow");
+        service.workflowCompleted("blPricingWorkflow", 1000000L, false);
+        assertEquals("", service.getAttribute(WorkflowStatisticsServiceImpl.LAST_SLOW_TRACE));
+    }
+
+}
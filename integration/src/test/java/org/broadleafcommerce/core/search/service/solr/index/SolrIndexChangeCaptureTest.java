@@ -0,0 +1,98 @@
+/*
+ * #%L
+ * BroadleafCommerce Integration
+ * %%
+ * Copyright (C) 2009 - 2016 Broadleaf Commerce
+ * %%
+ * Licensed under the Broadleaf Fair Use License Agreement, Version 1.0
+ * (the "Fair Use License" located  at http://license.broadleafcommerce.org/fair_use_license-1.0.txt)
+ * unless the restrictions on use therein are violated and require payment to Broadleaf in which case
+ * the Broadleaf End User License Agreement (EULA), Version 1.1
+ * (the "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt)
+ * shall apply.
+ * 
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the "Custom License")
+ * between you and Broadleaf Commerce. You may not use this file except in compliance with the applicable license.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.service.solr.index;
+
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.catalog.service.CatalogService;
+import org.broadleafcommerce.core.search.dao.SolrIndexChangeDao;
+import org.broadleafcommerce.core.search.domain.SolrIndexChange;
+import org.broadleafcommerce.core.search.domain.SolrIndexChangeType;
+import org.broadleafcommerce.test.TestNGSiteIntegrationSetup;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testng.annotations.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Resource;
+
+public class SolrIndexChangeCaptureTest extends TestNGSiteIntegrationSetup {
+
+    @Resource(name = "blSolrIndexChangeService")
+    private SolrIndexChangeService changeService;
+
+    @Resource(name = "blSolrIndexChangeDao")
+    private SolrIndexChangeDao changeDao;
+
+    @Resource
+    private CatalogService catalogService;
+
+    @Resource(name = "blTransactionManager")
+    private PlatformTransactionManager transactionManager;
+
+    @Test(groups = { "captureSolrIndexChanges" })
+    public void changesFlushedOnlyByTheCommitAreRecorded() {
+        SolrIndexChangeServiceImpl service = AopTestUtils.getUltimateTargetObject(changeService);
+        boolean captureEnabled = service.captureEnabled;
+        service.captureEnabled = true;
+        try {
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            // nothing in this transaction reads from the database, so the sku is only inserted by the commit flush
+            final Long skuId = transaction.execute(new TransactionCallback<Long>() {
+                @Override
+                public Long doInTransaction(TransactionStatus status) {
+                    Sku sku = catalogService.createSku();
+                    sku.setName("indexed sku");
+                    sku.setRetailPrice(new Money(BigDecimal.valueOf(15.0)));
+                    return catalogService.saveSku(sku).getId();
+                }
+            });
+
+            final List<Long> changeIds = transaction.execute(new TransactionCallback<List<Long>>() {
+                @Override
+                public List<Long> doInTransaction(TransactionStatus status) {
+                    List<Long> response = new ArrayList<Long>();
+                    for (SolrIndexChange change : changeDao.readChanges(Integer.MAX_VALUE)) {
+                        if (SolrIndexChangeType.SKU.equals(change.getEntityType()) && skuId.equals(change.getEntityId())) {
+                            response.add(change.getId());
+                        }
+                    }
+                    return response;
+                }
+            });
+            assert changeIds.size() == 1;
+
+            transaction.execute(new TransactionCallback<Object>() {
+                @Override
+                public Object doInTransaction(TransactionStatus status) {
+                    changeDao.deleteChanges(changeIds);
+                    return null;
+                }
+            });
+        } finally {
+            service.captureEnabled = captureEnabled;
+        }
+    }
+
+}